@@ -0,0 +1,68 @@
+package com.nuclearvet.common.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de dinero en unidades menores (centavos) sobre long.
+ * Evita crear un BigDecimal por cada operación en los cálculos masivos de facturación;
+ * BigDecimal solo se usa al entrar y salir de las entidades.
+ * Todas las operaciones lanzan ArithmeticException si hay desbordamiento.
+ */
+public final class Centavos {
+
+    private static final int ESCALA = 2;
+    private static final long PUNTOS_BASICOS_POR_UNIDAD = 10_000L; // 100% = 10000 puntos básicos
+
+    private Centavos() {
+    }
+
+    /**
+     * Convierte un valor monetario a centavos (redondeo HALF_UP si trae más de 2 decimales)
+     */
+    public static long desde(BigDecimal valor) {
+        if (valor == null) {
+            return 0L;
+        }
+        return valor.setScale(ESCALA, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convierte centavos a BigDecimal con escala 2
+     */
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    /**
+     * Convierte un porcentaje (ej: 19.00) a puntos básicos (1900)
+     */
+    public static long puntosBasicos(BigDecimal porcentaje) {
+        if (porcentaje == null) {
+            return 0L;
+        }
+        return porcentaje.setScale(ESCALA, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Precio unitario por cantidad
+     */
+    public static long multiplicar(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, (long) cantidad);
+    }
+
+    /**
+     * Aplica un porcentaje expresado en puntos básicos, redondeando al centavo con HALF_UP
+     * (la mitad se aleja de cero), igual que BigDecimal con RoundingMode.HALF_UP.
+     * Ej: porcentaje(10050, 1900) = 1910 (19% de 100.50 = 19.095 -> 19.10)
+     */
+    public static long porcentaje(long centavos, long puntosBasicos) {
+        long producto = Math.multiplyExact(centavos, puntosBasicos);
+        long cociente = producto / PUNTOS_BASICOS_POR_UNIDAD;
+        long resto = Math.abs(producto % PUNTOS_BASICOS_POR_UNIDAD);
+        if (resto * 2 >= PUNTOS_BASICOS_POR_UNIDAD) {
+            cociente += Long.signum(producto);
+        }
+        return cociente;
+    }
+}
@@ -0,0 +1,90 @@
+package com.nuclearvet.common.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de archivos CSV registro por registro, sin cargar el archivo en memoria.
+ * Acepta campos entre comillas con separadores, comillas dobles ("") y saltos de línea (RFC 4180).
+ * El separador es ';' si la primera línea lo trae y no trae comas (exportaciones de Excel en español), si no ','.
+ */
+public final class LectorCsv implements Closeable {
+
+    private static final int LARGO_MAXIMO_ENCABEZADO = 8192;
+
+    private final BufferedReader reader;
+    private final char separador;
+    private int linea;            // Línea donde empieza el último registro leído
+    private int siguienteLinea = 1;
+
+    public LectorCsv(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.reader.mark(LARGO_MAXIMO_ENCABEZADO);
+        String primeraLinea = this.reader.readLine();
+        this.reader.reset();
+        this.separador = primeraLinea != null && primeraLinea.indexOf(';') >= 0 && primeraLinea.indexOf(',') < 0
+                ? ';'
+                : ',';
+    }
+
+    /**
+     * Lee el siguiente registro; devuelve null al final del archivo
+     */
+    public List<String> siguiente() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        linea = siguienteLinea;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (; c != -1; c = reader.read()) {
+            char caracter = (char) c;
+            if (entreComillas) {
+                if (caracter != '"') {
+                    if (caracter == '\n') {
+                        siguienteLinea++;
+                    }
+                    campo.append(caracter);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    campo.append('"');
+                } else {
+                    reader.reset();
+                    entreComillas = false;
+                }
+            } else if (caracter == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (caracter == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (caracter == '\n') {
+                siguienteLinea++;
+                break;
+            } else if (caracter != '\r') {
+                campo.append(caracter);
+            }
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    /**
+     * Número de línea (desde 1) donde empieza el último registro leído
+     */
+    public int getLinea() {
+        return linea;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.nuclearvet.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuración del procesamiento de documentos electrónicos de facturas.
+ * Define el pool acotado de hilos donde se generan, firman y envían los documentos.
+ */
+@Configuration
+public class FacturacionElectronicaConfig {
+
+    @Value("${facturacion.electronica.hilos:4}")
+    private int hilos;
+
+    @Value("${facturacion.electronica.capacidad-cola:1000}")
+    private int capacidadCola;
+
+    @Bean(name = "executorDocumentosElectronicos")
+    public ThreadPoolTaskExecutor executorDocumentosElectronicos() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("doc-electronico-");
+
+        // Cola llena: el hilo que encola ejecuta la tarea (contrapresión en vez de rechazo)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nuclearvet.config;
+
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+import com.nuclearvet.modulos.notificaciones.service.EnviadorCanalNotificacion;
+import com.nuclearvet.modulos.notificaciones.service.EnviadorCanalSimulado;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Enviadores simulados de notificaciones, uno por canal, mientras no haya integración con los
+ * proveedores reales. Cada canal se configura con notificaciones.simulado.<canal>.* (lote, concurrencia,
+ * latencia-ms, probabilidad-fallo-lote, probabilidad-fallo); los valores por omisión imitan el
+ * tamaño de lote y la latencia típicos de cada tipo de proveedor.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notificaciones.enviador", havingValue = "simulado", matchIfMissing = true)
+public class NotificacionesConfig {
+
+    private final Environment environment;
+
+    public NotificacionesConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean
+    public EnviadorCanalNotificacion enviadorEmail() {
+        return simulado(CanalNotificacion.EMAIL, 50, 4, 200);
+    }
+
+    @Bean
+    public EnviadorCanalNotificacion enviadorSms() {
+        return simulado(CanalNotificacion.SMS, 100, 2, 300);
+    }
+
+    @Bean
+    public EnviadorCanalNotificacion enviadorPush() {
+        return simulado(CanalNotificacion.PUSH, 500, 2, 100);
+    }
+
+    @Bean
+    public EnviadorCanalNotificacion enviadorInApp() {
+        return simulado(CanalNotificacion.IN_APP, 200, 1, 0);
+    }
+
+    private EnviadorCanalSimulado simulado(CanalNotificacion canal, int lote, int concurrencia, long latenciaMs) {
+        String prefijo = "notificaciones.simulado." + canal.name().toLowerCase().replace('_', '-') + ".";
+        String directorio = environment.getProperty("notificaciones.simulado.directorio", "");
+        Path ruta = directorio.isBlank() ? null : Paths.get(directorio);
+
+        return new EnviadorCanalSimulado(canal,
+                environment.getProperty(prefijo + "lote", Integer.class, lote),
+                environment.getProperty(prefijo + "concurrencia", Integer.class, concurrencia),
+                environment.getProperty(prefijo + "latencia-ms", Long.class, latenciaMs),
+                environment.getProperty(prefijo + "probabilidad-fallo-lote", Double.class, 0.0),
+                environment.getProperty(prefijo + "probabilidad-fallo", Double.class, 0.0),
+                ruta);
+    }
+}
@@ -0,0 +1,13 @@
+package com.nuclearvet.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled) de toda la aplicación: documentos electrónicos,
+ * cortes de kardex, alertas e índices de inventario y despacho de notificaciones.
+ */
+@Configuration
+@EnableScheduling
+public class ProgramacionConfig {
+}
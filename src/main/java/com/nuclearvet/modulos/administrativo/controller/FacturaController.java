@@ -2,12 +2,22 @@ package com.nuclearvet.modulos.administrativo.controller;
 
 import com.nuclearvet.modulos.administrativo.dto.FacturaDTO;
 import com.nuclearvet.modulos.administrativo.dto.CrearFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.DocumentoElectronicoDTO;
+import com.nuclearvet.modulos.administrativo.dto.FacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.dto.FiltroFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.LineaEstadoCuentaDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoFacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoProcesamientoDocumentosDTO;
 import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.service.FacturaService;
+import com.nuclearvet.modulos.administrativo.service.FacturacionElectronicaService;
+import com.nuclearvet.modulos.administrativo.service.FacturacionLoteService;
 import io.swagger.v3.oas.annotations.Operation;
+import org.springdoc.core.annotations.ParameterObject;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +44,8 @@ import java.util.List;
 public class FacturaController {
 
     private final FacturaService facturaService;
+    private final FacturacionLoteService facturacionLoteService;
+    private final FacturacionElectronicaService facturacionElectronicaService;
 
     /**
      * Crea una nueva factura.
@@ -50,6 +62,41 @@ public class FacturaController {
         return new ResponseEntity<>(factura, HttpStatus.CREATED);
     }
 
+    /**
+     * Factura en lote las consultas completadas de un día que aún no tienen factura.
+     * RF6.1: Gestión de facturación - Cierre del día
+     * 
+     * @param dto Fecha de las consultas y parámetros de facturación
+     * @return Resumen de la facturación por lotes
+     */
+    @PostMapping("/lote")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Facturar consultas del día", description = "Genera una factura por cada consulta completada sin facturar en la fecha indicada")
+    public ResponseEntity<ResultadoFacturacionLoteDTO> facturarConsultasDelDia(@Valid @RequestBody FacturacionLoteDTO dto) {
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+        return new ResponseEntity<>(resultado, HttpStatus.CREATED);
+    }
+
+    /**
+     * Busca facturas combinando criterios opcionales.
+     * RF6.1: Gestión de facturación - Búsqueda de facturas
+     * 
+     * @param filtro Estado, cliente, paciente, rango de fechas de emisión y rango de montos (todos opcionales)
+     * @param pagina Número de página (desde 0)
+     * @param tamano Cantidad de facturas por página (máximo 200)
+     * @return Página de facturas que cumplen todos los criterios, las más recientes primero
+     */
+    @GetMapping("/buscar")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'RECEPCIONISTA')")
+    @Operation(summary = "Buscar facturas", description = "Busca facturas combinando estado, cliente, paciente, rango de fechas y rango de montos, paginado")
+    public ResponseEntity<Page<FacturaDTO>> buscar(
+            @ParameterObject @ModelAttribute FiltroFacturaDTO filtro,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamano) {
+        Page<FacturaDTO> facturas = facturaService.buscar(filtro, pagina, tamano);
+        return ResponseEntity.ok(facturas);
+    }
+
     /**
      * Obtiene una factura por su ID.
      * 
@@ -64,6 +111,36 @@ public class FacturaController {
         return ResponseEntity.ok(factura);
     }
 
+    /**
+     * Obtiene el estado del documento electrónico de una factura.
+     * RF6.1: Gestión de facturación - Facturación electrónica
+     * 
+     * @param id ID de la factura
+     * @return Estado, intentos y referencia de envío del documento
+     */
+    @GetMapping("/{id}/documento-electronico")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'RECEPCIONISTA')")
+    @Operation(summary = "Obtener documento electrónico de una factura", description = "Retorna el estado de generación y envío del documento electrónico firmado")
+    public ResponseEntity<DocumentoElectronicoDTO> obtenerDocumentoElectronico(@PathVariable Long id) {
+        DocumentoElectronicoDTO documento = facturacionElectronicaService.obtenerPorFactura(id);
+        return ResponseEntity.ok(documento);
+    }
+
+    /**
+     * Procesa de inmediato los documentos electrónicos pendientes.
+     * RF6.1: Gestión de facturación - Facturación electrónica
+     * Normalmente lo ejecuta la tarea programada
+     * 
+     * @return Resumen del procesamiento
+     */
+    @PostMapping("/documentos-electronicos/procesar")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Procesar documentos electrónicos", description = "Genera, firma y envía los documentos electrónicos de las facturas nuevas y reintenta los que fallaron")
+    public ResponseEntity<ResultadoProcesamientoDocumentosDTO> procesarDocumentosElectronicos() {
+        ResultadoProcesamientoDocumentosDTO resultado = facturacionElectronicaService.procesarPendientes();
+        return ResponseEntity.ok(resultado);
+    }
+
     /**
      * Obtiene una factura por su número.
      * 
@@ -92,6 +169,26 @@ public class FacturaController {
         return ResponseEntity.ok(facturas);
     }
 
+    /**
+     * Obtiene el estado de cuenta de un cliente por páginas.
+     * RF6.3: Control de cuentas por cobrar - Estado de cuenta
+     * 
+     * @param propietarioId ID del cliente propietario
+     * @param pagina Número de página (desde 0)
+     * @param tamano Cantidad de líneas por página (máximo 200)
+     * @return Página de facturas y pagos en orden cronológico con saldo acumulado
+     */
+    @GetMapping("/cliente/{propietarioId}/estado-cuenta")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'RECEPCIONISTA')")
+    @Operation(summary = "Estado de cuenta del cliente", description = "Retorna facturas y pagos del cliente en orden cronológico con saldo acumulado, paginado")
+    public ResponseEntity<Page<LineaEstadoCuentaDTO>> obtenerEstadoCuenta(
+            @PathVariable Long propietarioId,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "50") int tamano) {
+        Page<LineaEstadoCuentaDTO> estadoCuenta = facturaService.obtenerEstadoCuenta(propietarioId, pagina, tamano);
+        return ResponseEntity.ok(estadoCuenta);
+    }
+
     /**
      * Lista todas las facturas de un paciente.
      * 
@@ -1,5 +1,6 @@
 package com.nuclearvet.modulos.administrativo.controller;
 
+import com.nuclearvet.modulos.administrativo.dto.CierreCajaDTO;
 import com.nuclearvet.modulos.administrativo.dto.PagoDTO;
 import com.nuclearvet.modulos.administrativo.dto.RegistrarPagoDTO;
 import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
@@ -9,12 +10,19 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -38,15 +46,21 @@ public class PagoController {
     /**
      * Registra un nuevo pago para una factura.
      * RF6.2: Gestión de pagos - Registrar pagos
+     * Los terminales POS deben enviar Idempotency-Key para que sus reintentos
+     * retornen el pago original en lugar de registrar uno nuevo. Una clave
+     * reutilizada con otros datos de pago responde 409.
      * 
      * @param dto Datos del pago a registrar
+     * @param claveIdempotencia Clave única de la operación (opcional)
      * @return El pago registrado
      */
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'RECEPCIONISTA')")
-    @Operation(summary = "Registrar un nuevo pago", description = "Registra un pago y actualiza el estado de la factura")
-    public ResponseEntity<PagoDTO> registrarPago(@Valid @RequestBody RegistrarPagoDTO dto) {
-        PagoDTO pago = pagoService.registrarPago(dto);
+    @Operation(summary = "Registrar un nuevo pago", description = "Registra un pago y actualiza el estado de la factura. Admite el encabezado Idempotency-Key")
+    public ResponseEntity<PagoDTO> registrarPago(
+            @Valid @RequestBody RegistrarPagoDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
+        PagoDTO pago = pagoService.registrarPago(dto, claveIdempotencia);
         return new ResponseEntity<>(pago, HttpStatus.CREATED);
     }
 
@@ -177,6 +191,44 @@ public class PagoController {
         return ResponseEntity.ok(total);
     }
 
+    /**
+     * Obtiene el cierre de caja de un día.
+     * RF6.4: Reportes financieros - Cierre de caja por método de pago y cajero
+     * 
+     * @param fecha Fecha del cierre (por defecto, hoy)
+     * @return Totales y cantidades por método de pago y por cajero
+     */
+    @GetMapping("/cierre-caja")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPCIONISTA')")
+    @Operation(summary = "Cierre de caja", description = "Retorna totales, cantidades y desglose por cajero de cada método de pago en un día")
+    public ResponseEntity<CierreCajaDTO> obtenerCierreCaja(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        CierreCajaDTO cierre = pagoService.obtenerCierreCaja(fecha != null ? fecha : LocalDate.now());
+        return ResponseEntity.ok(cierre);
+    }
+
+    /**
+     * Exporta en CSV el detalle de pagos del cierre de caja para conciliación.
+     * La respuesta se escribe por streaming a medida que se leen los pagos.
+     * 
+     * @param fecha Fecha del cierre
+     * @return Archivo CSV con un pago por línea
+     */
+    @GetMapping(value = "/cierre-caja/detalle", produces = "text/csv")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPCIONISTA')")
+    @Operation(summary = "Detalle del cierre de caja", description = "Descarga en CSV todos los pagos del día para conciliación")
+    public ResponseEntity<StreamingResponseBody> exportarDetalleCierreCaja(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        StreamingResponseBody cuerpo = salida -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            pagoService.exportarDetalleCierreCaja(fecha, writer);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cierre-caja-" + fecha + ".csv")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(cuerpo);
+    }
+
     /**
      * Calcula el total de pagos por método en un período.
      * RF6.4: Reportes financieros - Pagos por método de pago
@@ -0,0 +1,55 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO del cierre de caja diario: totales por método de pago y por cajero.
+ * RF6.4 - Reportes financieros
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CierreCajaDTO {
+    
+    private LocalDate fecha;
+    private BigDecimal totalGeneral;
+    private Long cantidadPagos;
+    private List<TotalMetodoPagoDTO> metodos;
+    
+    /**
+     * Totales de un método de pago
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TotalMetodoPagoDTO {
+        private MetodoPago metodoPago;
+        private BigDecimal total;
+        private Long cantidad;
+        private List<TotalCajeroDTO> cajeros;
+    }
+    
+    /**
+     * Totales recibidos por un cajero con un método de pago
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TotalCajeroDTO {
+        private Long usuarioId;
+        private String nombre;
+        private BigDecimal total;
+        private Long cantidad;
+    }
+}
@@ -0,0 +1,55 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Copia de los datos de una factura necesarios para su documento electrónico.
+ * Se arma dentro de la transacción para que la generación y el envío
+ * se hagan en paralelo sin acceder a entidades JPA.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatosDocumentoFacturaDTO {
+
+    private Long documentoId;
+    private Long facturaId;
+    private String numeroFactura;
+    private LocalDate fechaEmision;
+
+    // Cliente
+    private String nombrePropietario;
+    private String documentoPropietario;
+
+    private String nombrePaciente;
+
+    private List<LineaDocumentoDTO> lineas;
+
+    // Totales
+    private BigDecimal subtotal;
+    private BigDecimal porcentajeImpuesto;
+    private BigDecimal valorImpuesto;
+    private BigDecimal descuento;
+    private BigDecimal total;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaDocumentoDTO {
+        private String tipo;
+        private String descripcion;
+        private Integer cantidad;
+        private BigDecimal precioUnitario;
+        private BigDecimal subtotal;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Línea de detalle del cierre de caja, usada para conciliación.
+ * Se construye directamente desde JPQL (SELECT new ...).
+ * RF6.4 - Reportes financieros
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DetallePagoCajaDTO {
+    
+    private String numeroRecibo;
+    private LocalDateTime fechaPago;
+    private String numeroFactura;
+    private MetodoPago metodoPago;
+    private BigDecimal monto;
+    private String referenciaTransaccion;
+    private String recibidoPorNombre;
+}
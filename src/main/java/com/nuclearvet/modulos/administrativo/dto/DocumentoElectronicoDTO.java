@@ -0,0 +1,30 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import com.nuclearvet.modulos.administrativo.entity.EstadoDocumentoElectronico;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el estado del documento electrónico de una factura.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentoElectronicoDTO {
+
+    private Long id;
+    private Long facturaId;
+    private EstadoDocumentoElectronico estado;
+    private Integer intentos;
+    private String firma;
+    private String referenciaEnvio;
+    private String mensajeError;
+    private LocalDateTime fechaEnvio;
+    private LocalDateTime fechaCreacion;
+}
@@ -0,0 +1,37 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO para solicitar la facturación por lotes de las consultas de un día.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacturacionLoteDTO {
+    
+    @NotNull(message = "La fecha de las consultas es obligatoria")
+    @PastOrPresent(message = "No se pueden facturar consultas de fechas futuras")
+    private LocalDate fecha;
+    
+    @NotNull(message = "El ID del usuario que emite es obligatorio")
+    private Long emitidaPorId;
+    
+    @DecimalMin(value = "0.0", message = "El porcentaje de impuesto no puede ser negativo")
+    @DecimalMax(value = "100.0", message = "El porcentaje de impuesto no puede ser mayor a 100")
+    @Builder.Default
+    private BigDecimal porcentajeImpuesto = new BigDecimal("19.00");
+    
+    @Min(value = 0, message = "Los días de vencimiento no pueden ser negativos")
+    @Builder.Default
+    private Integer diasVencimiento = 30;
+}
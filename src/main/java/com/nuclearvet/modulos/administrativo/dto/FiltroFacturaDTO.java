@@ -0,0 +1,37 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO con los criterios de búsqueda de facturas. Todos son opcionales y se combinan con AND.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroFacturaDTO {
+
+    private EstadoFactura estado;
+    private Long propietarioId;
+    private Long pacienteId;
+
+    // Rango de fecha de emisión (inclusivo)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaDesde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fechaHasta;
+
+    // Rango del total de la factura (inclusivo)
+    private BigDecimal montoMinimo;
+    private BigDecimal montoMaximo;
+}
@@ -0,0 +1,29 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de una línea del estado de cuenta de un cliente.
+ * Las facturas suman al saldo (cargo) y los pagos lo restan (abono).
+ * RF6.3 - Control de cuentas por cobrar
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LineaEstadoCuentaDTO {
+    
+    private LocalDateTime fecha;
+    private String tipo; // FACTURA o PAGO
+    private Long referenciaId;
+    private String documento; // Número de factura o de recibo
+    private BigDecimal cargo;
+    private BigDecimal abono;
+    private BigDecimal saldo; // Saldo acumulado hasta esta línea
+}
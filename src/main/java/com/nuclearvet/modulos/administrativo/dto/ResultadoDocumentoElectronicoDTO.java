@@ -0,0 +1,23 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resultado de generar, firmar y enviar un documento electrónico.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoDocumentoElectronicoDTO {
+
+    private Long documentoId;
+    private boolean exitoso;
+    private String firma;
+    private String referenciaEnvio;
+    private String mensajeError;
+}
@@ -0,0 +1,37 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO con el resultado de una facturación por lotes.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoFacturacionLoteDTO {
+    
+    private LocalDate fecha;
+    
+    // Consultas completadas sin factura encontradas para la fecha
+    private Integer consultasEncontradas;
+    private Integer facturasCreadas;
+    
+    // Consultas sin costo registrado, que no se pueden facturar
+    private Integer consultasOmitidas;
+    
+    private String primerNumeroFactura;
+    private String ultimoNumeroFactura;
+    private BigDecimal totalFacturado;
+    
+    // Rendimiento
+    private Long duracionMs;
+    private Double facturasPorSegundo;
+}
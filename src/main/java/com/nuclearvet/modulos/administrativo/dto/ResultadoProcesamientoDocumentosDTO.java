@@ -0,0 +1,25 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resumen de una ejecución del procesamiento de documentos electrónicos.
+ * RF6.1 - Gestión de facturación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoProcesamientoDocumentosDTO {
+
+    private Integer documentosProcesados;
+    private Integer documentosEnviados;
+    private Integer documentosConError;
+
+    // Rendimiento
+    private Long duracionMs;
+    private Double documentosPorMinuto;
+}
@@ -0,0 +1,27 @@
+package com.nuclearvet.modulos.administrativo.dto;
+
+import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila de la consulta agrupada de pagos por método y cajero.
+ * Se construye directamente desde JPQL (SELECT new ...).
+ * RF6.4 - Reportes financieros
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalPagoAgrupadoDTO {
+    
+    private MetodoPago metodoPago;
+    private Long recibidoPorId;
+    private String recibidoPorNombre;
+    private Long cantidad;
+    private BigDecimal total;
+}
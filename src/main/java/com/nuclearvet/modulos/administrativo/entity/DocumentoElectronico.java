@@ -0,0 +1,55 @@
+package com.nuclearvet.modulos.administrativo.entity;
+
+import com.nuclearvet.common.entity.EntidadBase;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad para el documento electrónico firmado de una factura.
+ * Lleva el estado de generación y envío de cada factura.
+ * RF6.1 - Gestión de facturación
+ */
+@Entity
+@Table(name = "documentos_electronicos")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class DocumentoElectronico extends EntidadBase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documentos_electronicos_seq")
+    @SequenceGenerator(name = "documentos_electronicos_seq", sequenceName = "documentos_electronicos_seq", allocationSize = 50)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "factura_id", nullable = false, unique = true)
+    private Factura factura;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoDocumentoElectronico estado;
+
+    @Column(name = "intentos", nullable = false)
+    @Builder.Default
+    private Integer intentos = 0;
+
+    @Column(name = "firma", length = 100)
+    private String firma; // HMAC-SHA256 del contenido en Base64
+
+    @Column(name = "referencia_envio", length = 255)
+    private String referenciaEnvio; // Identificador devuelto por el enviador
+
+    @Column(name = "mensaje_error", length = 500)
+    private String mensajeError;
+
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+
+    @Column(name = "token_proceso", length = 36)
+    private String tokenProceso; // Lote que tomó el documento para procesarlo
+}
@@ -0,0 +1,12 @@
+package com.nuclearvet.modulos.administrativo.entity;
+
+/**
+ * Estados del documento electrónico de una factura.
+ * RF6.1 - Gestión de facturación
+ */
+public enum EstadoDocumentoElectronico {
+    PENDIENTE,     // Registrado, pendiente de generar y enviar
+    PROCESANDO,    // Tomado por un lote que lo está generando y enviando
+    ENVIADO,       // Generado, firmado y entregado al enviador
+    ERROR          // Falló la generación o el envío (se reintenta)
+}
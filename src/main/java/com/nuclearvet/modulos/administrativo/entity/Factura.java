@@ -1,11 +1,13 @@
 package com.nuclearvet.modulos.administrativo.entity;
 
 import com.nuclearvet.common.entity.EntidadBase;
+import com.nuclearvet.common.util.Centavos;
 import com.nuclearvet.modulos.pacientes.entity.Consulta;
 import com.nuclearvet.modulos.pacientes.entity.Paciente;
 import com.nuclearvet.modulos.usuarios.entity.Usuario;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -27,6 +29,19 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = true)
 public class Factura extends EntidadBase {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "facturas_seq")
+    @SequenceGenerator(name = "facturas_seq", sequenceName = "facturas_seq", allocationSize = 50)
+    private Long id; // Secuencia (no IDENTITY) para permitir inserciones por lotes
+
+    /**
+     * Control de concurrencia optimista: los pagos se aplican con un UPDATE
+     * condicionado a esta versión (ver FacturaRepository.aplicarMovimientoPago).
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "numero_factura", unique = true, nullable = false, length = 20)
     private String numeroFactura; // Número consecutivo de factura
 
@@ -53,6 +68,7 @@ public class Factura extends EntidadBase {
     private EstadoFactura estado;
 
     @OneToMany(mappedBy = "factura", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50) // Al listar facturas, los items se cargan de a 50 facturas por consulta
     @Builder.Default
     private List<ItemFactura> items = new ArrayList<>();
 
@@ -102,55 +118,93 @@ public class Factura extends EntidadBase {
      * Método helper para calcular el subtotal
      */
     public void calcularSubtotal() {
-        this.subtotal = items.stream()
-                .map(ItemFactura::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.subtotal = Centavos.aBigDecimal(sumarSubtotalesEnCentavos());
     }
 
     /**
-     * Método helper para calcular el total
+     * Método helper para calcular el total.
+     * Los cálculos se hacen en centavos (long) y solo el resultado se convierte a BigDecimal.
      */
     public void calcularTotal() {
-        calcularSubtotal();
+        long subtotalCentavos = sumarSubtotalesEnCentavos();
         
-        // Calcular impuesto
-        if (porcentajeImpuesto != null && porcentajeImpuesto.compareTo(BigDecimal.ZERO) > 0) {
-            this.valorImpuesto = subtotal.multiply(porcentajeImpuesto)
-                    .divide(new BigDecimal("100"), 2, BigDecimal.ROUND_HALF_UP);
-        } else {
-            this.valorImpuesto = BigDecimal.ZERO;
+        // Impuesto redondeado al centavo (HALF_UP). Ej: 19% de 100.50 = 19.10
+        long impuestoCentavos = 0L;
+        if (porcentajeImpuesto != null && porcentajeImpuesto.signum() > 0) {
+            impuestoCentavos = Centavos.porcentaje(subtotalCentavos, Centavos.puntosBasicos(porcentajeImpuesto));
         }
         
         // Total = Subtotal + Impuesto - Descuento
-        this.total = subtotal
-                .add(valorImpuesto)
-                .subtract(descuento != null ? descuento : BigDecimal.ZERO);
+        long totalCentavos = Math.subtractExact(
+                Math.addExact(subtotalCentavos, impuestoCentavos),
+                Centavos.desde(descuento));
+        
+        this.subtotal = Centavos.aBigDecimal(subtotalCentavos);
+        this.valorImpuesto = Centavos.aBigDecimal(impuestoCentavos);
+        this.total = Centavos.aBigDecimal(totalCentavos);
         
         // Actualizar saldo pendiente
-        this.saldoPendiente = total.subtract(totalPagado != null ? totalPagado : BigDecimal.ZERO);
+        this.saldoPendiente = Centavos.aBigDecimal(Math.subtractExact(totalCentavos, Centavos.desde(totalPagado)));
+    }
+
+    private long sumarSubtotalesEnCentavos() {
+        long suma = 0L;
+        for (ItemFactura item : items) {
+            suma = Math.addExact(suma, item.obtenerSubtotalEnCentavos());
+        }
+        return suma;
     }
 
     /**
-     * Método helper para registrar un pago
+     * Método helper para registrar un pago.
+     * Actualiza los totales de forma incremental, sin cargar la colección de pagos.
      */
     public void registrarPago(Pago pago) {
-        pagos.add(pago);
         pago.setFactura(this);
-        
-        // Actualizar total pagado
-        this.totalPagado = pagos.stream()
-                .map(Pago::getMonto)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Actualizar saldo pendiente
-        this.saldoPendiente = total.subtract(totalPagado);
-        
-        // Actualizar estado
-        if (saldoPendiente.compareTo(BigDecimal.ZERO) <= 0) {
-            this.estado = EstadoFactura.PAGADA;
-        } else if (totalPagado.compareTo(BigDecimal.ZERO) > 0) {
-            this.estado = EstadoFactura.PARCIAL;
+        aplicarMovimientoPago(pago.getMonto());
+    }
+
+    /**
+     * Aplica un movimiento de pago (positivo al pagar, negativo al anular)
+     * sobre total pagado, saldo pendiente y estado.
+     */
+    public void aplicarMovimientoPago(BigDecimal monto) {
+        this.estado = estadoTrasMovimientoPago(monto);
+        this.totalPagado = totalPagadoActual().add(monto);
+        this.saldoPendiente = saldoPendienteActual().subtract(monto);
+    }
+
+    /**
+     * Calcula el estado que tendría la factura después de aplicar un movimiento de pago
+     */
+    public EstadoFactura estadoTrasMovimientoPago(BigDecimal monto) {
+        BigDecimal nuevoTotalPagado = totalPagadoActual().add(monto);
+        BigDecimal nuevoSaldo = saldoPendienteActual().subtract(monto);
+
+        if (nuevoSaldo.compareTo(BigDecimal.ZERO) <= 0) {
+            return EstadoFactura.PAGADA;
+        } else if (nuevoTotalPagado.compareTo(BigDecimal.ZERO) > 0) {
+            return EstadoFactura.PARCIAL;
+        }
+        return EstadoFactura.PENDIENTE;
+    }
+
+    private BigDecimal totalPagadoActual() {
+        return totalPagado != null ? totalPagado : BigDecimal.ZERO;
+    }
+
+    private BigDecimal saldoPendienteActual() {
+        if (saldoPendiente != null) {
+            return saldoPendiente;
         }
+        return total != null ? total.subtract(totalPagadoActual()) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Genera el número de factura a partir de su consecutivo. Ej: FAC-2025-000001
+     */
+    public static String generarNumeroFactura(long consecutivo) {
+        return String.format("FAC-%d-%06d", LocalDate.now().getYear(), consecutivo);
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.nuclearvet.modulos.administrativo.entity;
 
 import com.nuclearvet.common.entity.EntidadBase;
+import com.nuclearvet.common.util.Centavos;
 import com.nuclearvet.modulos.inventario.entity.Producto;
 import jakarta.persistence.*;
 import lombok.*;
@@ -21,6 +22,11 @@ import java.math.BigDecimal;
 @EqualsAndHashCode(callSuper = true)
 public class ItemFactura extends EntidadBase {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_factura_seq")
+    @SequenceGenerator(name = "items_factura_seq", sequenceName = "items_factura_seq", allocationSize = 50)
+    private Long id;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "factura_id", nullable = false)
     private Factura factura;
@@ -54,6 +60,21 @@ public class ItemFactura extends EntidadBase {
     @PrePersist
     @PreUpdate
     public void calcularSubtotal() {
-        this.subtotal = precioUnitario.multiply(new BigDecimal(cantidad));
+        this.subtotal = Centavos.aBigDecimal(calcularSubtotalEnCentavos());
+    }
+
+    /**
+     * Subtotal en centavos. Usa el subtotal ya calculado si existe, para no
+     * recalcular cada item en cada pasada sobre la factura.
+     */
+    public long obtenerSubtotalEnCentavos() {
+        if (subtotal != null) {
+            return Centavos.desde(subtotal);
+        }
+        return calcularSubtotalEnCentavos();
+    }
+
+    private long calcularSubtotalEnCentavos() {
+        return Centavos.multiplicar(Centavos.desde(precioUnitario), cantidad);
     }
 }
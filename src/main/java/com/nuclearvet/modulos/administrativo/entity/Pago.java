@@ -23,6 +23,10 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = true)
 public class Pago extends EntidadBase {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "factura_id", nullable = false)
     private Factura factura;
@@ -52,4 +56,10 @@ public class Pago extends EntidadBase {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recibido_por_id", nullable = false)
     private Usuario recibidoPor; // Usuario que registró el pago
+
+    @Column(name = "clave_idempotencia", unique = true, length = 100)
+    private String claveIdempotencia; // Idempotency-Key enviada por el terminal (evita pagos duplicados)
+
+    @Column(name = "huella_solicitud", length = 64)
+    private String huellaSolicitud; // SHA-256 de los datos del pago registrado con la clave de idempotencia
 }
@@ -0,0 +1,72 @@
+package com.nuclearvet.modulos.administrativo.repository;
+
+import com.nuclearvet.modulos.administrativo.entity.DocumentoElectronico;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para documentos electrónicos de facturas.
+ * RF6.1 - Gestión de facturación
+ */
+@Repository
+public interface DocumentoElectronicoRepository extends JpaRepository<DocumentoElectronico, Long> {
+
+    // Documento de una factura
+    Optional<DocumentoElectronico> findByFacturaId(Long facturaId);
+
+    // Crea en PENDIENTE los documentos de hasta :limite facturas nuevas. Si otra instancia registra
+    // la misma factura a la par, ON CONFLICT la omite en lugar de abortar la transacción
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO documentos_electronicos (id, factura_id, estado, intentos, fecha_creacion, activo) " +
+                   "SELECT nextval('documentos_electronicos_seq'), f.id, 'PENDIENTE', 0, CURRENT_TIMESTAMP, TRUE " +
+                   "FROM facturas f WHERE f.activo = TRUE AND f.estado <> 'CANCELADA' " +
+                   "AND NOT EXISTS (SELECT 1 FROM documentos_electronicos d WHERE d.factura_id = f.id) " +
+                   "ORDER BY f.id LIMIT :limite " +
+                   "ON CONFLICT (factura_id) DO NOTHING",
+           nativeQuery = true)
+    int crearPendientes(@Param("limite") int limite);
+
+    // Ids de los documentos pendientes o con error que aún tienen intentos disponibles, a partir de desdeId
+    @Query("SELECT d.id FROM DocumentoElectronico d " +
+           "WHERE d.estado IN ('PENDIENTE', 'ERROR') AND d.intentos < :maxIntentos AND d.id > :desdeId " +
+           "ORDER BY d.id")
+    List<Long> findIdsParaProcesar(@Param("maxIntentos") int maxIntentos,
+                                   @Param("desdeId") Long desdeId,
+                                   Pageable pageable);
+
+    // Pasa a PROCESANDO con el token del lote los documentos que siguen pendientes o con error.
+    // Los que otra instancia tomó antes ya no están en esos estados. Retorna cuántos se tomaron
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentoElectronico d " +
+           "SET d.estado = com.nuclearvet.modulos.administrativo.entity.EstadoDocumentoElectronico.PROCESANDO, " +
+           "d.tokenProceso = :token, d.fechaActualizacion = :ahora " +
+           "WHERE d.id IN :ids AND d.estado IN ('PENDIENTE', 'ERROR')")
+    int tomarParaProcesar(@Param("ids") List<Long> ids, @Param("token") String token, @Param("ahora") LocalDateTime ahora);
+
+    // Documentos tomados con el token, con su factura, paciente y propietario
+    @Query("SELECT d FROM DocumentoElectronico d JOIN FETCH d.factura f " +
+           "JOIN FETCH f.paciente JOIN FETCH f.propietario " +
+           "WHERE d.tokenProceso = :token AND d.estado = 'PROCESANDO' " +
+           "ORDER BY d.id")
+    List<DocumentoElectronico> findTomados(@Param("token") String token);
+
+    // Devuelve a PENDIENTE los documentos en proceso desde antes del límite (el proceso se detuvo con ellos)
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentoElectronico d " +
+           "SET d.estado = com.nuclearvet.modulos.administrativo.entity.EstadoDocumentoElectronico.PENDIENTE, " +
+           "d.tokenProceso = NULL " +
+           "WHERE d.estado = 'PROCESANDO' AND d.fechaActualizacion < :limite")
+    int liberarProcesosVencidos(@Param("limite") LocalDateTime limite);
+}
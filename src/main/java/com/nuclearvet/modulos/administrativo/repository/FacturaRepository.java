@@ -2,13 +2,20 @@ package com.nuclearvet.modulos.administrativo.repository;
 
 import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.entity.Factura;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,14 +24,49 @@ import java.util.Optional;
  * RF6.1 - Gestión de facturación
  */
 @Repository
-public interface FacturaRepository extends JpaRepository<Factura, Long> {
+public interface FacturaRepository extends JpaRepository<Factura, Long>, JpaSpecificationExecutor<Factura> {
+
+    // Búsqueda por criterios combinados (ver FacturaSpecifications).
+    // Trae paciente, propietario y emisor en la misma consulta para armar los DTOs de la página.
+    @Override
+    @EntityGraph(attributePaths = {"paciente", "propietario", "emitidaPor"})
+    Page<Factura> findAll(Specification<Factura> spec, Pageable pageable);
+
+    // Facturas (cargos) y pagos (abonos) de un cliente, usados por el estado de cuenta
+    String MOVIMIENTOS_ESTADO_CUENTA =
+            "SELECT CAST(f.fecha_emision AS TIMESTAMP) AS fecha, 0 AS orden, 'FACTURA' AS tipo, " +
+            "f.id AS referencia_id, f.numero_factura AS documento, f.total AS cargo, 0 AS abono " +
+            "FROM facturas f " +
+            "WHERE f.propietario_id = :propietarioId AND f.estado <> 'CANCELADA' AND f.activo = true " +
+            "UNION ALL " +
+            "SELECT p.fecha_pago AS fecha, 1 AS orden, 'PAGO' AS tipo, " +
+            "p.id AS referencia_id, p.numero_recibo AS documento, 0 AS cargo, p.monto AS abono " +
+            "FROM pagos p JOIN facturas f ON f.id = p.factura_id " +
+            "WHERE f.propietario_id = :propietarioId AND f.estado <> 'CANCELADA' " +
+            "AND f.activo = true AND p.activo = true";
 
     // Buscar por número de factura
     Optional<Factura> findByNumeroFactura(String numeroFactura);
 
+    // Facturas con sus items inicializados en una sola consulta
+    @Query("SELECT DISTINCT f FROM Factura f LEFT JOIN FETCH f.items WHERE f.id IN :ids")
+    List<Factura> findConItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     // Listar facturas por cliente/propietario
     List<Factura> findByPropietarioIdOrderByFechaEmisionDesc(Long propietarioId);
 
+    // RF6.3: Estado de cuenta del cliente (facturas y pagos con saldo acumulado).
+    // El saldo se calcula con una función de ventana sobre todo el historial y
+    // luego se pagina, para que cada página traiga el saldo correcto.
+    @Query(value = "SELECT l.fecha AS fecha, l.tipo AS tipo, l.referencia_id AS referenciaId, " +
+           "l.documento AS documento, l.cargo AS cargo, l.abono AS abono, " +
+           "SUM(l.cargo - l.abono) OVER (ORDER BY l.fecha, l.orden, l.referencia_id) AS saldo " +
+           "FROM (" + MOVIMIENTOS_ESTADO_CUENTA + ") l " +
+           "ORDER BY l.fecha, l.orden, l.referencia_id",
+           countQuery = "SELECT COUNT(*) FROM (" + MOVIMIENTOS_ESTADO_CUENTA + ") l",
+           nativeQuery = true)
+    Page<LineaEstadoCuentaProyeccion> findEstadoCuenta(@Param("propietarioId") Long propietarioId, Pageable pageable);
+
     // Listar facturas por paciente
     List<Factura> findByPacienteIdOrderByFechaEmisionDesc(Long pacienteId);
 
@@ -67,7 +109,21 @@ public interface FacturaRepository extends JpaRepository<Factura, Long> {
     // Contar facturas por estado
     long countByEstadoAndActivoTrue(EstadoFactura estado);
 
-    // Obtener el último número de factura para generar el siguiente
-    @Query("SELECT f FROM Factura f WHERE f.activo = true ORDER BY f.id DESC")
-    Optional<Factura> findLastFactura();
+    // Reserva consecutivos para numerar facturas. La secuencia no participa de la transacción:
+    // dos emisiones concurrentes nunca reciben el mismo número (un rollback deja huecos).
+    @Query(value = "SELECT nextval('numeros_factura_seq') FROM generate_series(1, :cantidad)", nativeQuery = true)
+    List<Long> reservarConsecutivos(@Param("cantidad") int cantidad);
+
+    // Aplica un pago (monto positivo) o su anulación (monto negativo) de forma incremental.
+    // Solo afecta la fila si la versión no cambió desde la lectura; retorna 0 si hubo concurrencia.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Factura f SET f.totalPagado = f.totalPagado + :monto, " +
+           "f.saldoPendiente = f.saldoPendiente - :monto, " +
+           "f.estado = :estado, f.version = f.version + 1 " +
+           "WHERE f.id = :id AND f.version = :version")
+    int aplicarMovimientoPago(
+            @Param("id") Long id,
+            @Param("version") Long version,
+            @Param("monto") BigDecimal monto,
+            @Param("estado") EstadoFactura estado);
 }
@@ -0,0 +1,75 @@
+package com.nuclearvet.modulos.administrativo.repository;
+
+import com.nuclearvet.modulos.administrativo.dto.FiltroFacturaDTO;
+import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Criterios de búsqueda de facturas para FacturaRepository (JpaSpecificationExecutor).
+ * Cada criterio devuelve null si no se indicó, para poder combinarlos libremente.
+ * Los índices que los respaldan están en V7__indices_busqueda_facturas.sql.
+ * RF6.1 - Gestión de facturación
+ */
+public final class FacturaSpecifications {
+
+    private FacturaSpecifications() {
+    }
+
+    /**
+     * Combina todos los criterios indicados en el filtro (solo facturas activas)
+     */
+    public static Specification<Factura> desdeFiltro(FiltroFacturaDTO filtro) {
+        return Specification.allOf(
+                activas(),
+                conEstado(filtro.getEstado()),
+                dePropietario(filtro.getPropietarioId()),
+                dePaciente(filtro.getPacienteId()),
+                emitidasDesde(filtro.getFechaDesde()),
+                emitidasHasta(filtro.getFechaHasta()),
+                conTotalMinimo(filtro.getMontoMinimo()),
+                conTotalMaximo(filtro.getMontoMaximo()));
+    }
+
+    public static Specification<Factura> activas() {
+        return (root, query, cb) -> cb.isTrue(root.get("activo"));
+    }
+
+    public static Specification<Factura> conEstado(EstadoFactura estado) {
+        return estado == null ? null : (root, query, cb) -> cb.equal(root.get("estado"), estado);
+    }
+
+    // Compara la llave foránea, sin join a usuarios
+    public static Specification<Factura> dePropietario(Long propietarioId) {
+        return propietarioId == null ? null
+                : (root, query, cb) -> cb.equal(root.get("propietario").get("id"), propietarioId);
+    }
+
+    public static Specification<Factura> dePaciente(Long pacienteId) {
+        return pacienteId == null ? null
+                : (root, query, cb) -> cb.equal(root.get("paciente").get("id"), pacienteId);
+    }
+
+    public static Specification<Factura> emitidasDesde(LocalDate fecha) {
+        return fecha == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("fechaEmision"), fecha);
+    }
+
+    public static Specification<Factura> emitidasHasta(LocalDate fecha) {
+        return fecha == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("fechaEmision"), fecha);
+    }
+
+    public static Specification<Factura> conTotalMinimo(BigDecimal monto) {
+        return monto == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("total"), monto);
+    }
+
+    public static Specification<Factura> conTotalMaximo(BigDecimal monto) {
+        return monto == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("total"), monto);
+    }
+}
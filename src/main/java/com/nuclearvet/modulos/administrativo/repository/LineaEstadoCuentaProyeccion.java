@@ -0,0 +1,25 @@
+package com.nuclearvet.modulos.administrativo.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de una línea del estado de cuenta (consulta nativa con saldo acumulado).
+ * RF6.3 - Control de cuentas por cobrar
+ */
+public interface LineaEstadoCuentaProyeccion {
+
+    LocalDateTime getFecha();
+
+    String getTipo(); // FACTURA o PAGO
+
+    Long getReferenciaId();
+
+    String getDocumento();
+
+    BigDecimal getCargo();
+
+    BigDecimal getAbono();
+
+    BigDecimal getSaldo();
+}
@@ -1,9 +1,14 @@
 package com.nuclearvet.modulos.administrativo.repository;
 
+import com.nuclearvet.modulos.administrativo.dto.DetallePagoCajaDTO;
+import com.nuclearvet.modulos.administrativo.dto.TotalPagoAgrupadoDTO;
 import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
 import com.nuclearvet.modulos.administrativo.entity.Pago;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -11,6 +16,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para gestión de pagos.
@@ -22,6 +28,9 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
     // Buscar pago por número de recibo
     Optional<Pago> findByNumeroRecibo(String numeroRecibo);
 
+    // Buscar pago por clave de idempotencia (reintentos de terminales POS)
+    Optional<Pago> findByClaveIdempotencia(String claveIdempotencia);
+
     // Listar pagos de una factura
     List<Pago> findByFacturaIdOrderByFechaPagoDesc(Long facturaId);
 
@@ -53,6 +62,31 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
             @Param("fechaInicio") LocalDateTime fechaInicio,
             @Param("fechaFin") LocalDateTime fechaFin);
 
+    // RF6.4: Cierre de caja - totales agrupados por método y cajero en una sola consulta
+    @Query("SELECT new com.nuclearvet.modulos.administrativo.dto.TotalPagoAgrupadoDTO(" +
+           "p.metodoPago, u.id, CONCAT(u.nombre, ' ', u.apellido), COUNT(p), SUM(p.monto)) " +
+           "FROM Pago p JOIN p.recibidoPor u " +
+           "WHERE p.fechaPago BETWEEN :fechaInicio AND :fechaFin " +
+           "AND p.activo = true " +
+           "GROUP BY p.metodoPago, u.id, u.nombre, u.apellido " +
+           "ORDER BY p.metodoPago, u.nombre, u.apellido")
+    List<TotalPagoAgrupadoDTO> calcularTotalesPorMetodoYCajero(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin);
+
+    // RF6.4: Detalle del cierre de caja leído por streaming (sin cargar entidades)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.nuclearvet.modulos.administrativo.dto.DetallePagoCajaDTO(" +
+           "p.numeroRecibo, p.fechaPago, f.numeroFactura, p.metodoPago, p.monto, " +
+           "p.referenciaTransaccion, CONCAT(u.nombre, ' ', u.apellido)) " +
+           "FROM Pago p JOIN p.factura f JOIN p.recibidoPor u " +
+           "WHERE p.fechaPago BETWEEN :fechaInicio AND :fechaFin " +
+           "AND p.activo = true " +
+           "ORDER BY p.metodoPago, p.fechaPago")
+    Stream<DetallePagoCajaDTO> streamDetalleCierreCaja(
+            @Param("fechaInicio") LocalDateTime fechaInicio,
+            @Param("fechaFin") LocalDateTime fechaFin);
+
     // Obtener el último número de recibo
     @Query("SELECT p FROM Pago p WHERE p.activo = true ORDER BY p.id DESC")
     Optional<Pago> findLastPago();
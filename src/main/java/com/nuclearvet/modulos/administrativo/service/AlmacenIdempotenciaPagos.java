@@ -0,0 +1,127 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.modulos.administrativo.dto.PagoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Almacén en memoria, acotado (LRU), de las respuestas a pagos recientes por clave de idempotencia.
+ * Permite responder los reintentos de los terminales POS sin volver a ejecutar el pago.
+ * Cada respuesta se guarda con la huella de la solicitud que la produjo: una clave reutilizada
+ * con otros datos de pago se rechaza en lugar de responder el pago anterior.
+ * Si la clave ya salió de memoria, PagoService consulta la base de datos.
+ * RF6.2 - Registro de pagos
+ */
+@Component
+@Slf4j
+public class AlmacenIdempotenciaPagos {
+
+    static final String METRICA = "nuclearvet.pagos.idempotencia";
+
+    static final String MENSAJE_CLAVE_REUTILIZADA =
+            "La clave de idempotencia ya se usó con otros datos de pago";
+
+    private final Map<String, RespuestaGuardada> respuestas;
+    private final Counter duplicadosMemoria;
+    private final Counter duplicadosBaseDatos;
+    private final Counter pagosNuevos;
+    private final Counter clavesReutilizadas;
+
+    public AlmacenIdempotenciaPagos(@Value("${pagos.idempotencia.capacidad:10000}") int capacidad,
+                                    MeterRegistry meterRegistry) {
+        this.respuestas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RespuestaGuardada> eldest) {
+                return size() > capacidad;
+            }
+        };
+        this.duplicadosMemoria = Counter.builder(METRICA)
+                .description("Solicitudes de pago por clave de idempotencia")
+                .tag("resultado", "duplicado_memoria")
+                .register(meterRegistry);
+        this.duplicadosBaseDatos = Counter.builder(METRICA)
+                .description("Solicitudes de pago por clave de idempotencia")
+                .tag("resultado", "duplicado_base_datos")
+                .register(meterRegistry);
+        this.pagosNuevos = Counter.builder(METRICA)
+                .description("Solicitudes de pago por clave de idempotencia")
+                .tag("resultado", "nuevo")
+                .register(meterRegistry);
+        this.clavesReutilizadas = Counter.builder(METRICA)
+                .description("Solicitudes de pago por clave de idempotencia")
+                .tag("resultado", "clave_reutilizada")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Busca la respuesta de un pago ya registrado con la clave (solo memoria)
+     *
+     * @throws ConflictoException si la clave se registró con una solicitud distinta
+     */
+    public Optional<PagoDTO> obtener(String clave, String huella) {
+        RespuestaGuardada guardada;
+        synchronized (respuestas) {
+            guardada = respuestas.get(clave);
+        }
+        if (guardada == null) {
+            return Optional.empty();
+        }
+        // Las respuestas de pagos anteriores a la huella (null) se aceptan
+        if (guardada.huella() != null && !guardada.huella().equals(huella)) {
+            clavesReutilizadas.increment();
+            log.warn("Clave de idempotencia {} reutilizada con otros datos de pago", clave);
+            throw new ConflictoException(MENSAJE_CLAVE_REUTILIZADA);
+        }
+        duplicadosMemoria.increment();
+        log.info("Reintento de pago con clave {} respondido desde memoria", clave);
+        return Optional.of(guardada.respuesta());
+    }
+
+    /**
+     * Guarda en memoria la respuesta de un pago encontrado en base de datos
+     */
+    public void registrarDuplicadoBaseDatos(String clave, String huella, PagoDTO respuesta) {
+        duplicadosBaseDatos.increment();
+        log.info("Reintento de pago con clave {} respondido desde base de datos", clave);
+        guardar(clave, new RespuestaGuardada(huella, respuesta));
+    }
+
+    /**
+     * Guarda la respuesta de un pago nuevo. Si hay una transacción activa, se guarda solo
+     * después del commit para no responder reintentos con un pago que se revirtió.
+     */
+    public void registrarNuevo(String clave, String huella, PagoDTO respuesta) {
+        RespuestaGuardada guardada = new RespuestaGuardada(huella, respuesta);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pagosNuevos.increment();
+                    guardar(clave, guardada);
+                }
+            });
+        } else {
+            pagosNuevos.increment();
+            guardar(clave, guardada);
+        }
+    }
+
+    private void guardar(String clave, RespuestaGuardada respuesta) {
+        synchronized (respuestas) {
+            respuestas.put(clave, respuesta);
+        }
+    }
+
+    private record RespuestaGuardada(String huella, PagoDTO respuesta) {
+    }
+}
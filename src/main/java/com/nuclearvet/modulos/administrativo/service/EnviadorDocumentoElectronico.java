@@ -0,0 +1,20 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+
+import java.io.IOException;
+
+/**
+ * Destino de los documentos electrónicos firmados (ej: la entidad tributaria o un proveedor tecnológico).
+ * Las implementaciones se invocan desde varios hilos a la vez y deben ser thread-safe.
+ * RF6.1 - Gestión de facturación
+ */
+public interface EnviadorDocumentoElectronico {
+
+    /**
+     * Envía un documento firmado
+     *
+     * @return Referencia del envío (radicado, ruta, etc.)
+     */
+    String enviar(DatosDocumentoFacturaDTO datos, String contenido, String firma) throws IOException;
+}
@@ -0,0 +1,39 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Enviador que deja los documentos firmados en un directorio local
+ * (<numero>.xml y <numero>.xml.firma). Se usa mientras no haya integración
+ * con la entidad tributaria, y en pruebas.
+ * RF6.1 - Gestión de facturación
+ */
+@Component
+@ConditionalOnProperty(name = "facturacion.electronica.enviador", havingValue = "archivo", matchIfMissing = true)
+public class EnviadorDocumentoSistemaArchivos implements EnviadorDocumentoElectronico {
+
+    private final Path directorio;
+
+    public EnviadorDocumentoSistemaArchivos(
+            @Value("${facturacion.electronica.directorio:documentos-electronicos}") String directorio) {
+        this.directorio = Paths.get(directorio);
+    }
+
+    @Override
+    public String enviar(DatosDocumentoFacturaDTO datos, String contenido, String firma) throws IOException {
+        Files.createDirectories(directorio);
+        Path documento = directorio.resolve(datos.getNumeroFactura() + ".xml");
+        Files.writeString(documento, contenido, StandardCharsets.UTF_8);
+        Files.writeString(directorio.resolve(datos.getNumeroFactura() + ".xml.firma"), firma, StandardCharsets.UTF_8);
+        return documento.toAbsolutePath().toString();
+    }
+}
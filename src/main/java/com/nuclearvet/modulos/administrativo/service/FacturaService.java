@@ -1,18 +1,33 @@
 package com.nuclearvet.modulos.administrativo.service;
 
+import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
 import com.nuclearvet.modulos.administrativo.dto.CrearFacturaDTO;
 import com.nuclearvet.modulos.administrativo.dto.FacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.FiltroFacturaDTO;
 import com.nuclearvet.modulos.administrativo.dto.ItemFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.LineaEstadoCuentaDTO;
 import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.entity.Factura;
 import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
 import com.nuclearvet.modulos.administrativo.mapper.FacturaMapper;
 import com.nuclearvet.modulos.administrativo.mapper.ItemFacturaMapper;
 import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.administrativo.repository.FacturaSpecifications;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
 import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.MovimientoInventarioRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.service.AsignadorLotesFefo;
+import com.nuclearvet.modulos.inventario.service.DetectorStockMinimo;
+import com.nuclearvet.modulos.inventario.service.EstadisticasConsumo;
+import com.nuclearvet.modulos.inventario.service.Kardex;
+import com.nuclearvet.modulos.inventario.service.StockProductos;
+import com.nuclearvet.modulos.inventario.service.StockUbicaciones;
 import com.nuclearvet.modulos.pacientes.entity.Consulta;
 import com.nuclearvet.modulos.pacientes.entity.Paciente;
 import com.nuclearvet.modulos.pacientes.repository.ConsultaRepository;
@@ -21,12 +36,20 @@ import com.nuclearvet.modulos.usuarios.entity.Usuario;
 import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -44,9 +67,21 @@ public class FacturaService {
     private final UsuarioRepository usuarioRepository;
     private final ConsultaRepository consultaRepository;
     private final ProductoRepository productoRepository;
+    private final StockProductos stockProductos;
+    private final MovimientoInventarioRepository movimientoInventarioRepository;
+    private final AsignadorLotesFefo asignadorLotes;
+    private final StockUbicaciones stockUbicaciones;
+    private final DetectorStockMinimo detectorStockMinimo;
+    private final EstadisticasConsumo estadisticasConsumo;
+    private final Kardex kardex;
     private final FacturaMapper facturaMapper;
     private final ItemFacturaMapper itemFacturaMapper;
 
+    /**
+     * Tamaño máximo de página del estado de cuenta y de la búsqueda de facturas
+     */
+    private static final int TAMANO_MAXIMO_PAGINA = 200;
+
     /**
      * RF6.1: Crear una nueva factura
      */
@@ -73,6 +108,16 @@ public class FacturaService {
                     .orElseThrow(() -> new RecursoNoEncontradoException("Consulta", "id", dto.getConsultaId()));
         }
 
+        // Resolver y bloquear todos los productos referenciados con una sola consulta
+        Map<Long, Producto> productos = stockProductos.obtenerMapaPorIdsParaActualizar(
+                dto.getItems().stream()
+                        .map(CrearFacturaDTO.CrearItemFacturaDTO::getProductoId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+
+        // Validar el stock de todas las líneas antes de descontar
+        validarStockDisponible(dto.getItems(), productos);
+
         // Crear factura base
         Factura factura = facturaMapper.toEntity(dto);
         factura.setNumeroFactura(generarNumeroFactura());
@@ -93,13 +138,12 @@ public class FacturaService {
                     .observaciones(itemDTO.getObservaciones())
                     .build();
 
-            // Si es un producto, validar y asociar
+            // Si es un producto, asociarlo (ya validado en bloque)
             if (itemDTO.getProductoId() != null) {
-                Producto producto = productoRepository.findById(itemDTO.getProductoId())
-                        .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", itemDTO.getProductoId()));
-                item.setProducto(producto);
+                item.setProducto(productos.get(itemDTO.getProductoId()));
             }
 
+            item.calcularSubtotal();
             item.setActivo(true);
             factura.agregarItem(item);
         }
@@ -109,6 +153,9 @@ public class FacturaService {
 
         // Guardar factura
         Factura facturaGuardada = facturaRepository.save(factura);
+
+        // RF4.4: Descontar del inventario los productos vendidos
+        registrarMovimientosInventario(facturaGuardada, productos, TipoMovimiento.SALIDA, emitidaPor);
         
         log.info("Factura creada exitosamente: {}", facturaGuardada.getNumeroFactura());
         return convertirADTO(facturaGuardada);
@@ -170,6 +217,57 @@ public class FacturaService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * RF6.3: Estado de cuenta del cliente.
+     * Une facturas y pagos en orden cronológico con el saldo acumulado calculado en la base de datos,
+     * y lo entrega por páginas para no cargar todo el historial del cliente.
+     */
+    @Transactional(readOnly = true)
+    public Page<LineaEstadoCuentaDTO> obtenerEstadoCuenta(Long propietarioId, int pagina, int tamano) {
+        log.info("Generando estado de cuenta del cliente: {} (página {})", propietarioId, pagina);
+        
+        if (!usuarioRepository.existsById(propietarioId)) {
+            throw new RecursoNoEncontradoException("Usuario", "id", propietarioId);
+        }
+        validarPaginacion(pagina, tamano);
+        
+        return facturaRepository.findEstadoCuenta(propietarioId, PageRequest.of(pagina, tamano))
+                .map(linea -> LineaEstadoCuentaDTO.builder()
+                        .fecha(linea.getFecha())
+                        .tipo(linea.getTipo())
+                        .referenciaId(linea.getReferenciaId())
+                        .documento(linea.getDocumento())
+                        .cargo(linea.getCargo())
+                        .abono(linea.getAbono())
+                        .saldo(linea.getSaldo())
+                        .build());
+    }
+
+    /**
+     * RF6.1: Buscar facturas combinando estado, cliente, paciente, rango de fechas y rango de montos.
+     * Los criterios no indicados se ignoran; resultados por páginas, las más recientes primero.
+     */
+    @Transactional(readOnly = true)
+    public Page<FacturaDTO> buscar(FiltroFacturaDTO filtro, int pagina, int tamano) {
+        log.info("Buscando facturas con filtro: {} (página {})", filtro, pagina);
+        
+        validarPaginacion(pagina, tamano);
+        if (filtro.getFechaDesde() != null && filtro.getFechaHasta() != null
+                && filtro.getFechaDesde().isAfter(filtro.getFechaHasta())) {
+            throw new ValidacionException("La fecha de inicio no puede ser posterior a la fecha fin");
+        }
+        if (filtro.getMontoMinimo() != null && filtro.getMontoMaximo() != null
+                && filtro.getMontoMinimo().compareTo(filtro.getMontoMaximo()) > 0) {
+            throw new ValidacionException("El monto mínimo no puede ser mayor que el monto máximo");
+        }
+        
+        PageRequest paginacion = PageRequest.of(pagina, tamano,
+                Sort.by(Sort.Order.desc("fechaEmision"), Sort.Order.desc("id")));
+        
+        return facturaRepository.findAll(FacturaSpecifications.desdeFiltro(filtro), paginacion)
+                .map(this::convertirADTO);
+    }
+
     /**
      * RF6.1: Listar facturas por paciente
      */
@@ -255,6 +353,10 @@ public class FacturaService {
         Factura factura = facturaRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Factura", "id", id));
         
+        if (factura.getEstado() == EstadoFactura.CANCELADA) {
+            throw new ValidacionException("La factura ya se encuentra cancelada");
+        }
+        
         if (factura.getEstado() == EstadoFactura.PAGADA) {
             throw new ValidacionException("No se puede cancelar una factura que ya está pagada");
         }
@@ -266,6 +368,14 @@ public class FacturaService {
         factura.setEstado(EstadoFactura.CANCELADA);
         factura.setObservaciones(factura.getObservaciones() + "\nCANCELADA: " + motivo);
         
+        // RF4.4: Devolver al inventario los productos de la factura
+        Map<Long, Producto> productos = stockProductos.obtenerMapaPorIdsParaActualizar(
+                factura.getItems().stream()
+                        .filter(item -> item.getProducto() != null)
+                        .map(item -> item.getProducto().getId())
+                        .collect(Collectors.toList()));
+        registrarMovimientosInventario(factura, productos, TipoMovimiento.DEVOLUCION, factura.getEmitidaPor());
+        
         facturaRepository.save(factura);
         log.info("Factura {} cancelada exitosamente", factura.getNumeroFactura());
     }
@@ -311,23 +421,102 @@ public class FacturaService {
      * Genera un número único de factura
      */
     private String generarNumeroFactura() {
-        String prefijo = "FAC-";
-        String anio = String.valueOf(LocalDate.now().getYear());
-        
-        Long ultimoNumero = facturaRepository.findLastFactura()
-                .map(f -> {
-                    String numero = f.getNumeroFactura();
-                    String[] partes = numero.split("-");
-                    if (partes.length == 3) {
-                        return Long.parseLong(partes[2]);
-                    }
-                    return 0L;
+        return Factura.generarNumeroFactura(facturaRepository.reservarConsecutivos(1).get(0));
+    }
+
+    /**
+     * Valida en bloque que haya stock disponible (sin lo reservado para citas) para todas las líneas con producto.
+     * Reporta todos los productos insuficientes en una sola excepción.
+     */
+    private void validarStockDisponible(List<CrearFacturaDTO.CrearItemFacturaDTO> items,
+                                        Map<Long, Producto> productos) {
+        // Un mismo producto puede aparecer en varias líneas: se valida la cantidad total
+        Map<Long, Integer> cantidadesPorProducto = items.stream()
+                .filter(item -> item.getProductoId() != null)
+                .collect(Collectors.groupingBy(CrearFacturaDTO.CrearItemFacturaDTO::getProductoId,
+                        LinkedHashMap::new,
+                        Collectors.summingInt(CrearFacturaDTO.CrearItemFacturaDTO::getCantidad)));
+
+        List<String> insuficientes = cantidadesPorProducto.entrySet().stream()
+                .filter(entrada -> productos.get(entrada.getKey()).stockDisponible() < entrada.getValue())
+                .map(entrada -> {
+                    Producto producto = productos.get(entrada.getKey());
+                    return String.format("%s (stock disponible: %d, cantidad solicitada: %d)",
+                            producto.getNombre(), producto.stockDisponible(), entrada.getValue());
                 })
-                .orElse(0L);
-        
-        Long nuevoNumero = ultimoNumero + 1;
-        
-        return String.format("%s%s-%06d", prefijo, anio, nuevoNumero);
+                .collect(Collectors.toList());
+
+        if (!insuficientes.isEmpty()) {
+            throw new ConflictoException("Stock insuficiente para: " + String.join(", ", insuficientes));
+        }
+    }
+
+    /**
+     * Genera un movimiento de inventario por cada item con producto y actualiza el stock.
+     * Las ventas salen de los lotes que vencen primero (FEFO) y las anulaciones vuelven al lote que vence primero.
+     * Ventas y anulaciones se aplican en la ubicación principal (farmacia).
+     * Los productos deben venir bloqueados (obtenerMapaPorIdsParaActualizar).
+     */
+    private void registrarMovimientosInventario(Factura factura, Map<Long, Producto> productos,
+                                                TipoMovimiento tipo, Usuario usuario) {
+        if (productos.isEmpty()) {
+            return;
+        }
+
+        List<MovimientoInventario> movimientos = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        String motivo = tipo == TipoMovimiento.SALIDA ? "VENTA" : "ANULACION_FACTURA";
+        Ubicacion principal = stockUbicaciones.resolver(null);
+
+        for (ItemFactura item : factura.getItems()) {
+            if (item.getProducto() == null) {
+                continue;
+            }
+            Producto producto = productos.get(item.getProducto().getId());
+            int stockAnterior = producto.getStockActual();
+            int stockNuevo = tipo == TipoMovimiento.SALIDA
+                    ? stockAnterior - item.getCantidad()
+                    : stockAnterior + item.getCantidad();
+            producto.setStockActual(stockNuevo);
+            CambioStock cambio = new CambioStock(stockAnterior, stockNuevo);
+            if (tipo == TipoMovimiento.SALIDA) {
+                asignadorLotes.descontar(producto, item.getCantidad(), stockAnterior);
+                estadisticasConsumo.registrarSalida(producto, item.getCantidad(), ahora.toLocalDate());
+            } else {
+                asignadorLotes.registrarDevolucion(producto, item.getCantidad(), stockAnterior);
+            }
+            stockUbicaciones.registrarCambio(producto, principal, cambio);
+            detectorStockMinimo.registrarCambio(producto, cambio);
+
+            MovimientoInventario movimiento = MovimientoInventario.builder()
+                    .producto(producto)
+                    .tipoMovimiento(tipo)
+                    .cantidad(item.getCantidad())
+                    .stockAnterior(stockAnterior)
+                    .stockNuevo(stockNuevo)
+                    .fechaMovimiento(ahora)
+                    .motivo(motivo)
+                    .numeroDocumento(factura.getNumeroFactura())
+                    .costoUnitario(producto.getPrecioCompra())
+                    .usuario(usuario)
+                    .ubicacion(principal)
+                    .build();
+            movimiento.setActivo(true);
+            movimientos.add(movimiento);
+        }
+
+        // Hibernate agrupa los UPDATE de stock y los INSERT de movimientos en batches JDBC
+        productoRepository.saveAll(productos.values());
+        movimientoInventarioRepository.saveAll(movimientos);
+        kardex.registrar(movimientos);
+        log.info("Factura {}: {} movimientos de {} registrados", factura.getNumeroFactura(), movimientos.size(), tipo);
+    }
+
+    private void validarPaginacion(int pagina, int tamano) {
+        if (pagina < 0 || tamano < 1 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new ValidacionException("La página debe ser mayor o igual a 0 y el tamaño estar entre 1 y "
+                    + TAMANO_MAXIMO_PAGINA);
+        }
     }
 
     /**
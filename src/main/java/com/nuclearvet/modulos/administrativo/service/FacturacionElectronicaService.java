@@ -0,0 +1,282 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.DocumentoElectronicoDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoDocumentoElectronicoDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoProcesamientoDocumentosDTO;
+import com.nuclearvet.modulos.administrativo.entity.DocumentoElectronico;
+import com.nuclearvet.modulos.administrativo.entity.EstadoDocumentoElectronico;
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
+import com.nuclearvet.modulos.administrativo.repository.DocumentoElectronicoRepository;
+import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio para los documentos electrónicos de las facturas.
+ * Toma las facturas nuevas por lotes, fuera del flujo de crearFactura, y por cada lote:
+ * 1) en una transacción corta crea los documentos pendientes, los pasa a PROCESANDO con un token
+ *    propio del lote y copia los datos de las facturas de los que quedaron con ese token,
+ * 2) sin transacción genera, firma y envía los documentos en paralelo (ProcesadorDocumentosElectronicos),
+ * 3) en otra transacción corta guarda el estado de cada documento.
+ * Con varias instancias, un documento que otra ya tomó no se carga, así no se envía dos veces.
+ * Los documentos con error se reintentan en las siguientes ejecuciones hasta max-intentos; los que
+ * quedaron en PROCESANDO al detenerse el proceso vuelven a PENDIENTE pasado procesando-vencido-ms.
+ * RF6.1 - Gestión de facturación
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FacturacionElectronicaService {
+
+    private static final int LONGITUD_MAXIMA_ERROR = 500;
+
+    private final DocumentoElectronicoRepository documentoElectronicoRepository;
+    private final FacturaRepository facturaRepository;
+    private final ProcesadorDocumentosElectronicos procesador;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean enProceso = new AtomicBoolean(false);
+
+    @Value("${facturacion.electronica.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${facturacion.electronica.tamano-lote:200}")
+    private int tamanoLote;
+
+    @Value("${facturacion.electronica.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${facturacion.electronica.procesando-vencido-ms:600000}")
+    private long procesandoVencidoMs;
+
+    /**
+     * Ejecución periódica del procesamiento
+     */
+    @Scheduled(fixedDelayString = "${facturacion.electronica.intervalo-ms:60000}")
+    public void procesarProgramado() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            procesarPendientes();
+        } catch (ConflictoException e) {
+            log.debug("Procesamiento de documentos electrónicos omitido: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Error en el procesamiento programado de documentos electrónicos", e);
+        }
+    }
+
+    /**
+     * RF6.1: Generar, firmar y enviar los documentos electrónicos pendientes
+     */
+    public ResultadoProcesamientoDocumentosDTO procesarPendientes() {
+        if (!enProceso.compareAndSet(false, true)) {
+            throw new ConflictoException("Ya hay un procesamiento de documentos electrónicos en curso");
+        }
+        try {
+            long inicio = System.nanoTime();
+            int liberados = documentoElectronicoRepository.liberarProcesosVencidos(
+                    LocalDateTime.now().minus(Duration.ofMillis(procesandoVencidoMs)));
+            if (liberados > 0) {
+                log.warn("{} documentos electrónicos llevaban más de {} ms en proceso y vuelven a pendientes",
+                        liberados, procesandoVencidoMs);
+            }
+
+            int enviados = 0;
+            int conError = 0;
+            long ultimoId = 0L;
+
+            while (true) {
+                final long desdeId = ultimoId;
+                LoteTomado tomado = transactionTemplate.execute(status -> prepararLote(desdeId));
+                if (tomado == null) {
+                    break;
+                }
+                // Los documentos con error de este lote se reintentan en la siguiente ejecución
+                ultimoId = tomado.hastaId();
+                List<DatosDocumentoFacturaDTO> lote = tomado.datos();
+                if (lote.isEmpty()) {
+                    continue;
+                }
+
+                List<ResultadoDocumentoElectronicoDTO> resultados = procesador.procesar(lote);
+                transactionTemplate.executeWithoutResult(status -> registrarResultados(tomado.token(), resultados));
+
+                for (ResultadoDocumentoElectronicoDTO resultado : resultados) {
+                    if (resultado.isExitoso()) {
+                        enviados++;
+                    } else {
+                        conError++;
+                    }
+                }
+            }
+
+            long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+            int procesados = enviados + conError;
+            if (procesados > 0) {
+                log.info("Documentos electrónicos procesados: {} enviados, {} con error en {} ms",
+                        enviados, conError, duracionMs);
+            }
+
+            return ResultadoProcesamientoDocumentosDTO.builder()
+                    .documentosProcesados(procesados)
+                    .documentosEnviados(enviados)
+                    .documentosConError(conError)
+                    .duracionMs(duracionMs)
+                    .documentosPorMinuto(duracionMs > 0 ? procesados * 60_000.0 / duracionMs : (double) procesados)
+                    .build();
+        } finally {
+            enProceso.set(false);
+        }
+    }
+
+    /**
+     * RF6.1: Obtener el estado del documento electrónico de una factura
+     */
+    @Transactional(readOnly = true)
+    public DocumentoElectronicoDTO obtenerPorFactura(Long facturaId) {
+        DocumentoElectronico documento = documentoElectronicoRepository.findByFacturaId(facturaId)
+                .orElseThrow(() -> new RecursoNoEncontradoException("DocumentoElectronico", "facturaId", facturaId));
+
+        return DocumentoElectronicoDTO.builder()
+                .id(documento.getId())
+                .facturaId(facturaId)
+                .estado(documento.getEstado())
+                .intentos(documento.getIntentos())
+                .firma(documento.getFirma())
+                .referenciaEnvio(documento.getReferenciaEnvio())
+                .mensajeError(documento.getMensajeError())
+                .fechaEnvio(documento.getFechaEnvio())
+                .fechaCreacion(documento.getFechaCreacion())
+                .build();
+    }
+
+    /**
+     * Lote tomado para procesar: hastaId es el mayor id considerado, aunque otra instancia
+     * se haya quedado con algunos documentos (o con todos y datos venga vacío)
+     */
+    private record LoteTomado(long hastaId, String token, List<DatosDocumentoFacturaDTO> datos) {
+    }
+
+    /**
+     * Crea los documentos de las facturas nuevas, toma el siguiente lote y copia los datos de sus facturas
+     *
+     * @return null si no quedan documentos por procesar
+     */
+    private LoteTomado prepararLote(long desdeId) {
+        documentoElectronicoRepository.crearPendientes(tamanoLote);
+
+        List<Long> ids = documentoElectronicoRepository.findIdsParaProcesar(
+                maxIntentos, desdeId, PageRequest.of(0, tamanoLote));
+        if (ids.isEmpty()) {
+            return null;
+        }
+        long hastaId = ids.get(ids.size() - 1);
+        String token = UUID.randomUUID().toString();
+        if (documentoElectronicoRepository.tomarParaProcesar(ids, token, LocalDateTime.now()) == 0) {
+            return new LoteTomado(hastaId, token, List.of());
+        }
+        List<DocumentoElectronico> documentos = documentoElectronicoRepository.findTomados(token);
+
+        // Inicializa los items de todas las facturas del lote en una sola consulta
+        List<Long> facturaIds = documentos.stream().map(d -> d.getFactura().getId()).toList();
+        Map<Long, Factura> facturas = facturaRepository.findConItemsByIdIn(facturaIds).stream()
+                .collect(Collectors.toMap(Factura::getId, Function.identity()));
+
+        List<DatosDocumentoFacturaDTO> lote = new ArrayList<>(documentos.size());
+        for (DocumentoElectronico documento : documentos) {
+            lote.add(copiarDatos(documento.getId(), facturas.get(documento.getFactura().getId())));
+        }
+        return new LoteTomado(hastaId, token, lote);
+    }
+
+    private void registrarResultados(String token, List<ResultadoDocumentoElectronicoDTO> resultados) {
+        Map<Long, ResultadoDocumentoElectronicoDTO> porDocumento = resultados.stream()
+                .collect(Collectors.toMap(ResultadoDocumentoElectronicoDTO::getDocumentoId, Function.identity()));
+
+        List<DocumentoElectronico> documentos = documentoElectronicoRepository.findAllById(porDocumento.keySet());
+        LocalDateTime ahora = LocalDateTime.now();
+        for (DocumentoElectronico documento : documentos) {
+            if (documento.getEstado() != EstadoDocumentoElectronico.PROCESANDO
+                    || !Objects.equals(documento.getTokenProceso(), token)) {
+                // Se liberó por vencido y lo tomó otro lote: ese registra su propio resultado
+                log.warn("El documento electrónico {} ya no pertenece a este lote; no se registra su resultado",
+                        documento.getId());
+                continue;
+            }
+            ResultadoDocumentoElectronicoDTO resultado = porDocumento.get(documento.getId());
+            documento.setTokenProceso(null);
+            documento.setIntentos(documento.getIntentos() + 1);
+            if (resultado.isExitoso()) {
+                documento.setEstado(EstadoDocumentoElectronico.ENVIADO);
+                documento.setFirma(resultado.getFirma());
+                documento.setReferenciaEnvio(resultado.getReferenciaEnvio());
+                documento.setMensajeError(null);
+                documento.setFechaEnvio(ahora);
+            } else {
+                documento.setEstado(EstadoDocumentoElectronico.ERROR);
+                documento.setMensajeError(truncar(resultado.getMensajeError()));
+            }
+        }
+        documentoElectronicoRepository.saveAll(documentos);
+    }
+
+    private DatosDocumentoFacturaDTO copiarDatos(Long documentoId, Factura factura) {
+        List<DatosDocumentoFacturaDTO.LineaDocumentoDTO> lineas = new ArrayList<>(factura.getItems().size());
+        for (ItemFactura item : factura.getItems()) {
+            lineas.add(DatosDocumentoFacturaDTO.LineaDocumentoDTO.builder()
+                    .tipo(item.getTipo().name())
+                    .descripcion(item.getDescripcion())
+                    .cantidad(item.getCantidad())
+                    .precioUnitario(item.getPrecioUnitario())
+                    .subtotal(item.getSubtotal())
+                    .build());
+        }
+
+        Usuario propietario = factura.getPropietario();
+        return DatosDocumentoFacturaDTO.builder()
+                .documentoId(documentoId)
+                .facturaId(factura.getId())
+                .numeroFactura(factura.getNumeroFactura())
+                .fechaEmision(factura.getFechaEmision())
+                .nombrePropietario(propietario.getNombre() + " " + propietario.getApellido())
+                .documentoPropietario(propietario.getDocumentoIdentidad())
+                .nombrePaciente(factura.getPaciente().getNombre())
+                .lineas(lineas)
+                .subtotal(factura.getSubtotal())
+                .porcentajeImpuesto(factura.getPorcentajeImpuesto())
+                .valorImpuesto(factura.getValorImpuesto())
+                .descuento(factura.getDescuento())
+                .total(factura.getTotal())
+                .build();
+    }
+
+    private static String truncar(String mensaje) {
+        if (mensaje == null || mensaje.length() <= LONGITUD_MAXIMA_ERROR) {
+            return mensaje;
+        }
+        return mensaje.substring(0, LONGITUD_MAXIMA_ERROR);
+    }
+}
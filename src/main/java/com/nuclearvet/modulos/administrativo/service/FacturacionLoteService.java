@@ -0,0 +1,169 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.administrativo.dto.FacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoFacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
+import com.nuclearvet.modulos.administrativo.entity.TipoItemFactura;
+import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.pacientes.entity.Consulta;
+import com.nuclearvet.modulos.pacientes.entity.Paciente;
+import com.nuclearvet.modulos.pacientes.repository.ConsultaRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servicio para la facturación por lotes al cierre del día.
+ * Genera una factura por cada consulta completada que aún no ha sido facturada.
+ * RF6.1 - Gestión de facturación
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FacturacionLoteService {
+
+    /**
+     * Facturas por lote de escritura. Debe coincidir con hibernate.jdbc.batch_size
+     * para que cada flush se envíe como un único batch JDBC.
+     */
+    static final int TAMANO_LOTE = 50;
+
+    private final FacturaRepository facturaRepository;
+    private final ConsultaRepository consultaRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * RF6.1: Facturar todas las consultas completadas en una fecha que no tienen factura
+     */
+    @Transactional
+    public ResultadoFacturacionLoteDTO facturarConsultasDelDia(FacturacionLoteDTO dto) {
+        log.info("Iniciando facturación por lotes de las consultas del {}", dto.getFecha());
+        long inicio = System.nanoTime();
+
+        Usuario emitidaPor = usuarioRepository.findById(dto.getEmitidaPorId())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Usuario", "id", dto.getEmitidaPorId()));
+
+        // Una sola consulta trae consultas, pacientes y propietarios
+        List<Consulta> consultas = consultaRepository.findCompletadasSinFactura(
+                dto.getFecha().atStartOfDay(), dto.getFecha().plusDays(1).atStartOfDay());
+
+        List<Consulta> facturables = new ArrayList<>(consultas.size());
+        for (Consulta consulta : consultas) {
+            if (consulta.getCostoConsulta() == null || consulta.getCostoConsulta() <= 0) {
+                log.warn("Consulta {} sin costo registrado, no se factura", consulta.getId());
+                continue;
+            }
+            facturables.add(consulta);
+        }
+        int omitidas = consultas.size() - facturables.size();
+
+        // Los números se reservan de una vez en la secuencia, sin chocar con las facturas emitidas a la par
+        List<Long> consecutivos = facturables.isEmpty() ? List.of()
+                : facturaRepository.reservarConsecutivos(facturables.size());
+
+        List<Factura> lote = new ArrayList<>(TAMANO_LOTE);
+        int creadas = 0;
+        String primerNumero = null;
+        String ultimoNumero = null;
+        BigDecimal totalFacturado = BigDecimal.ZERO;
+
+        for (Consulta consulta : facturables) {
+            Factura factura = construirFactura(consulta, emitidaPor, dto, consecutivos.get(creadas));
+            lote.add(factura);
+
+            if (primerNumero == null) {
+                primerNumero = factura.getNumeroFactura();
+            }
+            ultimoNumero = factura.getNumeroFactura();
+            totalFacturado = totalFacturado.add(factura.getTotal());
+            creadas++;
+
+            if (lote.size() == TAMANO_LOTE) {
+                guardarLote(lote);
+            }
+        }
+        guardarLote(lote);
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        double facturasPorSegundo = duracionMs > 0 ? creadas * 1000.0 / duracionMs : creadas;
+
+        log.info("Facturación por lotes del {} terminada: {} facturas en {} ms ({} facturas/s), {} consultas omitidas",
+                dto.getFecha(), creadas, duracionMs, String.format("%.1f", facturasPorSegundo), omitidas);
+
+        return ResultadoFacturacionLoteDTO.builder()
+                .fecha(dto.getFecha())
+                .consultasEncontradas(consultas.size())
+                .facturasCreadas(creadas)
+                .consultasOmitidas(omitidas)
+                .primerNumeroFactura(primerNumero)
+                .ultimoNumeroFactura(ultimoNumero)
+                .totalFacturado(totalFacturado)
+                .duracionMs(duracionMs)
+                .facturasPorSegundo(facturasPorSegundo)
+                .build();
+    }
+
+    /**
+     * Construye la factura de una consulta con su item de servicio y totales calculados
+     */
+    private Factura construirFactura(Consulta consulta, Usuario emitidaPor,
+                                     FacturacionLoteDTO dto, long consecutivo) {
+        Paciente paciente = consulta.getHistoriaClinica().getPaciente();
+
+        Factura factura = Factura.builder()
+                .numeroFactura(Factura.generarNumeroFactura(consecutivo))
+                .paciente(paciente)
+                .propietario(paciente.getPropietario())
+                .consulta(consulta)
+                .emitidaPor(emitidaPor)
+                .fechaEmision(LocalDate.now())
+                .fechaVencimiento(LocalDate.now().plusDays(
+                        dto.getDiasVencimiento() != null ? dto.getDiasVencimiento() : 30))
+                .estado(EstadoFactura.PENDIENTE)
+                .porcentajeImpuesto(dto.getPorcentajeImpuesto())
+                .observaciones("Facturación automática de cierre del día " + dto.getFecha())
+                .build();
+        factura.setActivo(true);
+
+        ItemFactura item = ItemFactura.builder()
+                .tipo(TipoItemFactura.CONSULTA)
+                .descripcion(consulta.getTipoServicio())
+                .cantidad(1)
+                .precioUnitario(BigDecimal.valueOf(consulta.getCostoConsulta()).setScale(2, RoundingMode.HALF_UP))
+                .build();
+        item.calcularSubtotal();
+        item.setActivo(true);
+        factura.agregarItem(item);
+
+        factura.calcularTotal();
+        return factura;
+    }
+
+    /**
+     * Inserta un lote de facturas (con sus items en cascada) y libera el contexto de persistencia
+     */
+    private void guardarLote(List<Factura> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        facturaRepository.saveAll(lote);
+        facturaRepository.flush();
+        entityManager.clear();
+        log.debug("Lote de {} facturas guardado", lote.size());
+        lote.clear();
+    }
+}
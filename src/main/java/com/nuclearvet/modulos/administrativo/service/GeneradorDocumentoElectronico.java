@@ -0,0 +1,106 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Genera el documento electrónico (XML) de una factura y su firma.
+ * Es seguro usarlo desde varios hilos: no guarda estado entre llamadas.
+ * RF6.1 - Gestión de facturación
+ */
+@Component
+public class GeneradorDocumentoElectronico {
+
+    private static final String ALGORITMO_FIRMA = "HmacSHA256";
+
+    private final SecretKeySpec claveFirma;
+
+    public GeneradorDocumentoElectronico(@Value("${facturacion.electronica.clave-firma}") String claveFirma) {
+        this.claveFirma = new SecretKeySpec(claveFirma.getBytes(StandardCharsets.UTF_8), ALGORITMO_FIRMA);
+    }
+
+    /**
+     * Genera el XML del documento a partir de los datos de la factura
+     */
+    public String generar(DatosDocumentoFacturaDTO datos) {
+        StringBuilder xml = new StringBuilder(512 + 160 * datos.getLineas().size());
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<Factura numero=\"").append(escapar(datos.getNumeroFactura())).append("\">\n");
+        elemento(xml, 1, "FechaEmision", String.valueOf(datos.getFechaEmision()));
+        xml.append("  <Cliente>\n");
+        elemento(xml, 2, "Nombre", datos.getNombrePropietario());
+        elemento(xml, 2, "Documento", datos.getDocumentoPropietario());
+        xml.append("  </Cliente>\n");
+        elemento(xml, 1, "Paciente", datos.getNombrePaciente());
+        xml.append("  <Lineas>\n");
+        for (DatosDocumentoFacturaDTO.LineaDocumentoDTO linea : datos.getLineas()) {
+            xml.append("    <Linea tipo=\"").append(escapar(linea.getTipo())).append("\">\n");
+            elemento(xml, 3, "Descripcion", linea.getDescripcion());
+            elemento(xml, 3, "Cantidad", String.valueOf(linea.getCantidad()));
+            elemento(xml, 3, "PrecioUnitario", valor(linea.getPrecioUnitario()));
+            elemento(xml, 3, "Subtotal", valor(linea.getSubtotal()));
+            xml.append("    </Linea>\n");
+        }
+        xml.append("  </Lineas>\n");
+        elemento(xml, 1, "Subtotal", valor(datos.getSubtotal()));
+        elemento(xml, 1, "PorcentajeImpuesto", valor(datos.getPorcentajeImpuesto()));
+        elemento(xml, 1, "ValorImpuesto", valor(datos.getValorImpuesto()));
+        elemento(xml, 1, "Descuento", valor(datos.getDescuento()));
+        elemento(xml, 1, "Total", valor(datos.getTotal()));
+        xml.append("</Factura>\n");
+        return xml.toString();
+    }
+
+    /**
+     * Firma el contenido con HMAC-SHA256 y la devuelve en Base64
+     */
+    public String firmar(String contenido) {
+        try {
+            // Mac no es thread-safe: una instancia por firma
+            Mac mac = Mac.getInstance(ALGORITMO_FIRMA);
+            mac.init(claveFirma);
+            byte[] firma = mac.doFinal(contenido.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(firma);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el documento electrónico", e);
+        }
+    }
+
+    private static void elemento(StringBuilder xml, int nivel, String nombre, String contenido) {
+        xml.append("  ".repeat(nivel))
+                .append('<').append(nombre).append('>')
+                .append(escapar(contenido))
+                .append("</").append(nombre).append(">\n");
+    }
+
+    private static String valor(BigDecimal valor) {
+        return valor != null ? valor.toPlainString() : "0";
+    }
+
+    private static String escapar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        StringBuilder escapado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&' -> escapado.append("&amp;");
+                case '<' -> escapado.append("&lt;");
+                case '>' -> escapado.append("&gt;");
+                case '"' -> escapado.append("&quot;");
+                case '\'' -> escapado.append("&apos;");
+                default -> escapado.append(c);
+            }
+        }
+        return escapado.toString();
+    }
+}
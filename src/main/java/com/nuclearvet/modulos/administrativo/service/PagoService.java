@@ -1,9 +1,14 @@
 package com.nuclearvet.modulos.administrativo.service;
 
+import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.administrativo.dto.CierreCajaDTO;
+import com.nuclearvet.modulos.administrativo.dto.DetallePagoCajaDTO;
 import com.nuclearvet.modulos.administrativo.dto.PagoDTO;
 import com.nuclearvet.modulos.administrativo.dto.RegistrarPagoDTO;
+import com.nuclearvet.modulos.administrativo.dto.TotalPagoAgrupadoDTO;
+import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.entity.Factura;
 import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
 import com.nuclearvet.modulos.administrativo.entity.Pago;
@@ -14,14 +19,28 @@ import com.nuclearvet.modulos.usuarios.entity.Usuario;
 import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Servicio para gestión de pagos.
@@ -37,12 +56,62 @@ public class PagoService {
     private final FacturaRepository facturaRepository;
     private final UsuarioRepository usuarioRepository;
     private final PagoMapper pagoMapper;
+    private final AlmacenIdempotenciaPagos almacenIdempotencia;
+
+    /**
+     * Número máximo de intentos al aplicar un pago cuando otra transacción
+     * modificó la factura al mismo tiempo (control optimista por versión)
+     */
+    private static final int MAX_INTENTOS_PAGO = 3;
+
+    /**
+     * Longitud máxima de la clave de idempotencia (columna clave_idempotencia)
+     */
+    private static final int LONGITUD_MAXIMA_CLAVE = 100;
 
     /**
      * RF6.2: Registrar un pago a una factura
      */
     @Transactional
     public PagoDTO registrarPago(RegistrarPagoDTO dto) {
+        return registrarPago(dto, null);
+    }
+
+    /**
+     * RF6.2: Registrar un pago de forma idempotente.
+     * Si ya existe un pago con la misma clave y los mismos datos (reintento del terminal),
+     * se retorna ese pago sin volver a aplicarlo sobre la factura. Si la clave se usó
+     * con otros datos de pago, se rechaza con conflicto.
+     */
+    @Transactional
+    public PagoDTO registrarPago(RegistrarPagoDTO dto, String claveIdempotencia) {
+        String huella = null;
+        if (claveIdempotencia != null) {
+            if (claveIdempotencia.isBlank() || claveIdempotencia.length() > LONGITUD_MAXIMA_CLAVE) {
+                throw new ValidacionException("La clave de idempotencia debe tener entre 1 y "
+                        + LONGITUD_MAXIMA_CLAVE + " caracteres");
+            }
+            huella = huellaSolicitud(dto);
+            
+            Optional<PagoDTO> respuestaPrevia = almacenIdempotencia.obtener(claveIdempotencia, huella);
+            if (respuestaPrevia.isPresent()) {
+                return respuestaPrevia.get();
+            }
+            
+            Optional<Pago> pagoPrevio = pagoRepository.findByClaveIdempotencia(claveIdempotencia);
+            if (pagoPrevio.isPresent()) {
+                String huellaPrevia = pagoPrevio.get().getHuellaSolicitud();
+                // Los pagos registrados antes de guardar la huella (null) se aceptan
+                if (huellaPrevia != null && !huellaPrevia.equals(huella)) {
+                    log.warn("Clave de idempotencia {} reutilizada con otros datos de pago", claveIdempotencia);
+                    throw new ConflictoException(AlmacenIdempotenciaPagos.MENSAJE_CLAVE_REUTILIZADA);
+                }
+                PagoDTO respuesta = convertirADTO(pagoPrevio.get());
+                almacenIdempotencia.registrarDuplicadoBaseDatos(claveIdempotencia, huellaPrevia, respuesta);
+                return respuesta;
+            }
+        }
+        
         log.info("Registrando pago para factura: {}", dto.getFacturaId());
 
         // Validar factura
@@ -53,35 +122,35 @@ public class PagoService {
         Usuario recibidoPor = usuarioRepository.findById(dto.getRecibidoPorId())
                 .orElseThrow(() -> new RecursoNoEncontradoException("Usuario", "id", dto.getRecibidoPorId()));
 
-        // Validar que la factura no esté cancelada
-        if (factura.getEstado().name().equals("CANCELADA")) {
-            throw new ValidacionException("No se puede registrar un pago para una factura cancelada");
-        }
-
-        // Validar que el pago no exceda el saldo pendiente
-        BigDecimal saldoPendiente = factura.getSaldoPendiente();
-        if (dto.getMonto().compareTo(saldoPendiente) > 0) {
-            throw new ValidacionException(
-                    String.format("El monto del pago ($%.2f) excede el saldo pendiente ($%.2f)", 
-                            dto.getMonto(), saldoPendiente));
-        }
+        // Aplicar el pago sobre la factura (incremental, sin cargar sus pagos)
+        factura = aplicarMovimientoPago(factura, dto.getMonto(), true);
 
         // Crear pago
         Pago pago = pagoMapper.toEntity(dto);
         pago.setNumeroRecibo(generarNumeroRecibo());
         pago.setFactura(factura);
         pago.setRecibidoPor(recibidoPor);
+        pago.setClaveIdempotencia(claveIdempotencia);
+        pago.setHuellaSolicitud(huella);
         pago.setActivo(true);
 
-        // Guardar pago
-        Pago pagoGuardado = pagoRepository.save(pago);
-
-        // Actualizar factura
-        factura.registrarPago(pagoGuardado);
-        facturaRepository.save(factura);
+        // Guardar pago (el índice único sobre la clave detecta reintentos simultáneos)
+        Pago pagoGuardado;
+        try {
+            pagoGuardado = pagoRepository.save(pago);
+        } catch (DataIntegrityViolationException e) {
+            if (claveIdempotencia == null) {
+                throw e;
+            }
+            throw new ConflictoException("Ya hay un pago en proceso con esta clave de idempotencia. Intente de nuevo");
+        }
 
         log.info("Pago registrado exitosamente: {} por ${}", pagoGuardado.getNumeroRecibo(), pagoGuardado.getMonto());
-        return convertirADTO(pagoGuardado);
+        PagoDTO respuesta = convertirADTO(pagoGuardado);
+        if (claveIdempotencia != null) {
+            almacenIdempotencia.registrarNuevo(claveIdempotencia, huella, respuesta);
+        }
+        return respuesta;
     }
 
     /**
@@ -201,6 +270,126 @@ public class PagoService {
         return pagoRepository.calcularTotalPorMetodo(metodoPago, inicioDateTime, finDateTime);
     }
 
+    /**
+     * RF6.4: Cierre de caja del día.
+     * Obtiene totales y cantidades por método de pago y por cajero con una sola consulta agrupada.
+     */
+    @Transactional(readOnly = true)
+    public CierreCajaDTO obtenerCierreCaja(LocalDate fecha) {
+        log.info("Generando cierre de caja del {}", fecha);
+        
+        List<TotalPagoAgrupadoDTO> filas = pagoRepository.calcularTotalesPorMetodoYCajero(
+                fecha.atStartOfDay(), fecha.atTime(23, 59, 59));
+        
+        Map<MetodoPago, List<TotalPagoAgrupadoDTO>> filasPorMetodo = filas.stream()
+                .collect(Collectors.groupingBy(TotalPagoAgrupadoDTO::getMetodoPago,
+                        () -> new EnumMap<>(MetodoPago.class), Collectors.toList()));
+        
+        // Se incluyen todos los métodos, aunque no tengan pagos, para que el cierre sea completo
+        List<CierreCajaDTO.TotalMetodoPagoDTO> metodos = new ArrayList<>();
+        for (MetodoPago metodo : MetodoPago.values()) {
+            List<TotalPagoAgrupadoDTO> filasMetodo = filasPorMetodo.getOrDefault(metodo, List.of());
+            
+            List<CierreCajaDTO.TotalCajeroDTO> cajeros = filasMetodo.stream()
+                    .map(fila -> CierreCajaDTO.TotalCajeroDTO.builder()
+                            .usuarioId(fila.getRecibidoPorId())
+                            .nombre(fila.getRecibidoPorNombre())
+                            .total(fila.getTotal())
+                            .cantidad(fila.getCantidad())
+                            .build())
+                    .collect(Collectors.toList());
+            
+            metodos.add(CierreCajaDTO.TotalMetodoPagoDTO.builder()
+                    .metodoPago(metodo)
+                    .total(filasMetodo.stream()
+                            .map(TotalPagoAgrupadoDTO::getTotal)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add))
+                    .cantidad(filasMetodo.stream()
+                            .mapToLong(TotalPagoAgrupadoDTO::getCantidad)
+                            .sum())
+                    .cajeros(cajeros)
+                    .build());
+        }
+        
+        return CierreCajaDTO.builder()
+                .fecha(fecha)
+                .totalGeneral(metodos.stream()
+                        .map(CierreCajaDTO.TotalMetodoPagoDTO::getTotal)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .cantidadPagos(metodos.stream()
+                        .mapToLong(CierreCajaDTO.TotalMetodoPagoDTO::getCantidad)
+                        .sum())
+                .metodos(metodos)
+                .build();
+    }
+
+    /**
+     * RF6.4: Exportar en CSV el detalle del cierre de caja para conciliación.
+     * Los pagos se leen por streaming y se escriben a medida que llegan, sin cargarlos en memoria.
+     */
+    @Transactional(readOnly = true)
+    public void exportarDetalleCierreCaja(LocalDate fecha, Writer writer) {
+        log.info("Exportando detalle del cierre de caja del {}", fecha);
+        
+        try (Stream<DetallePagoCajaDTO> detalle = pagoRepository.streamDetalleCierreCaja(
+                fecha.atStartOfDay(), fecha.atTime(23, 59, 59))) {
+            writer.write("numero_recibo,fecha_pago,numero_factura,metodo_pago,monto,referencia,recibido_por\n");
+            
+            Iterator<DetallePagoCajaDTO> iterador = detalle.iterator();
+            while (iterador.hasNext()) {
+                DetallePagoCajaDTO linea = iterador.next();
+                writer.write(String.join(",",
+                        valorCsv(linea.getNumeroRecibo()),
+                        valorCsv(linea.getFechaPago()),
+                        valorCsv(linea.getNumeroFactura()),
+                        valorCsv(linea.getMetodoPago()),
+                        valorCsv(linea.getMonto() != null ? linea.getMonto().toPlainString() : null),
+                        valorCsv(linea.getReferenciaTransaccion()),
+                        valorCsv(linea.getRecibidoPorNombre())));
+                writer.write("\n");
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo el detalle del cierre de caja", e);
+        }
+    }
+
+    /**
+     * Huella SHA-256 (hex) de los datos de una solicitud de pago, incluido el usuario que lo recibe.
+     * Identifica los reintentos legítimos de una clave de idempotencia.
+     */
+    static String huellaSolicitud(RegistrarPagoDTO dto) {
+        String datos = String.join("\u001F",
+                String.valueOf(dto.getFacturaId()),
+                String.valueOf(dto.getRecibidoPorId()),
+                String.valueOf(dto.getFechaPago()),
+                dto.getMonto() != null ? dto.getMonto().stripTrailingZeros().toPlainString() : "null",
+                String.valueOf(dto.getMetodoPago()),
+                String.valueOf(dto.getReferenciaTransaccion()),
+                String.valueOf(dto.getBanco()),
+                String.valueOf(dto.getObservaciones()));
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(datos.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+    }
+
+    /**
+     * Escapa un valor para CSV (comillas dobles si contiene comas, comillas, saltos de línea o retornos de carro)
+     */
+    private String valorCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (texto.contains(",") || texto.contains("\"") || texto.contains("\n") || texto.contains("\r")) {
+            return "\"" + texto.replace("\"", "\"\"") + "\"";
+        }
+        return texto;
+    }
+
     /**
      * RF6.2: Anular un pago
      */
@@ -211,34 +400,80 @@ public class PagoService {
         Pago pago = pagoRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Pago", "id", id));
         
+        if (Boolean.FALSE.equals(pago.getActivo())) {
+            throw new ValidacionException("El pago ya se encuentra anulado");
+        }
+        
         // Validar que el pago no sea muy antiguo (ejemplo: máximo 30 días)
         if (pago.getFechaPago().plusDays(30).isBefore(LocalDateTime.now())) {
             throw new ValidacionException("No se puede anular un pago con más de 30 días de antigüedad");
         }
         
+        Factura factura = pago.getFactura();
+        BigDecimal monto = pago.getMonto();
+        
         // Marcar como inactivo
         pago.setActivo(false);
         pago.setObservaciones(pago.getObservaciones() + "\nANULADO: " + motivo);
         pagoRepository.save(pago);
         
-        // Actualizar factura
-        Factura factura = pago.getFactura();
-        BigDecimal nuevoTotalPagado = factura.getTotalPagado().subtract(pago.getMonto());
-        factura.setTotalPagado(nuevoTotalPagado);
-        factura.setSaldoPendiente(factura.getTotal().subtract(nuevoTotalPagado));
-        
-        // Actualizar estado de la factura
-        if (factura.getSaldoPendiente().compareTo(factura.getTotal()) == 0) {
-            factura.setEstado(com.nuclearvet.modulos.administrativo.entity.EstadoFactura.PENDIENTE);
-        } else if (factura.getSaldoPendiente().compareTo(BigDecimal.ZERO) > 0) {
-            factura.setEstado(com.nuclearvet.modulos.administrativo.entity.EstadoFactura.PARCIAL);
-        }
-        
-        facturaRepository.save(factura);
+        // Revertir el pago en la factura (incremental)
+        aplicarMovimientoPago(factura, monto.negate(), false);
         
         log.info("Pago {} anulado exitosamente", pago.getNumeroRecibo());
     }
 
+    /**
+     * Aplica un movimiento de pago sobre la factura con un UPDATE incremental
+     * condicionado a la versión leída. Si otra transacción modificó la factura
+     * entre la lectura y la escritura, se relee y se reintenta.
+     *
+     * @param monto positivo para un pago, negativo para una anulación
+     * @param validarSaldo si se debe validar el estado y el saldo pendiente (solo para pagos)
+     * @return la factura tal como quedó después de aplicar el movimiento
+     */
+    private Factura aplicarMovimientoPago(Factura factura, BigDecimal monto, boolean validarSaldo) {
+        Long facturaId = factura.getId();
+
+        for (int intento = 1; ; intento++) {
+            if (validarSaldo) {
+                // Validar que la factura no esté cancelada
+                if (factura.getEstado() == EstadoFactura.CANCELADA) {
+                    throw new ValidacionException("No se puede registrar un pago para una factura cancelada");
+                }
+
+                // Validar que el pago no exceda el saldo pendiente
+                BigDecimal saldoPendiente = factura.getSaldoPendiente();
+                if (monto.compareTo(saldoPendiente) > 0) {
+                    throw new ValidacionException(
+                            String.format("El monto del pago ($%.2f) excede el saldo pendiente ($%.2f)", 
+                                    monto, saldoPendiente));
+                }
+            }
+
+            EstadoFactura nuevoEstado = factura.estadoTrasMovimientoPago(monto);
+            int actualizadas = facturaRepository.aplicarMovimientoPago(
+                    facturaId, factura.getVersion(), monto, nuevoEstado);
+
+            if (actualizadas == 1) {
+                factura.aplicarMovimientoPago(monto);
+                return factura;
+            }
+
+            if (intento >= MAX_INTENTOS_PAGO) {
+                throw new ConflictoException(
+                        "La factura fue modificada por otra operación al mismo tiempo. Intente de nuevo");
+            }
+
+            log.warn("Conflicto de concurrencia al aplicar pago en factura {} (intento {}/{})",
+                    facturaId, intento, MAX_INTENTOS_PAGO);
+
+            // Releer el estado confirmado por la otra transacción
+            factura = facturaRepository.findById(facturaId)
+                    .orElseThrow(() -> new RecursoNoEncontradoException("Factura", "id", facturaId));
+        }
+    }
+
     /**
      * Genera un número único de recibo
      */
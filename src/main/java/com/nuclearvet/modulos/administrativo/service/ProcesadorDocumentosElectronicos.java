@@ -0,0 +1,73 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoDocumentoElectronicoDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Genera, firma y envía documentos electrónicos en paralelo sobre el pool acotado
+ * executorDocumentosElectronicos. No usa la base de datos: trabaja sobre copias de
+ * las facturas y devuelve un resultado por documento, aunque alguno falle.
+ * RF6.1 - Gestión de facturación
+ */
+@Component
+@Slf4j
+public class ProcesadorDocumentosElectronicos {
+
+    private final GeneradorDocumentoElectronico generador;
+    private final EnviadorDocumentoElectronico enviador;
+    private final Executor executor;
+
+    public ProcesadorDocumentosElectronicos(GeneradorDocumentoElectronico generador,
+                                            EnviadorDocumentoElectronico enviador,
+                                            @Qualifier("executorDocumentosElectronicos") Executor executor) {
+        this.generador = generador;
+        this.enviador = enviador;
+        this.executor = executor;
+    }
+
+    /**
+     * Procesa un lote de documentos y espera a que terminen todos
+     */
+    public List<ResultadoDocumentoElectronicoDTO> procesar(List<DatosDocumentoFacturaDTO> documentos) {
+        List<CompletableFuture<ResultadoDocumentoElectronicoDTO>> tareas = new ArrayList<>(documentos.size());
+        for (DatosDocumentoFacturaDTO datos : documentos) {
+            tareas.add(CompletableFuture.supplyAsync(() -> procesar(datos), executor));
+        }
+
+        List<ResultadoDocumentoElectronicoDTO> resultados = new ArrayList<>(tareas.size());
+        for (CompletableFuture<ResultadoDocumentoElectronicoDTO> tarea : tareas) {
+            resultados.add(tarea.join());
+        }
+        return resultados;
+    }
+
+    private ResultadoDocumentoElectronicoDTO procesar(DatosDocumentoFacturaDTO datos) {
+        try {
+            String contenido = generador.generar(datos);
+            String firma = generador.firmar(contenido);
+            String referencia = enviador.enviar(datos, contenido, firma);
+            return ResultadoDocumentoElectronicoDTO.builder()
+                    .documentoId(datos.getDocumentoId())
+                    .exitoso(true)
+                    .firma(firma)
+                    .referenciaEnvio(referencia)
+                    .build();
+        } catch (Exception e) {
+            log.warn("Error procesando el documento electrónico de la factura {}: {}",
+                    datos.getNumeroFactura(), e.getMessage());
+            return ResultadoDocumentoElectronicoDTO.builder()
+                    .documentoId(datos.getDocumentoId())
+                    .exitoso(false)
+                    .mensajeError(e.getClass().getSimpleName() + ": " + e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.nuclearvet.modulos.citas.dto;
 
+import com.nuclearvet.modulos.inventario.dto.ReservarInsumoDTO;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -10,6 +12,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DTO para crear una nueva cita.
@@ -39,4 +42,8 @@ public class CrearCitaDTO {
     private Integer duracionMinutos;
 
     private String observaciones;
+
+    // Insumos a reservar (p. ej. anestésicos de una cirugía). Al actualizar, nulo conserva los reservados
+    @Valid
+    private List<ReservarInsumoDTO> insumos;
 }
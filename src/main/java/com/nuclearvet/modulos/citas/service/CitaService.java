@@ -9,6 +9,7 @@ import com.nuclearvet.modulos.citas.dto.CrearCitaDTO;
 import com.nuclearvet.modulos.citas.entity.Cita;
 import com.nuclearvet.modulos.citas.mapper.CitaMapper;
 import com.nuclearvet.modulos.citas.repository.CitaRepository;
+import com.nuclearvet.modulos.inventario.service.ReservaStockService;
 import com.nuclearvet.modulos.pacientes.entity.Paciente;
 import com.nuclearvet.modulos.pacientes.repository.PacienteRepository;
 import com.nuclearvet.modulos.usuarios.entity.Usuario;
@@ -36,6 +37,7 @@ public class CitaService {
     private final CitaRepository citaRepository;
     private final PacienteRepository pacienteRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ReservaStockService reservaStockService;
     private final CitaMapper citaMapper;
 
     /**
@@ -76,6 +78,11 @@ public class CitaService {
                 .build();
 
         cita = citaRepository.save(cita);
+
+        // Apartar los insumos; si no hay stock disponible la cita no se crea
+        if (dto.getInsumos() != null && !dto.getInsumos().isEmpty()) {
+            reservaStockService.reservar(cita, dto.getInsumos());
+        }
         log.info("Cita creada exitosamente con ID: {}", cita.getId());
         return citaMapper.toDTO(cita);
     }
@@ -122,6 +129,9 @@ public class CitaService {
         cita.setObservaciones(dto.getObservaciones());
 
         cita = citaRepository.save(cita);
+        if (dto.getInsumos() != null) {
+            reservaStockService.reemplazar(cita, dto.getInsumos());
+        }
         log.info("Cita actualizada exitosamente: {}", id);
         return citaMapper.toDTO(cita);
     }
@@ -148,6 +158,7 @@ public class CitaService {
         cita.setMotivoCancelacion(dto.getMotivoCancelacion());
 
         cita = citaRepository.save(cita);
+        reservaStockService.liberar(id);
         log.info("Cita cancelada exitosamente: {}", id);
         return citaMapper.toDTO(cita);
     }
@@ -289,6 +300,7 @@ public class CitaService {
 
         cita.setEstado("COMPLETADA");
         cita = citaRepository.save(cita);
+        reservaStockService.consumir(cita); // Los insumos reservados salen del inventario
         log.info("Cita completada: {}", id);
         return citaMapper.toDTO(cita);
     }
@@ -309,6 +321,7 @@ public class CitaService {
 
         cita.setEstado("NO_ASISTIO");
         cita = citaRepository.save(cita);
+        reservaStockService.liberar(id);
         log.info("Cita marcada como no asistió: {}", id);
         return citaMapper.toDTO(cita);
     }
@@ -0,0 +1,61 @@
+package com.nuclearvet.modulos.inventario.controller;
+
+import com.nuclearvet.common.dto.RespuestaExitosa;
+import com.nuclearvet.modulos.inventario.dto.RegistroKardexDTO;
+import com.nuclearvet.modulos.inventario.dto.ValoracionInventarioDTO;
+import com.nuclearvet.modulos.inventario.service.KardexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Controlador REST para el kardex valorizado y la valorización del inventario.
+ * RF4.4 - Valorización del inventario
+ */
+@RestController
+@RequestMapping("/api/kardex")
+@RequiredArgsConstructor
+@Tag(name = "Kardex", description = "Endpoints para consulta del kardex valorizado y la valorización del inventario")
+@SecurityRequirement(name = "bearerAuth")
+public class KardexController {
+
+    private final KardexService kardexService;
+
+    /**
+     * RF4.4: Kardex valorizado de un producto en un rango de fechas
+     */
+    @GetMapping("/producto/{productoId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Kardex de un producto", description = "Lista los registros del kardex del producto con costo promedio ponderado y saldo valorizado")
+    public RespuestaExitosa<List<RegistroKardexDTO>> listarKardex(
+            @PathVariable Long productoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
+        List<RegistroKardexDTO> registros = kardexService.listarKardex(productoId, fechaInicio, fechaFin);
+        String mensaje = registros.isEmpty()
+            ? "No hay registros del kardex en el rango de fechas especificado"
+            : String.format("Se encontraron %d registros del kardex", registros.size());
+        return RespuestaExitosa.crear(registros, mensaje);
+    }
+
+    /**
+     * RF4.4: Valorización del inventario a una fecha (por defecto, ahora)
+     */
+    @GetMapping("/valoracion")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO')")
+    @Operation(summary = "Valorización del inventario", description = "Valoriza el inventario por categoría a la fecha indicada, a costo promedio ponderado")
+    public RespuestaExitosa<ValoracionInventarioDTO> valorarInventario(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        LocalDateTime fechaValoracion = fecha != null ? fecha : LocalDateTime.now();
+        ValoracionInventarioDTO valoracion = kardexService.valorarInventario(fechaValoracion);
+        String mensaje = String.format("Inventario valorizado al %s: %s", fechaValoracion.toLocalDate(), valoracion.getValorTotal());
+        return RespuestaExitosa.crear(valoracion, mensaje);
+    }
+}
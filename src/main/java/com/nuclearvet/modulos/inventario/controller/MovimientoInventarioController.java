@@ -1,8 +1,13 @@
 package com.nuclearvet.modulos.inventario.controller;
 
 import com.nuclearvet.common.dto.RespuestaExitosa;
+import com.nuclearvet.modulos.inventario.dto.ExistenciaPeriodoDTO;
 import com.nuclearvet.modulos.inventario.dto.MovimientoInventarioDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarEntregaProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.RegistrarMovimientoDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarTransferenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoEntregaProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.StockHistoricoDTO;
 import com.nuclearvet.modulos.inventario.service.MovimientoInventarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -11,6 +16,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -43,6 +49,40 @@ public class MovimientoInventarioController {
         return RespuestaExitosa.crear(movimiento, mensaje);
     }
 
+    /**
+     * RF4.4: Registrar todas las líneas de una entrega de proveedor en una sola operación.
+     * Si alguna línea no es válida no se aplica ninguna y se responde 422 con el detalle por línea.
+     */
+    @PostMapping("/entregas")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Registrar entrega de proveedor", description = "Registra las entradas de todos los productos de una entrega de proveedor en una transacción, con resultado por línea")
+    public ResponseEntity<RespuestaExitosa<ResultadoEntregaProveedorDTO>> registrarEntregaProveedor(
+            @Valid @RequestBody RegistrarEntregaProveedorDTO dto) {
+        ResultadoEntregaProveedorDTO resultado = movimientoService.registrarEntregaProveedor(dto);
+        if (!resultado.isAplicada()) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(RespuestaExitosa.<ResultadoEntregaProveedorDTO>builder()
+                    .exitoso(false)
+                    .mensaje(String.format("La entrega no se registró: %d líneas con error", resultado.getLineasConError()))
+                    .data(resultado)
+                    .build());
+        }
+        String mensaje = String.format("Entrega registrada: %d líneas, +%d unidades",
+                resultado.getLineas().size(), resultado.getUnidadesRecibidas());
+        return ResponseEntity.status(HttpStatus.CREATED).body(RespuestaExitosa.crear(resultado, mensaje));
+    }
+
+    /**
+     * RF4.4: Transferir unidades de un producto entre ubicaciones (farmacia, quirófano, sedes)
+     */
+    @PostMapping("/transferencias")
+    @ResponseStatus(HttpStatus.CREATED)
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Registrar transferencia", description = "Mueve unidades de un producto de una ubicación a otra sin cambiar su stock total")
+    public RespuestaExitosa<MovimientoInventarioDTO> registrarTransferencia(@Valid @RequestBody RegistrarTransferenciaDTO dto) {
+        MovimientoInventarioDTO movimiento = movimientoService.registrarTransferencia(dto);
+        return RespuestaExitosa.crear(movimiento, generarMensajeMovimiento(movimiento));
+    }
+
     /**
      * Obtener un movimiento por ID
      */
@@ -104,6 +144,39 @@ public class MovimientoInventarioController {
         return RespuestaExitosa.crear(movimientos, mensaje);
     }
 
+    /**
+     * RF4.4: Stock de un producto a una fecha pasada
+     */
+    @GetMapping("/producto/{productoId}/stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Stock a una fecha", description = "Obtiene el stock que tenía un producto en la fecha indicada, desde el punto de control más cercano")
+    public RespuestaExitosa<StockHistoricoDTO> obtenerStockAFecha(
+            @PathVariable Long productoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        StockHistoricoDTO stock = movimientoService.obtenerStockAFecha(productoId, fecha);
+        String mensaje = String.format("Stock de '%s' al %s: %d unidades", stock.getProductoNombre(), fecha, stock.getStock());
+        return RespuestaExitosa.crear(stock, mensaje);
+    }
+
+    /**
+     * RF4.4: Existencias de todos los productos en un rango de fechas
+     */
+    @GetMapping("/reporte/existencias")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Reporte de existencias", description = "Stock inicial, entradas, salidas y stock final de cada producto en un rango de fechas")
+    public RespuestaExitosa<List<ExistenciaPeriodoDTO>> reporteExistencias(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin) {
+        List<ExistenciaPeriodoDTO> existencias = movimientoService.reporteExistencias(fechaInicio, fechaFin);
+        String mensaje = existencias.isEmpty()
+            ? "No hay existencias en el rango de fechas especificado"
+            : String.format("Existencias de %d productos entre %s y %s",
+                existencias.size(),
+                fechaInicio.toLocalDate(),
+                fechaFin.toLocalDate());
+        return RespuestaExitosa.crear(existencias, mensaje);
+    }
+
     /**
      * Listar movimientos del día actual
      */
@@ -166,6 +239,10 @@ public class MovimientoInventarioController {
                 "Devolución registrada: +%d unidades de '%s'. Stock: %d → %d",
                 mov.getCantidad(), mov.getProductoNombre(), mov.getStockAnterior(), mov.getStockNuevo()
             );
+            case "TRANSFERENCIA" -> String.format(
+                "Transferencia registrada: %d unidades de '%s' de %s a %s",
+                mov.getCantidad(), mov.getProductoNombre(), mov.getUbicacionNombre(), mov.getUbicacionDestinoNombre()
+            );
             default -> "Movimiento registrado exitosamente";
         };
     }
@@ -2,7 +2,12 @@ package com.nuclearvet.modulos.inventario.controller;
 
 import com.nuclearvet.common.dto.RespuestaExitosa;
 import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.LoteProductoDTO;
 import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ProductoSugerenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoImportacionProductosDTO;
+import com.nuclearvet.modulos.inventario.dto.ResumenAlertasInventarioDTO;
+import com.nuclearvet.modulos.inventario.service.ImportacionProductosService;
 import com.nuclearvet.modulos.inventario.service.ProductoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -10,13 +15,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.HashMap;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Controlador REST para gestión de productos e inventario.
@@ -30,6 +36,7 @@ import java.util.Map;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ImportacionProductosService importacionProductosService;
 
     /**
      * RF4.1: Crear un nuevo producto
@@ -49,6 +56,25 @@ public class ProductoController {
                 .body(RespuestaExitosa.crear(producto, "Producto creado exitosamente, parce"));
     }
 
+    /**
+     * RF4.1: Importar productos desde un archivo CSV
+     */
+    @Operation(
+            summary = "Importar productos desde CSV",
+            description = "Recibe el CSV como cuerpo de la solicitud (text/csv) y lo procesa mientras llega. " +
+                    "Columnas obligatorias: codigo, nombre, categoria (id o nombre), precioCompra, precioVenta, " +
+                    "stockActual, stockMinimo; opcionales: proveedor (id o NIT) y los demás campos del producto. " +
+                    "Las filas con error no se importan y se detallan en la respuesta."
+    )
+    @PostMapping(value = "/importar", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RespuestaExitosa<ResultadoImportacionProductosDTO>> importarProductos(InputStream csv) {
+        ResultadoImportacionProductosDTO resultado = importacionProductosService.importar(csv);
+        String mensaje = String.format("Se importaron %d productos, %d filas con error",
+                resultado.getProductosImportados(), resultado.getFilasConError());
+        return ResponseEntity.ok(RespuestaExitosa.crear(resultado, mensaje));
+    }
+
     /**
      * RF4.1: Actualizar un producto
      */
@@ -77,6 +103,20 @@ public class ProductoController {
         return ResponseEntity.ok(RespuestaExitosa.crear(producto));
     }
 
+    /**
+     * RF4.3: Lotes de un producto en orden de salida (FEFO)
+     */
+    @Operation(
+            summary = "Listar lotes del producto",
+            description = "Lista los lotes del producto con su vencimiento y unidades disponibles, en el orden en que salen (primero en vencer, primero en salir)."
+    )
+    @GetMapping("/{id}/lotes")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    public ResponseEntity<RespuestaExitosa<List<LoteProductoDTO>>> listarLotes(@PathVariable Long id) {
+        List<LoteProductoDTO> lotes = productoService.listarLotes(id);
+        return ResponseEntity.ok(RespuestaExitosa.crear(lotes));
+    }
+
     /**
      * RF4.1: Obtener producto por código
      */
@@ -189,6 +229,22 @@ public class ProductoController {
         return ResponseEntity.ok(RespuestaExitosa.crear(productos));
     }
 
+    /**
+     * RF4.1: Autocompletado del buscador de productos
+     */
+    @Operation(
+            summary = "Autocompletar productos",
+            description = "Sugerencias ordenadas por relevancia para el texto escrito (mínimo 2 caracteres), buscando en nombre, código y principio activo. Tolera errores de tipeo y tildes."
+    )
+    @GetMapping("/autocompletar")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    public ResponseEntity<RespuestaExitosa<List<ProductoSugerenciaDTO>>> autocompletar(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limite) {
+        List<ProductoSugerenciaDTO> sugerencias = productoService.autocompletar(q, limite);
+        return ResponseEntity.ok(RespuestaExitosa.crear(sugerencias));
+    }
+
     /**
      * Desactivar un producto
      */
@@ -225,18 +281,24 @@ public class ProductoController {
     )
     @GetMapping("/alertas/resumen")
     @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
-    public ResponseEntity<RespuestaExitosa<Map<String, Object>>> resumenAlertas() {
-        List<ProductoDTO> bajoStock = productoService.obtenerProductosConBajoStock();
-        List<ProductoDTO> proximosVencer = productoService.obtenerProductosProximosAVencer();
-        List<ProductoDTO> vencidos = productoService.obtenerProductosVencidos();
-
-        Map<String, Object> resumen = new HashMap<>();
-        resumen.put("productosBajoStock", bajoStock.size());
-        resumen.put("productosProximosVencer", proximosVencer.size());
-        resumen.put("productosVencidos", vencidos.size());
-        resumen.put("totalAlertas", bajoStock.size() + proximosVencer.size() + vencidos.size());
+    public ResponseEntity<RespuestaExitosa<ResumenAlertasInventarioDTO>> resumenAlertas() {
+        ResumenAlertasInventarioDTO resumen = productoService.obtenerResumenAlertas();
 
         String mensaje = "Resumen de alertas del inventario";
         return ResponseEntity.ok(RespuestaExitosa.crear(resumen, mensaje));
     }
+
+    /**
+     * Alertas de stock en vivo
+     */
+    @Operation(
+            summary = "Alertas de stock en vivo",
+            description = "Flujo Server-Sent Events con los productos que bajan hasta su stock mínimo (stock-bajo) " +
+                    "o lo vuelven a superar (stock-recuperado)."
+    )
+    @GetMapping(value = "/alertas/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    public SseEmitter streamAlertas() {
+        return productoService.suscribirAlertasStock();
+    }
 }
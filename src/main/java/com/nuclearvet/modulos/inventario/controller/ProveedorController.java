@@ -3,6 +3,7 @@ package com.nuclearvet.modulos.inventario.controller;
 import com.nuclearvet.common.dto.RespuestaExitosa;
 import com.nuclearvet.modulos.inventario.dto.CrearProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.ProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.SugerenciaPedidoDTO;
 import com.nuclearvet.modulos.inventario.service.ProveedorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -102,6 +103,22 @@ public class ProveedorController {
         return RespuestaExitosa.crear(proveedores, mensaje);
     }
 
+    /**
+     * RF4.4: Sugerencias de pedido por proveedor
+     */
+    @GetMapping("/sugerencias-pedido")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO')")
+    @Operation(summary = "Sugerencias de pedido",
+            description = "Productos que llegarían a su stock mínimo antes de recibir un pedido hecho hoy, " +
+                    "agrupados por proveedor, según el consumo diario estimado y los días de entrega")
+    public RespuestaExitosa<List<SugerenciaPedidoDTO>> sugerirPedidos() {
+        List<SugerenciaPedidoDTO> sugerencias = proveedorService.sugerirPedidos();
+        String mensaje = sugerencias.isEmpty()
+            ? "No hay productos para pedir por ahora"
+            : String.format("Hay pedidos sugeridos para %d proveedores", sugerencias.size());
+        return RespuestaExitosa.crear(sugerencias, mensaje);
+    }
+
     /**
      * Buscar proveedores por nombre
      */
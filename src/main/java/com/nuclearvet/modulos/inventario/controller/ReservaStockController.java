@@ -0,0 +1,56 @@
+package com.nuclearvet.modulos.inventario.controller;
+
+import com.nuclearvet.common.dto.RespuestaExitosa;
+import com.nuclearvet.modulos.inventario.dto.DisponibilidadProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ReservaStockDTO;
+import com.nuclearvet.modulos.inventario.service.ReservaStockService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para consultar las reservas de stock de las citas y el stock disponible para prometer.
+ * Las reservas se crean, liberan y consumen desde las citas (CitaService).
+ * RF4.3 - Control de stock
+ */
+@RestController
+@RequestMapping("/api/reservas")
+@RequiredArgsConstructor
+@Tag(name = "Reservas de stock", description = "Endpoints para consultar el stock reservado para citas")
+@SecurityRequirement(name = "bearerAuth")
+public class ReservaStockController {
+
+    private final ReservaStockService reservaStockService;
+
+    /**
+     * RF4.3: Stock disponible para prometer de un producto
+     */
+    @GetMapping("/producto/{productoId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Disponibilidad de un producto", description = "Stock actual, reservado para citas y disponible, con las reservas activas del producto")
+    public RespuestaExitosa<DisponibilidadProductoDTO> obtenerDisponibilidad(@PathVariable Long productoId) {
+        DisponibilidadProductoDTO disponibilidad = reservaStockService.obtenerDisponibilidad(productoId);
+        String mensaje = String.format("%s: %d unidades disponibles, %d reservadas",
+                disponibilidad.getProductoNombre(), disponibilidad.getStockDisponible(), disponibilidad.getStockReservado());
+        return RespuestaExitosa.crear(disponibilidad, mensaje);
+    }
+
+    /**
+     * RF4.3: Reservas de una cita
+     */
+    @GetMapping("/cita/{citaId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Reservas de una cita", description = "Lista los insumos reservados para la cita y el estado de cada reserva")
+    public RespuestaExitosa<List<ReservaStockDTO>> listarPorCita(@PathVariable Long citaId) {
+        List<ReservaStockDTO> reservas = reservaStockService.listarPorCita(citaId);
+        String mensaje = reservas.isEmpty()
+            ? "La cita no tiene insumos reservados"
+            : String.format("Se encontraron %d reservas", reservas.size());
+        return RespuestaExitosa.crear(reservas, mensaje);
+    }
+}
@@ -0,0 +1,107 @@
+package com.nuclearvet.modulos.inventario.controller;
+
+import com.nuclearvet.common.dto.RespuestaExitosa;
+import com.nuclearvet.modulos.inventario.dto.CrearUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.StockUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.UbicacionDTO;
+import com.nuclearvet.modulos.inventario.service.UbicacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para ubicaciones de stock (farmacia principal, quirófano, sedes)
+ * y el stock y las alertas de cada una.
+ * Las transferencias entre ubicaciones se registran como movimientos (/api/movimientos/transferencias).
+ * RF4.3 - Control de stock por ubicación
+ */
+@RestController
+@RequestMapping("/api/ubicaciones")
+@RequiredArgsConstructor
+@Tag(name = "Ubicaciones", description = "Endpoints para ubicaciones de stock y su inventario")
+@SecurityRequirement(name = "bearerAuth")
+public class UbicacionController {
+
+    private final UbicacionService ubicacionService;
+
+    /**
+     * RF4.3: Crear una ubicación
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Crear ubicación", description = "Crea una ubicación de stock, como una sede o un consultorio")
+    public RespuestaExitosa<UbicacionDTO> crearUbicacion(@Valid @RequestBody CrearUbicacionDTO dto) {
+        UbicacionDTO ubicacion = ubicacionService.crearUbicacion(dto);
+        return RespuestaExitosa.crear(ubicacion, "Ubicación creada exitosamente");
+    }
+
+    /**
+     * RF4.3: Listar ubicaciones activas
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Listar ubicaciones", description = "Lista las ubicaciones activas, la principal primero")
+    public RespuestaExitosa<List<UbicacionDTO>> listarUbicaciones() {
+        List<UbicacionDTO> ubicaciones = ubicacionService.listarActivas();
+        return RespuestaExitosa.crear(ubicaciones, String.format("Se encontraron %d ubicaciones", ubicaciones.size()));
+    }
+
+    /**
+     * RF4.3: Stock de una ubicación
+     */
+    @GetMapping("/{id}/stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Stock de una ubicación", description = "Lista los productos con unidades en la ubicación")
+    public RespuestaExitosa<List<StockUbicacionDTO>> listarStock(@PathVariable Long id) {
+        List<StockUbicacionDTO> stock = ubicacionService.listarStock(id);
+        String mensaje = stock.isEmpty()
+            ? "La ubicación no tiene productos con stock"
+            : String.format("La ubicación tiene %d productos con stock", stock.size());
+        return RespuestaExitosa.crear(stock, mensaje);
+    }
+
+    /**
+     * RF4.3: Alertas de bajo stock de una ubicación
+     */
+    @GetMapping("/{id}/alertas/bajo-stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Bajo stock de una ubicación", description = "Lista los productos en o por debajo del stock mínimo de la ubicación")
+    public RespuestaExitosa<List<StockUbicacionDTO>> listarBajoMinimo(@PathVariable Long id) {
+        List<StockUbicacionDTO> stock = ubicacionService.listarBajoMinimo(id);
+        String mensaje = stock.isEmpty()
+            ? "No hay productos con bajo stock en la ubicación"
+            : String.format("Hay %d productos con bajo stock en la ubicación que necesitan reposición", stock.size());
+        return RespuestaExitosa.crear(stock, mensaje);
+    }
+
+    /**
+     * RF4.3: Fijar el stock mínimo de un producto en una ubicación
+     */
+    @PutMapping("/{id}/productos/{productoId}/stock-minimo")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Fijar stock mínimo por ubicación", description = "Fija el mínimo de alerta del producto en la ubicación; sin valor lo quita")
+    public RespuestaExitosa<StockUbicacionDTO> fijarStockMinimo(@PathVariable Long id, @PathVariable Long productoId,
+                                                                @RequestParam(required = false) Integer stockMinimo) {
+        StockUbicacionDTO stock = ubicacionService.fijarStockMinimo(id, productoId, stockMinimo);
+        return RespuestaExitosa.crear(stock, "Stock mínimo actualizado");
+    }
+
+    /**
+     * RF4.3: Stock de un producto por ubicación
+     */
+    @GetMapping("/producto/{productoId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'VETERINARIO', 'ASISTENTE')")
+    @Operation(summary = "Stock de un producto por ubicación", description = "Reparto del stock del producto entre las ubicaciones")
+    public RespuestaExitosa<List<StockUbicacionDTO>> listarPorProducto(@PathVariable Long productoId) {
+        List<StockUbicacionDTO> stock = ubicacionService.listarPorProducto(productoId);
+        return RespuestaExitosa.crear(stock, String.format("El producto está en %d ubicaciones", stock.size()));
+    }
+}
@@ -47,6 +47,9 @@ public class CrearProveedorDTO {
     @Min(value = 0, message = "Los días de crédito no pueden ser negativos")
     private Integer diasCredito;
     
+    @Min(value = 0, message = "Los días de entrega no pueden ser negativos")
+    private Integer diasEntrega;
+    
     @Min(value = 1, message = "La calificación mínima es 1")
     @Max(value = 5, message = "La calificación máxima es 5")
     private Integer calificacion;
@@ -0,0 +1,31 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para crear una ubicación de stock (sede, consultorio, etc.).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CrearUbicacionDTO {
+
+    @NotBlank(message = "El código de la ubicación es obligatorio")
+    @Size(max = 30, message = "El código no puede exceder 30 caracteres")
+    @Pattern(regexp = "[A-Z0-9_]+", message = "El código solo puede tener mayúsculas, números y guiones bajos")
+    private String codigo;
+
+    @NotBlank(message = "El nombre de la ubicación es obligatorio")
+    @Size(max = 100, message = "El nombre no puede exceder 100 caracteres")
+    private String nombre;
+
+    @Size(max = 500, message = "La descripción no puede exceder 500 caracteres")
+    private String descripcion;
+}
@@ -0,0 +1,11 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+/**
+ * Evento publicado cuando un cambio de stock cruza el stock mínimo de un producto:
+ * bajoMinimo es true si el stock bajó hasta el mínimo o por debajo, false si volvió a superarlo.
+ * Se publica dentro de la transacción del cambio; los listeners lo reciben tras el commit.
+ * RF4.3 - Alertas de inventario
+ */
+public record CruceStockMinimoEvento(Long productoId, String codigo, String nombre,
+                                     int stockAnterior, int stockNuevo, int stockMinimo, boolean bajoMinimo) {
+}
@@ -0,0 +1,29 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO con el stock disponible para prometer de un producto: el actual menos lo reservado para citas.
+ * RF4.3 - Control de stock
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadProductoDTO {
+
+    private Long productoId;
+    private String productoCodigo;
+    private String productoNombre;
+    private Integer stockActual;
+    private Integer stockReservado;
+    private Integer stockDisponible;
+
+    // Reservas activas, de la cita más próxima a la más lejana
+    private List<ReservaStockDTO> reservas;
+}
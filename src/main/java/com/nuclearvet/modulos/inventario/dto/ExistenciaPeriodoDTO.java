@@ -0,0 +1,26 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con las existencias de un producto en un período: stock al inicio,
+ * unidades que entraron y salieron, y stock al final.
+ * RF4.4 - Control de entradas y salidas
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExistenciaPeriodoDTO {
+
+    private Long productoId;
+    private String productoCodigo;
+    private String productoNombre;
+    private Integer stockInicial;
+    private Integer entradas;
+    private Integer salidas;
+    private Integer stockFinal;
+}
@@ -0,0 +1,31 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO para un lote de producto.
+ * RF4.3 - Control de vencimientos por lote
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteProductoDTO {
+    
+    private Long id;
+    private Long productoId;
+    private String codigoLote;
+    private LocalDate fechaVencimiento;
+    private Integer cantidadInicial;
+    private Integer cantidadDisponible;
+    private LocalDateTime fechaIngreso;
+    
+    // Campos calculados
+    private Boolean vencido;
+}
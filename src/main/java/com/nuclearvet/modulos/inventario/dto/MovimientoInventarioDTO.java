@@ -21,7 +21,7 @@ public class MovimientoInventarioDTO {
     private Long productoId;
     private String productoNombre;
     private String productoCodigo;
-    private String tipoMovimiento; // ENTRADA, SALIDA, AJUSTE, DEVOLUCION
+    private String tipoMovimiento; // ENTRADA, SALIDA, AJUSTE, DEVOLUCION, TRANSFERENCIA
     private Integer cantidad;
     private Integer stockAnterior;
     private Integer stockNuevo;
@@ -35,4 +35,8 @@ public class MovimientoInventarioDTO {
     private String usuarioNombre;
     private Long proveedorId;
     private String proveedorNombre;
+    private Long ubicacionId; // Origen en una TRANSFERENCIA
+    private String ubicacionNombre;
+    private Long ubicacionDestinoId;
+    private String ubicacionDestinoNombre;
 }
@@ -29,6 +29,8 @@ public class ProductoDTO {
     private BigDecimal precioCompra;
     private BigDecimal precioVenta;
     private Integer stockActual;
+    private Integer stockReservado;
+    private Integer stockDisponible; // stockActual - stockReservado
     private Integer stockMinimo;
     private Integer stockMaximo;
     private String unidadMedida;
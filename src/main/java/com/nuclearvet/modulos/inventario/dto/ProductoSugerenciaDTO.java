@@ -0,0 +1,24 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para una sugerencia del autocompletado de productos.
+ * RF4.1 - Búsqueda de productos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoSugerenciaDTO {
+    
+    private Long id;
+    private String codigo;
+    private String nombre;
+    private String principioActivo;
+    private String presentacion;
+    private Double puntaje; // Mayor es mejor; null si vino de la búsqueda en base de datos
+}
@@ -27,6 +27,7 @@ public class ProveedorDTO {
     private String pais;
     private String observaciones;
     private Integer diasCredito;
+    private Integer diasEntrega;
     private Integer calificacion;
     private Boolean activo;
     private LocalDateTime fechaCreacion;
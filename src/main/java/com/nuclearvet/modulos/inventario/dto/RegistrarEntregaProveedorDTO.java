@@ -0,0 +1,63 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO para registrar en una sola operación todas las líneas de una entrega de proveedor.
+ * RF4.4 - Registro de movimientos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrarEntregaProveedorDTO {
+
+    @NotNull(message = "El ID del proveedor es obligatorio")
+    private Long proveedorId;
+
+    @NotNull(message = "El ID del usuario es obligatorio")
+    private Long usuarioId;
+
+    @Size(max = 100, message = "El número de documento no puede exceder 100 caracteres")
+    private String numeroDocumento; // Factura o remisión del proveedor
+
+    private String observaciones;
+
+    @NotEmpty(message = "La entrega debe tener al menos una línea")
+    @Size(max = 500, message = "La entrega no puede tener más de 500 líneas")
+    @Valid
+    private List<LineaEntregaDTO> lineas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaEntregaDTO {
+
+        @NotNull(message = "El ID del producto es obligatorio")
+        private Long productoId;
+
+        @NotNull(message = "La cantidad es obligatoria")
+        @Positive(message = "La cantidad debe ser positiva")
+        private Integer cantidad;
+
+        @DecimalMin(value = "0.0", inclusive = false, message = "El costo unitario debe ser mayor a 0")
+        private BigDecimal costoUnitario;
+
+        @Size(max = 100, message = "El lote no puede exceder 100 caracteres")
+        private String lote;
+
+        private LocalDate fechaVencimiento;
+
+        private String observaciones;
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 /**
  * DTO para registrar un movimiento de inventario.
@@ -46,4 +47,14 @@ public class RegistrarMovimientoDTO {
     
     // Solo para movimientos de tipo ENTRADA
     private Long proveedorId;
+    
+    // Lote que ingresa (ENTRADA). Las salidas se asignan a los lotes por vencimiento (FEFO)
+    @Size(max = 100, message = "El lote no puede exceder 100 caracteres")
+    private String lote;
+    
+    private LocalDate fechaVencimiento;
+    
+    // Ubicación donde se aplica el movimiento; sin valor, la principal.
+    // En un AJUSTE la cantidad sigue siendo el stock total y la diferencia se aplica en esta ubicación
+    private Long ubicacionId;
 }
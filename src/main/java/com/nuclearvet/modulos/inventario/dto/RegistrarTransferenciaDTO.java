@@ -0,0 +1,41 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para transferir unidades de un producto entre dos ubicaciones.
+ * RF4.4 - Registro de movimientos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrarTransferenciaDTO {
+
+    @NotNull(message = "El ID del producto es obligatorio")
+    private Long productoId;
+
+    @NotNull(message = "La ubicación de origen es obligatoria")
+    private Long ubicacionOrigenId;
+
+    @NotNull(message = "La ubicación de destino es obligatoria")
+    private Long ubicacionDestinoId;
+
+    @NotNull(message = "La cantidad es obligatoria")
+    @Positive(message = "La cantidad debe ser positiva")
+    private Integer cantidad;
+
+    @NotNull(message = "El ID del usuario es obligatorio")
+    private Long usuarioId;
+
+    @Size(max = 100, message = "El número de documento no puede exceder 100 caracteres")
+    private String numeroDocumento;
+
+    private String observaciones;
+}
@@ -0,0 +1,33 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO para una línea del kardex valorizado de un producto.
+ * RF4.4 - Valorización del inventario
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistroKardexDTO {
+
+    private Long id;
+    private Long productoId;
+    private Long movimientoId; // Nulo para stock inicial y ajustes manuales
+    private LocalDateTime fecha;
+    private String tipoMovimiento;
+    private String concepto;
+    private Integer cantidad; // Negativa si salen unidades
+    private BigDecimal costoUnitario;
+    private BigDecimal valor;
+    private Integer saldoCantidad;
+    private BigDecimal costoPromedio;
+    private BigDecimal saldoValor;
+}
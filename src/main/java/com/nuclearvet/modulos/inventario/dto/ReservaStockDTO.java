@@ -0,0 +1,32 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO para una reserva de stock de una cita.
+ * RF4.3 - Control de stock
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaStockDTO {
+
+    private Long id;
+    private Long productoId;
+    private String productoCodigo;
+    private String productoNombre;
+    private Long citaId;
+    private LocalDateTime fechaCita;
+    private Integer cantidad;
+    private Long ubicacionId; // null = ubicación principal
+    private String estado;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaCierre;
+    private Long movimientoId; // Salida que registró el consumo
+}
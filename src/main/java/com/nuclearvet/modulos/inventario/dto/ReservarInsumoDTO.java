@@ -0,0 +1,31 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con un insumo a reservar para una cita (producto, cantidad y ubicación de donde se toma).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservarInsumoDTO {
+
+    @NotNull(message = "El producto del insumo es obligatorio")
+    private Long productoId;
+
+    @NotNull(message = "La cantidad del insumo es obligatoria")
+    @Positive(message = "La cantidad del insumo debe ser positiva")
+    private Integer cantidad;
+
+    private Long ubicacionId; // Donde se consumen las unidades (ej: quirófano); vacío = ubicación principal
+
+    public ReservarInsumoDTO(Long productoId, Integer cantidad) {
+        this(productoId, cantidad, null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO con el resultado de una entrega de proveedor, línea por línea.
+ * La entrega se aplica completa o no se aplica: si alguna línea tiene error, aplicada = false
+ * y ninguna línea modifica el stock.
+ * RF4.4 - Registro de movimientos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoEntregaProveedorDTO {
+
+    private Long proveedorId;
+    private String proveedorNombre;
+    private String numeroDocumento;
+
+    private boolean aplicada;
+    private Integer lineasConError;
+    private Integer unidadesRecibidas;
+    private BigDecimal costoTotal;
+
+    private List<LineaResultadoDTO> lineas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaResultadoDTO {
+        private Integer linea; // Posición en la entrega, desde 1
+        private Long productoId;
+        private String productoCodigo;
+        private String productoNombre;
+        private Integer cantidad;
+        private Integer stockAnterior;
+        private Integer stockNuevo;
+        private Long movimientoId;
+        private String error;
+    }
+}
@@ -0,0 +1,41 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO con el resultado de una importación de productos desde CSV.
+ * Las filas con error no se importan; el resto sí.
+ * RF4.1 - Gestión de productos
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacionProductosDTO {
+
+    private Integer filasLeidas;
+    private Integer productosImportados;
+    private Integer filasConError;
+
+    // Detalle de las primeras filas con error (filasConError trae el total)
+    private List<ErrorFilaDTO> errores;
+
+    // Rendimiento
+    private Long duracionMs;
+    private Double productosPorSegundo;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorFilaDTO {
+        private Integer fila; // Línea del archivo, contando el encabezado
+        private String codigo;
+        private String mensaje;
+    }
+}
@@ -0,0 +1,22 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el conteo de alertas del inventario para el dashboard.
+ * RF4.3 - Alertas de bajo stock y vencimiento
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenAlertasInventarioDTO {
+    
+    private int productosBajoStock;
+    private int productosProximosVencer;
+    private int productosVencidos;
+    private int totalAlertas;
+}
@@ -0,0 +1,26 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el stock de un producto a una fecha pasada.
+ * RF4.4 - Control de entradas y salidas
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHistoricoDTO {
+
+    private Long productoId;
+    private String productoCodigo;
+    private String productoNombre;
+    private LocalDateTime fecha;
+    private Integer stock;
+    private LocalDateTime fechaPuntoControl; // Nulo si se reconstruyó con los movimientos
+}
@@ -0,0 +1,27 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para el stock de un producto en una ubicación.
+ * RF4.3 - Control de stock por ubicación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUbicacionDTO {
+
+    private Long productoId;
+    private String productoCodigo;
+    private String productoNombre;
+    private Long ubicacionId;
+    private String ubicacionCodigo;
+    private String ubicacionNombre;
+    private Integer cantidad;
+    private Integer stockMinimo; // Mínimo de la ubicación, puede no tener
+    private Boolean bajoMinimo;
+}
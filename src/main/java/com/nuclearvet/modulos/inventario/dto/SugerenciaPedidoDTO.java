@@ -0,0 +1,48 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO con el pedido sugerido a un proveedor: sus productos que, al consumo diario estimado,
+ * quedarían en el stock mínimo o por debajo antes de recibir un pedido hecho hoy.
+ * RF4.4 - Sugerencias de pedido a proveedores
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaPedidoDTO {
+
+    private Long proveedorId;
+    private String proveedorNombre;
+    private Integer diasEntrega;
+
+    private Integer totalUnidades;
+    private BigDecimal costoEstimado;
+
+    private List<LineaSugerenciaDTO> lineas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaSugerenciaDTO {
+        private Long productoId;
+        private String productoCodigo;
+        private String productoNombre;
+        private Integer stockActual;
+        private Integer stockReservado; // Apartado para citas: no cuenta como stock para el pedido
+        private Integer stockMinimo;
+        private Integer stockMaximo;
+        private Double consumoDiario;
+        private Integer diasHastaMinimo; // 0 si ya está en el mínimo o por debajo
+        private Integer cantidadSugerida;
+        private BigDecimal costoEstimado;
+    }
+}
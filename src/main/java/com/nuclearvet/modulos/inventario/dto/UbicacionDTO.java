@@ -0,0 +1,24 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para Ubicación.
+ * RF4.3 - Control de stock por ubicación
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UbicacionDTO {
+
+    private Long id;
+    private String codigo;
+    private String nombre;
+    private String descripcion;
+    private Boolean principal;
+    private Boolean activo;
+}
@@ -0,0 +1,44 @@
+package com.nuclearvet.modulos.inventario.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO con la valorización del inventario a una fecha, por categoría.
+ * Se calcula desde el último corte anterior a la fecha más los registros del kardex posteriores.
+ * RF4.4 - Valorización del inventario
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValoracionInventarioDTO {
+
+    private LocalDateTime fecha;
+    private LocalDateTime fechaCorte; // Nulo si no hay corte anterior a la fecha
+    private Integer registrosAplicados;
+
+    private Integer totalProductos;
+    private Long totalUnidades;
+    private BigDecimal valorTotal;
+
+    private List<ValoracionCategoriaDTO> categorias;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ValoracionCategoriaDTO {
+        private Long categoriaId;
+        private String categoriaNombre;
+        private Integer productos;
+        private Long unidades;
+        private BigDecimal valor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Consumo diario de un producto: media móvil exponencial de las unidades que salen por día
+ * (movimientos SALIDA), actualizada con cada salida. tasaDiaria incluye los días anteriores a
+ * fechaDia; las unidades de fechaDia se acumulan en consumoDia hasta que empieza otro día.
+ * RF4.4 - Sugerencias de pedido a proveedores
+ */
+@Entity
+@Table(name = "consumos_producto")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConsumoProducto {
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id")
+    private Producto producto;
+
+    @Column(name = "tasa_diaria", nullable = false)
+    private double tasaDiaria; // Unidades por día
+
+    @Column(name = "dias_observados", nullable = false)
+    private int diasObservados; // Días cerrados en tasaDiaria
+
+    @Column(name = "fecha_dia", nullable = false)
+    private LocalDate fechaDia;
+
+    @Column(name = "consumo_dia", nullable = false)
+    private int consumoDia;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,10 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+/**
+ * Estados de una reserva de stock para una cita
+ */
+public enum EstadoReserva {
+    ACTIVA,     // Unidades apartadas, no disponibles para venta
+    CONSUMIDA,  // La cita se completó y las unidades salieron del inventario
+    LIBERADA    // La cita se canceló, no asistió o cambió sus insumos
+}
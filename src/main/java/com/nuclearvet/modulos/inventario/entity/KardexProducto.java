@@ -0,0 +1,43 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Saldo vigente del kardex de un producto: unidades, costo promedio ponderado y valor.
+ * Se actualiza con cada registro del kardex (RegistroKardex), con la fila del producto bloqueada.
+ * RF4.4 - Valorización del inventario
+ */
+@Entity
+@Table(name = "kardex_productos")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KardexProducto {
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id")
+    private Producto producto;
+
+    @Column(nullable = false)
+    private int cantidad;
+
+    @Column(name = "costo_promedio", nullable = false, precision = 14, scale = 4)
+    private BigDecimal costoPromedio;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal valor; // cantidad x costo promedio, acumulado movimiento a movimiento
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
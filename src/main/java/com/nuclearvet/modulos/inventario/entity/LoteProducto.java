@@ -0,0 +1,56 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import com.nuclearvet.common.entity.EntidadBase;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entidad para el stock de un producto por lote y fecha de vencimiento.
+ * La suma de cantidadDisponible de los lotes de un producto es su stockActual.
+ * RF4.3, RF4.4 - Control de vencimientos y salidas por lote (FEFO)
+ */
+@Entity
+@Table(name = "lotes_producto")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class LoteProducto extends EntidadBase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lotes_producto_seq")
+    @SequenceGenerator(name = "lotes_producto_seq", sequenceName = "lotes_producto_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @Column(name = "codigo_lote", length = 100)
+    private String codigoLote; // Lote del fabricante, puede no venir
+
+    @Column(name = "fecha_vencimiento")
+    private LocalDate fechaVencimiento; // Sin fecha se consume al final
+
+    @Column(name = "cantidad_inicial", nullable = false)
+    private Integer cantidadInicial;
+
+    @Column(name = "cantidad_disponible", nullable = false)
+    private Integer cantidadDisponible;
+
+    @Column(name = "fecha_ingreso", nullable = false)
+    private LocalDateTime fechaIngreso;
+
+    /**
+     * Verifica si el lote está vencido.
+     */
+    public boolean vencido() {
+        if (fechaVencimiento == null) return false;
+        return fechaVencimiento.isBefore(LocalDate.now());
+    }
+}
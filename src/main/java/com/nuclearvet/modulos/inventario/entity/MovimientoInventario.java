@@ -23,8 +23,9 @@ import java.time.LocalDateTime;
 public class MovimientoInventario extends EntidadBase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movimientos_inventario_seq")
+    @SequenceGenerator(name = "movimientos_inventario_seq", sequenceName = "movimientos_inventario_seq", allocationSize = 50)
+    private Long id; // Secuencia (no IDENTITY) para permitir inserciones por lotes
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = false)
@@ -32,7 +33,7 @@ public class MovimientoInventario extends EntidadBase {
 
     @Enumerated(EnumType.STRING)
     @Column(name = "tipo_movimiento", nullable = false, length = 20)
-    private TipoMovimiento tipoMovimiento; // ENTRADA, SALIDA, AJUSTE, DEVOLUCION
+    private TipoMovimiento tipoMovimiento; // ENTRADA, SALIDA, AJUSTE, DEVOLUCION, TRANSFERENCIA
 
     @Column(nullable = false)
     private Integer cantidad;
@@ -69,6 +70,14 @@ public class MovimientoInventario extends EntidadBase {
     @JoinColumn(name = "proveedor_id")
     private Proveedor proveedor; // Solo para movimientos de tipo ENTRADA
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ubicacion_id")
+    private Ubicacion ubicacion; // Donde se aplicó; origen en una TRANSFERENCIA. Vacía en movimientos anteriores a las ubicaciones
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ubicacion_destino_id")
+    private Ubicacion ubicacionDestino; // Solo para movimientos de tipo TRANSFERENCIA
+
     @PrePersist
     protected void onCreate() {
         if (fechaMovimiento == null) {
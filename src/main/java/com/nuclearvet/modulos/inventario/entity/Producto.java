@@ -3,6 +3,7 @@ package com.nuclearvet.modulos.inventario.entity;
 import com.nuclearvet.common.entity.EntidadBase;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -10,9 +11,12 @@ import java.time.LocalDate;
 /**
  * Entidad para productos del inventario.
  * RF4.1, RF4.3 - Gestión de inventario y control de stock
+ * Con @DynamicUpdate, guardar la entidad solo escribe las columnas modificadas: el stock, lo reservado
+ * y el lote que sale primero cambian con UPDATE directos y no deben pisarse con valores leídos antes.
  */
 @Entity
 @Table(name = "productos")
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,7 +26,8 @@ import java.time.LocalDate;
 public class Producto extends EntidadBase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 50)
@@ -51,6 +56,10 @@ public class Producto extends EntidadBase {
     @Column(name = "stock_actual", nullable = false)
     private Integer stockActual;
 
+    @Column(name = "stock_reservado", nullable = false)
+    @Builder.Default
+    private Integer stockReservado = 0; // Unidades apartadas para citas (ReservaStock), no disponibles para venta
+
     @Column(name = "stock_minimo", nullable = false)
     private Integer stockMinimo; // Para alertas de bajo stock (RF4.3)
 
@@ -67,7 +76,7 @@ public class Producto extends EntidadBase {
     private LocalDate fechaVencimiento;
 
     @Column(name = "ubicacion", length = 100)
-    private String ubicacion; // Ubicación física en el almacén
+    private String ubicacion; // Estante o posición física; el stock por sede está en StockUbicacion
 
     @Column(name = "requiere_prescripcion")
     private Boolean requierePrescripcion; // Para medicamentos controlados
@@ -91,6 +100,13 @@ public class Producto extends EntidadBase {
         return stockActual != null && stockMinimo != null && stockActual <= stockMinimo;
     }
 
+    /**
+     * Stock que se puede vender o reservar: el actual menos lo reservado para citas.
+     */
+    public int stockDisponible() {
+        return (stockActual != null ? stockActual : 0) - (stockReservado != null ? stockReservado : 0);
+    }
+
     /**
      * Verifica si el producto está próximo a vencer (menos de 30 días).
      */
@@ -52,6 +52,9 @@ public class Proveedor extends EntidadBase {
     @Column(name = "dias_credito")
     private Integer diasCredito; // Días de crédito que ofrece el proveedor
 
+    @Column(name = "dias_entrega")
+    private Integer diasEntrega; // Días entre el pedido y la recepción (sugerencias de pedido)
+
     @Column(name = "calificacion")
     private Integer calificacion; // 1-5 estrellas
 }
@@ -0,0 +1,64 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Línea del kardex de un producto: el cambio de unidades y de valor de un movimiento
+ * y el saldo que deja (unidades, costo promedio ponderado y valor).
+ * También registra los cambios de stock sin movimiento (stock inicial y ajustes manuales).
+ * RF4.4 - Valorización del inventario
+ */
+@Entity
+@Table(name = "kardex_registros")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RegistroKardex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kardex_registros_seq")
+    @SequenceGenerator(name = "kardex_registros_seq", sequenceName = "kardex_registros_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "movimiento_id")
+    private MovimientoInventario movimiento; // Nulo para stock inicial y ajustes manuales
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_movimiento", nullable = false, length = 20)
+    private TipoMovimiento tipoMovimiento;
+
+    @Column(length = 50)
+    private String concepto; // Motivo del movimiento, INVENTARIO_INICIAL o AJUSTE_MANUAL
+
+    @Column(nullable = false)
+    private int cantidad; // Positiva si entran unidades, negativa si salen
+
+    @Column(name = "costo_unitario", nullable = false, precision = 14, scale = 4)
+    private BigDecimal costoUnitario; // Costo con que se valorizó el movimiento
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal valor; // Con el mismo signo que la cantidad
+
+    @Column(name = "saldo_cantidad", nullable = false)
+    private int saldoCantidad;
+
+    @Column(name = "costo_promedio", nullable = false, precision = 14, scale = 4)
+    private BigDecimal costoPromedio;
+
+    @Column(name = "saldo_valor", nullable = false, precision = 16, scale = 2)
+    private BigDecimal saldoValor;
+}
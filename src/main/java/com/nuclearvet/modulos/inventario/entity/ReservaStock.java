@@ -0,0 +1,55 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import com.nuclearvet.common.entity.EntidadBase;
+import com.nuclearvet.modulos.citas.entity.Cita;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad para las unidades de un producto apartadas para una cita (p. ej. anestésicos e insumos de una cirugía).
+ * Mientras está ACTIVA su cantidad suma a Producto.stockReservado.
+ * RF4.3 - Control de stock
+ */
+@Entity
+@Table(name = "reservas_stock")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class ReservaStock extends EntidadBase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservas_stock_seq")
+    @SequenceGenerator(name = "reservas_stock_seq", sequenceName = "reservas_stock_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cita_id", nullable = false)
+    private Cita cita;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ubicacion_id")
+    private Ubicacion ubicacion; // De donde salen las unidades al consumir; null = ubicación principal
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoReserva estado;
+
+    @Column(name = "fecha_cierre")
+    private LocalDateTime fechaCierre; // Cuando se consumió o liberó
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "movimiento_id")
+    private MovimientoInventario movimiento; // Salida que registró el consumo
+}
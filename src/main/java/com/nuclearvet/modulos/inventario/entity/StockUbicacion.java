@@ -0,0 +1,48 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import com.nuclearvet.common.entity.EntidadBase;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Entidad para el stock de un producto en una ubicación.
+ * La suma de cantidad de las ubicaciones de un producto es su stockActual.
+ * RF4.3 - Control de stock por ubicación
+ */
+@Entity
+@Table(name = "stock_ubicaciones",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"producto_id", "ubicacion_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class StockUbicacion extends EntidadBase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_ubicaciones_seq")
+    @SequenceGenerator(name = "stock_ubicaciones_seq", sequenceName = "stock_ubicaciones_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ubicacion_id", nullable = false)
+    private Ubicacion ubicacion;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "stock_minimo")
+    private Integer stockMinimo; // Mínimo propio de la ubicación para sus alertas; sin valor no alerta
+
+    /**
+     * Verifica si la ubicación está en o por debajo de su stock mínimo.
+     */
+    public boolean bajoMinimo() {
+        return stockMinimo != null && cantidad != null && cantidad <= stockMinimo;
+    }
+}
@@ -7,5 +7,6 @@ public enum TipoMovimiento {
     ENTRADA,      // Compra o recepción de productos
     SALIDA,       // Venta o consumo de productos
     AJUSTE,       // Ajuste manual de inventario
-    DEVOLUCION    // Devolución de productos
+    DEVOLUCION,   // Devolución de productos
+    TRANSFERENCIA // Traslado entre ubicaciones, no cambia el stock total
 }
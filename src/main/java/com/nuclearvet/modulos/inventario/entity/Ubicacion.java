@@ -0,0 +1,38 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import com.nuclearvet.common.entity.EntidadBase;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Entidad para las ubicaciones donde se guarda stock (farmacia principal, quirófano, sedes).
+ * Los movimientos que no indican ubicación se aplican en la principal.
+ * RF4.3 - Control de stock por ubicación
+ */
+@Entity
+@Table(name = "ubicaciones")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(callSuper = true)
+public class Ubicacion extends EntidadBase {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 30)
+    private String codigo; // FARMACIA, QUIROFANO, SEDE_NORTE, etc.
+
+    @Column(nullable = false, length = 100)
+    private String nombre;
+
+    @Column(length = 500)
+    private String descripcion;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean principal = false; // Solo una: la farmacia principal
+}
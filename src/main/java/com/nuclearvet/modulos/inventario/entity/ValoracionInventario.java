@@ -0,0 +1,45 @@
+package com.nuclearvet.modulos.inventario.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Corte de valorización: saldo del kardex de un producto a la fecha de corte.
+ * La valorización a cualquier fecha parte del último corte anterior y aplica los registros
+ * del kardex posteriores. Los productos sin unidades ni valor no se guardan.
+ * RF4.4 - Valorización del inventario
+ */
+@Entity
+@Table(name = "valoraciones_inventario",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"fecha_corte", "producto_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValoracionInventario {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "valoraciones_inventario_seq")
+    @SequenceGenerator(name = "valoraciones_inventario_seq", sequenceName = "valoraciones_inventario_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "fecha_corte", nullable = false)
+    private LocalDateTime fechaCorte;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @Column(nullable = false)
+    private int cantidad;
+
+    @Column(name = "costo_promedio", nullable = false, precision = 14, scale = 4)
+    private BigDecimal costoPromedio;
+
+    @Column(nullable = false, precision = 16, scale = 2)
+    private BigDecimal valor;
+}
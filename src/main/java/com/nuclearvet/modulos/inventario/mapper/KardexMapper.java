@@ -0,0 +1,17 @@
+package com.nuclearvet.modulos.inventario.mapper;
+
+import com.nuclearvet.modulos.inventario.dto.RegistroKardexDTO;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Mapper para el kardex valorizado.
+ */
+@Mapper(componentModel = "spring")
+public interface KardexMapper {
+
+    @Mapping(target = "productoId", source = "producto.id")
+    @Mapping(target = "movimientoId", source = "movimiento.id")
+    RegistroKardexDTO toDTO(RegistroKardex registro);
+}
@@ -19,12 +19,18 @@ public interface MovimientoInventarioMapper {
     @Mapping(target = "usuarioNombre", expression = "java(movimiento.getUsuario().getNombreCompleto())")
     @Mapping(target = "proveedorId", source = "proveedor.id")
     @Mapping(target = "proveedorNombre", source = "proveedor.nombre")
+    @Mapping(target = "ubicacionId", source = "ubicacion.id")
+    @Mapping(target = "ubicacionNombre", source = "ubicacion.nombre")
+    @Mapping(target = "ubicacionDestinoId", source = "ubicacionDestino.id")
+    @Mapping(target = "ubicacionDestinoNombre", source = "ubicacionDestino.nombre")
     MovimientoInventarioDTO toDTO(MovimientoInventario movimiento);
     
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "producto", ignore = true)
     @Mapping(target = "usuario", ignore = true)
     @Mapping(target = "proveedor", ignore = true)
+    @Mapping(target = "ubicacion", ignore = true)
+    @Mapping(target = "ubicacionDestino", ignore = true)
     @Mapping(target = "stockAnterior", ignore = true)
     @Mapping(target = "stockNuevo", ignore = true)
     @Mapping(target = "fechaMovimiento", ignore = true)
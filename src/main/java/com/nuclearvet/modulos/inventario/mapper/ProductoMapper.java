@@ -1,7 +1,9 @@
 package com.nuclearvet.modulos.inventario.mapper;
 
 import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.LoteProductoDTO;
 import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import com.nuclearvet.modulos.inventario.entity.LoteProducto;
 import com.nuclearvet.modulos.inventario.entity.Producto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -17,6 +19,7 @@ public interface ProductoMapper {
     @Mapping(target = "categoriaNombre", source = "categoria.nombre")
     @Mapping(target = "proveedorId", source = "proveedor.id")
     @Mapping(target = "proveedorNombre", source = "proveedor.nombre")
+    @Mapping(target = "stockDisponible", expression = "java(producto.stockDisponible())")
     @Mapping(target = "bajoStock", expression = "java(producto.bajosEnStock())")
     @Mapping(target = "proximoAVencer", expression = "java(producto.proximoAVencer())")
     @Mapping(target = "vencido", expression = "java(producto.vencido())")
@@ -24,9 +27,20 @@ public interface ProductoMapper {
     
     @Mapping(target = "categoria", ignore = true)
     @Mapping(target = "proveedor", ignore = true)
+    @Mapping(target = "stockReservado", ignore = true)
     Producto toEntity(CrearProductoDTO dto);
     
+    // El stock y el lote que sale primero solo cambian con movimientos (ver AsignadorLotesFefo)
+    // y lo reservado con las reservas de citas (ReservaStockService)
     @Mapping(target = "categoria", ignore = true)
     @Mapping(target = "proveedor", ignore = true)
+    @Mapping(target = "stockActual", ignore = true)
+    @Mapping(target = "stockReservado", ignore = true)
+    @Mapping(target = "lote", ignore = true)
+    @Mapping(target = "fechaVencimiento", ignore = true)
     void updateEntity(CrearProductoDTO dto, @MappingTarget Producto producto);
+    
+    @Mapping(target = "productoId", source = "producto.id")
+    @Mapping(target = "vencido", expression = "java(lote.vencido())")
+    LoteProductoDTO toLoteDTO(LoteProducto lote);
 }
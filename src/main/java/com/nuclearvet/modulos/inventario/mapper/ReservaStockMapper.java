@@ -0,0 +1,22 @@
+package com.nuclearvet.modulos.inventario.mapper;
+
+import com.nuclearvet.modulos.inventario.dto.ReservaStockDTO;
+import com.nuclearvet.modulos.inventario.entity.ReservaStock;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Mapper para ReservaStock.
+ */
+@Mapper(componentModel = "spring")
+public interface ReservaStockMapper {
+
+    @Mapping(target = "productoId", source = "producto.id")
+    @Mapping(target = "productoCodigo", source = "producto.codigo")
+    @Mapping(target = "productoNombre", source = "producto.nombre")
+    @Mapping(target = "citaId", source = "cita.id")
+    @Mapping(target = "fechaCita", source = "cita.fechaHora")
+    @Mapping(target = "ubicacionId", source = "ubicacion.id")
+    @Mapping(target = "movimientoId", source = "movimiento.id")
+    ReservaStockDTO toDTO(ReservaStock reserva);
+}
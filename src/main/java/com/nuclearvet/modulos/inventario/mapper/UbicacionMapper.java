@@ -0,0 +1,31 @@
+package com.nuclearvet.modulos.inventario.mapper;
+
+import com.nuclearvet.modulos.inventario.dto.CrearUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.StockUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.UbicacionDTO;
+import com.nuclearvet.modulos.inventario.entity.StockUbicacion;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Mapper para Ubicación y stock por ubicación.
+ */
+@Mapper(componentModel = "spring")
+public interface UbicacionMapper {
+
+    UbicacionDTO toDTO(Ubicacion ubicacion);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "principal", constant = "false")
+    Ubicacion toEntity(CrearUbicacionDTO dto);
+
+    @Mapping(target = "productoId", source = "producto.id")
+    @Mapping(target = "productoCodigo", source = "producto.codigo")
+    @Mapping(target = "productoNombre", source = "producto.nombre")
+    @Mapping(target = "ubicacionId", source = "ubicacion.id")
+    @Mapping(target = "ubicacionCodigo", source = "ubicacion.codigo")
+    @Mapping(target = "ubicacionNombre", source = "ubicacion.nombre")
+    @Mapping(target = "bajoMinimo", expression = "java(stock.bajoMinimo())")
+    StockUbicacionDTO toStockDTO(StockUbicacion stock);
+}
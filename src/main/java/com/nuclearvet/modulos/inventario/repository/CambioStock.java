@@ -0,0 +1,9 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+/**
+ * Stock de un producto antes y después de una actualización atómica
+ * (ver StockProductos.descontarStockAtomico y relacionados).
+ * RF4.4 - Control de entradas y salidas
+ */
+public record CambioStock(int stockAnterior, int stockNuevo) {
+}
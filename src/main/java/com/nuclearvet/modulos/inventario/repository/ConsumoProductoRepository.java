@@ -0,0 +1,12 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.ConsumoProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio para ConsumoProducto (RF4.4)
+ */
+@Repository
+public interface ConsumoProductoRepository extends JpaRepository<ConsumoProducto, Long> {
+}
@@ -0,0 +1,12 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.KardexProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio para KardexProducto (RF4.4)
+ */
+@Repository
+public interface KardexProductoRepository extends JpaRepository<KardexProducto, Long> {
+}
@@ -0,0 +1,11 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Lote con unidades disponibles, leído como proyección (no queda en el contexto de persistencia,
+ * así una relectura dentro de la misma transacción trae los valores actuales).
+ * RF4.4 - Salidas por lote (FEFO)
+ */
+public record LoteDisponible(Long id, String codigoLote, LocalDate fechaVencimiento, int cantidadDisponible) {
+}
@@ -0,0 +1,54 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.LoteProducto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repositorio para Lotes de producto.
+ * RF4.3, RF4.4
+ */
+@Repository
+public interface LoteProductoRepository extends JpaRepository<LoteProducto, Long> {
+    
+    // Lotes con unidades de un producto (idx_lotes_producto_fefo). El orden FEFO lo arma AsignadorLotesFefo
+    @Query("SELECT new com.nuclearvet.modulos.inventario.repository.LoteDisponible(" +
+           "l.id, l.codigoLote, l.fechaVencimiento, l.cantidadDisponible) " +
+           "FROM LoteProducto l WHERE l.producto.id = :productoId AND l.cantidadDisponible > 0")
+    List<LoteDisponible> findDisponiblesPorProducto(@Param("productoId") Long productoId);
+    
+    // Lotes de un producto en orden de salida (FEFO), incluidos los agotados
+    @Query("SELECT l FROM LoteProducto l WHERE l.producto.id = :productoId " +
+           "ORDER BY l.fechaVencimiento ASC NULLS LAST, l.id ASC")
+    List<LoteProducto> findByProductoIdEnOrdenFefo(@Param("productoId") Long productoId);
+    
+    // Lotes con unidades que vencen en el rango (idx_lotes_producto_vencimiento)
+    @Query("SELECT l FROM LoteProducto l JOIN FETCH l.producto p " +
+           "WHERE l.cantidadDisponible > 0 AND l.fechaVencimiento BETWEEN :fechaInicio AND :fechaFin " +
+           "AND p.activo = true ORDER BY l.fechaVencimiento ASC")
+    List<LoteProducto> findLotesProximosAVencer(
+            @Param("fechaInicio") LocalDate fechaInicio,
+            @Param("fechaFin") LocalDate fechaFin
+    );
+    
+    // Vencimientos de todos los lotes con unidades de productos activos (carga de AlertasInventario)
+    @Query("SELECT new com.nuclearvet.modulos.inventario.repository.VencimientoLote(l.producto.id, l.fechaVencimiento) " +
+           "FROM LoteProducto l WHERE l.cantidadDisponible > 0 AND l.fechaVencimiento IS NOT NULL " +
+           "AND l.producto.activo = true")
+    List<VencimientoLote> findVencimientosDisponibles();
+    
+    // Suma (o resta, con delta negativo) unidades solo si el lote tiene exactamente las esperadas.
+    // Devuelve 0 si el lote cambió, para que AsignadorLotesFefo recargue su copia en memoria
+    @Modifying
+    @Transactional
+    @Query("UPDATE LoteProducto l SET l.cantidadDisponible = l.cantidadDisponible + :delta " +
+           "WHERE l.id = :id AND l.cantidadDisponible = :esperada")
+    int moverCantidad(@Param("id") Long id, @Param("esperada") int esperada, @Param("delta") int delta);
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para Movimientos de Inventario.
@@ -38,6 +39,17 @@ public interface MovimientoInventarioRepository extends JpaRepository<Movimiento
     // Movimientos por proveedor
     List<MovimientoInventario> findByProveedorIdOrderByFechaMovimientoDesc(Long proveedorId);
     
+    // Último movimiento de un producto hasta una fecha y primero después de ella (stock a una fecha)
+    Optional<MovimientoInventario> findFirstByProductoIdAndFechaMovimientoLessThanEqualOrderByFechaMovimientoDescIdDesc(
+            Long productoId,
+            LocalDateTime fecha
+    );
+
+    Optional<MovimientoInventario> findFirstByProductoIdAndFechaMovimientoGreaterThanOrderByFechaMovimientoAscIdAsc(
+            Long productoId,
+            LocalDateTime fecha
+    );
+    
     // Contar movimientos por producto
     Long countByProductoId(Long productoId);
 }
@@ -1,14 +1,20 @@
 package com.nuclearvet.modulos.inventario.repository;
 
 import com.nuclearvet.modulos.inventario.entity.Producto;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repositorio para Productos.
@@ -19,6 +25,17 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
     Optional<Producto> findByCodigo(String codigo);
     
+    // Producto con categoría y proveedor en una sola consulta, para mapearlo sin transacción (CacheProductos)
+    @Query("SELECT p FROM Producto p JOIN FETCH p.categoria LEFT JOIN FETCH p.proveedor WHERE p.id = :id")
+    Optional<Producto> findConRelacionesById(@Param("id") Long id);
+    
+    @Query("SELECT p FROM Producto p JOIN FETCH p.categoria LEFT JOIN FETCH p.proveedor WHERE p.codigo = :codigo")
+    Optional<Producto> findConRelacionesByCodigo(@Param("codigo") String codigo);
+    
+    // Todos los códigos existentes, para validar en memoria la unicidad de una importación
+    @Query("SELECT p.codigo FROM Producto p")
+    Set<String> findAllCodigos();
+    
     List<Producto> findByActivoTrueOrderByNombreAsc();
     
     List<Producto> findByCategoriaIdAndActivoTrue(Long categoriaId);
@@ -29,20 +46,83 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.stockActual <= p.stockMinimo AND p.activo = true ORDER BY p.stockActual ASC")
     List<Producto> findProductosConBajoStock();
     
-    // Productos próximos a vencer
-    @Query("SELECT p FROM Producto p WHERE p.fechaVencimiento BETWEEN :fechaInicio AND :fechaFin AND p.activo = true ORDER BY p.fechaVencimiento ASC")
+    // Productos con algún lote con unidades próximo a vencer (idx_lotes_producto_vencimiento).
+    // p.fechaVencimiento es la del lote que sale primero
+    @Query("SELECT p FROM Producto p WHERE p.activo = true AND EXISTS (" +
+           "SELECT 1 FROM LoteProducto l WHERE l.producto = p AND l.cantidadDisponible > 0 " +
+           "AND l.fechaVencimiento BETWEEN :fechaInicio AND :fechaFin) ORDER BY p.fechaVencimiento ASC")
     List<Producto> findProductosProximosAVencer(
             @Param("fechaInicio") LocalDate fechaInicio,
             @Param("fechaFin") LocalDate fechaFin
     );
     
-    // Productos vencidos
-    @Query("SELECT p FROM Producto p WHERE p.fechaVencimiento < CURRENT_DATE AND p.activo = true")
+    // Productos con algún lote vencido que todavía tiene unidades
+    @Query("SELECT p FROM Producto p WHERE p.activo = true AND EXISTS (" +
+           "SELECT 1 FROM LoteProducto l WHERE l.producto = p AND l.cantidadDisponible > 0 " +
+           "AND l.fechaVencimiento < CURRENT_DATE)")
     List<Producto> findProductosVencidos();
     
     // Buscar productos por nombre
     List<Producto> findByNombreContainingIgnoreCaseAndActivoTrue(String nombre);
     
+    // RF4.4: Productos activos con proveedor activo y stock mínimo definido (sugerencias de pedido)
+    @Query("SELECT p FROM Producto p JOIN FETCH p.proveedor pr " +
+           "WHERE p.activo = true AND pr.activo = true AND p.stockMinimo IS NOT NULL")
+    List<Producto> findParaSugerenciasDePedido();
+    
     // Contar productos por categoría
     Long countByCategoriaIdAndActivoTrue(Long categoriaId);
+    
+    // Productos bloqueados para actualizar su stock (orden por id para evitar interbloqueos)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Producto p WHERE p.id IN :ids ORDER BY p.id")
+    List<Producto> findAllByIdParaActualizar(@Param("ids") Collection<Long> ids);
+    
+    // Stock actual leído directamente de la base de datos (sin pasar por entidades ya cargadas)
+    @Query("SELECT p.stockActual FROM Producto p WHERE p.id = :id")
+    Optional<Integer> findStockActualById(@Param("id") Long id);
+    
+    // Descuenta stock solo si alcanza sin tocar lo reservado para citas.
+    // Devuelve 0 si el producto no existe o el stock disponible es insuficiente
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual - :cantidad " +
+           "WHERE p.id = :id AND p.stockActual - p.stockReservado >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") int cantidad);
+    
+    // Aparta unidades para una cita solo si el stock disponible alcanza. Devuelve 0 si no se aplicó
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockReservado = p.stockReservado + :cantidad " +
+           "WHERE p.id = :id AND p.stockActual - p.stockReservado >= :cantidad")
+    int reservarStock(@Param("id") Long id, @Param("cantidad") int cantidad);
+    
+    // Devuelve al disponible unidades reservadas. Devuelve 0 si no se aplicó
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockReservado = p.stockReservado - :cantidad " +
+           "WHERE p.id = :id AND p.stockReservado >= :cantidad")
+    int liberarReserva(@Param("id") Long id, @Param("cantidad") int cantidad);
+    
+    // Descuenta del stock unidades reservadas que se consumieron. Devuelve 0 si no se aplicó
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual - :cantidad, " +
+           "p.stockReservado = p.stockReservado - :cantidad " +
+           "WHERE p.id = :id AND p.stockReservado >= :cantidad AND p.stockActual >= :cantidad")
+    int consumirReserva(@Param("id") Long id, @Param("cantidad") int cantidad);
+    
+    // Suma stock; con respetarMaximo no deja superar el stock máximo. Devuelve 0 si no se aplicó
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockActual = p.stockActual + :cantidad WHERE p.id = :id " +
+           "AND (:respetarMaximo = false OR p.stockMaximo IS NULL OR p.stockActual + :cantidad <= p.stockMaximo)")
+    int sumarStock(@Param("id") Long id, @Param("cantidad") int cantidad, @Param("respetarMaximo") boolean respetarMaximo);
+    
+    // Fija el stock a un valor absoluto sin dejarlo por debajo de lo reservado.
+    // Devuelve 0 si el producto no existe o el stock no cubriría sus reservas
+    @Modifying
+    @Transactional
+    @Query("UPDATE Producto p SET p.stockActual = :stock WHERE p.id = :id AND p.stockReservado <= :stock")
+    int actualizarStock(@Param("id") Long id, @Param("stock") int stock);
 }
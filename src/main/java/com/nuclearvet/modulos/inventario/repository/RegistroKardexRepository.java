@@ -0,0 +1,37 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para RegistroKardex (RF4.4)
+ */
+@Repository
+public interface RegistroKardexRepository extends JpaRepository<RegistroKardex, Long> {
+
+    // Kardex de un producto en un rango de fechas, en el orden en que se registró
+    List<RegistroKardex> findByProductoIdAndFechaBetweenOrderByFechaAscIdAsc(
+            Long productoId,
+            LocalDateTime fechaInicio,
+            LocalDateTime fechaFin
+    );
+
+    // Último registro de un producto después de un corte y hasta la fecha
+    Optional<RegistroKardex> findFirstByProductoIdAndFechaGreaterThanAndFechaLessThanEqualOrderByFechaDescIdDesc(
+            Long productoId,
+            LocalDateTime desde,
+            LocalDateTime hasta
+    );
+
+    // Registros posteriores a un corte y hasta la fecha, con producto y categoría, para valorizar
+    @Query("SELECT r FROM RegistroKardex r JOIN FETCH r.producto p LEFT JOIN FETCH p.categoria " +
+           "WHERE r.fecha > :desde AND r.fecha <= :hasta ORDER BY r.fecha ASC, r.id ASC")
+    List<RegistroKardex> findParaValoracion(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+}
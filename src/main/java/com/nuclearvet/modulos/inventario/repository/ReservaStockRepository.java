@@ -0,0 +1,32 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.EstadoReserva;
+import com.nuclearvet.modulos.inventario.entity.ReservaStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio para ReservaStock (RF4.3)
+ */
+@Repository
+public interface ReservaStockRepository extends JpaRepository<ReservaStock, Long> {
+
+    // Reservas de una cita en un estado, en orden de producto (mismo orden de bloqueo que al reservar).
+    // Sin cargar el producto: se lee después del UPDATE de stock que lo bloquea
+    @Query("SELECT r FROM ReservaStock r WHERE r.cita.id = :citaId AND r.estado = :estado ORDER BY r.producto.id")
+    List<ReservaStock> findByCitaIdAndEstado(@Param("citaId") Long citaId, @Param("estado") EstadoReserva estado);
+
+    @Query("SELECT r FROM ReservaStock r JOIN FETCH r.producto JOIN FETCH r.cita " +
+           "WHERE r.cita.id = :citaId ORDER BY r.id")
+    List<ReservaStock> findByCitaIdConProducto(@Param("citaId") Long citaId);
+
+    // Reservas activas de un producto, de la cita más próxima a la más lejana
+    @Query("SELECT r FROM ReservaStock r JOIN FETCH r.producto JOIN FETCH r.cita c " +
+           "WHERE r.producto.id = :productoId AND r.estado = com.nuclearvet.modulos.inventario.entity.EstadoReserva.ACTIVA " +
+           "ORDER BY c.fechaHora, r.id")
+    List<ReservaStock> findActivasPorProducto(@Param("productoId") Long productoId);
+}
@@ -0,0 +1,70 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.StockUbicacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para el stock por ubicación (RF4.3).
+ * Las cantidades se cambian con UPDATE condicionales, igual que el stock del producto.
+ */
+@Repository
+public interface StockUbicacionRepository extends JpaRepository<StockUbicacion, Long> {
+
+    // Stock con unidades de una ubicación (idx_stock_ubicaciones_ubicacion)
+    @Query("SELECT s FROM StockUbicacion s JOIN FETCH s.producto p " +
+           "WHERE s.ubicacion.id = :ubicacionId AND s.cantidad > 0 AND p.activo = true ORDER BY p.nombre")
+    List<StockUbicacion> findConStockPorUbicacion(@Param("ubicacionId") Long ubicacionId);
+
+    // Productos en o por debajo del mínimo de la ubicación (idx_stock_ubicaciones_bajo_minimo)
+    @Query("SELECT s FROM StockUbicacion s JOIN FETCH s.producto p " +
+           "WHERE s.ubicacion.id = :ubicacionId AND s.stockMinimo IS NOT NULL AND s.cantidad <= s.stockMinimo " +
+           "AND p.activo = true ORDER BY s.cantidad, p.nombre")
+    List<StockUbicacion> findBajoMinimoPorUbicacion(@Param("ubicacionId") Long ubicacionId);
+
+    // Reparto del stock de un producto entre ubicaciones, la principal primero
+    @Query("SELECT s FROM StockUbicacion s JOIN FETCH s.producto JOIN FETCH s.ubicacion u " +
+           "WHERE s.producto.id = :productoId ORDER BY u.principal DESC, u.nombre")
+    List<StockUbicacion> findPorProductoConUbicacion(@Param("productoId") Long productoId);
+
+    @Query("SELECT s FROM StockUbicacion s JOIN FETCH s.producto JOIN FETCH s.ubicacion " +
+           "WHERE s.producto.id = :productoId AND s.ubicacion.id = :ubicacionId")
+    Optional<StockUbicacion> findConRelaciones(@Param("productoId") Long productoId, @Param("ubicacionId") Long ubicacionId);
+
+    @Query("SELECT s.cantidad FROM StockUbicacion s WHERE s.producto.id = :productoId AND s.ubicacion.id = :ubicacionId")
+    Optional<Integer> findCantidad(@Param("productoId") Long productoId, @Param("ubicacionId") Long ubicacionId);
+
+    // Suma unidades creando la fila si el producto no tenía stock en la ubicación
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stock_ubicaciones (id, producto_id, ubicacion_id, cantidad, fecha_creacion, activo) " +
+                   "VALUES (nextval('stock_ubicaciones_seq'), :productoId, :ubicacionId, :cantidad, CURRENT_TIMESTAMP, TRUE) " +
+                   "ON CONFLICT (producto_id, ubicacion_id) DO UPDATE " +
+                   "SET cantidad = stock_ubicaciones.cantidad + EXCLUDED.cantidad, fecha_actualizacion = CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    int sumarCantidad(@Param("productoId") Long productoId, @Param("ubicacionId") Long ubicacionId,
+                      @Param("cantidad") int cantidad);
+
+    // Descuenta unidades solo si la ubicación las tiene. Devuelve 0 si no se aplicó
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockUbicacion s SET s.cantidad = s.cantidad - :cantidad " +
+           "WHERE s.producto.id = :productoId AND s.ubicacion.id = :ubicacionId AND s.cantidad >= :cantidad")
+    int descontarCantidad(@Param("productoId") Long productoId, @Param("ubicacionId") Long ubicacionId,
+                          @Param("cantidad") int cantidad);
+
+    // Devuelve 0 si el producto no tiene fila en la ubicación
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockUbicacion s SET s.stockMinimo = :stockMinimo " +
+           "WHERE s.producto.id = :productoId AND s.ubicacion.id = :ubicacionId")
+    int actualizarStockMinimo(@Param("productoId") Long productoId, @Param("ubicacionId") Long ubicacionId,
+                              @Param("stockMinimo") Integer stockMinimo);
+}
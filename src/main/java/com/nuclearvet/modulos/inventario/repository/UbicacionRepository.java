@@ -0,0 +1,21 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para Ubicaciones (RF4.3)
+ */
+@Repository
+public interface UbicacionRepository extends JpaRepository<Ubicacion, Long> {
+
+    Optional<Ubicacion> findByPrincipalTrue();
+
+    boolean existsByCodigo(String codigo);
+
+    List<Ubicacion> findByActivoTrueOrderByPrincipalDescNombreAsc();
+}
@@ -0,0 +1,31 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para ValoracionInventario (RF4.4)
+ */
+@Repository
+public interface ValoracionInventarioRepository extends JpaRepository<ValoracionInventario, Long> {
+
+    // Último corte hasta la fecha dada
+    @Query("SELECT MAX(v.fechaCorte) FROM ValoracionInventario v WHERE v.fechaCorte <= :fecha")
+    Optional<LocalDateTime> findUltimoCorte(@Param("fecha") LocalDateTime fecha);
+
+    boolean existsByFechaCorte(LocalDateTime fechaCorte);
+
+    Optional<ValoracionInventario> findByFechaCorteAndProductoId(LocalDateTime fechaCorte, Long productoId);
+
+    // Saldos de un corte con producto y categoría
+    @Query("SELECT v FROM ValoracionInventario v JOIN FETCH v.producto p LEFT JOIN FETCH p.categoria " +
+           "WHERE v.fechaCorte = :fechaCorte")
+    List<ValoracionInventario> findByFechaCorteConProducto(@Param("fechaCorte") LocalDateTime fechaCorte);
+}
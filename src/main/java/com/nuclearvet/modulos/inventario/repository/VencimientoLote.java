@@ -0,0 +1,10 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Vencimiento de un lote con unidades, para cargar las alertas de vencimiento de todos los productos.
+ * RF4.3 - Alertas de vencimiento
+ */
+public record VencimientoLote(Long productoId, LocalDate fechaVencimiento) {
+}
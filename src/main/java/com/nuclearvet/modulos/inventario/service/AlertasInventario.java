@@ -0,0 +1,223 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ResumenAlertasInventarioDTO;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.VencimientoLote;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Alertas del inventario (bajo stock, próximos a vencer y vencidos) mantenidas en memoria.
+ * Guarda por producto lo que hace falta para clasificarlo (stock, stock mínimo y vencimientos de sus lotes
+ * con unidades) y el conjunto de productos de cada alerta, así el resumen del dashboard es una lectura O(1).
+ * Se actualiza después del commit con cada cambio de stock (AsignadorLotesFefo) y de producto (ProductoService).
+ * Cada cambio lleva una secuencia tomada con la fila del producto bloqueada, para que un commit que llega tarde
+ * no pise uno más reciente. Se recarga al arrancar y cada madrugada, que es cuando cambian los vencimientos.
+ * RF4.3
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AlertasInventario {
+
+    static final int DIAS_PROXIMO_VENCIMIENTO = 30; // Igual que ProductoService.obtenerProductosProximosAVencer
+
+    private final ProductoRepository productoRepository;
+    private final LoteProductoRepository loteRepository;
+
+    private final AtomicLong secuencia = new AtomicLong();
+    private final Map<Long, EstadoProducto> estados = new ConcurrentHashMap<>();
+    private final Set<Long> bajoStock = ConcurrentHashMap.newKeySet();
+    private final Set<Long> proximosAVencer = ConcurrentHashMap.newKeySet();
+    private final Set<Long> vencidos = ConcurrentHashMap.newKeySet();
+
+    private volatile LocalDate hoy = LocalDate.now();
+    private volatile boolean cargado;
+
+    /**
+     * Clasificación de un producto. Las secuencias dicen de qué cambio vienen los datos de stock
+     * (stock y vencimientos) y los del producto (activo y stock mínimo).
+     */
+    private record EstadoProducto(long secuenciaProducto, boolean activo, Integer stockMinimo,
+                                  long secuenciaStock, int stock, LocalDate[] vencimientos) {
+    }
+
+    /**
+     * Recarga todos los productos desde la base de datos y los clasifica con la fecha del día
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${inventario.alertas.recarga-cron:0 5 0 * * *}")
+    public void recargar() {
+        recargar(LocalDate.now());
+    }
+
+    void recargar(LocalDate fecha) {
+        long secuenciaInicio = secuencia.get();
+        Map<Long, List<LocalDate>> vencimientosPorProducto = loteRepository.findVencimientosDisponibles().stream()
+                .collect(Collectors.groupingBy(VencimientoLote::productoId,
+                        Collectors.mapping(VencimientoLote::fechaVencimiento, Collectors.toList())));
+        List<Producto> productos = productoRepository.findByActivoTrueOrderByNombreAsc();
+
+        synchronized (this) {
+            hoy = fecha;
+            Set<Long> activos = new HashSet<>();
+            for (Producto producto : productos) {
+                activos.add(producto.getId());
+                EstadoProducto actual = estados.get(producto.getId());
+                // Lo que cambió después de empezar la recarga es más reciente que la consulta
+                if (actual == null || (actual.secuenciaProducto() <= secuenciaInicio && actual.secuenciaStock() <= secuenciaInicio)) {
+                    estados.put(producto.getId(), new EstadoProducto(secuenciaInicio, true, producto.getStockMinimo(),
+                            secuenciaInicio, valor(producto.getStockActual()),
+                            ordenar(vencimientosPorProducto.getOrDefault(producto.getId(), List.of()))));
+                }
+            }
+            estados.entrySet().removeIf(entrada -> !activos.contains(entrada.getKey())
+                    && entrada.getValue().secuenciaProducto() <= secuenciaInicio);
+            bajoStock.retainAll(estados.keySet());
+            proximosAVencer.retainAll(estados.keySet());
+            vencidos.retainAll(estados.keySet());
+            estados.forEach(this::clasificar);
+        }
+        cargado = true;
+        log.info("Alertas de inventario al {}: {} bajo stock, {} próximos a vencer, {} vencidos",
+                fecha, bajoStock.size(), proximosAVencer.size(), vencidos.size());
+    }
+
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Conteo de productos en cada alerta, sin consultar la base de datos
+     */
+    public ResumenAlertasInventarioDTO resumen() {
+        int productosBajoStock = bajoStock.size();
+        int productosProximosVencer = proximosAVencer.size();
+        int productosVencidos = vencidos.size();
+        return ResumenAlertasInventarioDTO.builder()
+                .productosBajoStock(productosBajoStock)
+                .productosProximosVencer(productosProximosVencer)
+                .productosVencidos(productosVencidos)
+                .totalAlertas(productosBajoStock + productosProximosVencer + productosVencidos)
+                .build();
+    }
+
+    /**
+     * Registra el stock de un producto y los vencimientos de sus lotes con unidades tras un movimiento.
+     * Llamar con la fila del producto bloqueada; con una transacción activa se aplica después del commit.
+     */
+    public void registrarStock(Producto producto, int stock, Collection<LocalDate> vencimientos) {
+        long secuenciaCambio = secuencia.incrementAndGet();
+        Long productoId = producto.getId();
+        boolean activo = Boolean.TRUE.equals(producto.getActivo());
+        Integer stockMinimo = producto.getStockMinimo();
+        LocalDate[] fechas = ordenar(vencimientos);
+        despuesDelCommit(() -> aplicar(productoId, actual -> {
+            if (actual == null) {
+                return new EstadoProducto(secuenciaCambio, activo, stockMinimo, secuenciaCambio, stock, fechas);
+            }
+            if (actual.secuenciaStock() > secuenciaCambio) {
+                return actual;
+            }
+            return new EstadoProducto(actual.secuenciaProducto(), actual.activo(), actual.stockMinimo(),
+                    secuenciaCambio, stock, fechas);
+        }));
+    }
+
+    /**
+     * Registra los datos del producto que afectan las alertas (activo y stock mínimo) tras crearlo,
+     * actualizarlo o desactivarlo. Con una transacción activa se aplica después del commit.
+     */
+    public void registrarProducto(Producto producto) {
+        long secuenciaCambio = secuencia.incrementAndGet();
+        Long productoId = producto.getId();
+        boolean activo = Boolean.TRUE.equals(producto.getActivo());
+        Integer stockMinimo = producto.getStockMinimo();
+        int stock = valor(producto.getStockActual());
+        despuesDelCommit(() -> aplicar(productoId, actual -> {
+            if (actual == null) {
+                return new EstadoProducto(secuenciaCambio, activo, stockMinimo, secuenciaCambio, stock, new LocalDate[0]);
+            }
+            if (actual.secuenciaProducto() > secuenciaCambio) {
+                return actual;
+            }
+            return new EstadoProducto(secuenciaCambio, activo, stockMinimo,
+                    actual.secuenciaStock(), actual.stock(), actual.vencimientos());
+        }));
+    }
+
+    private synchronized void aplicar(Long productoId, UnaryOperator<EstadoProducto> cambio) {
+        EstadoProducto estado = cambio.apply(estados.get(productoId));
+        estados.put(productoId, estado);
+        clasificar(productoId, estado);
+    }
+
+    private void clasificar(Long productoId, EstadoProducto estado) {
+        LocalDate limite = hoy.plusDays(DIAS_PROXIMO_VENCIMIENTO);
+        boolean enBajoStock = estado.activo() && estado.stockMinimo() != null && estado.stock() <= estado.stockMinimo();
+        boolean vencido = false;
+        boolean proximoAVencer = false;
+        if (estado.activo()) {
+            for (LocalDate fecha : estado.vencimientos()) {
+                if (fecha.isBefore(hoy)) {
+                    vencido = true;
+                } else {
+                    proximoAVencer = !fecha.isAfter(limite);
+                    break; // Ordenadas: la primera vigente decide
+                }
+            }
+        }
+        marcar(bajoStock, productoId, enBajoStock);
+        marcar(vencidos, productoId, vencido);
+        marcar(proximosAVencer, productoId, proximoAVencer);
+    }
+
+    private static void marcar(Set<Long> alerta, Long productoId, boolean incluido) {
+        if (incluido) {
+            alerta.add(productoId);
+        } else {
+            alerta.remove(productoId);
+        }
+    }
+
+    private static LocalDate[] ordenar(Collection<LocalDate> vencimientos) {
+        return vencimientos.stream().filter(Objects::nonNull).distinct().sorted().toArray(LocalDate[]::new);
+    }
+
+    private static int valor(Integer numero) {
+        return numero != null ? numero : 0;
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.modulos.inventario.entity.LoteProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Asigna las salidas de inventario a los lotes del producto en orden FEFO (primero en vencer,
+ * primero en salir) y registra las entradas en su lote.
+ * Guarda en memoria, por producto, una cola ordenada por vencimiento con los lotes que tienen unidades,
+ * para no consultar los lotes en cada salida. La base de datos manda: cada cambio se aplica con un UPDATE
+ * que exige la cantidad que hay en memoria, y la cola se recarga si ese UPDATE no coincide o si sus lotes
+ * no suman el stock del producto. Si la transacción se revierte se descarta la cola del producto.
+ * Quien llama debe tener bloqueada la fila del producto (UPDATE de stock o findAllByIdParaActualizar).
+ * RF4.3, RF4.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AsignadorLotesFefo {
+
+    private static final Comparator<LoteEnCola> ORDEN_FEFO = Comparator
+            .comparing((LoteEnCola lote) -> lote.fechaVencimiento, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(lote -> lote.id);
+
+    private final LoteProductoRepository loteRepository;
+    private final AlertasInventario alertas;
+    private final CacheProductos cacheProductos;
+    private final Map<Long, ColaLotes> colas = new ConcurrentHashMap<>();
+
+    /**
+     * Unidades tomadas de un lote en una salida
+     */
+    public record AsignacionLote(Long loteId, String codigoLote, LocalDate fechaVencimiento, int cantidad) {
+    }
+
+    /**
+     * Descuenta unidades de los lotes del producto empezando por el que vence primero.
+     * stockAnterior es el stock del producto antes de la salida.
+     */
+    public List<AsignacionLote> descontar(Producto producto, int cantidad, int stockAnterior) {
+        Long productoId = producto.getId();
+        List<AsignacionLote> asignaciones = new ArrayList<>();
+        int pendiente = cantidad;
+        int stockEsperado = stockAnterior;
+
+        for (int intento = 0; pendiente > 0; intento++) {
+            ColaLotes cola = obtenerCola(productoId, stockEsperado);
+            boolean coincide = true;
+            synchronized (cola) {
+                Iterator<LoteEnCola> lotes = cola.lotes.iterator();
+                while (pendiente > 0 && lotes.hasNext()) {
+                    LoteEnCola lote = lotes.next();
+                    int tomar = Math.min(pendiente, lote.cantidad);
+                    if (loteRepository.moverCantidad(lote.id, lote.cantidad, -tomar) == 0) {
+                        coincide = false;
+                        break;
+                    }
+                    lote.cantidad -= tomar;
+                    cola.total -= tomar;
+                    if (lote.cantidad == 0) {
+                        lotes.remove();
+                    }
+                    asignaciones.add(new AsignacionLote(lote.id, lote.codigoLote, lote.fechaVencimiento, tomar));
+                    pendiente -= tomar;
+                    stockEsperado -= tomar;
+                }
+                if (coincide) {
+                    actualizarProximoVencimiento(producto, cola);
+                }
+            }
+            if (coincide) {
+                if (pendiente > 0) {
+                    // Lotes desfasados del stock (ya advertido al cargar): el stock del producto manda
+                    log.warn("Salida de {} unidades del producto {} sin lote que las cubra", pendiente, productoId);
+                }
+                break;
+            }
+            reintentarConColaRecargada(productoId, intento);
+        }
+
+        registrarCambioStock(producto, stockAnterior - cantidad);
+        descartarSiSeRevierte(productoId);
+        return asignaciones;
+    }
+
+    /**
+     * Suma unidades al lote con ese código y vencimiento, o crea el lote si no hay uno con unidades.
+     * stockAnterior es el stock del producto antes de la entrada.
+     */
+    public void registrarEntrada(Producto producto, int cantidad, String codigoLote, LocalDate fechaVencimiento,
+                                 int stockAnterior) {
+        sumar(producto, cantidad, stockAnterior, cola -> cola.buscar(codigoLote, fechaVencimiento),
+                codigoLote, fechaVencimiento);
+    }
+
+    /**
+     * Crea el lote inicial de varios productos recién creados (importación) con un saveAll.
+     * No carga sus colas: un producto nuevo no tiene otros lotes y la cola se arma en su primer movimiento.
+     */
+    public void registrarLotesIniciales(List<Producto> productos) {
+        List<LoteProducto> lotes = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (Producto producto : productos) {
+            int stock = producto.getStockActual() != null ? producto.getStockActual() : 0;
+            if (stock > 0) {
+                lotes.add(LoteProducto.builder()
+                        .producto(producto)
+                        .codigoLote(producto.getLote())
+                        .fechaVencimiento(producto.getFechaVencimiento())
+                        .cantidadInicial(stock)
+                        .cantidadDisponible(stock)
+                        .fechaIngreso(ahora)
+                        .build());
+            }
+        }
+        loteRepository.saveAll(lotes);
+        for (LoteProducto lote : lotes) {
+            alertas.registrarStock(lote.getProducto(), lote.getCantidadDisponible(),
+                    lote.getFechaVencimiento() != null ? List.of(lote.getFechaVencimiento()) : List.of());
+        }
+    }
+
+    /**
+     * Suma unidades devueltas sin lote conocido al lote que vence primero, el criterio conservador
+     * para las alertas de vencimiento. Si el producto no tiene lotes con unidades se crea uno sin vencimiento.
+     */
+    public void registrarDevolucion(Producto producto, int cantidad, int stockAnterior) {
+        sumar(producto, cantidad, stockAnterior, ColaLotes::primero, null, null);
+    }
+
+    /**
+     * Lleva los lotes al stock fijado por un ajuste: si baja descuenta en orden FEFO,
+     * si sube suma como una devolución.
+     */
+    public void ajustar(Producto producto, CambioStock cambio) {
+        int diferencia = cambio.stockNuevo() - cambio.stockAnterior();
+        if (diferencia < 0) {
+            descontar(producto, -diferencia, cambio.stockAnterior());
+        } else if (diferencia > 0) {
+            registrarDevolucion(producto, diferencia, cambio.stockAnterior());
+        }
+    }
+
+    private void sumar(Producto producto, int cantidad, int stockAnterior, Function<ColaLotes, LoteEnCola> destino,
+                       String codigoLote, LocalDate fechaVencimiento) {
+        Long productoId = producto.getId();
+        for (int intento = 0; ; intento++) {
+            ColaLotes cola = obtenerCola(productoId, stockAnterior);
+            synchronized (cola) {
+                LoteEnCola lote = destino.apply(cola);
+                if (lote == null) {
+                    LoteProducto nuevo = loteRepository.save(LoteProducto.builder()
+                            .producto(producto)
+                            .codigoLote(codigoLote)
+                            .fechaVencimiento(fechaVencimiento)
+                            .cantidadInicial(cantidad)
+                            .cantidadDisponible(cantidad)
+                            .fechaIngreso(LocalDateTime.now())
+                            .build());
+                    cola.agregar(new LoteEnCola(nuevo.getId(), codigoLote, fechaVencimiento, cantidad));
+                    actualizarProximoVencimiento(producto, cola);
+                    break;
+                }
+                if (loteRepository.moverCantidad(lote.id, lote.cantidad, cantidad) == 1) {
+                    lote.cantidad += cantidad;
+                    cola.total += cantidad;
+                    break;
+                }
+            }
+            reintentarConColaRecargada(productoId, intento);
+        }
+        registrarCambioStock(producto, stockAnterior + cantidad);
+        descartarSiSeRevierte(productoId);
+    }
+
+    /**
+     * Devuelve la cola del producto si sus lotes suman el stock esperado; si no, la recarga
+     */
+    private ColaLotes obtenerCola(Long productoId, int stockEsperado) {
+        ColaLotes cola = colas.get(productoId);
+        if (cola != null) {
+            synchronized (cola) {
+                if (cola.total == stockEsperado) {
+                    return cola;
+                }
+            }
+            log.debug("Lotes en memoria del producto {} desactualizados, se recargan", productoId);
+        }
+
+        ColaLotes cargada = new ColaLotes();
+        loteRepository.findDisponiblesPorProducto(productoId).forEach(lote -> cargada.agregar(
+                new LoteEnCola(lote.id(), lote.codigoLote(), lote.fechaVencimiento(), lote.cantidadDisponible())));
+        if (cargada.total != stockEsperado) {
+            log.warn("Los lotes del producto {} suman {} unidades pero su stock es {}",
+                    productoId, cargada.total, stockEsperado);
+        }
+        colas.put(productoId, cargada);
+        return cargada;
+    }
+
+    private void reintentarConColaRecargada(Long productoId, int intento) {
+        colas.remove(productoId);
+        if (intento > 0) {
+            throw new ConflictoException(String.format(
+                    "Los lotes del producto %d cambiaron durante la operación, intente de nuevo", productoId));
+        }
+    }
+
+    /**
+     * Producto.lote y Producto.fechaVencimiento quedan con el lote que sale primero
+     */
+    private void actualizarProximoVencimiento(Producto producto, ColaLotes cola) {
+        LoteEnCola primero = cola.primero();
+        String lote = primero != null ? primero.codigoLote : null;
+        LocalDate fechaVencimiento = primero != null ? primero.fechaVencimiento : null;
+        if (!Objects.equals(producto.getLote(), lote) || !Objects.equals(producto.getFechaVencimiento(), fechaVencimiento)) {
+            producto.setLote(lote);
+            producto.setFechaVencimiento(fechaVencimiento);
+        }
+    }
+
+    /**
+     * Pasa a las alertas de inventario el stock resultante y los vencimientos de los lotes que quedan,
+     * y saca el producto de la caché de productos (cambian su stock y quizás su lote)
+     */
+    private void registrarCambioStock(Producto producto, int stock) {
+        List<LocalDate> vencimientos = new ArrayList<>();
+        ColaLotes cola = colas.get(producto.getId());
+        if (cola != null) {
+            synchronized (cola) {
+                cola.lotes.forEach(lote -> vencimientos.add(lote.fechaVencimiento));
+            }
+        }
+        alertas.registrarStock(producto, stock, vencimientos);
+        cacheProductos.invalidar(producto.getId());
+    }
+
+    private void descartarSiSeRevierte(Long productoId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    colas.remove(productoId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Lotes con unidades de un producto, en orden FEFO, y su total
+     */
+    private static final class ColaLotes {
+
+        private final TreeSet<LoteEnCola> lotes = new TreeSet<>(ORDEN_FEFO);
+        private int total;
+
+        void agregar(LoteEnCola lote) {
+            lotes.add(lote);
+            total += lote.cantidad;
+        }
+
+        LoteEnCola primero() {
+            return lotes.isEmpty() ? null : lotes.first();
+        }
+
+        LoteEnCola buscar(String codigoLote, LocalDate fechaVencimiento) {
+            for (LoteEnCola lote : lotes) {
+                if (Objects.equals(lote.codigoLote, codigoLote) && Objects.equals(lote.fechaVencimiento, fechaVencimiento)) {
+                    return lote;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class LoteEnCola {
+
+        private final Long id;
+        private final String codigoLote;
+        private final LocalDate fechaVencimiento;
+        private int cantidad;
+
+        LoteEnCola(Long id, String codigoLote, LocalDate fechaVencimiento, int cantidad) {
+            this.id = id;
+            this.codigoLote = codigoLote;
+            this.fechaVencimiento = fechaVencimiento;
+            this.cantidad = cantidad;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de lectura de ProductoDTO por id y por código, para el escaneo de códigos de barras en caja.
+ * Un acierto es una lectura de mapa, sin transacción ni consulta. Se invalida por producto después del commit
+ * al crearlo, actualizarlo, desactivarlo o cambiar su stock (AsignadorLotesFefo); una carga que empezó antes de
+ * una invalidación no se guarda, para no dejar en memoria datos anteriores al commit. Las entradas vencen tras
+ * un tiempo por si otra instancia cambió el producto, y la caché se vacía cada medianoche porque
+ * proximoAVencer y vencido dependen de la fecha.
+ * Los DTO devueltos se comparten entre solicitudes: no deben modificarse.
+ * RF4.1
+ */
+@Component
+@Slf4j
+public class CacheProductos {
+
+    static final String METRICA = "nuclearvet.productos.cache";
+
+    private final int capacidad;
+    private final long ttlNanos;
+
+    private final Map<Long, Entrada> porId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idPorCodigo = new ConcurrentHashMap<>();
+    private volatile long generacion; // Cambia con cada invalidación; se escribe con el monitor tomado
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter invalidaciones;
+
+    private record Entrada(ProductoDTO producto, long venceEn) {
+    }
+
+    public CacheProductos(@Value("${productos.cache.capacidad:20000}") int capacidad,
+                          @Value("${productos.cache.ttl-ms:300000}") long ttlMs,
+                          MeterRegistry meterRegistry) {
+        this.capacidad = capacidad;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.aciertos = Counter.builder(METRICA)
+                .description("Consultas de productos a la caché")
+                .tag("resultado", "acierto")
+                .register(meterRegistry);
+        this.fallos = Counter.builder(METRICA)
+                .description("Consultas de productos a la caché")
+                .tag("resultado", "fallo")
+                .register(meterRegistry);
+        this.invalidaciones = Counter.builder(METRICA + ".invalidaciones")
+                .description("Productos sacados de la caché por cambios")
+                .register(meterRegistry);
+        Gauge.builder(METRICA + ".tamano", porId, Map::size)
+                .description("Productos en la caché")
+                .register(meterRegistry);
+        Gauge.builder(METRICA + ".tasa_aciertos", this, CacheProductos::tasaAciertos)
+                .description("Fracción de consultas respondidas desde la caché")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el producto con el id dado; si no está en caché lo carga con cargador y lo guarda
+     */
+    public ProductoDTO obtenerPorId(Long id, Supplier<ProductoDTO> cargador) {
+        return obtener(porId.get(id), cargador);
+    }
+
+    /**
+     * Devuelve el producto con el código dado; si no está en caché lo carga con cargador y lo guarda
+     */
+    public ProductoDTO obtenerPorCodigo(String codigo, Supplier<ProductoDTO> cargador) {
+        Long id = idPorCodigo.get(codigo);
+        return obtener(id != null ? porId.get(id) : null, cargador);
+    }
+
+    private ProductoDTO obtener(Entrada entrada, Supplier<ProductoDTO> cargador) {
+        if (entrada != null && entrada.venceEn() - System.nanoTime() > 0) {
+            aciertos.increment();
+            return entrada.producto();
+        }
+        fallos.increment();
+        long generacionCarga = generacion;
+        ProductoDTO producto = cargador.get();
+        guardar(producto, generacionCarga);
+        return producto;
+    }
+
+    private synchronized void guardar(ProductoDTO producto, long generacionCarga) {
+        if (generacion != generacionCarga) {
+            return; // Hubo una invalidación durante la carga: lo cargado puede ser anterior al commit
+        }
+        if (porId.size() >= capacidad && !porId.containsKey(producto.getId())) {
+            return;
+        }
+        Entrada anterior = porId.put(producto.getId(), new Entrada(producto, System.nanoTime() + ttlNanos));
+        if (anterior != null && !anterior.producto().getCodigo().equals(producto.getCodigo())) {
+            idPorCodigo.remove(anterior.producto().getCodigo(), producto.getId());
+        }
+        idPorCodigo.put(producto.getCodigo(), producto.getId());
+    }
+
+    /**
+     * Saca el producto de la caché. Con una transacción activa se aplica después del commit.
+     */
+    public void invalidar(Long productoId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    quitar(productoId);
+                }
+            });
+        } else {
+            quitar(productoId);
+        }
+    }
+
+    private synchronized void quitar(Long productoId) {
+        generacion++;
+        Entrada entrada = porId.remove(productoId);
+        if (entrada != null) {
+            idPorCodigo.remove(entrada.producto().getCodigo(), productoId);
+        }
+        invalidaciones.increment();
+    }
+
+    /**
+     * Vacía la caché al cambiar el día (proximoAVencer y vencido se calculan con la fecha)
+     */
+    @Scheduled(cron = "${productos.cache.vaciar-cron:0 0 0 * * *}")
+    public synchronized void vaciar() {
+        generacion++;
+        porId.clear();
+        idPorCodigo.clear();
+        log.debug("Caché de productos vaciada");
+    }
+
+    double tasaAciertos() {
+        double total = aciertos.count() + fallos.count();
+        return total == 0 ? 0 : aciertos.count() / total;
+    }
+}
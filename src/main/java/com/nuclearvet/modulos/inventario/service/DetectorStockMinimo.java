@@ -0,0 +1,45 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.CruceStockMinimoEvento;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Detecta en el camino de escritura cuándo un cambio de stock cruza el stock mínimo del producto
+ * y publica un CruceStockMinimoEvento. Bajo stock es stockActual <= stockMinimo, como en
+ * ProductoRepository.findProductosConBajoStock. El stock anterior y nuevo vienen del UPDATE atómico
+ * con la fila bloqueada, así cada cruce se publica una sola vez aunque haya movimientos concurrentes.
+ * RF4.3
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DetectorStockMinimo {
+
+    private final ApplicationEventPublisher eventos;
+
+    /**
+     * Publica el evento si el cambio deja el producto del otro lado del stock mínimo
+     */
+    public void registrarCambio(Producto producto, CambioStock cambio) {
+        Integer stockMinimo = producto.getStockMinimo();
+        if (stockMinimo == null) {
+            return;
+        }
+        boolean estabaBajoMinimo = cambio.stockAnterior() <= stockMinimo;
+        boolean quedaBajoMinimo = cambio.stockNuevo() <= stockMinimo;
+        if (estabaBajoMinimo == quedaBajoMinimo) {
+            return;
+        }
+
+        log.info("Producto {} {} el stock mínimo ({}): stock {} -> {}", producto.getId(),
+                quedaBajoMinimo ? "bajó hasta" : "volvió a superar", stockMinimo,
+                cambio.stockAnterior(), cambio.stockNuevo());
+        eventos.publishEvent(new CruceStockMinimoEvento(producto.getId(), producto.getCodigo(), producto.getNombre(),
+                cambio.stockAnterior(), cambio.stockNuevo(), stockMinimo, quedaBajoMinimo));
+    }
+}
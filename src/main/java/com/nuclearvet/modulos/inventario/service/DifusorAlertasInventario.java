@@ -0,0 +1,84 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.CruceStockMinimoEvento;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envía en vivo (Server-Sent Events) los cruces del stock mínimo a los dashboards suscritos,
+ * para que no tengan que consultar /api/productos/alertas/bajo-stock periódicamente.
+ * Los eventos salen después del commit del movimiento que los produjo, desde un hilo propio:
+ * un dashboard con la red lenta no demora al hilo que registró el movimiento. Con la cola llena
+ * se descarta la alerta más antigua (el dashboard puede consultar bajo-stock al reconectarse).
+ * RF4.3
+ */
+@Component
+@Slf4j
+public class DifusorAlertasInventario {
+
+    static final String EVENTO_STOCK_BAJO = "stock-bajo";
+    static final String EVENTO_STOCK_RECUPERADO = "stock-recuperado";
+
+    private static final long TIEMPO_MAXIMO_SUSCRIPCION_MS = 30 * 60 * 1000L;
+    private static final int CAPACIDAD_COLA = 1000;
+
+    private final List<SseEmitter> suscriptores = new CopyOnWriteArrayList<>();
+
+    // Un solo hilo para que los dashboards reciban los cruces en el orden en que ocurrieron
+    private final ThreadPoolExecutor envios = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(CAPACIDAD_COLA), tarea -> new Thread(tarea, "alertas-inventario-sse"),
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    @PreDestroy
+    void detener() {
+        envios.shutdownNow();
+    }
+
+    /**
+     * Registra un dashboard; el cliente se vuelve a suscribir cuando vence la conexión
+     */
+    public SseEmitter suscribir() {
+        SseEmitter suscriptor = new SseEmitter(TIEMPO_MAXIMO_SUSCRIPCION_MS);
+        suscriptor.onCompletion(() -> suscriptores.remove(suscriptor));
+        suscriptor.onTimeout(suscriptor::complete);
+        suscriptor.onError(error -> suscriptores.remove(suscriptor));
+        suscriptores.add(suscriptor);
+        return suscriptor;
+    }
+
+    @TransactionalEventListener
+    public void difundir(CruceStockMinimoEvento evento) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        // Con el difusor detenido la política de descarte ignora el envío
+        envios.execute(() -> enviar(evento));
+    }
+
+    private void enviar(CruceStockMinimoEvento evento) {
+        String nombre = evento.bajoMinimo() ? EVENTO_STOCK_BAJO : EVENTO_STOCK_RECUPERADO;
+        for (SseEmitter suscriptor : suscriptores) {
+            try {
+                suscriptor.send(SseEmitter.event().name(nombre).data(evento));
+            } catch (IOException | IllegalStateException e) {
+                // Conexión cerrada por el cliente
+                log.debug("Se descarta un suscriptor de alertas de inventario: {}", e.getMessage());
+                suscriptores.remove(suscriptor);
+            }
+        }
+    }
+
+    int cantidadSuscriptores() {
+        return suscriptores.size();
+    }
+}
@@ -0,0 +1,82 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.entity.ConsumoProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.ConsumoProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Consumo diario de cada producto como media móvil exponencial de sus salidas por día.
+ * Cada salida suma al día en curso; cuando llega una salida de otro día, los días anteriores
+ * (incluidos los días sin salidas) se cierran en la media, así nunca hace falta recorrer el historial
+ * de movimientos. Los primeros días se promedian por igual (peso 1/n) hasta que el peso llega a alfa,
+ * para que un producto nuevo no arranque con un consumo casi nulo.
+ * RF4.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EstadisticasConsumo {
+
+    private final ConsumoProductoRepository consumoRepository;
+
+    @Value("${inventario.consumo.alfa:0.1}")
+    private double alfa;
+
+    /**
+     * Registra una salida de unidades del producto en la fecha dada.
+     * Llamar con la fila del producto bloqueada (UPDATE de stock), que serializa las salidas del producto.
+     */
+    public void registrarSalida(Producto producto, int cantidad, LocalDate fecha) {
+        ConsumoProducto consumo = consumoRepository.findById(producto.getId())
+                .orElseGet(() -> ConsumoProducto.builder()
+                        .producto(producto)
+                        .fechaDia(fecha)
+                        .build());
+        if (fecha.isAfter(consumo.getFechaDia())) {
+            cerrarDias(consumo, fecha);
+        }
+        consumo.setConsumoDia(consumo.getConsumoDia() + cantidad);
+        consumo.setFechaActualizacion(LocalDateTime.now());
+        consumoRepository.save(consumo);
+    }
+
+    /**
+     * Consumo diario estimado a la fecha dada, sin modificar la estadística.
+     * El día en curso no cuenta hasta que termina.
+     */
+    public double tasaDiaria(ConsumoProducto consumo, LocalDate fecha) {
+        if (!fecha.isAfter(consumo.getFechaDia())) {
+            return consumo.getTasaDiaria();
+        }
+        long dias = ChronoUnit.DAYS.between(consumo.getFechaDia(), fecha);
+        double tasa = consumo.getTasaDiaria();
+        int observados = consumo.getDiasObservados();
+        for (long dia = 0; dia < dias; dia++) {
+            double peso = Math.max(alfa, 1.0 / (observados + 1));
+            if (peso == alfa) {
+                // Ya no hay arranque: los días restantes sin salidas solo decaen
+                tasa += alfa * ((dia == 0 ? consumo.getConsumoDia() : 0) - tasa);
+                return tasa * Math.pow(1 - alfa, dias - dia - 1);
+            }
+            tasa += peso * ((dia == 0 ? consumo.getConsumoDia() : 0) - tasa);
+            observados++;
+        }
+        return tasa;
+    }
+
+    private void cerrarDias(ConsumoProducto consumo, LocalDate fecha) {
+        long dias = ChronoUnit.DAYS.between(consumo.getFechaDia(), fecha);
+        consumo.setTasaDiaria(tasaDiaria(consumo, fecha));
+        consumo.setDiasObservados((int) Math.min(Integer.MAX_VALUE, consumo.getDiasObservados() + dias));
+        consumo.setFechaDia(fecha);
+        consumo.setConsumoDia(0);
+    }
+}
@@ -0,0 +1,336 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.common.util.LectorCsv;
+import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoImportacionProductosDTO;
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.Proveedor;
+import com.nuclearvet.modulos.inventario.mapper.ProductoMapper;
+import com.nuclearvet.modulos.inventario.repository.CategoriaRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio para la importación masiva de productos desde un archivo CSV (alta de una clínica).
+ * Lee el archivo registro por registro; categorías, proveedores y códigos existentes se cargan una vez
+ * en memoria, así validar una fila no consulta la base de datos. Los productos válidos se guardan en
+ * transacciones de FILAS_POR_TRANSACCION, insertados en batches JDBC (productos_seq con incremento 50).
+ * Sin @Transactional: un error en un lote no deshace los lotes anteriores.
+ * RF4.1 - Gestión de productos
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportacionProductosService {
+
+    /**
+     * Productos por transacción. Múltiplo de hibernate.jdbc.batch_size.
+     */
+    static final int FILAS_POR_TRANSACCION = 1000;
+
+    /**
+     * Filas con error que se detallan en el resultado
+     */
+    static final int MAXIMO_ERRORES_REPORTADOS = 1000;
+
+    static final List<String> COLUMNAS_OBLIGATORIAS = List.of(
+            "codigo", "nombre", "categoria", "preciocompra", "precioventa", "stockactual", "stockminimo");
+
+    private final ProductoRepository productoRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final ProveedorRepository proveedorRepository;
+    private final AsignadorLotesFefo asignadorLotes;
+    private final StockUbicaciones stockUbicaciones;
+    private final Kardex kardex;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final AlertasInventario alertas;
+    private final ProductoMapper productoMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Fila válida pendiente de guardar
+     */
+    private record FilaProducto(int fila, Producto producto) {
+    }
+
+    /**
+     * Estado de una importación en curso
+     */
+    private static final class Importacion {
+        private final List<FilaProducto> pendientes = new ArrayList<>(FILAS_POR_TRANSACCION);
+        private final List<ResultadoImportacionProductosDTO.ErrorFilaDTO> errores = new ArrayList<>();
+        private int filasLeidas;
+        private int importados;
+        private int filasConError;
+
+        void registrarError(int fila, String codigo, String mensaje) {
+            filasConError++;
+            if (errores.size() < MAXIMO_ERRORES_REPORTADOS) {
+                errores.add(ResultadoImportacionProductosDTO.ErrorFilaDTO.builder()
+                        .fila(fila)
+                        .codigo(codigo)
+                        .mensaje(mensaje)
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * RF4.1: Importar productos desde un CSV con encabezado.
+     * Columnas obligatorias: codigo, nombre, categoria (id o nombre), precioCompra, precioVenta, stockActual y
+     * stockMinimo. Opcionales: proveedor (id o NIT) y el resto de campos de CrearProductoDTO.
+     */
+    public ResultadoImportacionProductosDTO importar(InputStream csv) {
+        log.info("Iniciando importación de productos desde CSV");
+        long inicio = System.nanoTime();
+
+        Map<String, Categoria> categorias = new HashMap<>();
+        categoriaRepository.findAll().forEach(categoria -> {
+            categorias.put(categoria.getId().toString(), categoria);
+            categorias.putIfAbsent(normalizar(categoria.getNombre()), categoria);
+        });
+        Map<String, Proveedor> proveedores = new HashMap<>();
+        proveedorRepository.findAll().forEach(proveedor -> {
+            proveedores.put(proveedor.getId().toString(), proveedor);
+            if (proveedor.getNit() != null) {
+                proveedores.putIfAbsent(proveedor.getNit().trim(), proveedor);
+            }
+        });
+        Set<String> codigos = new HashSet<>(productoRepository.findAllCodigos());
+
+        Importacion importacion = new Importacion();
+        try (LectorCsv lector = new LectorCsv(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columnas = leerEncabezado(lector.siguiente());
+            List<String> valores;
+            while ((valores = lector.siguiente()) != null) {
+                if (valores.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                importacion.filasLeidas++;
+                procesarFila(lector.getLinea(), valores, columnas, categorias, proveedores, codigos, importacion);
+                if (importacion.pendientes.size() == FILAS_POR_TRANSACCION) {
+                    guardarPendientes(importacion);
+                }
+            }
+            guardarPendientes(importacion);
+        } catch (IOException e) {
+            guardarPendientes(importacion);
+            throw new ValidacionException(String.format(
+                    "No se pudo leer el archivo después de %d filas (%d productos importados): %s",
+                    importacion.filasLeidas, importacion.importados, e.getMessage()));
+        }
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        double productosPorSegundo = duracionMs > 0 ? importacion.importados * 1000.0 / duracionMs : importacion.importados;
+
+        log.info("Importación de productos terminada: {} filas, {} productos en {} ms ({} productos/s), {} filas con error",
+                importacion.filasLeidas, importacion.importados, duracionMs,
+                String.format("%.1f", productosPorSegundo), importacion.filasConError);
+
+        return ResultadoImportacionProductosDTO.builder()
+                .filasLeidas(importacion.filasLeidas)
+                .productosImportados(importacion.importados)
+                .filasConError(importacion.filasConError)
+                .errores(importacion.errores)
+                .duracionMs(duracionMs)
+                .productosPorSegundo(productosPorSegundo)
+                .build();
+    }
+
+    /**
+     * Posición de cada columna por su nombre normalizado (sin mayúsculas, espacios ni guiones bajos)
+     */
+    private static Map<String, Integer> leerEncabezado(List<String> encabezado) {
+        if (encabezado == null) {
+            throw new ValidacionException("El archivo está vacío");
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            String nombre = encabezado.get(i).replace("\uFEFF", "").replace("_", "").replace(" ", "");
+            columnas.putIfAbsent(nombre.toLowerCase(Locale.ROOT), i);
+        }
+        List<String> faltantes = COLUMNAS_OBLIGATORIAS.stream()
+                .filter(columna -> !columnas.containsKey(columna))
+                .collect(Collectors.toList());
+        if (!faltantes.isEmpty()) {
+            throw new ValidacionException("Faltan columnas obligatorias en el encabezado: " + String.join(", ", faltantes));
+        }
+        return columnas;
+    }
+
+    private void procesarFila(int fila, List<String> valores, Map<String, Integer> columnas,
+                              Map<String, Categoria> categorias, Map<String, Proveedor> proveedores,
+                              Set<String> codigos, Importacion importacion) {
+        String codigo = valor(valores, columnas, "codigo");
+        CrearProductoDTO dto;
+        try {
+            dto = leerProducto(valores, columnas);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            importacion.registrarError(fila, codigo, "Valor con formato inválido: " + e.getMessage());
+            return;
+        }
+
+        String categoriaValor = valor(valores, columnas, "categoria");
+        if (categoriaValor != null) {
+            Categoria categoria = categorias.get(categoriaValor.matches("\\d+") ? categoriaValor : normalizar(categoriaValor));
+            if (categoria == null) {
+                importacion.registrarError(fila, codigo, "No existe la categoría " + categoriaValor);
+                return;
+            }
+            dto.setCategoriaId(categoria.getId());
+        }
+        String proveedorValor = valor(valores, columnas, "proveedor");
+        if (proveedorValor != null) {
+            Proveedor proveedor = proveedores.get(proveedorValor);
+            if (proveedor == null) {
+                importacion.registrarError(fila, codigo, "No existe el proveedor " + proveedorValor);
+                return;
+            }
+            dto.setProveedorId(proveedor.getId());
+        }
+
+        Set<ConstraintViolation<CrearProductoDTO>> violaciones = validator.validate(dto);
+        if (!violaciones.isEmpty()) {
+            importacion.registrarError(fila, codigo, violaciones.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+            return;
+        }
+        if (dto.getPrecioVenta().compareTo(dto.getPrecioCompra()) < 0) {
+            importacion.registrarError(fila, codigo, "El precio de venta no puede ser menor al precio de compra");
+            return;
+        }
+        if (dto.getStockMaximo() != null && dto.getStockMaximo() < dto.getStockMinimo()) {
+            importacion.registrarError(fila, codigo, "El stock máximo no puede ser menor al stock mínimo");
+            return;
+        }
+
+        // El conjunto tiene los códigos de la base de datos y los de las filas anteriores
+        if (!codigos.add(codigo)) {
+            importacion.registrarError(fila, codigo, "Ya existe un producto con ese código");
+            return;
+        }
+
+        Producto producto = productoMapper.toEntity(dto);
+        producto.setCategoria(categorias.get(dto.getCategoriaId().toString()));
+        producto.setProveedor(dto.getProveedorId() != null ? proveedores.get(dto.getProveedorId().toString()) : null);
+        importacion.pendientes.add(new FilaProducto(fila, producto));
+    }
+
+    private static CrearProductoDTO leerProducto(List<String> valores, Map<String, Integer> columnas) {
+        return CrearProductoDTO.builder()
+                .codigo(valor(valores, columnas, "codigo"))
+                .nombre(valor(valores, columnas, "nombre"))
+                .descripcion(valor(valores, columnas, "descripcion"))
+                .precioCompra(decimal(valor(valores, columnas, "preciocompra")))
+                .precioVenta(decimal(valor(valores, columnas, "precioventa")))
+                .stockActual(entero(valor(valores, columnas, "stockactual")))
+                .stockMinimo(entero(valor(valores, columnas, "stockminimo")))
+                .stockMaximo(entero(valor(valores, columnas, "stockmaximo")))
+                .unidadMedida(valor(valores, columnas, "unidadmedida"))
+                .lote(valor(valores, columnas, "lote"))
+                .fechaVencimiento(fecha(valor(valores, columnas, "fechavencimiento")))
+                .ubicacion(valor(valores, columnas, "ubicacion"))
+                .requierePrescripcion(booleano(valor(valores, columnas, "requiereprescripcion")))
+                .principioActivo(valor(valores, columnas, "principioactivo"))
+                .presentacion(valor(valores, columnas, "presentacion"))
+                .registroSanitario(valor(valores, columnas, "registrosanitario"))
+                .observaciones(valor(valores, columnas, "observaciones"))
+                .build();
+    }
+
+    /**
+     * Guarda los productos pendientes en una transacción, con sus lotes iniciales, su stock en la
+     * ubicación principal y su kardex.
+     * Si el lote choca con un cambio concurrente (un código creado mientras tanto) se reportan sus filas.
+     */
+    private void guardarPendientes(Importacion importacion) {
+        if (importacion.pendientes.isEmpty()) {
+            return;
+        }
+        List<Producto> productos = importacion.pendientes.stream().map(FilaProducto::producto).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productoRepository.saveAll(productos);
+                asignadorLotes.registrarLotesIniciales(productos);
+                stockUbicaciones.registrarInventarioInicial(productos);
+                kardex.registrarInventarioInicial(productos.stream()
+                        .filter(producto -> producto.getStockActual() > 0)
+                        .toList());
+                productos.forEach(producto -> {
+                    indiceBusqueda.registrar(producto);
+                    alertas.registrarProducto(producto);
+                });
+                productoRepository.flush();
+            });
+            importacion.importados += productos.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("No se pudo guardar un lote de {} productos importados: {}", productos.size(), e.getMessage());
+            importacion.pendientes.forEach(pendiente -> importacion.registrarError(pendiente.fila(),
+                    pendiente.producto().getCodigo(), "No se pudo guardar el lote de la fila, intente importarla de nuevo"));
+        }
+        importacion.pendientes.clear();
+        log.info("Importación de productos en curso: {} filas leídas, {} productos importados, {} filas con error",
+                importacion.filasLeidas, importacion.importados, importacion.filasConError);
+    }
+
+    private static String valor(List<String> valores, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        if (indice == null || indice >= valores.size()) {
+            return null;
+        }
+        String valor = valores.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static String normalizar(String texto) {
+        return texto.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static BigDecimal decimal(String valor) {
+        return valor != null ? new BigDecimal(valor) : null;
+    }
+
+    private static Integer entero(String valor) {
+        return valor != null ? Integer.valueOf(valor) : null;
+    }
+
+    private static LocalDate fecha(String valor) {
+        return valor != null ? LocalDate.parse(valor) : null;
+    }
+
+    private static Boolean booleano(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String texto = normalizar(valor);
+        return texto.equals("true") || texto.equals("si") || texto.equals("sí") || texto.equals("1") || texto.equals("x");
+    }
+}
@@ -0,0 +1,359 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ProductoSugerenciaDTO;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de trigramas sobre nombre, código y principio activo de los productos activos.
+ * Sirve el autocompletado del buscador de farmacia sin un LIKE '%...%' contra la tabla en cada tecla.
+ * Se carga al arrancar, se actualiza producto a producto al crear, actualizar o desactivar (después del commit)
+ * y se reconstruye cada cierto tiempo por si otra instancia cambió el catálogo.
+ * RF4.1 - Búsqueda de productos
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceBusquedaProductos {
+
+    static final int LONGITUD_MINIMA_CONSULTA = 2;
+    private static final double COINCIDENCIA_MINIMA = 0.7; // Fracción de trigramas de la consulta, tolera errores de tipeo
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+    private static final Comparator<Candidato> MEJOR_PRIMERO = Comparator
+            .comparingDouble(Candidato::puntaje).reversed()
+            .thenComparingInt((Candidato candidato) -> candidato.entrada().nombre().length())
+            .thenComparing(candidato -> candidato.entrada().nombre());
+
+    private final ProductoRepository productoRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private Estructura estructura = new Estructura();
+    private List<Consumer<Estructura>> cambiosDuranteCarga;
+
+    private volatile boolean cargado;
+
+    /**
+     * Carga el índice desde la base de datos al arrancar y luego periódicamente.
+     * Los cambios incrementales que lleguen mientras tanto se aplican también al índice nuevo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${productos.busqueda.reconstruir-ms:1800000}",
+            initialDelayString = "${productos.busqueda.reconstruir-ms:1800000}")
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            cambiosDuranteCarga = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Estructura nueva = null;
+        try {
+            Estructura cargada = new Estructura();
+            productoRepository.findByActivoTrueOrderByNombreAsc().forEach(producto -> cargada.agregar(aEntrada(producto)));
+            nueva = cargada;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (nueva != null) {
+                    for (Consumer<Estructura> cambio : cambiosDuranteCarga) {
+                        cambio.accept(nueva);
+                    }
+                    estructura = nueva;
+                }
+                cambiosDuranteCarga = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        cargado = true;
+        log.info("Índice de búsqueda de productos cargado: {} productos, {} trigramas en {} ms",
+                nueva.slotPorId.size(), nueva.trigramas.size(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Carga el índice con los productos dados (reemplaza el contenido actual)
+     */
+    void cargar(Collection<Producto> productos) {
+        Estructura nueva = new Estructura();
+        productos.forEach(producto -> nueva.agregar(aEntrada(producto)));
+        lock.writeLock().lock();
+        try {
+            estructura = nueva;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        cargado = true;
+    }
+
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Indexa o reindexa un producto; si está inactivo lo quita.
+     * Con una transacción activa se aplica después del commit.
+     */
+    public void registrar(Producto producto) {
+        if (!Boolean.TRUE.equals(producto.getActivo())) {
+            quitar(producto.getId());
+            return;
+        }
+        EntradaIndice entrada = aEntrada(producto);
+        despuesDelCommit(() -> aplicar(indice -> indice.agregar(entrada)));
+    }
+
+    /**
+     * Quita un producto del índice. Con una transacción activa se aplica después del commit.
+     */
+    public void quitar(Long productoId) {
+        despuesDelCommit(() -> aplicar(indice -> indice.quitar(productoId)));
+    }
+
+    /**
+     * Sugerencias para el texto escrito, de mejor a peor: primero por trigramas en común,
+     * luego se premia que el código coincida o que el nombre empiece por el texto.
+     */
+    public List<ProductoSugerenciaDTO> buscar(String texto, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.length() < LONGITUD_MINIMA_CONSULTA) {
+            return List.of();
+        }
+        long[] claves = trigramasConsulta(consulta);
+        int minimo = Math.max(1, (int) Math.ceil(claves.length * COINCIDENCIA_MINIMA));
+        String inicioPalabra = " " + consulta;
+
+        PriorityQueue<Candidato> mejores = new PriorityQueue<>(limite + 1, MEJOR_PRIMERO.reversed());
+        lock.readLock().lock();
+        try {
+            Estructura indice = estructura;
+            int[] conteos = new int[indice.entradas.size()];
+            ListaEnteros tocados = new ListaEnteros();
+            for (long clave : claves) {
+                ListaEnteros slots = indice.trigramas.get(clave);
+                if (slots == null) {
+                    continue;
+                }
+                for (int i = 0; i < slots.tamano; i++) {
+                    int slot = slots.valores[i];
+                    if (conteos[slot]++ == 0) {
+                        tocados.agregar(slot);
+                    }
+                }
+            }
+
+            for (int i = 0; i < tocados.tamano; i++) {
+                int slot = tocados.valores[i];
+                EntradaIndice entrada = indice.entradas.get(slot);
+                if (conteos[slot] < minimo || entrada == null) {
+                    continue;
+                }
+                double puntaje = (double) conteos[slot] / claves.length + bonificacion(entrada, consulta, inicioPalabra);
+                mejores.add(new Candidato(entrada, puntaje));
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidato> ordenados = new ArrayList<>(mejores);
+        ordenados.sort(MEJOR_PRIMERO);
+        List<ProductoSugerenciaDTO> sugerencias = new ArrayList<>(ordenados.size());
+        for (Candidato candidato : ordenados) {
+            EntradaIndice entrada = candidato.entrada();
+            sugerencias.add(ProductoSugerenciaDTO.builder()
+                    .id(entrada.id())
+                    .codigo(entrada.codigo())
+                    .nombre(entrada.nombre())
+                    .principioActivo(entrada.principioActivo())
+                    .presentacion(entrada.presentacion())
+                    .puntaje(candidato.puntaje())
+                    .build());
+        }
+        return sugerencias;
+    }
+
+    private static double bonificacion(EntradaIndice entrada, String consulta, String inicioPalabra) {
+        double bonificacion = 0;
+        if (entrada.codigoNormalizado().equals(consulta)) {
+            bonificacion += 2;
+        } else if (entrada.codigoNormalizado().startsWith(consulta)) {
+            bonificacion += 1;
+        }
+        if (entrada.nombreNormalizado().startsWith(consulta)) {
+            bonificacion += 0.5;
+        } else if (entrada.nombreNormalizado().contains(inicioPalabra)) {
+            bonificacion += 0.25;
+        }
+        return bonificacion;
+    }
+
+    private void aplicar(Consumer<Estructura> cambio) {
+        lock.writeLock().lock();
+        try {
+            cambio.accept(estructura);
+            if (cambiosDuranteCarga != null) {
+                cambiosDuranteCarga.add(cambio);
+            }
+            if (estructura.requiereCompactar()) {
+                estructura = estructura.compactar();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private static EntradaIndice aEntrada(Producto producto) {
+        return new EntradaIndice(producto.getId(), producto.getCodigo(), producto.getNombre(),
+                producto.getPrincipioActivo(), producto.getPresentacion(),
+                normalizar(producto.getCodigo()), normalizar(producto.getNombre()), normalizar(producto.getPrincipioActivo()));
+    }
+
+    /**
+     * Minúsculas, sin tildes y con cualquier separador convertido en un espacio
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return NO_ALFANUMERICO.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Trigramas de cada palabra con un espacio antes y después (" amoxicilina ")
+     */
+    private static void trigramasIndice(String normalizado, Set<Long> destino) {
+        if (normalizado.isEmpty()) {
+            return;
+        }
+        for (String palabra : normalizado.split(" ")) {
+            agregarTrigramas(" " + palabra + " ", destino);
+        }
+    }
+
+    /**
+     * Igual que en el índice, pero la última palabra es un prefijo: sin espacio al final
+     */
+    private static long[] trigramasConsulta(String consulta) {
+        Set<Long> trigramas = new LinkedHashSet<>();
+        String[] palabras = consulta.split(" ");
+        for (int i = 0; i < palabras.length; i++) {
+            agregarTrigramas(i < palabras.length - 1 ? " " + palabras[i] + " " : " " + palabras[i], trigramas);
+        }
+        return trigramas.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void agregarTrigramas(String texto, Set<Long> destino) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            destino.add(((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2));
+        }
+    }
+
+    private record EntradaIndice(Long id, String codigo, String nombre, String principioActivo, String presentacion,
+                                 String codigoNormalizado, String nombreNormalizado, String principioNormalizado) {
+    }
+
+    private record Candidato(EntradaIndice entrada, double puntaje) {
+    }
+
+    /**
+     * Entradas por posición (slot) y, por cada trigrama, los slots que lo contienen en orden.
+     * Reindexar un producto le asigna un slot nuevo; el anterior queda vacío hasta compactar.
+     */
+    private static final class Estructura {
+
+        private final List<EntradaIndice> entradas = new ArrayList<>();
+        private final Map<Long, Integer> slotPorId = new HashMap<>();
+        private final Map<Long, ListaEnteros> trigramas = new HashMap<>();
+        private int vacios;
+
+        void agregar(EntradaIndice entrada) {
+            quitar(entrada.id());
+            int slot = entradas.size();
+            entradas.add(entrada);
+            slotPorId.put(entrada.id(), slot);
+
+            Set<Long> claves = new LinkedHashSet<>();
+            trigramasIndice(entrada.codigoNormalizado(), claves);
+            trigramasIndice(entrada.nombreNormalizado(), claves);
+            trigramasIndice(entrada.principioNormalizado(), claves);
+            for (Long clave : claves) {
+                trigramas.computeIfAbsent(clave, k -> new ListaEnteros()).agregar(slot);
+            }
+        }
+
+        void quitar(Long id) {
+            Integer slot = slotPorId.remove(id);
+            if (slot != null) {
+                entradas.set(slot, null);
+                vacios++;
+            }
+        }
+
+        boolean requiereCompactar() {
+            return vacios > 1_000 && vacios > entradas.size() / 4;
+        }
+
+        Estructura compactar() {
+            Estructura compacta = new Estructura();
+            entradas.stream().filter(entrada -> entrada != null).forEach(compacta::agregar);
+            return compacta;
+        }
+    }
+
+    private static final class ListaEnteros {
+
+        private int[] valores = new int[4];
+        private int tamano;
+
+        void agregar(int valor) {
+            if (tamano == valores.length) {
+                valores = Arrays.copyOf(valores, tamano * 2);
+            }
+            valores[tamano++] = valor;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.entity.KardexProducto;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.KardexProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Kardex valorizado por costo promedio ponderado.
+ * Cada cambio de stock deja un RegistroKardex con su valor y el saldo resultante, y actualiza el saldo
+ * vigente del producto (KardexProducto), así registrar un movimiento no requiere recorrer el historial.
+ * Las entradas con costo recalculan el promedio; las salidas, devoluciones y ajustes se valorizan al promedio vigente.
+ * Llamar con la fila del producto bloqueada (UPDATE de stock), que serializa los registros de cada producto.
+ * RF4.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Kardex {
+
+    static final int ESCALA_COSTO = 4;
+    static final int ESCALA_VALOR = 2;
+
+    private final KardexProductoRepository kardexProductoRepository;
+    private final RegistroKardexRepository registroRepository;
+
+    /**
+     * Registra en el kardex un movimiento ya guardado
+     */
+    public void registrar(MovimientoInventario movimiento) {
+        registrar(List.of(movimiento));
+    }
+
+    /**
+     * Registra en el kardex varios movimientos ya guardados, en el orden dado.
+     * Carga los saldos de todos los productos en una consulta y guarda con saveAll.
+     */
+    public void registrar(List<MovimientoInventario> movimientos) {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+        Map<Long, KardexProducto> saldos = cargarSaldos(movimientos.stream().map(MovimientoInventario::getProducto).toList());
+        List<RegistroKardex> registros = new ArrayList<>(movimientos.size());
+        for (MovimientoInventario movimiento : movimientos) {
+            BigDecimal costoEntrada = movimiento.getTipoMovimiento() == TipoMovimiento.ENTRADA
+                    ? movimiento.getCostoUnitario()
+                    : null;
+            RegistroKardex registro = aplicar(saldos, movimiento.getProducto(), movimiento.getTipoMovimiento(),
+                    movimiento.getMotivo(), movimiento.getStockAnterior(), movimiento.getStockNuevo(),
+                    costoEntrada, movimiento.getFechaMovimiento());
+            registro.setMovimiento(movimiento);
+            registros.add(registro);
+        }
+        kardexProductoRepository.saveAll(saldos.values());
+        registroRepository.saveAll(registros);
+    }
+
+    /**
+     * Registra el stock con que se creó un producto, valorizado a su precio de compra
+     */
+    public void registrarInventarioInicial(Producto producto) {
+        registrarSinMovimiento(producto, TipoMovimiento.ENTRADA, "INVENTARIO_INICIAL",
+                new CambioStock(0, producto.getStockActual()), producto.getPrecioCompra());
+    }
+
+    /**
+     * Registra el stock inicial de varios productos recién creados (importación), con un saveAll
+     */
+    public void registrarInventarioInicial(List<Producto> productos) {
+        if (productos.isEmpty()) {
+            return;
+        }
+        Map<Long, KardexProducto> saldos = cargarSaldos(productos);
+        LocalDateTime ahora = LocalDateTime.now();
+        List<RegistroKardex> registros = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            registros.add(aplicar(saldos, producto, TipoMovimiento.ENTRADA, "INVENTARIO_INICIAL",
+                    0, producto.getStockActual(), producto.getPrecioCompra(), ahora));
+        }
+        kardexProductoRepository.saveAll(saldos.values());
+        registroRepository.saveAll(registros);
+    }
+
+    /**
+     * Registra un ajuste manual de stock, valorizado al costo promedio
+     */
+    public void registrarAjuste(Producto producto, CambioStock cambio) {
+        registrarSinMovimiento(producto, TipoMovimiento.AJUSTE, "AJUSTE_MANUAL", cambio, null);
+    }
+
+    private void registrarSinMovimiento(Producto producto, TipoMovimiento tipo, String concepto,
+                                        CambioStock cambio, BigDecimal costoEntrada) {
+        Map<Long, KardexProducto> saldos = cargarSaldos(List.of(producto));
+        RegistroKardex registro = aplicar(saldos, producto, tipo, concepto, cambio.stockAnterior(), cambio.stockNuevo(),
+                costoEntrada, LocalDateTime.now());
+        kardexProductoRepository.saveAll(saldos.values());
+        registroRepository.save(registro);
+    }
+
+    private Map<Long, KardexProducto> cargarSaldos(List<Producto> productos) {
+        List<Long> ids = productos.stream().map(Producto::getId).distinct().toList();
+        return kardexProductoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(KardexProducto::getProductoId, Function.identity(), (a, b) -> a, HashMap::new));
+    }
+
+    private RegistroKardex aplicar(Map<Long, KardexProducto> saldos, Producto producto, TipoMovimiento tipo,
+                                   String concepto, int stockAnterior, int stockNuevo,
+                                   BigDecimal costoEntrada, LocalDateTime fecha) {
+        KardexProducto saldo = saldos.computeIfAbsent(producto.getId(), id -> saldoInicial(producto, stockAnterior));
+        if (saldo.getCantidad() != stockAnterior) {
+            // El stock cambió por fuera del kardex: se toma el stock real al costo promedio
+            log.warn("Kardex del producto {} con {} unidades y stock de {}; se revaloriza al costo promedio",
+                    producto.getId(), saldo.getCantidad(), stockAnterior);
+            saldo.setCantidad(stockAnterior);
+            saldo.setValor(valorar(stockAnterior, saldo.getCostoPromedio()));
+        }
+
+        int cantidad = stockNuevo - stockAnterior;
+        BigDecimal costoUnitario = cantidad > 0 && costoEntrada != null
+                ? costoEntrada
+                : costoPromedio(saldo, producto);
+        BigDecimal valorMovimiento = valorar(cantidad, costoUnitario);
+        BigDecimal valor = saldo.getValor().add(valorMovimiento);
+        if (stockNuevo <= 0) {
+            // Sin unidades no queda valor: el residuo de redondeo va en este movimiento
+            valorMovimiento = valorMovimiento.subtract(valor);
+            valor = BigDecimal.ZERO.setScale(ESCALA_VALOR);
+        } else {
+            saldo.setCostoPromedio(valor.divide(BigDecimal.valueOf(stockNuevo), ESCALA_COSTO, RoundingMode.HALF_UP));
+        }
+        saldo.setCantidad(stockNuevo);
+        saldo.setValor(valor);
+        saldo.setFechaActualizacion(fecha);
+
+        return RegistroKardex.builder()
+                .producto(producto)
+                .fecha(fecha)
+                .tipoMovimiento(tipo)
+                .concepto(concepto)
+                .cantidad(cantidad)
+                .costoUnitario(costoUnitario.setScale(ESCALA_COSTO, RoundingMode.HALF_UP))
+                .valor(valorMovimiento)
+                .saldoCantidad(stockNuevo)
+                .costoPromedio(saldo.getCostoPromedio())
+                .saldoValor(valor)
+                .build();
+    }
+
+    /**
+     * Saldo de un producto que aún no tiene kardex: su stock al precio de compra
+     */
+    private static KardexProducto saldoInicial(Producto producto, int stock) {
+        BigDecimal costo = precioCompra(producto).setScale(ESCALA_COSTO, RoundingMode.HALF_UP);
+        return KardexProducto.builder()
+                .producto(producto)
+                .cantidad(stock)
+                .costoPromedio(costo)
+                .valor(valorar(stock, costo))
+                .build();
+    }
+
+    private static BigDecimal costoPromedio(KardexProducto saldo, Producto producto) {
+        return saldo.getCostoPromedio().signum() > 0 ? saldo.getCostoPromedio() : precioCompra(producto);
+    }
+
+    private static BigDecimal precioCompra(Producto producto) {
+        return producto.getPrecioCompra() != null ? producto.getPrecioCompra() : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal valorar(int cantidad, BigDecimal costo) {
+        return costo.multiply(BigDecimal.valueOf(cantidad)).setScale(ESCALA_VALOR, RoundingMode.HALF_UP);
+    }
+}
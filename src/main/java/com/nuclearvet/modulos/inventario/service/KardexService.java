@@ -0,0 +1,200 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.inventario.dto.RegistroKardexDTO;
+import com.nuclearvet.modulos.inventario.dto.ValoracionInventarioDTO;
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
+import com.nuclearvet.modulos.inventario.mapper.KardexMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import com.nuclearvet.modulos.inventario.repository.ValoracionInventarioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de consulta del kardex valorizado y de cortes de valorización del inventario.
+ * Cada madrugada guarda el saldo de cada producto al inicio del día; la valorización a una fecha
+ * es el último corte anterior más los registros del kardex entre el corte y la fecha.
+ * Los cortes son también los puntos de control del stock a una fecha (MovimientoInventarioService).
+ * RF4.4 - Valorización del inventario
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KardexService {
+
+    /**
+     * Desde dónde se aplican los registros si no hay un corte anterior a la fecha
+     */
+    private static final LocalDateTime SIN_CORTE = LocalDate.of(2000, 1, 1).atStartOfDay();
+
+    private final RegistroKardexRepository registroRepository;
+    private final ValoracionInventarioRepository valoracionRepository;
+    private final ProductoRepository productoRepository;
+    private final KardexMapper kardexMapper;
+
+    /**
+     * Saldo de un producto a una fecha, tomado de un corte o del último registro del kardex
+     */
+    private record SaldoProducto(Producto producto, int cantidad, BigDecimal costoPromedio, BigDecimal valor) {
+    }
+
+    /**
+     * RF4.4: Kardex valorizado de un producto en un rango de fechas
+     */
+    @Transactional(readOnly = true)
+    public List<RegistroKardexDTO> listarKardex(Long productoId, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        log.info("Listando kardex del producto {} entre {} y {}", productoId, fechaInicio, fechaFin);
+
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new ConflictoException("La fecha de inicio no puede ser posterior a la fecha fin");
+        }
+        if (!productoRepository.existsById(productoId)) {
+            throw new RecursoNoEncontradoException("Producto", "id", productoId);
+        }
+
+        return registroRepository.findByProductoIdAndFechaBetweenOrderByFechaAscIdAsc(productoId, fechaInicio, fechaFin)
+                .stream()
+                .map(kardexMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.4: Valorización del inventario a una fecha, por categoría
+     */
+    @Transactional(readOnly = true)
+    public ValoracionInventarioDTO valorarInventario(LocalDateTime fecha) {
+        log.info("Valorizando inventario al {}", fecha);
+
+        LocalDateTime corte = valoracionRepository.findUltimoCorte(fecha).orElse(null);
+        Map<Long, SaldoProducto> saldos = new LinkedHashMap<>();
+        int registrosAplicados = calcularSaldos(corte, fecha, saldos);
+
+        Map<Categoria, List<SaldoProducto>> porCategoria = saldos.values().stream()
+                .filter(KardexService::tieneExistencias)
+                .collect(Collectors.groupingBy(saldo -> saldo.producto().getCategoria(), LinkedHashMap::new, Collectors.toList()));
+
+        List<ValoracionInventarioDTO.ValoracionCategoriaDTO> categorias = porCategoria.entrySet().stream()
+                .map(entrada -> ValoracionInventarioDTO.ValoracionCategoriaDTO.builder()
+                        .categoriaId(entrada.getKey().getId())
+                        .categoriaNombre(entrada.getKey().getNombre())
+                        .productos(entrada.getValue().size())
+                        .unidades(unidades(entrada.getValue()))
+                        .valor(valor(entrada.getValue()))
+                        .build())
+                .sorted(Comparator.comparing(ValoracionInventarioDTO.ValoracionCategoriaDTO::getValor).reversed())
+                .collect(Collectors.toList());
+
+        return ValoracionInventarioDTO.builder()
+                .fecha(fecha)
+                .fechaCorte(corte)
+                .registrosAplicados(registrosAplicados)
+                .totalProductos(categorias.stream().mapToInt(ValoracionInventarioDTO.ValoracionCategoriaDTO::getProductos).sum())
+                .totalUnidades(categorias.stream().mapToLong(ValoracionInventarioDTO.ValoracionCategoriaDTO::getUnidades).sum())
+                .valorTotal(categorias.stream()
+                        .map(ValoracionInventarioDTO.ValoracionCategoriaDTO::getValor)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .categorias(categorias)
+                .build();
+    }
+
+    /**
+     * Guarda el corte de valorización al inicio del día
+     */
+    @Scheduled(cron = "${inventario.kardex.corte-cron:0 10 0 * * *}")
+    @Transactional
+    public void generarCorte() {
+        generarCorte(LocalDate.now().atStartOfDay());
+    }
+
+    /**
+     * Guarda el saldo de cada producto con existencias a la fecha de corte, calculado desde el corte anterior.
+     * Si el corte ya existe no hace nada. Si otra instancia lo guarda al mismo tiempo, el índice único
+     * (fecha_corte, producto_id) rechaza este y la transacción se revierte sin error.
+     * Devuelve cuántos productos se guardaron.
+     */
+    int generarCorte(LocalDateTime fechaCorte) {
+        if (valoracionRepository.existsByFechaCorte(fechaCorte)) {
+            log.debug("El corte de valorización {} ya existe", fechaCorte);
+            return 0;
+        }
+        LocalDateTime anterior = valoracionRepository.findUltimoCorte(fechaCorte).orElse(null);
+        Map<Long, SaldoProducto> saldos = new LinkedHashMap<>();
+        int registrosAplicados = calcularSaldos(anterior, fechaCorte, saldos);
+
+        List<ValoracionInventario> valoraciones = saldos.values().stream()
+                .filter(KardexService::tieneExistencias)
+                .map(saldo -> ValoracionInventario.builder()
+                        .fechaCorte(fechaCorte)
+                        .producto(saldo.producto())
+                        .cantidad(saldo.cantidad())
+                        .costoPromedio(saldo.costoPromedio())
+                        .valor(saldo.valor())
+                        .build())
+                .collect(Collectors.toList());
+        try {
+            valoracionRepository.saveAllAndFlush(valoraciones);
+        } catch (DataIntegrityViolationException e) {
+            log.info("El corte de valorización {} lo guardó otra instancia; se descarta este", fechaCorte);
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            return 0;
+        }
+
+        log.info("Corte de valorización {}: {} productos, {} registros del kardex desde el corte {}",
+                fechaCorte, valoraciones.size(), registrosAplicados, anterior);
+        return valoraciones.size();
+    }
+
+    /**
+     * Carga en saldos los del corte y aplica encima los registros posteriores hasta la fecha.
+     * El último registro de cada producto trae su saldo, así que basta con quedarse con él.
+     */
+    private int calcularSaldos(LocalDateTime corte, LocalDateTime fecha, Map<Long, SaldoProducto> saldos) {
+        if (corte != null) {
+            for (ValoracionInventario valoracion : valoracionRepository.findByFechaCorteConProducto(corte)) {
+                saldos.put(valoracion.getProducto().getId(), new SaldoProducto(valoracion.getProducto(),
+                        valoracion.getCantidad(), valoracion.getCostoPromedio(), valoracion.getValor()));
+            }
+        }
+        List<RegistroKardex> registros = registroRepository.findParaValoracion(corte != null ? corte : SIN_CORTE, fecha);
+        for (RegistroKardex registro : registros) {
+            saldos.put(registro.getProducto().getId(), new SaldoProducto(registro.getProducto(),
+                    registro.getSaldoCantidad(), registro.getCostoPromedio(), registro.getSaldoValor()));
+        }
+        return registros.size();
+    }
+
+    private static boolean tieneExistencias(SaldoProducto saldo) {
+        return saldo.cantidad() != 0 || saldo.valor().signum() != 0;
+    }
+
+    private static long unidades(Collection<SaldoProducto> saldos) {
+        return saldos.stream().mapToLong(SaldoProducto::cantidad).sum();
+    }
+
+    private static BigDecimal valor(Collection<SaldoProducto> saldos) {
+        return saldos.stream().map(SaldoProducto::valor).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -2,23 +2,47 @@ package com.nuclearvet.modulos.inventario.service;
 
 import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.dto.ExistenciaPeriodoDTO;
 import com.nuclearvet.modulos.inventario.dto.MovimientoInventarioDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarEntregaProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.RegistrarMovimientoDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarTransferenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoEntregaProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.StockHistoricoDTO;
 import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
 import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.Proveedor;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
 import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
 import com.nuclearvet.modulos.inventario.mapper.MovimientoInventarioMapper;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
 import com.nuclearvet.modulos.inventario.repository.MovimientoInventarioRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import com.nuclearvet.modulos.inventario.repository.ValoracionInventarioRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -32,73 +56,324 @@ public class MovimientoInventarioService {
 
     private final MovimientoInventarioRepository movimientoRepository;
     private final ProductoRepository productoRepository;
+    private final StockProductos stockProductos;
     private final ProveedorRepository proveedorRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ValoracionInventarioRepository valoracionRepository;
+    private final RegistroKardexRepository registroKardexRepository;
+    private final AsignadorLotesFefo asignadorLotes;
+    private final StockUbicaciones stockUbicaciones;
+    private final DetectorStockMinimo detectorStockMinimo;
+    private final EstadisticasConsumo estadisticasConsumo;
+    private final Kardex kardex;
     private final MovimientoInventarioMapper movimientoMapper;
 
     /**
-     * RF4.4: Registrar un movimiento de inventario (ENTRADA/SALIDA/AJUSTE/DEVOLUCION)
+     * RF4.4: Registrar un movimiento de inventario (ENTRADA/SALIDA/AJUSTE/DEVOLUCION).
+     * El stock se actualiza con un UPDATE condicional en la base de datos, y el stock
+     * anterior y nuevo del movimiento son los que dejó ese UPDATE.
+     * Las salidas se descuentan de los lotes que vencen primero (FEFO).
+     * El cambio se aplica en la ubicación indicada, o en la principal si no viene.
+     * El movimiento se valoriza en el kardex a costo promedio ponderado.
      */
     @Transactional
     public MovimientoInventarioDTO registrarMovimiento(RegistrarMovimientoDTO dto) {
         log.info("Registrando movimiento de tipo {} para producto ID {}", dto.getTipoMovimiento(), dto.getProductoId());
 
-        Producto producto = productoRepository.findById(dto.getProductoId())
-                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", dto.getProductoId()));
-
         TipoMovimiento tipo = TipoMovimiento.valueOf(dto.getTipoMovimiento());
-        Integer stockAnterior = producto.getStockActual();
-        Integer nuevoStock = calcularNuevoStock(stockAnterior, dto.getCantidad(), tipo);
-
-        // Validar que el stock no quede negativo
-        if (nuevoStock < 0) {
-            throw new ConflictoException(
-                String.format("Stock insuficiente para %s. Stock actual: %d, cantidad solicitada: %d", 
-                    producto.getNombre(), stockAnterior, dto.getCantidad())
-            );
+        Long productoId = dto.getProductoId();
+        Integer cantidad = dto.getCantidad();
+
+        if (tipo == TipoMovimiento.AJUSTE && cantidad < 0) {
+            throw new ValidacionException("El stock no puede ser negativo, parce");
         }
 
-        // Validar stock máximo en entradas
-        if (tipo == TipoMovimiento.ENTRADA && producto.getStockMaximo() != null && nuevoStock > producto.getStockMaximo()) {
-            throw new ConflictoException(
-                String.format("El movimiento excede el stock máximo permitido (%d). Stock resultante: %d", 
-                    producto.getStockMaximo(), nuevoStock)
-            );
+        // Resolver el proveedor antes de bloquear la fila del producto
+        Proveedor proveedor = null;
+        if (dto.getProveedorId() != null) {
+            proveedor = proveedorRepository.findById(dto.getProveedorId())
+                    .orElseThrow(() -> new RecursoNoEncontradoException("Proveedor", "id", dto.getProveedorId()));
+        }
+        Ubicacion ubicacion = stockUbicaciones.resolver(dto.getUbicacionId());
+
+        CambioStock cambio = switch (tipo) {
+            case SALIDA -> stockProductos.descontarStockAtomico(productoId, cantidad)
+                    .orElseThrow(() -> errorDeStock(productoId, cantidad, tipo));
+            case ENTRADA -> stockProductos.sumarStockAtomico(productoId, cantidad, true)
+                    .orElseThrow(() -> errorDeStock(productoId, cantidad, tipo));
+            case DEVOLUCION -> stockProductos.sumarStockAtomico(productoId, cantidad, false)
+                    .orElseThrow(() -> errorDeStock(productoId, cantidad, tipo));
+            case AJUSTE -> stockProductos.fijarStockAtomico(productoId, cantidad)
+                    .orElseThrow(() -> errorDeStock(productoId, cantidad, tipo));
+            case TRANSFERENCIA -> throw new ValidacionException(
+                    "Las transferencias entre ubicaciones se registran en /api/movimientos/transferencias");
+        };
+
+        // Llevar el cambio a los lotes; la fila del producto sigue bloqueada por el UPDATE
+        Producto producto = productoRepository.getReferenceById(productoId);
+        switch (tipo) {
+            case SALIDA -> {
+                asignadorLotes.descontar(producto, cantidad, cambio.stockAnterior());
+                estadisticasConsumo.registrarSalida(producto, cantidad, LocalDate.now());
+            }
+            case ENTRADA -> asignadorLotes.registrarEntrada(producto, cantidad, dto.getLote(),
+                    dto.getFechaVencimiento(), cambio.stockAnterior());
+            case DEVOLUCION -> asignadorLotes.registrarDevolucion(producto, cantidad, cambio.stockAnterior());
+            case AJUSTE -> asignadorLotes.ajustar(producto, cambio);
         }
+        stockUbicaciones.registrarCambio(producto, ubicacion, cambio);
+        detectorStockMinimo.registrarCambio(producto, cambio);
 
         // Crear movimiento
         MovimientoInventario movimiento = movimientoMapper.toEntity(dto);
         movimiento.setProducto(producto);
-        movimiento.setStockAnterior(stockAnterior);
-        movimiento.setStockNuevo(nuevoStock);
+        movimiento.setStockAnterior(cambio.stockAnterior());
+        movimiento.setStockNuevo(cambio.stockNuevo());
         movimiento.setFechaMovimiento(LocalDateTime.now());
+        movimiento.setProveedor(proveedor);
+        movimiento.setUbicacion(ubicacion);
 
-        // Asignar proveedor si es ENTRADA o DEVOLUCION
-        if (dto.getProveedorId() != null) {
-            movimiento.setProveedor(proveedorRepository.findById(dto.getProveedorId())
-                    .orElseThrow(() -> new RecursoNoEncontradoException("Proveedor", "id", dto.getProveedorId())));
-        }
-
-        // Actualizar stock del producto
-        producto.setStockActual(nuevoStock);
-        productoRepository.save(producto);
         movimiento = movimientoRepository.save(movimiento);
+        kardex.registrar(movimiento);
 
         log.info("Movimiento registrado con ID: {}. Stock actualizado de {} a {}", 
-            movimiento.getId(), stockAnterior, nuevoStock);
+            movimiento.getId(), cambio.stockAnterior(), cambio.stockNuevo());
         
         return movimientoMapper.toDTO(movimiento);
     }
 
     /**
-     * Calcular el nuevo stock basado en el tipo de movimiento
+     * RF4.4: Registrar como SALIDA unidades que estaban reservadas para una cita (ReservaStockService).
+     * Descuenta stock y reservado en el mismo UPDATE condicional y sigue igual que una salida:
+     * lotes FEFO, ubicación de la reserva (la principal si es null), consumo diario, stock mínimo y kardex.
      */
-    private Integer calcularNuevoStock(Integer stockActual, Integer cantidad, TipoMovimiento tipo) {
-        return switch (tipo) {
-            case ENTRADA -> stockActual + cantidad;
-            case SALIDA -> stockActual - cantidad;
-            case AJUSTE -> cantidad; // En ajuste, la cantidad es el nuevo stock absoluto
-            case DEVOLUCION -> stockActual + cantidad; // Devolución suma al stock
-        };
+    @Transactional
+    public MovimientoInventario registrarConsumoReserva(Long productoId, Ubicacion ubicacion, int cantidad, String motivo,
+                                                        String numeroDocumento, Usuario usuario) {
+        CambioStock cambio = stockProductos.consumirReservaAtomico(productoId, cantidad)
+                .orElseThrow(() -> new ConflictoException(String.format(
+                        "El producto %d no tiene %d unidades reservadas en stock para consumir", productoId, cantidad)));
+
+        Producto producto = productoRepository.getReferenceById(productoId);
+        Ubicacion origen = ubicacion != null ? ubicacion : stockUbicaciones.resolver(null);
+        asignadorLotes.descontar(producto, cantidad, cambio.stockAnterior());
+        stockUbicaciones.registrarCambio(producto, origen, cambio);
+        estadisticasConsumo.registrarSalida(producto, cantidad, LocalDate.now());
+        detectorStockMinimo.registrarCambio(producto, cambio);
+
+        MovimientoInventario movimiento = movimientoRepository.save(MovimientoInventario.builder()
+                .producto(producto)
+                .tipoMovimiento(TipoMovimiento.SALIDA)
+                .cantidad(cantidad)
+                .stockAnterior(cambio.stockAnterior())
+                .stockNuevo(cambio.stockNuevo())
+                .fechaMovimiento(LocalDateTime.now())
+                .motivo(motivo)
+                .numeroDocumento(numeroDocumento)
+                .usuario(usuario)
+                .ubicacion(origen)
+                .build());
+        kardex.registrar(movimiento);
+
+        log.info("Consumo de reserva registrado con ID: {}. Stock del producto {} de {} a {}",
+                movimiento.getId(), productoId, cambio.stockAnterior(), cambio.stockNuevo());
+        return movimiento;
+    }
+
+    /**
+     * RF4.4: Registrar todas las líneas de una entrega de proveedor en una sola transacción.
+     * Carga proveedor y productos en bloque (productos bloqueados, en orden de id), valida
+     * toda la entrega antes de tocar el stock y guarda stock y movimientos con saveAll
+     * para que Hibernate los envíe en batches JDBC. Cada línea ingresa a su lote y la entrega
+     * queda en la ubicación principal.
+     */
+    @Transactional
+    public ResultadoEntregaProveedorDTO registrarEntregaProveedor(RegistrarEntregaProveedorDTO dto) {
+        List<RegistrarEntregaProveedorDTO.LineaEntregaDTO> lineas = dto.getLineas();
+        log.info("Registrando entrega del proveedor {} con {} líneas", dto.getProveedorId(), lineas.size());
+
+        Proveedor proveedor = proveedorRepository.findById(dto.getProveedorId())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Proveedor", "id", dto.getProveedorId()));
+        Usuario usuario = usuarioRepository.findById(dto.getUsuarioId())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Usuario", "id", dto.getUsuarioId()));
+
+        Set<Long> productoIds = new LinkedHashSet<>();
+        lineas.forEach(linea -> productoIds.add(linea.getProductoId()));
+        Map<Long, Producto> productos = productoRepository.findAllByIdParaActualizar(productoIds).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        // Validar toda la entrega; un producto puede venir en varias líneas, el stock se encadena
+        Map<Long, Integer> stockResultante = new HashMap<>();
+        List<ResultadoEntregaProveedorDTO.LineaResultadoDTO> resultados = new ArrayList<>(lineas.size());
+        int lineasConError = 0;
+        int unidades = 0;
+        BigDecimal costoTotal = BigDecimal.ZERO;
+        for (int i = 0; i < lineas.size(); i++) {
+            RegistrarEntregaProveedorDTO.LineaEntregaDTO linea = lineas.get(i);
+            Producto producto = productos.get(linea.getProductoId());
+            ResultadoEntregaProveedorDTO.LineaResultadoDTO resultado = ResultadoEntregaProveedorDTO.LineaResultadoDTO.builder()
+                    .linea(i + 1)
+                    .productoId(linea.getProductoId())
+                    .cantidad(linea.getCantidad())
+                    .build();
+            resultados.add(resultado);
+
+            if (producto == null) {
+                resultado.setError("Producto no encontrado");
+                lineasConError++;
+                continue;
+            }
+            resultado.setProductoCodigo(producto.getCodigo());
+            resultado.setProductoNombre(producto.getNombre());
+
+            int stockAnterior = stockResultante.getOrDefault(producto.getId(), producto.getStockActual());
+            int stockNuevo = stockAnterior + linea.getCantidad();
+            resultado.setStockAnterior(stockAnterior);
+            resultado.setStockNuevo(stockNuevo);
+
+            if (!Boolean.TRUE.equals(producto.getActivo())) {
+                resultado.setError("El producto está inactivo");
+                lineasConError++;
+            } else if (producto.getStockMaximo() != null && stockNuevo > producto.getStockMaximo()) {
+                resultado.setError(String.format("El movimiento excede el stock máximo permitido (%d). Stock resultante: %d",
+                        producto.getStockMaximo(), stockNuevo));
+                lineasConError++;
+            } else {
+                stockResultante.put(producto.getId(), stockNuevo);
+                unidades += linea.getCantidad();
+                if (linea.getCostoUnitario() != null) {
+                    costoTotal = costoTotal.add(linea.getCostoUnitario().multiply(BigDecimal.valueOf(linea.getCantidad())));
+                }
+            }
+        }
+
+        ResultadoEntregaProveedorDTO.ResultadoEntregaProveedorDTOBuilder respuesta = ResultadoEntregaProveedorDTO.builder()
+                .proveedorId(proveedor.getId())
+                .proveedorNombre(proveedor.getNombre())
+                .numeroDocumento(dto.getNumeroDocumento())
+                .lineasConError(lineasConError)
+                .lineas(resultados);
+
+        if (lineasConError > 0) {
+            log.warn("Entrega del proveedor {} rechazada: {} de {} líneas con error",
+                    dto.getProveedorId(), lineasConError, lineas.size());
+            return respuesta.aplicada(false).unidadesRecibidas(0).costoTotal(BigDecimal.ZERO).build();
+        }
+
+        // Aplicar: un UPDATE por producto y un INSERT por línea, enviados en batches
+        Ubicacion principal = stockUbicaciones.resolver(null);
+        LocalDateTime ahora = LocalDateTime.now();
+        List<MovimientoInventario> movimientos = new ArrayList<>(lineas.size());
+        for (int i = 0; i < lineas.size(); i++) {
+            RegistrarEntregaProveedorDTO.LineaEntregaDTO linea = lineas.get(i);
+            ResultadoEntregaProveedorDTO.LineaResultadoDTO resultado = resultados.get(i);
+            movimientos.add(MovimientoInventario.builder()
+                    .producto(productos.get(linea.getProductoId()))
+                    .tipoMovimiento(TipoMovimiento.ENTRADA)
+                    .cantidad(linea.getCantidad())
+                    .stockAnterior(resultado.getStockAnterior())
+                    .stockNuevo(resultado.getStockNuevo())
+                    .fechaMovimiento(ahora)
+                    .motivo("COMPRA")
+                    .observaciones(linea.getObservaciones() != null ? linea.getObservaciones() : dto.getObservaciones())
+                    .numeroDocumento(dto.getNumeroDocumento())
+                    .costoUnitario(linea.getCostoUnitario())
+                    .usuario(usuario)
+                    .proveedor(proveedor)
+                    .ubicacion(principal)
+                    .build());
+        }
+        for (int i = 0; i < lineas.size(); i++) {
+            RegistrarEntregaProveedorDTO.LineaEntregaDTO linea = lineas.get(i);
+            asignadorLotes.registrarEntrada(productos.get(linea.getProductoId()), linea.getCantidad(),
+                    linea.getLote(), linea.getFechaVencimiento(), resultados.get(i).getStockAnterior());
+        }
+        stockResultante.forEach((productoId, stock) -> {
+            Producto producto = productos.get(productoId);
+            CambioStock cambio = new CambioStock(producto.getStockActual(), stock);
+            stockUbicaciones.registrarCambio(producto, principal, cambio);
+            detectorStockMinimo.registrarCambio(producto, cambio);
+            producto.setStockActual(stock);
+        });
+
+        productoRepository.saveAll(productos.values());
+        movimientos = movimientoRepository.saveAll(movimientos);
+        kardex.registrar(movimientos);
+        for (int i = 0; i < movimientos.size(); i++) {
+            resultados.get(i).setMovimientoId(movimientos.get(i).getId());
+        }
+
+        log.info("Entrega del proveedor {} registrada: {} líneas, {} unidades", dto.getProveedorId(), lineas.size(), unidades);
+        return respuesta.aplicada(true).unidadesRecibidas(unidades).costoTotal(costoTotal).build();
+    }
+
+    /**
+     * RF4.4: Transferir unidades de un producto entre dos ubicaciones.
+     * El stock total no cambia, así que no pasa por lotes ni kardex: bloquea la fila del producto
+     * (UPDATE que suma 0) para ordenarse con los demás movimientos del producto y mueve las unidades
+     * con un UPDATE condicional en el origen y otro en el destino, en la misma transacción.
+     */
+    @Transactional
+    public MovimientoInventarioDTO registrarTransferencia(RegistrarTransferenciaDTO dto) {
+        log.info("Transfiriendo {} unidades del producto {} de la ubicación {} a la {}",
+                dto.getCantidad(), dto.getProductoId(), dto.getUbicacionOrigenId(), dto.getUbicacionDestinoId());
+
+        if (dto.getUbicacionOrigenId().equals(dto.getUbicacionDestinoId())) {
+            throw new ValidacionException("La ubicación de origen y la de destino deben ser distintas");
+        }
+        Ubicacion origen = stockUbicaciones.resolver(dto.getUbicacionOrigenId());
+        Ubicacion destino = stockUbicaciones.resolver(dto.getUbicacionDestinoId());
+        Usuario usuario = usuarioRepository.findById(dto.getUsuarioId())
+                .orElseThrow(() -> new RecursoNoEncontradoException("Usuario", "id", dto.getUsuarioId()));
+
+        CambioStock cambio = stockProductos.sumarStockAtomico(dto.getProductoId(), 0, false)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", dto.getProductoId()));
+        Producto producto = productoRepository.getReferenceById(dto.getProductoId());
+        stockUbicaciones.transferir(producto, origen, destino, dto.getCantidad());
+
+        MovimientoInventario movimiento = movimientoRepository.save(MovimientoInventario.builder()
+                .producto(producto)
+                .tipoMovimiento(TipoMovimiento.TRANSFERENCIA)
+                .cantidad(dto.getCantidad())
+                .stockAnterior(cambio.stockNuevo())
+                .stockNuevo(cambio.stockNuevo())
+                .fechaMovimiento(LocalDateTime.now())
+                .motivo("TRANSFERENCIA")
+                .observaciones(dto.getObservaciones())
+                .numeroDocumento(dto.getNumeroDocumento())
+                .usuario(usuario)
+                .ubicacion(origen)
+                .ubicacionDestino(destino)
+                .build());
+
+        log.info("Transferencia registrada con ID: {}", movimiento.getId());
+        return movimientoMapper.toDTO(movimiento);
+    }
+
+    /**
+     * Explica por qué no se aplicó el UPDATE condicional de stock
+     */
+    private RuntimeException errorDeStock(Long productoId, Integer cantidad, TipoMovimiento tipo) {
+        Producto producto = productoRepository.findById(productoId).orElse(null);
+        if (producto == null) {
+            return new RecursoNoEncontradoException("Producto", "id", productoId);
+        }
+        if (tipo == TipoMovimiento.ENTRADA) {
+            return new ConflictoException(
+                String.format("El movimiento excede el stock máximo permitido (%d). Stock resultante: %d", 
+                    producto.getStockMaximo(), producto.getStockActual() + cantidad)
+            );
+        }
+        if (tipo == TipoMovimiento.AJUSTE) {
+            return new ConflictoException(
+                String.format("El stock no puede quedar por debajo de las unidades reservadas para citas (%d). Stock solicitado: %d",
+                    producto.getStockReservado(), cantidad)
+            );
+        }
+        return new ConflictoException(
+            String.format("Stock insuficiente para %s. Stock disponible: %d, cantidad solicitada: %d", 
+                producto.getNombre(), producto.stockDisponible(), cantidad)
+        );
     }
 
     /**
@@ -162,6 +437,98 @@ public class MovimientoInventarioService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * RF4.4: Stock de un producto a una fecha pasada.
+     * Parte del último punto de control anterior a la fecha (corte diario del kardex, ver KardexService)
+     * y toma el saldo del último registro del kardex entre el corte y la fecha, así nunca recorre
+     * más de un día de historial. Antes del primer corte se reconstruye con el movimiento más cercano.
+     */
+    @Transactional(readOnly = true)
+    public StockHistoricoDTO obtenerStockAFecha(Long productoId, LocalDateTime fecha) {
+        log.info("Consultando stock del producto {} al {}", productoId, fecha);
+
+        Producto producto = productoRepository.findById(productoId)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", productoId));
+        StockHistoricoDTO.StockHistoricoDTOBuilder respuesta = StockHistoricoDTO.builder()
+                .productoId(producto.getId())
+                .productoCodigo(producto.getCodigo())
+                .productoNombre(producto.getNombre())
+                .fecha(fecha);
+
+        Optional<LocalDateTime> corte = valoracionRepository.findUltimoCorte(fecha);
+        if (corte.isPresent()) {
+            // Un producto sin fila en el corte no tenía existencias
+            int stock = registroKardexRepository
+                    .findFirstByProductoIdAndFechaGreaterThanAndFechaLessThanEqualOrderByFechaDescIdDesc(productoId, corte.get(), fecha)
+                    .map(RegistroKardex::getSaldoCantidad)
+                    .orElseGet(() -> valoracionRepository.findByFechaCorteAndProductoId(corte.get(), productoId)
+                            .map(ValoracionInventario::getCantidad)
+                            .orElse(0));
+            return respuesta.stock(stock).fechaPuntoControl(corte.get()).build();
+        }
+
+        // Sin corte: el stock que dejó el último movimiento hasta la fecha, o el que encontró el primero después
+        int stock = movimientoRepository
+                .findFirstByProductoIdAndFechaMovimientoLessThanEqualOrderByFechaMovimientoDescIdDesc(productoId, fecha)
+                .map(MovimientoInventario::getStockNuevo)
+                .or(() -> movimientoRepository
+                        .findFirstByProductoIdAndFechaMovimientoGreaterThanOrderByFechaMovimientoAscIdAsc(productoId, fecha)
+                        .map(MovimientoInventario::getStockAnterior))
+                .orElse(0);
+        return respuesta.stock(stock).build();
+    }
+
+    /**
+     * RF4.4: Existencias de todos los productos en un rango de fechas (stock inicial, entradas, salidas y stock final).
+     * Se calcula en una pasada: saldos del último punto de control anterior al inicio más los registros
+     * del kardex desde el corte hasta el fin del rango.
+     */
+    @Transactional(readOnly = true)
+    public List<ExistenciaPeriodoDTO> reporteExistencias(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        log.info("Calculando existencias entre {} y {}", fechaInicio, fechaFin);
+
+        if (fechaInicio.isAfter(fechaFin)) {
+            throw new ConflictoException("La fecha de inicio no puede ser posterior a la fecha fin");
+        }
+        LocalDateTime corte = valoracionRepository.findUltimoCorte(fechaInicio)
+                .orElseThrow(() -> new ValidacionException(
+                        "No hay puntos de control de stock anteriores a " + fechaInicio.toLocalDate()));
+
+        Map<Long, ExistenciaPeriodoDTO> existencias = new HashMap<>();
+        for (ValoracionInventario valoracion : valoracionRepository.findByFechaCorteConProducto(corte)) {
+            existencias.put(valoracion.getProducto().getId(), existencia(valoracion.getProducto(), valoracion.getCantidad()));
+        }
+        for (RegistroKardex registro : registroKardexRepository.findParaValoracion(corte, fechaFin)) {
+            ExistenciaPeriodoDTO existencia = existencias.computeIfAbsent(registro.getProducto().getId(),
+                    id -> existencia(registro.getProducto(), registro.getSaldoCantidad() - registro.getCantidad()));
+            if (!registro.getFecha().isAfter(fechaInicio)) {
+                existencia.setStockInicial(registro.getSaldoCantidad());
+            } else if (registro.getCantidad() > 0) {
+                existencia.setEntradas(existencia.getEntradas() + registro.getCantidad());
+            } else {
+                existencia.setSalidas(existencia.getSalidas() - registro.getCantidad());
+            }
+            existencia.setStockFinal(registro.getSaldoCantidad());
+        }
+
+        return existencias.values().stream()
+                .filter(e -> e.getStockInicial() != 0 || e.getEntradas() != 0 || e.getSalidas() != 0 || e.getStockFinal() != 0)
+                .sorted(Comparator.comparing(ExistenciaPeriodoDTO::getProductoNombre))
+                .collect(Collectors.toList());
+    }
+
+    private static ExistenciaPeriodoDTO existencia(Producto producto, int stock) {
+        return ExistenciaPeriodoDTO.builder()
+                .productoId(producto.getId())
+                .productoCodigo(producto.getCodigo())
+                .productoNombre(producto.getNombre())
+                .stockInicial(stock)
+                .entradas(0)
+                .salidas(0)
+                .stockFinal(stock)
+                .build();
+    }
+
     /**
      * Listar movimientos del día actual
      */
@@ -4,18 +4,24 @@ import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
 import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.LoteProductoDTO;
 import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ProductoSugerenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResumenAlertasInventarioDTO;
 import com.nuclearvet.modulos.inventario.entity.Categoria;
 import com.nuclearvet.modulos.inventario.entity.Producto;
 import com.nuclearvet.modulos.inventario.entity.Proveedor;
 import com.nuclearvet.modulos.inventario.mapper.ProductoMapper;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
 import com.nuclearvet.modulos.inventario.repository.CategoriaRepository;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,10 +37,25 @@ import java.util.stream.Collectors;
 public class ProductoService {
 
     private final ProductoRepository productoRepository;
+    private final StockProductos stockProductos;
     private final CategoriaRepository categoriaRepository;
     private final ProveedorRepository proveedorRepository;
+    private final LoteProductoRepository loteRepository;
+    private final AsignadorLotesFefo asignadorLotes;
+    private final StockUbicaciones stockUbicaciones;
+    private final DetectorStockMinimo detectorStockMinimo;
+    private final DifusorAlertasInventario difusorAlertas;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final AlertasInventario alertas;
+    private final Kardex kardex;
+    private final CacheProductos cacheProductos;
     private final ProductoMapper productoMapper;
 
+    /**
+     * Número máximo de sugerencias del autocompletado
+     */
+    private static final int LIMITE_MAXIMO_SUGERENCIAS = 50;
+
     /**
      * RF4.1: Crear un nuevo producto
      */
@@ -74,6 +95,16 @@ public class ProductoService {
         producto.setProveedor(proveedor);
 
         producto = productoRepository.save(producto);
+        if (producto.getStockActual() != null && producto.getStockActual() > 0) {
+            // El stock inicial queda en el lote con que se creó el producto, en la ubicación principal
+            asignadorLotes.registrarEntrada(producto, producto.getStockActual(),
+                    producto.getLote(), producto.getFechaVencimiento(), 0);
+            stockUbicaciones.registrarInventarioInicial(List.of(producto));
+            kardex.registrarInventarioInicial(producto);
+        }
+        indiceBusqueda.registrar(producto);
+        alertas.registrarProducto(producto);
+        cacheProductos.invalidar(producto.getId());
         log.info("Producto creado exitosamente con ID: {}", producto.getId());
         return productoMapper.toDTO(producto);
     }
@@ -117,30 +148,37 @@ public class ProductoService {
         producto.setProveedor(proveedor);
 
         producto = productoRepository.save(producto);
+        indiceBusqueda.registrar(producto);
+        alertas.registrarProducto(producto);
+        cacheProductos.invalidar(producto.getId());
         log.info("Producto actualizado: {}", id);
         return productoMapper.toDTO(producto);
     }
 
     /**
-     * RF4.1: Obtener producto por ID
+     * RF4.1: Obtener producto por ID.
+     * Se sirve desde CacheProductos; sin @Transactional para que un acierto no abra una transacción
+     * (si no está en caché, el producto se carga con su categoría y proveedor en una consulta).
      */
-    @Transactional(readOnly = true)
     public ProductoDTO obtenerPorId(Long id) {
-        log.debug("Buscando producto con ID: {}", id);
-        Producto producto = productoRepository.findById(id)
-                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", id));
-        return productoMapper.toDTO(producto);
+        return cacheProductos.obtenerPorId(id, () -> {
+            log.debug("Buscando producto con ID: {}", id);
+            Producto producto = productoRepository.findConRelacionesById(id)
+                    .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", id));
+            return productoMapper.toDTO(producto);
+        });
     }
 
     /**
-     * RF4.1: Obtener producto por código
+     * RF4.1: Obtener producto por código (escaneo en caja), servido desde CacheProductos como obtenerPorId
      */
-    @Transactional(readOnly = true)
     public ProductoDTO obtenerPorCodigo(String codigo) {
-        log.debug("Buscando producto con código: {}", codigo);
-        Producto producto = productoRepository.findByCodigo(codigo)
-                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "codigo", codigo));
-        return productoMapper.toDTO(producto);
+        return cacheProductos.obtenerPorCodigo(codigo, () -> {
+            log.debug("Buscando producto con código: {}", codigo);
+            Producto producto = productoRepository.findConRelacionesByCodigo(codigo)
+                    .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "codigo", codigo));
+            return productoMapper.toDTO(producto);
+        });
     }
 
     /**
@@ -230,6 +268,36 @@ public class ProductoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * RF4.3: Resumen de alertas del inventario.
+     * Lee los conteos que AlertasInventario mantiene en memoria; mientras se cargan al arrancar
+     * los calcula con las consultas de cada alerta.
+     */
+    public ResumenAlertasInventarioDTO obtenerResumenAlertas() {
+        if (alertas.estaCargado()) {
+            return alertas.resumen();
+        }
+
+        log.debug("Alertas de inventario sin cargar, se cuentan desde la base de datos");
+        LocalDate hoy = LocalDate.now();
+        int bajoStock = productoRepository.findProductosConBajoStock().size();
+        int proximosVencer = productoRepository.findProductosProximosAVencer(hoy, hoy.plusDays(30)).size();
+        int vencidos = productoRepository.findProductosVencidos().size();
+        return ResumenAlertasInventarioDTO.builder()
+                .productosBajoStock(bajoStock)
+                .productosProximosVencer(proximosVencer)
+                .productosVencidos(vencidos)
+                .totalAlertas(bajoStock + proximosVencer + vencidos)
+                .build();
+    }
+
+    /**
+     * RF4.3: Suscribe un dashboard a los cruces del stock mínimo en vivo (SSE)
+     */
+    public SseEmitter suscribirAlertasStock() {
+        return difusorAlertas.suscribir();
+    }
+
     /**
      * Buscar productos por nombre
      */
@@ -242,6 +310,32 @@ public class ProductoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * RF4.1: Autocompletado del buscador de productos por nombre, código o principio activo.
+     * Responde desde el índice en memoria, sin transacción ni consulta a la base de datos;
+     * mientras el índice se carga al arrancar usa la búsqueda por nombre en base de datos.
+     */
+    public List<ProductoSugerenciaDTO> autocompletar(String texto, int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_SUGERENCIAS) {
+            throw new ValidacionException("El límite de sugerencias debe estar entre 1 y " + LIMITE_MAXIMO_SUGERENCIAS);
+        }
+        if (indiceBusqueda.estaCargado()) {
+            return indiceBusqueda.buscar(texto, limite);
+        }
+
+        log.debug("Índice de búsqueda sin cargar, autocompletando desde la base de datos");
+        return productoRepository.findByNombreContainingIgnoreCaseAndActivoTrue(texto).stream()
+                .limit(limite)
+                .map(producto -> ProductoSugerenciaDTO.builder()
+                        .id(producto.getId())
+                        .codigo(producto.getCodigo())
+                        .nombre(producto.getNombre())
+                        .principioActivo(producto.getPrincipioActivo())
+                        .presentacion(producto.getPresentacion())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
     /**
      * Desactivar un producto
      */
@@ -253,11 +347,32 @@ public class ProductoService {
         
         producto.setActivo(false);
         productoRepository.save(producto);
+        indiceBusqueda.quitar(id);
+        alertas.registrarProducto(producto);
+        cacheProductos.invalidar(producto.getId());
         log.info("Producto desactivado: {}", id);
     }
 
     /**
-     * Ajustar stock de un producto manualmente
+     * RF4.3: Listar los lotes de un producto en el orden en que salen (FEFO)
+     */
+    @Transactional(readOnly = true)
+    public List<LoteProductoDTO> listarLotes(Long productoId) {
+        log.debug("Listando lotes del producto ID: {}", productoId);
+        if (!productoRepository.existsById(productoId)) {
+            throw new RecursoNoEncontradoException("Producto", "id", productoId);
+        }
+        return loteRepository.findByProductoIdEnOrdenFefo(productoId).stream()
+                .map(productoMapper::toLoteDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ajustar stock de un producto manualmente.
+     * Se fija con un UPDATE directo, sin leer-modificar-guardar la entidad, y los lotes
+     * se llevan al nuevo stock (si baja, se descuenta de los que vencen primero).
+     * La diferencia se aplica en la ubicación principal. El stock no puede quedar por debajo
+     * de las unidades reservadas para citas.
      */
     @Transactional
     public ProductoDTO ajustarStock(Long id, Integer nuevoStock) {
@@ -267,13 +382,27 @@ public class ProductoService {
             throw new ValidacionException("El stock no puede ser negativo, parce");
         }
 
+        CambioStock cambio = stockProductos.fijarStockAtomico(id, nuevoStock)
+                .orElseThrow(() -> errorDeAjuste(id, nuevoStock));
+        
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", id));
-        
-        producto.setStockActual(nuevoStock);
-        producto = productoRepository.save(producto);
+        asignadorLotes.ajustar(producto, cambio);
+        stockUbicaciones.registrarCambio(producto, stockUbicaciones.resolver(null), cambio);
+        detectorStockMinimo.registrarCambio(producto, cambio);
+        kardex.registrarAjuste(producto, cambio);
         
         log.info("Stock ajustado para producto {}: {} unidades", id, nuevoStock);
         return productoMapper.toDTO(producto);
     }
+
+    private RuntimeException errorDeAjuste(Long id, int nuevoStock) {
+        Producto producto = productoRepository.findById(id).orElse(null);
+        if (producto == null) {
+            return new RecursoNoEncontradoException("Producto", "id", id);
+        }
+        return new ConflictoException(String.format(
+                "El stock no puede quedar por debajo de las unidades reservadas para citas (%d). Stock solicitado: %d",
+                producto.getStockReservado(), nuevoStock));
+    }
 }
@@ -4,15 +4,28 @@ import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.modulos.inventario.dto.CrearProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.ProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.SugerenciaPedidoDTO;
+import com.nuclearvet.modulos.inventario.entity.ConsumoProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
 import com.nuclearvet.modulos.inventario.entity.Proveedor;
 import com.nuclearvet.modulos.inventario.mapper.ProveedorMapper;
+import com.nuclearvet.modulos.inventario.repository.ConsumoProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -25,8 +38,19 @@ import java.util.stream.Collectors;
 public class ProveedorService {
 
     private final ProveedorRepository proveedorRepository;
+    private final ProductoRepository productoRepository;
+    private final ConsumoProductoRepository consumoRepository;
+    private final EstadisticasConsumo estadisticasConsumo;
     private final ProveedorMapper proveedorMapper;
 
+    /**
+     * Días de consumo que cubre el pedido sugerido cuando el producto no tiene stock máximo
+     */
+    static final int DIAS_COBERTURA = 30;
+
+    @Value("${inventario.reorden.dias-entrega-predeterminados:7}")
+    private int diasEntregaPredeterminados;
+
     /**
      * RF4.2: Crear un nuevo proveedor
      */
@@ -163,4 +187,82 @@ public class ProveedorService {
         log.info("Calificación actualizada para proveedor {}: {} estrellas", id, nuevaCalificacion);
         return proveedorMapper.toDTO(proveedor);
     }
+
+    /**
+     * RF4.4: Sugerencias de pedido agrupadas por proveedor.
+     * Incluye los productos que, al consumo diario estimado (EstadisticasConsumo), quedarían en su stock
+     * mínimo o por debajo antes de recibir un pedido hecho hoy, según los días de entrega del proveedor.
+     * La cantidad sugerida lleva el stock al máximo (o a 30 días de consumo sobre el mínimo) al recibirlo.
+     * Se calcula con las estadísticas de consumo de cada producto, sin recorrer los movimientos; un producto
+     * sin salidas registradas tiene consumo 0 y solo se sugiere si ya está en el mínimo. El stock que cuenta
+     * es el disponible: lo reservado para citas ya tiene destino.
+     */
+    @Transactional(readOnly = true)
+    public List<SugerenciaPedidoDTO> sugerirPedidos() {
+        log.info("Calculando sugerencias de pedido por proveedor");
+        LocalDate hoy = LocalDate.now();
+
+        List<Producto> productos = productoRepository.findParaSugerenciasDePedido();
+        Map<Long, ConsumoProducto> consumos = consumoRepository.findAllById(
+                        productos.stream().map(Producto::getId).toList()).stream()
+                .collect(Collectors.toMap(ConsumoProducto::getProductoId, Function.identity()));
+
+        Map<Long, SugerenciaPedidoDTO> sugerencias = new LinkedHashMap<>();
+        for (Producto producto : productos) {
+            Proveedor proveedor = producto.getProveedor();
+            int diasEntrega = proveedor.getDiasEntrega() != null ? proveedor.getDiasEntrega() : diasEntregaPredeterminados;
+            ConsumoProducto consumo = consumos.get(producto.getId());
+            double tasa = consumo != null ? estadisticasConsumo.tasaDiaria(consumo, hoy) : 0.0;
+            int stock = producto.stockDisponible();
+            int stockMinimo = producto.getStockMinimo();
+
+            // Sin stock no hay salidas: lo que no alcanza no se descuenta dos veces
+            double stockAlRecibir = Math.max(0, stock - tasa * diasEntrega);
+            if (stockAlRecibir > stockMinimo) {
+                continue;
+            }
+            double objetivo = producto.getStockMaximo() != null
+                    ? producto.getStockMaximo()
+                    : stockMinimo + tasa * DIAS_COBERTURA;
+            int cantidad = Math.max(1, (int) Math.ceil(objetivo - stockAlRecibir));
+            int diasHastaMinimo = stock <= stockMinimo ? 0 : (int) Math.floor((stock - stockMinimo) / tasa);
+            BigDecimal costo = producto.getPrecioCompra() != null
+                    ? producto.getPrecioCompra().multiply(BigDecimal.valueOf(cantidad))
+                    : BigDecimal.ZERO;
+
+            SugerenciaPedidoDTO sugerencia = sugerencias.computeIfAbsent(proveedor.getId(), id -> SugerenciaPedidoDTO.builder()
+                    .proveedorId(id)
+                    .proveedorNombre(proveedor.getNombre())
+                    .diasEntrega(diasEntrega)
+                    .totalUnidades(0)
+                    .costoEstimado(BigDecimal.ZERO)
+                    .lineas(new ArrayList<>())
+                    .build());
+            sugerencia.getLineas().add(SugerenciaPedidoDTO.LineaSugerenciaDTO.builder()
+                    .productoId(producto.getId())
+                    .productoCodigo(producto.getCodigo())
+                    .productoNombre(producto.getNombre())
+                    .stockActual(producto.getStockActual())
+                    .stockReservado(producto.getStockReservado())
+                    .stockMinimo(stockMinimo)
+                    .stockMaximo(producto.getStockMaximo())
+                    .consumoDiario(Math.round(tasa * 100) / 100.0)
+                    .diasHastaMinimo(diasHastaMinimo)
+                    .cantidadSugerida(cantidad)
+                    .costoEstimado(costo)
+                    .build());
+            sugerencia.setTotalUnidades(sugerencia.getTotalUnidades() + cantidad);
+            sugerencia.setCostoEstimado(sugerencia.getCostoEstimado().add(costo));
+        }
+
+        // Primero los proveedores con el producto más urgente
+        Comparator<SugerenciaPedidoDTO.LineaSugerenciaDTO> porUrgencia =
+                Comparator.comparing(SugerenciaPedidoDTO.LineaSugerenciaDTO::getDiasHastaMinimo);
+        List<SugerenciaPedidoDTO> resultado = new ArrayList<>(sugerencias.values());
+        resultado.forEach(sugerencia -> sugerencia.getLineas().sort(porUrgencia));
+        resultado.sort(Comparator.comparing(sugerencia -> sugerencia.getLineas().get(0).getDiasHastaMinimo()));
+
+        log.info("Sugerencias de pedido para {} proveedores", resultado.size());
+        return resultado;
+    }
 }
@@ -0,0 +1,213 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.citas.entity.Cita;
+import com.nuclearvet.modulos.inventario.dto.DisponibilidadProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ReservaStockDTO;
+import com.nuclearvet.modulos.inventario.dto.ReservarInsumoDTO;
+import com.nuclearvet.modulos.inventario.entity.EstadoReserva;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.ReservaStock;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.mapper.ReservaStockMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ReservaStockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio de reservas de stock para citas (p. ej. anestésicos e insumos de una cirugía).
+ * Lo reservado se lleva en Producto.stockReservado con UPDATE condicionales, sin leer-calcular-guardar:
+ * reservar solo aplica si el disponible (stock - reservado) alcanza, y las ventas y salidas ya no pueden
+ * tomar unidades reservadas. Completar la cita convierte sus reservas en salidas desde la ubicación
+ * de cada reserva (la principal si no se indicó); cancelarla las libera. Lo reservado es del producto:
+ * que la ubicación tenga las unidades se comprueba al consumir.
+ * RF4.3 - Control de stock
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservaStockService {
+
+    static final String MOTIVO_CONSUMO = "CONSUMO_CITA";
+
+    private final ReservaStockRepository reservaRepository;
+    private final ProductoRepository productoRepository;
+    private final StockProductos stockProductos;
+    private final MovimientoInventarioService movimientoService;
+    private final StockUbicaciones stockUbicaciones;
+    private final CacheProductos cacheProductos;
+    private final ReservaStockMapper reservaMapper;
+
+    /**
+     * RF4.3: Reservar los insumos de una cita. Si algún producto no tiene stock disponible
+     * no se reserva nada y se informan todos los faltantes. Cada producto se consume de una sola ubicación.
+     */
+    @Transactional
+    public List<ReservaStockDTO> reservar(Cita cita, List<ReservarInsumoDTO> insumos) {
+        log.info("Reservando {} insumos para la cita {}", insumos.size(), cita.getId());
+
+        // Un producto puede venir varias veces; en orden de id para bloquear las filas siempre en el mismo orden
+        Map<Long, Integer> cantidades = insumos.stream()
+                .collect(Collectors.groupingBy(ReservarInsumoDTO::getProductoId, TreeMap::new,
+                        Collectors.summingInt(ReservarInsumoDTO::getCantidad)));
+        Map<Long, Ubicacion> ubicaciones = resolverUbicaciones(insumos);
+        Map<Long, Producto> productos = stockProductos.obtenerMapaPorIds(cantidades.keySet());
+
+        List<String> insuficientes = new ArrayList<>();
+        List<ReservaStock> reservas = new ArrayList<>(cantidades.size());
+        cantidades.forEach((productoId, cantidad) -> {
+            Producto producto = productos.get(productoId);
+            if (!Boolean.TRUE.equals(producto.getActivo())) {
+                throw new ValidacionException("No se puede reservar el producto inactivo " + producto.getNombre());
+            }
+            if (productoRepository.reservarStock(productoId, cantidad) == 0) {
+                insuficientes.add(String.format("%s (stock disponible: %d, cantidad solicitada: %d)",
+                        producto.getNombre(), producto.stockDisponible(), cantidad));
+                return;
+            }
+            reservas.add(ReservaStock.builder()
+                    .producto(producto)
+                    .cita(cita)
+                    .cantidad(cantidad)
+                    .ubicacion(ubicaciones.get(productoId))
+                    .estado(EstadoReserva.ACTIVA)
+                    .build());
+        });
+        if (!insuficientes.isEmpty()) {
+            // La excepción revierte la transacción, también las reservas que sí se aplicaron
+            throw new ConflictoException("Stock insuficiente para reservar: " + String.join(", ", insuficientes));
+        }
+
+        List<ReservaStock> guardadas = reservaRepository.saveAll(reservas);
+        cantidades.keySet().forEach(cacheProductos::invalidar);
+        log.info("Cita {}: {} productos reservados", cita.getId(), guardadas.size());
+        return guardadas.stream()
+                .map(reservaMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Cambiar los insumos reservados de una cita (libera los actuales y reserva los nuevos)
+     */
+    @Transactional
+    public List<ReservaStockDTO> reemplazar(Cita cita, List<ReservarInsumoDTO> insumos) {
+        liberar(cita.getId());
+        return insumos.isEmpty() ? List.of() : reservar(cita, insumos);
+    }
+
+    /**
+     * RF4.3: Devolver al stock disponible las reservas activas de una cita cancelada o a la que no asistieron
+     */
+    @Transactional
+    public void liberar(Long citaId) {
+        List<ReservaStock> reservas = reservaRepository.findByCitaIdAndEstado(citaId, EstadoReserva.ACTIVA);
+        if (reservas.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        for (ReservaStock reserva : reservas) {
+            Long productoId = reserva.getProducto().getId();
+            if (productoRepository.liberarReserva(productoId, reserva.getCantidad()) == 0) {
+                log.warn("El producto {} no tenía las {} unidades de la reserva {} como reservadas",
+                        productoId, reserva.getCantidad(), reserva.getId());
+            }
+            reserva.setEstado(EstadoReserva.LIBERADA);
+            reserva.setFechaCierre(ahora);
+            cacheProductos.invalidar(productoId);
+        }
+        reservaRepository.saveAll(reservas);
+        log.info("Cita {}: {} reservas liberadas", citaId, reservas.size());
+    }
+
+    /**
+     * RF4.3: Convertir en salidas de inventario las reservas activas de una cita completada.
+     * La salida queda a nombre del veterinario de la cita.
+     */
+    @Transactional
+    public void consumir(Cita cita) {
+        List<ReservaStock> reservas = reservaRepository.findByCitaIdAndEstado(cita.getId(), EstadoReserva.ACTIVA);
+        if (reservas.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        for (ReservaStock reserva : reservas) {
+            MovimientoInventario movimiento = movimientoService.registrarConsumoReserva(reserva.getProducto().getId(),
+                    reserva.getUbicacion(), reserva.getCantidad(), MOTIVO_CONSUMO, "CITA-" + cita.getId(),
+                    cita.getVeterinario());
+            reserva.setEstado(EstadoReserva.CONSUMIDA);
+            reserva.setFechaCierre(ahora);
+            reserva.setMovimiento(movimiento);
+        }
+        reservaRepository.saveAll(reservas);
+        log.info("Cita {}: {} reservas consumidas", cita.getId(), reservas.size());
+    }
+
+    /**
+     * Ubicación indicada para cada producto (sin entrada si se consume de la principal).
+     * Un producto repetido debe venir siempre con la misma ubicación.
+     */
+    private Map<Long, Ubicacion> resolverUbicaciones(List<ReservarInsumoDTO> insumos) {
+        Map<Long, Long> ubicacionIds = new HashMap<>();
+        for (ReservarInsumoDTO insumo : insumos) {
+            if (ubicacionIds.containsKey(insumo.getProductoId())
+                    && !Objects.equals(ubicacionIds.get(insumo.getProductoId()), insumo.getUbicacionId())) {
+                throw new ValidacionException("El producto " + insumo.getProductoId()
+                        + " viene con dos ubicaciones distintas; reserve cada producto en una sola ubicación");
+            }
+            ubicacionIds.put(insumo.getProductoId(), insumo.getUbicacionId());
+        }
+        Map<Long, Ubicacion> porId = new HashMap<>();
+        Map<Long, Ubicacion> ubicaciones = new HashMap<>();
+        ubicacionIds.forEach((productoId, ubicacionId) -> {
+            if (ubicacionId != null) {
+                ubicaciones.put(productoId, porId.computeIfAbsent(ubicacionId, stockUbicaciones::resolver));
+            }
+        });
+        return ubicaciones;
+    }
+
+    /**
+     * RF4.3: Reservas de una cita, en cualquier estado
+     */
+    @Transactional(readOnly = true)
+    public List<ReservaStockDTO> listarPorCita(Long citaId) {
+        return reservaRepository.findByCitaIdConProducto(citaId).stream()
+                .map(reservaMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Stock disponible para prometer de un producto y sus reservas activas
+     */
+    @Transactional(readOnly = true)
+    public DisponibilidadProductoDTO obtenerDisponibilidad(Long productoId) {
+        Producto producto = productoRepository.findById(productoId)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Producto", "id", productoId));
+        return DisponibilidadProductoDTO.builder()
+                .productoId(producto.getId())
+                .productoCodigo(producto.getCodigo())
+                .productoNombre(producto.getNombre())
+                .stockActual(producto.getStockActual())
+                .stockReservado(producto.getStockReservado())
+                .stockDisponible(producto.stockDisponible())
+                .reservas(reservaRepository.findActivasPorProducto(productoId).stream()
+                        .map(reservaMapper::toDTO)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cambios atómicos del stock de un producto y resolución de productos en bloque.
+ * El stock se cambia con UPDATE condicionales (ProductoRepository), sin leer-calcular-guardar,
+ * para que los movimientos concurrentes de un mismo producto no se pisen. El UPDATE deja la fila
+ * bloqueada hasta el fin de la transacción, así que el stock leído a continuación es el que dejó.
+ * Las entidades Producto ya cargadas en la transacción no se actualizan.
+ * RF4.3, RF4.4
+ */
+@Component
+@RequiredArgsConstructor
+public class StockProductos {
+
+    private final ProductoRepository productoRepository;
+
+    /**
+     * Descuenta stock sin tocar lo reservado para citas.
+     * Vacío si el producto no existe o el stock disponible no alcanza.
+     */
+    @Transactional
+    public Optional<CambioStock> descontarStockAtomico(Long id, int cantidad) {
+        if (productoRepository.descontarStock(id, cantidad) == 0) {
+            return Optional.empty();
+        }
+        int stockNuevo = productoRepository.findStockActualById(id).orElseThrow();
+        return Optional.of(new CambioStock(stockNuevo + cantidad, stockNuevo));
+    }
+
+    /**
+     * Igual que descontarStockAtomico, pero descuenta unidades ya reservadas.
+     * Vacío si el producto no existe o no tiene reservadas esas unidades.
+     */
+    @Transactional
+    public Optional<CambioStock> consumirReservaAtomico(Long id, int cantidad) {
+        if (productoRepository.consumirReserva(id, cantidad) == 0) {
+            return Optional.empty();
+        }
+        int stockNuevo = productoRepository.findStockActualById(id).orElseThrow();
+        return Optional.of(new CambioStock(stockNuevo + cantidad, stockNuevo));
+    }
+
+    /**
+     * Igual que descontarStockAtomico, pero suma stock.
+     * Vacío si el producto no existe o, con respetarMaximo, si se superaría el stock máximo.
+     */
+    @Transactional
+    public Optional<CambioStock> sumarStockAtomico(Long id, int cantidad, boolean respetarMaximo) {
+        if (productoRepository.sumarStock(id, cantidad, respetarMaximo) == 0) {
+            return Optional.empty();
+        }
+        int stockNuevo = productoRepository.findStockActualById(id).orElseThrow();
+        return Optional.of(new CambioStock(stockNuevo - cantidad, stockNuevo));
+    }
+
+    /**
+     * Fija el stock a un valor absoluto (ajuste). Primero bloquea la fila con un UPDATE que suma 0
+     * para leer el stock anterior sin que otro movimiento lo cambie en medio.
+     * Vacío si el producto no existe o el nuevo stock es menor que las unidades reservadas.
+     */
+    @Transactional
+    public Optional<CambioStock> fijarStockAtomico(Long id, int stock) {
+        if (productoRepository.sumarStock(id, 0, false) == 0) {
+            return Optional.empty();
+        }
+        int stockAnterior = productoRepository.findStockActualById(id).orElseThrow();
+        if (productoRepository.actualizarStock(id, stock) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new CambioStock(stockAnterior, stock));
+    }
+
+    /**
+     * Resuelve varios productos con una sola consulta (findAllById) y los indexa por id.
+     * Usar en cualquier operación que procese varios items para evitar un findById por línea.
+     * Lanza RecursoNoEncontradoException indicando todos los ids que no existen.
+     */
+    public Map<Long, Producto> obtenerMapaPorIds(Collection<Long> ids) {
+        return resolverEnBloque(ids, productoRepository::findAllById);
+    }
+
+    /**
+     * Igual que obtenerMapaPorIds, pero bloquea las filas hasta el fin de la transacción
+     * para que la validación y la actualización del stock sean atómicas.
+     */
+    public Map<Long, Producto> obtenerMapaPorIdsParaActualizar(Collection<Long> ids) {
+        return resolverEnBloque(ids, productoRepository::findAllByIdParaActualizar);
+    }
+
+    private Map<Long, Producto> resolverEnBloque(Collection<Long> ids, Function<Set<Long>, List<Producto>> consulta) {
+        Set<Long> idsUnicos = new LinkedHashSet<>(ids);
+        if (idsUnicos.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Producto> productos = consulta.apply(idsUnicos).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        if (productos.size() < idsUnicos.size()) {
+            List<Long> faltantes = idsUnicos.stream()
+                    .filter(id -> !productos.containsKey(id))
+                    .collect(Collectors.toList());
+            throw new RecursoNoEncontradoException(
+                    String.format("Uy parce, no se encontraron productos con ids: %s", faltantes));
+        }
+        return productos;
+    }
+}
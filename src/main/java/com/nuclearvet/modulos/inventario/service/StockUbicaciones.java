@@ -0,0 +1,118 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.StockUbicacion;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.StockUbicacionRepository;
+import com.nuclearvet.modulos.inventario.repository.UbicacionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lleva cada cambio del stock de un producto a la ubicación donde ocurrió (farmacia principal,
+ * quirófano, sedes), para que la suma de las ubicaciones siga siendo el stockActual del producto.
+ * Los movimientos que no indican ubicación (ventas, entregas de proveedor, consumos de reservas
+ * sin ubicación) se aplican en la principal. Los descuentos son UPDATE condicionales: si la ubicación no tiene las
+ * unidades se lanza ConflictoException y la transacción revierte también el cambio del producto.
+ * Quien llama debe tener bloqueada la fila del producto, así las filas se bloquean siempre en el
+ * orden producto, ubicación.
+ * RF4.3, RF4.4
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockUbicaciones {
+
+    private final StockUbicacionRepository stockRepository;
+    private final UbicacionRepository ubicacionRepository;
+
+    private volatile Long idPrincipal;
+
+    /**
+     * Ubicación activa con ese id, o la principal si no viene
+     */
+    public Ubicacion resolver(Long ubicacionId) {
+        if (ubicacionId == null) {
+            return ubicacionRepository.getReferenceById(idPrincipal());
+        }
+        Ubicacion ubicacion = ubicacionRepository.findById(ubicacionId)
+                .orElseThrow(() -> new RecursoNoEncontradoException("Ubicación", "id", ubicacionId));
+        if (!Boolean.TRUE.equals(ubicacion.getActivo())) {
+            throw new ValidacionException("La ubicación " + ubicacion.getNombre() + " está inactiva");
+        }
+        return ubicacion;
+    }
+
+    /**
+     * Id de la ubicación principal. No cambia mientras corre la aplicación, así que se consulta una vez.
+     */
+    public Long idPrincipal() {
+        Long id = idPrincipal;
+        if (id == null) {
+            id = ubicacionRepository.findByPrincipalTrue()
+                    .orElseThrow(() -> new IllegalStateException("No hay una ubicación principal configurada"))
+                    .getId();
+            idPrincipal = id;
+        }
+        return id;
+    }
+
+    /**
+     * Aplica en la ubicación la diferencia entre el stock anterior y el nuevo del producto
+     */
+    public void registrarCambio(Producto producto, Ubicacion ubicacion, CambioStock cambio) {
+        int diferencia = cambio.stockNuevo() - cambio.stockAnterior();
+        if (diferencia > 0) {
+            stockRepository.sumarCantidad(producto.getId(), ubicacion.getId(), diferencia);
+        } else if (diferencia < 0) {
+            descontar(producto, ubicacion, -diferencia);
+        }
+    }
+
+    /**
+     * Pasa unidades de una ubicación a otra sin cambiar el stock total del producto
+     */
+    public void transferir(Producto producto, Ubicacion origen, Ubicacion destino, int cantidad) {
+        descontar(producto, origen, cantidad);
+        stockRepository.sumarCantidad(producto.getId(), destino.getId(), cantidad);
+        log.info("Transferidas {} unidades del producto {} de {} a {}",
+                cantidad, producto.getId(), origen.getCodigo(), destino.getCodigo());
+    }
+
+    /**
+     * Deja en la ubicación principal el stock con que se crearon productos nuevos, con un saveAll
+     * para que se inserten en batches JDBC (importación del catálogo)
+     */
+    public void registrarInventarioInicial(List<Producto> productos) {
+        Ubicacion principal = ubicacionRepository.getReferenceById(idPrincipal());
+        List<StockUbicacion> filas = new ArrayList<>();
+        for (Producto producto : productos) {
+            int stock = producto.getStockActual() != null ? producto.getStockActual() : 0;
+            if (stock > 0) {
+                filas.add(StockUbicacion.builder()
+                        .producto(producto)
+                        .ubicacion(principal)
+                        .cantidad(stock)
+                        .build());
+            }
+        }
+        stockRepository.saveAll(filas);
+    }
+
+    private void descontar(Producto producto, Ubicacion ubicacion, int cantidad) {
+        if (stockRepository.descontarCantidad(producto.getId(), ubicacion.getId(), cantidad) == 0) {
+            int enUbicacion = stockRepository.findCantidad(producto.getId(), ubicacion.getId()).orElse(0);
+            throw new ConflictoException(String.format(
+                    "Stock insuficiente de %s en %s. Stock en la ubicación: %d, cantidad solicitada: %d",
+                    producto.getNombre(), ubicacion.getNombre(), enUbicacion, cantidad));
+        }
+    }
+}
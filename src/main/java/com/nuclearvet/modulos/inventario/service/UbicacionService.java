@@ -0,0 +1,132 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.dto.CrearUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.StockUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.UbicacionDTO;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.mapper.UbicacionMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.StockUbicacionRepository;
+import com.nuclearvet.modulos.inventario.repository.UbicacionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Servicio para ubicaciones de stock y consultas del stock por ubicación.
+ * Las consultas de una ubicación usan los índices por ubicación de stock_ubicaciones,
+ * sin recorrer todo el catálogo.
+ * RF4.3 - Control de stock por ubicación
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UbicacionService {
+
+    private final UbicacionRepository ubicacionRepository;
+    private final StockUbicacionRepository stockRepository;
+    private final ProductoRepository productoRepository;
+    private final StockUbicaciones stockUbicaciones;
+    private final UbicacionMapper ubicacionMapper;
+
+    /**
+     * RF4.3: Crear una ubicación (la principal viene de la migración)
+     */
+    @Transactional
+    public UbicacionDTO crearUbicacion(CrearUbicacionDTO dto) {
+        log.info("Creando ubicación: {}", dto.getCodigo());
+
+        if (ubicacionRepository.existsByCodigo(dto.getCodigo())) {
+            throw new ConflictoException("Ya existe una ubicación con ese código, parce");
+        }
+
+        Ubicacion ubicacion = ubicacionRepository.save(ubicacionMapper.toEntity(dto));
+        log.info("Ubicación creada con ID: {}", ubicacion.getId());
+        return ubicacionMapper.toDTO(ubicacion);
+    }
+
+    /**
+     * RF4.3: Listar ubicaciones activas, la principal primero
+     */
+    @Transactional(readOnly = true)
+    public List<UbicacionDTO> listarActivas() {
+        return ubicacionRepository.findByActivoTrueOrderByPrincipalDescNombreAsc().stream()
+                .map(ubicacionMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Productos con unidades en una ubicación
+     */
+    @Transactional(readOnly = true)
+    public List<StockUbicacionDTO> listarStock(Long ubicacionId) {
+        log.info("Consultando stock de la ubicación {}", ubicacionId);
+        verificarExiste(ubicacionId);
+        return stockRepository.findConStockPorUbicacion(ubicacionId).stream()
+                .map(ubicacionMapper::toStockDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Productos en o por debajo del stock mínimo de una ubicación
+     */
+    @Transactional(readOnly = true)
+    public List<StockUbicacionDTO> listarBajoMinimo(Long ubicacionId) {
+        log.info("Consultando productos bajo el mínimo en la ubicación {}", ubicacionId);
+        verificarExiste(ubicacionId);
+        return stockRepository.findBajoMinimoPorUbicacion(ubicacionId).stream()
+                .map(ubicacionMapper::toStockDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Reparto del stock de un producto entre las ubicaciones
+     */
+    @Transactional(readOnly = true)
+    public List<StockUbicacionDTO> listarPorProducto(Long productoId) {
+        if (!productoRepository.existsById(productoId)) {
+            throw new RecursoNoEncontradoException("Producto", "id", productoId);
+        }
+        return stockRepository.findPorProductoConUbicacion(productoId).stream()
+                .map(ubicacionMapper::toStockDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * RF4.3: Fijar el stock mínimo de un producto en una ubicación (null lo quita).
+     * Si el producto nunca tuvo stock en la ubicación se crea su fila con cantidad 0.
+     */
+    @Transactional
+    public StockUbicacionDTO fijarStockMinimo(Long ubicacionId, Long productoId, Integer stockMinimo) {
+        log.info("Fijando stock mínimo {} del producto {} en la ubicación {}", stockMinimo, productoId, ubicacionId);
+
+        if (stockMinimo != null && stockMinimo < 0) {
+            throw new ValidacionException("El stock mínimo no puede ser negativo");
+        }
+        stockUbicaciones.resolver(ubicacionId);
+        if (!productoRepository.existsById(productoId)) {
+            throw new RecursoNoEncontradoException("Producto", "id", productoId);
+        }
+
+        if (stockRepository.actualizarStockMinimo(productoId, ubicacionId, stockMinimo) == 0) {
+            stockRepository.sumarCantidad(productoId, ubicacionId, 0);
+            stockRepository.actualizarStockMinimo(productoId, ubicacionId, stockMinimo);
+        }
+        return stockRepository.findConRelaciones(productoId, ubicacionId)
+                .map(ubicacionMapper::toStockDTO)
+                .orElseThrow();
+    }
+
+    private void verificarExiste(Long ubicacionId) {
+        if (!ubicacionRepository.existsById(ubicacionId)) {
+            throw new RecursoNoEncontradoException("Ubicación", "id", ubicacionId);
+        }
+    }
+}
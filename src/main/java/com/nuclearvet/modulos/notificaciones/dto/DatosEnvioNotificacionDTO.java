@@ -0,0 +1,28 @@
+package com.nuclearvet.modulos.notificaciones.dto;
+
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Copia de una notificación tomada de la bandeja de salida, con lo necesario para enviarla.
+ * Los hilos de envío trabajan sobre esta copia, sin sesión de base de datos.
+ * RF5.1 - Envío de notificaciones
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatosEnvioNotificacionDTO {
+
+    private Long notificacionId;
+    private CanalNotificacion canal;
+    private Long destinatarioId;
+    private String email;
+    private String telefono;
+    private String asunto;
+    private String mensaje;
+    private int intentosEnvio;
+}
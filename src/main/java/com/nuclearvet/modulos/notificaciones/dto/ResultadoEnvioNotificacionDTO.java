@@ -0,0 +1,21 @@
+package com.nuclearvet.modulos.notificaciones.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con el resultado del envío de una notificación dentro de un lote del proveedor.
+ * RF5.1 - Envío de notificaciones
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoEnvioNotificacionDTO {
+
+    private Long notificacionId;
+    private boolean exitoso;
+    private String mensajeError;
+}
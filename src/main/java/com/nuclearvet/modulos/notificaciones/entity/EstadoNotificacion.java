@@ -8,6 +8,11 @@ public enum EstadoNotificacion {
      * Notificación pendiente de envío
      */
     PENDIENTE,
+
+    /**
+     * Notificación tomada por el despachador, en envío al proveedor
+     */
+    ENVIANDO,
     
     /**
      * Notificación enviada exitosamente
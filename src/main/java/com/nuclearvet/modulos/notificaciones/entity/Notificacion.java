@@ -20,6 +20,10 @@ import java.time.LocalDateTime;
 @Builder
 public class Notificacion extends EntidadBase {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario destinatario;
@@ -58,6 +62,12 @@ public class Notificacion extends EntidadBase {
     @Column(name = "error_mensaje", columnDefinition = "TEXT")
     private String errorMensaje;
 
+    /**
+     * Token del despacho que tomó la notificación para enviarla
+     */
+    @Column(name = "token_envio", length = 36)
+    private String tokenEnvio;
+
     /**
      * ID de referencia a la entidad relacionada (Cita, Paciente, etc.)
      */
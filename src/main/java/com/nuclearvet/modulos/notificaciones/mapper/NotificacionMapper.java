@@ -16,6 +16,7 @@ public interface NotificacionMapper {
     @Mapping(source = "destinatario.nombre", target = "destinatarioNombre")
     NotificacionDTO toDTO(Notificacion notificacion);
 
+    @Mapping(target = "id", ignore = true)
     @Mapping(target = "estado", constant = "PENDIENTE")
     @Mapping(target = "intentosEnvio", constant = "0")
     @Mapping(target = "fechaEnviada", ignore = true)
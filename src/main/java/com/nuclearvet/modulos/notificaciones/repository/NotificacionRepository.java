@@ -4,10 +4,13 @@ import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
 import com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion;
 import com.nuclearvet.modulos.notificaciones.entity.Notificacion;
 import com.nuclearvet.modulos.notificaciones.entity.TipoNotificacion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -101,5 +104,95 @@ public interface NotificacionRepository extends JpaRepository<Notificacion, Long
      * Cuenta notificaciones no leídas de un usuario
      */
     Long countByDestinatarioIdAndFechaLeidaIsNull(Long destinatarioId);
-}
 
+    /**
+     * Indica si el usuario tiene una notificación sin leer de ese tipo sobre la misma entidad
+     */
+    boolean existsByDestinatarioIdAndTipoAndReferenciaIdAndReferenciaTipoAndFechaLeidaIsNull(
+            Long destinatarioId,
+            TipoNotificacion tipo,
+            Long referenciaId,
+            String referenciaTipo);
+
+    // ---- Bandeja de salida: la recorre DespachadorNotificaciones ----
+
+    /**
+     * Ids de las notificaciones pendientes de un canal cuya fecha programada ya llegó, las más antiguas primero
+     */
+    @Query("SELECT n.id FROM Notificacion n " +
+           "WHERE n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.PENDIENTE " +
+           "AND n.canal = :canal AND (n.fechaProgramada IS NULL OR n.fechaProgramada <= :ahora) " +
+           "ORDER BY n.id")
+    List<Long> findIdsParaDespachar(@Param("canal") CanalNotificacion canal,
+                                    @Param("ahora") LocalDateTime ahora,
+                                    Pageable pageable);
+
+    /**
+     * Pasa a ENVIANDO con el token del despacho las notificaciones que siguen pendientes.
+     * Las que otra instancia tomó antes ya no están en PENDIENTE y conservan su token.
+     *
+     * @return Número de notificaciones tomadas
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notificacion n " +
+           "SET n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO, " +
+           "n.tokenEnvio = :token, n.fechaActualizacion = :ahora " +
+           "WHERE n.id IN :ids AND n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.PENDIENTE")
+    int tomarParaEnvio(@Param("ids") List<Long> ids, @Param("token") String token, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Notificaciones en envío tomadas con el token, con su destinatario
+     */
+    @Query("SELECT n FROM Notificacion n JOIN FETCH n.destinatario " +
+           "WHERE n.tokenEnvio = :token AND n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO " +
+           "ORDER BY n.id")
+    List<Notificacion> findEnEnvio(@Param("token") String token);
+
+    /**
+     * Registra el envío exitoso de las notificaciones de un lote
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notificacion n " +
+           "SET n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIADA, " +
+           "n.fechaEnviada = :fecha, n.errorMensaje = NULL, n.fechaActualizacion = :fecha " +
+           "WHERE n.id IN :ids AND n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO")
+    int marcarEnviadas(@Param("ids") List<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Registra un envío fallido: vuelve a PENDIENTE para un nuevo intento en proximoIntento, o queda en ERROR
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notificacion n SET n.estado = :estado, n.errorMensaje = :error, " +
+           "n.intentosEnvio = n.intentosEnvio + 1, n.fechaProgramada = :proximoIntento, n.fechaActualizacion = :ahora " +
+           "WHERE n.id = :id AND n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO")
+    int registrarFalloEnvio(@Param("id") Long id,
+                            @Param("estado") EstadoNotificacion estado,
+                            @Param("error") String error,
+                            @Param("proximoIntento") LocalDateTime proximoIntento,
+                            @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Devuelve a PENDIENTE las notificaciones en envío que no se alcanzaron a encolar
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notificacion n " +
+           "SET n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.PENDIENTE " +
+           "WHERE n.id IN :ids AND n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO")
+    int devolverAPendientes(@Param("ids") List<Long> ids);
+
+    /**
+     * Devuelve a PENDIENTE las notificaciones que llevan en envío desde antes del límite
+     * (el proceso se detuvo con ellas en la cola)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Notificacion n " +
+           "SET n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.PENDIENTE " +
+           "WHERE n.estado = com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion.ENVIANDO " +
+           "AND n.fechaActualizacion < :limite")
+    int liberarEnviosVencidos(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,262 @@
+package com.nuclearvet.modulos.notificaciones.service;
+
+import com.nuclearvet.modulos.notificaciones.dto.DatosEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.dto.ResultadoEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+import com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion;
+import com.nuclearvet.modulos.notificaciones.entity.Notificacion;
+import com.nuclearvet.modulos.notificaciones.repository.NotificacionRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Despacha la bandeja de salida de notificaciones: las notificaciones que NotificacionService deja
+ * en PENDIENTE dentro de la transacción de quien las crea.
+ * Cada canal tiene su EnviadorCanalNotificacion y su propio pool de hilos, con tantos hilos como la
+ * concurrencia que declara el enviador y una cola acotada de lotes, así un proveedor lento (ej: SMS)
+ * no demora a los demás. Las pendientes se agrupan en lotes del tamaño máximo del proveedor y por canal
+ * solo se toman de la tabla las que caben en su cola; con la cola llena el resto sigue PENDIENTE en la
+ * base de datos hasta la siguiente ejecución (contrapresión).
+ * Con varias instancias, cada despacho toma las pendientes con un token propio y solo envía las que
+ * quedaron con ese token; las que otra instancia tomó primero no se cargan.
+ * La entrega es "al menos una vez": una notificación que quedó en envío al detenerse el proceso
+ * vuelve a PENDIENTE pasado envio-vencido-ms y se envía de nuevo.
+ * RF5.1 - Envío de notificaciones
+ */
+@Component
+@Slf4j
+public class DespachadorNotificaciones {
+
+    private final NotificacionRepository notificacionRepository;
+    private final Map<CanalNotificacion, EnviadorCanalNotificacion> enviadores = new EnumMap<>(CanalNotificacion.class);
+
+    private final Map<CanalNotificacion, ThreadPoolExecutor> pools = new EnumMap<>(CanalNotificacion.class);
+    private final AtomicBoolean enProceso = new AtomicBoolean(false);
+
+    @Value("${notificaciones.despacho.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${notificaciones.despacho.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${notificaciones.despacho.capacidad-cola:2000}")
+    private int capacidadCola;
+
+    @Value("${notificaciones.despacho.max-intentos:3}")
+    private int maxIntentos;
+
+    @Value("${notificaciones.despacho.espera-reintento-ms:60000}")
+    private long esperaReintentoMs;
+
+    @Value("${notificaciones.despacho.envio-vencido-ms:600000}")
+    private long envioVencidoMs;
+
+    public DespachadorNotificaciones(NotificacionRepository notificacionRepository,
+                                     List<EnviadorCanalNotificacion> enviadores) {
+        this.notificacionRepository = notificacionRepository;
+        for (EnviadorCanalNotificacion enviador : enviadores) {
+            if (this.enviadores.putIfAbsent(enviador.canal(), enviador) != null) {
+                throw new IllegalStateException("Hay más de un enviador para el canal " + enviador.canal());
+            }
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        for (CanalNotificacion canal : CanalNotificacion.values()) {
+            EnviadorCanalNotificacion enviador = enviadores.get(canal);
+            if (enviador == null) {
+                log.warn("No hay enviador para el canal {}; sus notificaciones quedan pendientes", canal);
+                continue;
+            }
+            String prefijo = "notificacion-" + canal.name().toLowerCase() + "-";
+            AtomicInteger contador = new AtomicInteger();
+            int lotesEnCola = Math.max(1, capacidadCola / enviador.tamanoMaximoLote());
+            // Sin política de rechazo propia: el despachador nunca encola más de lo que cabe
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(enviador.concurrencia(), enviador.concurrencia(),
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(lotesEnCola),
+                    tarea -> new Thread(tarea, prefijo + contador.incrementAndGet()));
+            pools.put(canal, pool);
+        }
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        pools.values().forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor pool : pools.values()) {
+            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("El pool de notificaciones no terminó a tiempo; lo pendiente se reenviará al reiniciar");
+            }
+        }
+    }
+
+    /**
+     * Ejecución periódica del despacho
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.despacho.intervalo-ms:2000}")
+    public void despacharProgramado() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            despachar();
+        } catch (RuntimeException e) {
+            log.error("Error en el despacho programado de notificaciones", e);
+        }
+    }
+
+    /**
+     * RF5.1: Encolar en los pools de cada canal los lotes de notificaciones pendientes que quepan
+     *
+     * @return Número de notificaciones encoladas
+     */
+    public int despachar() {
+        if (!enProceso.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            int liberadas = notificacionRepository.liberarEnviosVencidos(ahora.minus(Duration.ofMillis(envioVencidoMs)));
+            if (liberadas > 0) {
+                log.warn("{} notificaciones llevaban más de {} ms en envío y vuelven a pendientes", liberadas, envioVencidoMs);
+            }
+
+            int encoladas = 0;
+            for (Map.Entry<CanalNotificacion, ThreadPoolExecutor> pool : pools.entrySet()) {
+                encoladas += despachar(enviadores.get(pool.getKey()), pool.getValue(), ahora);
+            }
+            if (encoladas > 0) {
+                log.debug("Notificaciones encoladas para envío: {}", encoladas);
+            }
+            return encoladas;
+        } finally {
+            enProceso.set(false);
+        }
+    }
+
+    private int despachar(EnviadorCanalNotificacion enviador, ThreadPoolExecutor pool, LocalDateTime ahora) {
+        int tamanoMaximoLote = enviador.tamanoMaximoLote();
+        int espacio = Math.min(tamanoLote, pool.getQueue().remainingCapacity() * tamanoMaximoLote);
+        if (espacio == 0) {
+            log.debug("Cola de envío {} llena; las notificaciones pendientes esperan a la siguiente ejecución",
+                    enviador.canal());
+            return 0;
+        }
+
+        List<Long> ids = notificacionRepository.findIdsParaDespachar(enviador.canal(), ahora, PageRequest.of(0, espacio));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String token = UUID.randomUUID().toString();
+        if (notificacionRepository.tomarParaEnvio(ids, token, ahora) == 0) {
+            return 0;
+        }
+
+        List<DatosEnvioNotificacionDTO> tomadas = notificacionRepository.findEnEnvio(token).stream()
+                .map(this::copiarDatos)
+                .toList();
+        List<Long> noEncoladas = new ArrayList<>();
+        int encoladas = 0;
+        for (int desde = 0; desde < tomadas.size(); desde += tamanoMaximoLote) {
+            List<DatosEnvioNotificacionDTO> lote = tomadas.subList(desde, Math.min(desde + tamanoMaximoLote, tomadas.size()));
+            try {
+                pool.execute(() -> enviar(enviador, lote));
+                encoladas += lote.size();
+            } catch (RejectedExecutionException e) {
+                // Solo ocurre al detenerse el pool
+                lote.forEach(datos -> noEncoladas.add(datos.getNotificacionId()));
+            }
+        }
+        if (!noEncoladas.isEmpty()) {
+            notificacionRepository.devolverAPendientes(noEncoladas);
+        }
+        return encoladas;
+    }
+
+    /**
+     * Se ejecuta en el pool del canal: envía el lote y registra los resultados en transacciones cortas
+     */
+    private void enviar(EnviadorCanalNotificacion enviador, List<DatosEnvioNotificacionDTO> lote) {
+        Map<Long, ResultadoEnvioNotificacionDTO> resultados = new HashMap<>();
+        String errorLote = null;
+        try {
+            resultados = enviador.enviar(lote).stream()
+                    .collect(Collectors.toMap(ResultadoEnvioNotificacionDTO::getNotificacionId, Function.identity()));
+        } catch (Exception e) {
+            errorLote = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.warn("Falló el lote de {} notificaciones por {}: {}", lote.size(), enviador.canal(), errorLote);
+        }
+
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            List<Long> enviadas = new ArrayList<>(lote.size());
+            for (DatosEnvioNotificacionDTO datos : lote) {
+                ResultadoEnvioNotificacionDTO resultado = resultados.get(datos.getNotificacionId());
+                if (resultado != null && resultado.isExitoso()) {
+                    enviadas.add(datos.getNotificacionId());
+                    continue;
+                }
+                String error = errorLote != null ? errorLote
+                        : resultado == null ? "El proveedor no devolvió resultado" : resultado.getMensajeError();
+                registrarFallo(datos, error, ahora);
+            }
+            if (!enviadas.isEmpty()) {
+                notificacionRepository.marcarEnviadas(enviadas, ahora);
+            }
+        } catch (RuntimeException e) {
+            // Sin resultado registrado las notificaciones siguen en envío y se liberan pasado envio-vencido-ms
+            log.error("No se pudo registrar el resultado de un lote de {} notificaciones", lote.size(), e);
+        }
+    }
+
+    private void registrarFallo(DatosEnvioNotificacionDTO datos, String error, LocalDateTime ahora) {
+        int intentos = datos.getIntentosEnvio() + 1;
+        if (intentos >= maxIntentos) {
+            log.warn("Notificación {} en ERROR tras {} intentos: {}", datos.getNotificacionId(), intentos, error);
+            notificacionRepository.registrarFalloEnvio(datos.getNotificacionId(), EstadoNotificacion.ERROR,
+                    error, null, ahora);
+        } else {
+            // Espera creciente con cada intento
+            LocalDateTime proximoIntento = ahora.plus(Duration.ofMillis(esperaReintentoMs * intentos));
+            notificacionRepository.registrarFalloEnvio(datos.getNotificacionId(), EstadoNotificacion.PENDIENTE,
+                    error, proximoIntento, ahora);
+        }
+    }
+
+    private DatosEnvioNotificacionDTO copiarDatos(Notificacion notificacion) {
+        Usuario destinatario = notificacion.getDestinatario();
+        return DatosEnvioNotificacionDTO.builder()
+                .notificacionId(notificacion.getId())
+                .canal(notificacion.getCanal())
+                .destinatarioId(destinatario.getId())
+                .email(destinatario.getEmail())
+                .telefono(destinatario.getTelefono())
+                .asunto(notificacion.getAsunto())
+                .mensaje(notificacion.getMensaje())
+                .intentosEnvio(notificacion.getIntentosEnvio())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nuclearvet.modulos.notificaciones.service;
+
+import com.nuclearvet.modulos.notificaciones.dto.DatosEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.dto.ResultadoEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Proveedor de un canal de notificaciones (ej: SendGrid para EMAIL, Twilio para SMS).
+ * Debe haber un bean por cada CanalNotificacion. DespachadorNotificaciones agrupa las notificaciones
+ * pendientes del canal en lotes de hasta tamanoMaximoLote() y mantiene hasta concurrencia() lotes
+ * en envío a la vez, cada uno en su propio hilo; las implementaciones deben ser thread-safe.
+ * RF5.1 - Envío de notificaciones
+ */
+public interface EnviadorCanalNotificacion {
+
+    /**
+     * Canal que atiende este enviador
+     */
+    CanalNotificacion canal();
+
+    /**
+     * Número máximo de notificaciones por llamada al proveedor
+     */
+    int tamanoMaximoLote();
+
+    /**
+     * Número máximo de lotes en envío al mismo tiempo
+     */
+    int concurrencia();
+
+    /**
+     * Envía un lote de notificaciones del canal
+     *
+     * @return Un resultado por notificación; las que falten se registran como fallidas
+     * @throws IOException Si el lote completo falla (ej: el proveedor no responde)
+     */
+    List<ResultadoEnvioNotificacionDTO> enviar(List<DatosEnvioNotificacionDTO> lote) throws IOException;
+}
@@ -0,0 +1,145 @@
+package com.nuclearvet.modulos.notificaciones.service;
+
+import com.nuclearvet.modulos.notificaciones.dto.DatosEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.dto.ResultadoEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enviador de reemplazo para un canal mientras no haya integración con el proveedor real, y para
+ * pruebas de carga: simula la latencia de cada llamada y fallos de lotes completos o de notificaciones
+ * sueltas. Las notificaciones entregadas solo se cuentan en memoria o, con directorio, se agregan
+ * además a notificaciones-<canal>.log (una línea por notificación).
+ * RF5.1 - Envío de notificaciones
+ */
+public class EnviadorCanalSimulado implements EnviadorCanalNotificacion {
+
+    private final CanalNotificacion canal;
+    private final int tamanoMaximoLote;
+    private final int concurrencia;
+    private final long latenciaMs;
+    private final double probabilidadFalloLote;
+    private final double probabilidadFallo;
+    private final Path archivo;
+
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong entregadas = new AtomicLong();
+    private final AtomicLong fallidas = new AtomicLong();
+
+    /**
+     * @param latenciaMs            Latencia base de cada llamada; se le suma hasta un 50% al azar
+     * @param probabilidadFalloLote Probabilidad (0 a 1) de que falle el lote completo
+     * @param probabilidadFallo     Probabilidad (0 a 1) de que falle cada notificación de un lote aceptado
+     * @param directorio            Directorio del registro de entregas; null para contarlas solo en memoria
+     */
+    public EnviadorCanalSimulado(CanalNotificacion canal, int tamanoMaximoLote, int concurrencia, long latenciaMs,
+                                 double probabilidadFalloLote, double probabilidadFallo, Path directorio) {
+        if (tamanoMaximoLote < 1 || concurrencia < 1) {
+            throw new IllegalArgumentException("El tamaño de lote y la concurrencia del canal " + canal + " deben ser positivos");
+        }
+        this.canal = canal;
+        this.tamanoMaximoLote = tamanoMaximoLote;
+        this.concurrencia = concurrencia;
+        this.latenciaMs = latenciaMs;
+        this.probabilidadFalloLote = probabilidadFalloLote;
+        this.probabilidadFallo = probabilidadFallo;
+        this.archivo = directorio == null ? null
+                : directorio.resolve("notificaciones-" + canal.name().toLowerCase() + ".log");
+    }
+
+    @Override
+    public CanalNotificacion canal() {
+        return canal;
+    }
+
+    @Override
+    public int tamanoMaximoLote() {
+        return tamanoMaximoLote;
+    }
+
+    @Override
+    public int concurrencia() {
+        return concurrencia;
+    }
+
+    @Override
+    public List<ResultadoEnvioNotificacionDTO> enviar(List<DatosEnvioNotificacionDTO> lote) throws IOException {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        esperar(latenciaMs + (latenciaMs > 0 ? aleatorio.nextLong(latenciaMs / 2 + 1) : 0));
+        lotes.incrementAndGet();
+
+        if (aleatorio.nextDouble() < probabilidadFalloLote) {
+            fallidas.addAndGet(lote.size());
+            throw new IOException("Fallo simulado del proveedor " + canal + " con un lote de " + lote.size());
+        }
+
+        List<ResultadoEnvioNotificacionDTO> resultados = new ArrayList<>(lote.size());
+        List<String> lineas = new ArrayList<>(lote.size());
+        for (DatosEnvioNotificacionDTO datos : lote) {
+            boolean exitoso = aleatorio.nextDouble() >= probabilidadFallo;
+            resultados.add(ResultadoEnvioNotificacionDTO.builder()
+                    .notificacionId(datos.getNotificacionId())
+                    .exitoso(exitoso)
+                    .mensajeError(exitoso ? null : "Destino rechazado por el proveedor simulado")
+                    .build());
+            if (exitoso) {
+                lineas.add(String.join("|", LocalDateTime.now().toString(), String.valueOf(datos.getNotificacionId()),
+                        destino(datos), datos.getAsunto()));
+            }
+        }
+
+        if (archivo != null && !lineas.isEmpty()) {
+            // Varios lotes del canal pueden terminar a la vez sobre el mismo archivo
+            synchronized (this) {
+                Files.createDirectories(archivo.getParent());
+                Files.write(archivo, lineas, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+        entregadas.addAndGet(lineas.size());
+        fallidas.addAndGet(lote.size() - lineas.size());
+        return resultados;
+    }
+
+    public long getLotes() {
+        return lotes.get();
+    }
+
+    public long getEntregadas() {
+        return entregadas.get();
+    }
+
+    public long getFallidas() {
+        return fallidas.get();
+    }
+
+    private String destino(DatosEnvioNotificacionDTO datos) {
+        return switch (canal) {
+            case EMAIL -> datos.getEmail();
+            case SMS -> datos.getTelefono();
+            case PUSH, IN_APP -> "usuario:" + datos.getDestinatarioId();
+        };
+    }
+
+    private static void esperar(long ms) throws InterruptedIOException {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Envío simulado interrumpido");
+        }
+    }
+}
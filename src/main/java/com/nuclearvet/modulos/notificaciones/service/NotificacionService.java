@@ -2,6 +2,7 @@ package com.nuclearvet.modulos.notificaciones.service;
 
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.dto.CruceStockMinimoEvento;
 import com.nuclearvet.modulos.notificaciones.dto.CrearNotificacionDTO;
 import com.nuclearvet.modulos.notificaciones.dto.NotificacionDTO;
 import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
@@ -14,11 +15,17 @@ import com.nuclearvet.modulos.usuarios.entity.Usuario;
 import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -36,8 +43,15 @@ public class NotificacionService {
     private final UsuarioRepository usuarioRepository;
     private final NotificacionMapper notificacionMapper;
 
+    static final String REFERENCIA_PRODUCTO = "PRODUCTO";
+
+    @Value("${inventario.alertas.roles-notificados:ROLE_ADMIN,ROLE_ASISTENTE}")
+    private List<String> rolesAlertaStock;
+
     /**
-     * RF5.1: Crear y enviar una notificación
+     * RF5.1: Crear una notificación y dejarla en la bandeja de salida.
+     * Se guarda PENDIENTE en la transacción de quien la crea y la envía DespachadorNotificaciones,
+     * así la latencia de crearla no depende del proveedor del canal. Las IN_APP quedan entregadas al guardarse.
      */
     @Transactional
     public NotificacionDTO crearNotificacion(CrearNotificacionDTO dto) {
@@ -53,24 +67,60 @@ public class NotificacionService {
         Notificacion notificacion = notificacionMapper.toEntity(dto);
         notificacion.setDestinatario(destinatario);
         notificacion.setActivo(true);
-
-        // Intentar enviar inmediatamente
-        try {
-            enviarNotificacion(notificacion);
-            notificacion.setEstado(EstadoNotificacion.ENVIADA);
-            notificacion.setFechaEnviada(LocalDateTime.now());
-            log.info("Notificación enviada exitosamente por {}", dto.getCanal());
-        } catch (Exception e) {
-            notificacion.setEstado(EstadoNotificacion.ERROR);
-            notificacion.setErrorMensaje(e.getMessage());
-            log.error("Error al enviar notificación: {}", e.getMessage());
+        if (notificacion.getCanal() == CanalNotificacion.IN_APP && notificacion.getFechaProgramada() == null) {
+            notificacion.marcarComoEnviada();
         }
 
         notificacion = notificacionRepository.save(notificacion);
-        log.info("Notificación creada exitosamente");
+        log.info("Notificación creada con estado {}", notificacion.getEstado());
         return notificacionMapper.toDTO(notificacion);
     }
 
+    /**
+     * RF5.1: Alerta de stock bajo cuando un movimiento deja un producto en su stock mínimo o por debajo.
+     * Se ejecuta después del commit del movimiento, en su propia transacción, y crea una notificación
+     * IN_APP por cruce para los usuarios de los roles configurados. No repite la alerta a quien todavía
+     * no leyó la del mismo producto, así un stock que oscila alrededor del mínimo no llena la bandeja.
+     */
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void notificarStockBajoMinimo(CruceStockMinimoEvento evento) {
+        if (!evento.bajoMinimo()) {
+            return;
+        }
+
+        Map<Long, Usuario> destinatarios = new LinkedHashMap<>();
+        rolesAlertaStock.forEach(rol -> usuarioRepository.findByRolNombre(rol)
+                .forEach(usuario -> destinatarios.putIfAbsent(usuario.getId(), usuario)));
+
+        List<Notificacion> notificaciones = new ArrayList<>();
+        for (Usuario destinatario : destinatarios.values()) {
+            if (notificacionRepository.existsByDestinatarioIdAndTipoAndReferenciaIdAndReferenciaTipoAndFechaLeidaIsNull(
+                    destinatario.getId(), TipoNotificacion.ALERTA_STOCK, evento.productoId(), REFERENCIA_PRODUCTO)) {
+                continue;
+            }
+            String asunto = "Stock bajo: " + evento.nombre();
+            Notificacion notificacion = Notificacion.builder()
+                    .destinatario(destinatario)
+                    .tipo(TipoNotificacion.ALERTA_STOCK)
+                    .canal(CanalNotificacion.IN_APP)
+                    .asunto(asunto.length() > 200 ? asunto.substring(0, 200) : asunto)
+                    .mensaje(String.format("El producto %s (%s) quedó con %d unidades; su stock mínimo es %d.",
+                            evento.nombre(), evento.codigo(), evento.stockNuevo(), evento.stockMinimo()))
+                    .referenciaId(evento.productoId())
+                    .referenciaTipo(REFERENCIA_PRODUCTO)
+                    .build();
+            notificacion.setActivo(true);
+            // IN_APP: queda entregada al guardarse
+            notificacion.marcarComoEnviada();
+            notificaciones.add(notificacion);
+        }
+
+        notificacionRepository.saveAll(notificaciones);
+        log.info("Alerta de stock bajo del producto {}: {} notificaciones creadas de {} destinatarios",
+                evento.productoId(), notificaciones.size(), destinatarios.size());
+    }
+
     /**
      * RF5.1: Reintento de envío de notificación fallida
      */
@@ -85,24 +135,20 @@ public class NotificacionService {
             throw new ValidacionException("La notificación ya fue enviada exitosamente");
         }
 
+        if (notificacion.getEstado() == EstadoNotificacion.ENVIANDO) {
+            throw new ValidacionException("La notificación se está enviando");
+        }
+
         if (notificacion.getIntentosEnvio() >= 3) {
             throw new ValidacionException("Se alcanzó el máximo de intentos de envío (3)");
         }
 
-        try {
-            enviarNotificacion(notificacion);
-            notificacion.setEstado(EstadoNotificacion.ENVIADA);
-            notificacion.setFechaEnviada(LocalDateTime.now());
-            notificacion.setErrorMensaje(null);
-            log.info("Notificación reenviada exitosamente");
-        } catch (Exception e) {
-            notificacion.setEstado(EstadoNotificacion.ERROR);
-            notificacion.setErrorMensaje(e.getMessage());
-            notificacion.setIntentosEnvio(notificacion.getIntentosEnvio() + 1);
-            log.error("Error en reintento de envío: {}", e.getMessage());
-        }
+        // Vuelve a la bandeja de salida para enviarse en la siguiente ejecución del despachador
+        notificacion.setEstado(EstadoNotificacion.PENDIENTE);
+        notificacion.setFechaProgramada(null);
 
         notificacion = notificacionRepository.save(notificacion);
+        log.info("Notificación {} encolada para reenvío", id);
         return notificacionMapper.toDTO(notificacion);
     }
 
@@ -232,26 +278,6 @@ public class NotificacionService {
         }
     }
 
-    /**
-     * Simula el envío de notificación por el canal especificado
-     * En producción, aquí se integraría con servicios reales (SendGrid, Twilio, etc.)
-     */
-    private void enviarNotificacion(Notificacion notificacion) {
-        // Simulación de envío
-        log.info("Enviando notificación por {}: {}", notificacion.getCanal(), notificacion.getAsunto());
-        
-        // Aquí iría la integración real con:
-        // - SendGrid/AWS SES para EMAIL
-        // - Twilio para SMS
-        // - Firebase/OneSignal para PUSH
-        // - WebSocket para IN_APP
-        
-        // Por ahora solo validamos que tenga contenido
-        if (notificacion.getAsunto() == null || notificacion.getMensaje() == null) {
-            throw new RuntimeException("La notificación debe tener asunto y mensaje");
-        }
-    }
-
     /**
      * RF5.3: Listar notificaciones por canal
      */
@@ -298,18 +324,12 @@ public class NotificacionService {
             throw new ValidacionException("Solo se pueden reenviar notificaciones con estado ERROR");
         }
         
-        // Intentar reenviar
-        try {
-            enviarNotificacion(notificacion);
-            notificacion.setEstado(EstadoNotificacion.ENVIADA);
-            notificacion.setFechaEnviada(LocalDateTime.now());
-            log.info("Notificación reenviada exitosamente");
-        } catch (Exception e) {
-            log.error("Error al reenviar notificación: {}", e.getMessage());
-            throw new ValidacionException("No se pudo reenviar la notificación: " + e.getMessage());
-        }
-        
+        // Vuelve a la bandeja de salida para enviarse en la siguiente ejecución del despachador
+        notificacion.setEstado(EstadoNotificacion.PENDIENTE);
+        notificacion.setFechaProgramada(null);
+
         notificacion = notificacionRepository.save(notificacion);
+        log.info("Notificación {} encolada para reenvío", id);
         return notificacionMapper.toDTO(notificacion);
     }
 
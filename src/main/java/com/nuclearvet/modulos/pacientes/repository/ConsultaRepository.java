@@ -49,4 +49,20 @@ public interface ConsultaRepository extends JpaRepository<Consulta, Long> {
      * Cuenta las consultas de un paciente (por historia clínica).
      */
     long countByHistoriaClinicaId(Long historiaClinicaId);
+
+    /**
+     * Consultas completadas del rango [desde, hasta) sin factura vigente (facturación por lotes, RF6.1).
+     * Trae en la misma consulta paciente y propietario para evitar una lectura por factura.
+     */
+    @Query("SELECT DISTINCT c FROM Consulta c " +
+           "JOIN FETCH c.historiaClinica h JOIN FETCH h.paciente p " +
+           "JOIN FETCH p.propietario prop LEFT JOIN FETCH prop.roles " +
+           "WHERE c.estado = 'COMPLETADA' AND c.activo = true " +
+           "AND c.fechaConsulta >= :desde AND c.fechaConsulta < :hasta " +
+           "AND NOT EXISTS (SELECT f.id FROM Factura f WHERE f.consulta = c " +
+           "AND f.estado <> 'CANCELADA') " +
+           "ORDER BY c.fechaConsulta ASC")
+    List<Consulta> findCompletadasSinFactura(
+            @Param("desde") LocalDateTime desde,
+            @Param("hasta") LocalDateTime hasta);
 }
@@ -0,0 +1,55 @@
+-- Saldo vigente del kardex de cada producto (costo promedio ponderado)
+CREATE TABLE IF NOT EXISTS kardex_productos (
+    producto_id         BIGINT PRIMARY KEY REFERENCES productos (id),
+    cantidad            INTEGER        NOT NULL,
+    costo_promedio      NUMERIC(14, 4) NOT NULL,
+    valor               NUMERIC(16, 2) NOT NULL,
+    fecha_actualizacion TIMESTAMP      NOT NULL
+);
+
+-- Registros del kardex: un cambio de stock valorizado y el saldo que deja
+CREATE SEQUENCE IF NOT EXISTS kardex_registros_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS kardex_registros (
+    id              BIGINT PRIMARY KEY,
+    producto_id     BIGINT         NOT NULL REFERENCES productos (id),
+    movimiento_id   BIGINT REFERENCES movimientos_inventario (id),
+    fecha           TIMESTAMP      NOT NULL,
+    tipo_movimiento VARCHAR(20)    NOT NULL,
+    concepto        VARCHAR(50),
+    cantidad        INTEGER        NOT NULL,
+    costo_unitario  NUMERIC(14, 4) NOT NULL,
+    valor           NUMERIC(16, 2) NOT NULL,
+    saldo_cantidad  INTEGER        NOT NULL,
+    costo_promedio  NUMERIC(14, 4) NOT NULL,
+    saldo_valor     NUMERIC(16, 2) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_kardex_registros_fecha ON kardex_registros (fecha);
+CREATE INDEX IF NOT EXISTS idx_kardex_registros_producto_fecha ON kardex_registros (producto_id, fecha);
+
+-- Cortes de valorización: saldo de cada producto con existencias a la fecha de corte
+CREATE SEQUENCE IF NOT EXISTS valoraciones_inventario_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS valoraciones_inventario (
+    id             BIGINT PRIMARY KEY,
+    fecha_corte    TIMESTAMP      NOT NULL,
+    producto_id    BIGINT         NOT NULL REFERENCES productos (id),
+    cantidad       INTEGER        NOT NULL,
+    costo_promedio NUMERIC(14, 4) NOT NULL,
+    valor          NUMERIC(16, 2) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_valoraciones_inventario_corte ON valoraciones_inventario (fecha_corte);
+
+-- Punto de partida: el stock actual al precio de compra, y un corte con ese saldo
+INSERT INTO kardex_productos (producto_id, cantidad, costo_promedio, valor, fecha_actualizacion)
+SELECT p.id,
+       p.stock_actual,
+       COALESCE(p.precio_compra, 0),
+       ROUND(p.stock_actual * COALESCE(p.precio_compra, 0), 2),
+       CURRENT_TIMESTAMP
+FROM productos p;
+
+INSERT INTO valoraciones_inventario (id, fecha_corte, producto_id, cantidad, costo_promedio, valor)
+SELECT ROW_NUMBER() OVER (ORDER BY k.producto_id), k.fecha_actualizacion, k.producto_id, k.cantidad, k.costo_promedio, k.valor
+FROM kardex_productos k
+WHERE k.cantidad <> 0 OR k.valor <> 0;
+
+SELECT setval('valoraciones_inventario_seq', (SELECT COALESCE(MAX(id), 0) FROM valoraciones_inventario) + 50);
@@ -0,0 +1,3 @@
+-- Stock de un producto a una fecha anterior al primer corte del kardex: último movimiento hasta la fecha
+CREATE INDEX IF NOT EXISTS idx_movimientos_inventario_producto_fecha
+    ON movimientos_inventario (producto_id, fecha_movimiento);
@@ -0,0 +1,3 @@
+-- Secuencia con incremento 50 para insertar por lotes los productos de una importación CSV
+CREATE SEQUENCE IF NOT EXISTS productos_seq INCREMENT BY 50;
+SELECT setval('productos_seq', (SELECT COALESCE(MAX(id), 0) FROM productos) + 50);
@@ -0,0 +1,21 @@
+-- Unidades reservadas para citas: el stock disponible para vender o reservar es stock_actual - stock_reservado
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS stock_reservado INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE productos ADD CONSTRAINT chk_productos_stock_reservado CHECK (stock_reservado >= 0);
+
+-- Reservas de stock por cita (insumos de cirugías)
+CREATE SEQUENCE IF NOT EXISTS reservas_stock_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS reservas_stock (
+    id                  BIGINT PRIMARY KEY,
+    producto_id         BIGINT      NOT NULL REFERENCES productos (id),
+    cita_id             BIGINT      NOT NULL REFERENCES citas (id),
+    cantidad            INTEGER     NOT NULL CHECK (cantidad > 0),
+    estado              VARCHAR(20) NOT NULL,
+    fecha_cierre        TIMESTAMP,
+    movimiento_id       BIGINT REFERENCES movimientos_inventario (id),
+    fecha_creacion      TIMESTAMP   NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    activo              BOOLEAN
+);
+CREATE INDEX IF NOT EXISTS idx_reservas_stock_cita ON reservas_stock (cita_id);
+CREATE INDEX IF NOT EXISTS idx_reservas_stock_producto_activas ON reservas_stock (producto_id)
+    WHERE estado = 'ACTIVA';
@@ -0,0 +1,51 @@
+-- Ubicaciones de stock: farmacia principal, quirófano y sedes. Los movimientos sin ubicación van a la principal
+CREATE TABLE IF NOT EXISTS ubicaciones (
+    id                  BIGSERIAL PRIMARY KEY,
+    codigo              VARCHAR(30)  NOT NULL UNIQUE,
+    nombre              VARCHAR(100) NOT NULL,
+    descripcion         VARCHAR(500),
+    principal           BOOLEAN      NOT NULL DEFAULT FALSE,
+    fecha_creacion      TIMESTAMP    NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    activo              BOOLEAN
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_ubicaciones_una_principal ON ubicaciones (principal) WHERE principal;
+
+INSERT INTO ubicaciones (codigo, nombre, descripcion, principal, fecha_creacion, activo)
+VALUES ('FARMACIA', 'Farmacia principal', 'Ventas, entregas de proveedor e insumos de citas', TRUE, CURRENT_TIMESTAMP, TRUE),
+       ('QUIROFANO', 'Quirófano', NULL, FALSE, CURRENT_TIMESTAMP, TRUE);
+
+-- Stock de cada producto por ubicación. La suma de un producto es su stock_actual
+CREATE SEQUENCE IF NOT EXISTS stock_ubicaciones_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS stock_ubicaciones (
+    id                  BIGINT PRIMARY KEY,
+    producto_id         BIGINT    NOT NULL REFERENCES productos (id),
+    ubicacion_id        BIGINT    NOT NULL REFERENCES ubicaciones (id),
+    cantidad            INTEGER   NOT NULL CHECK (cantidad >= 0),
+    stock_minimo        INTEGER CHECK (stock_minimo >= 0),
+    fecha_creacion      TIMESTAMP NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    activo              BOOLEAN,
+    CONSTRAINT uk_stock_ubicaciones_producto_ubicacion UNIQUE (producto_id, ubicacion_id)
+);
+
+-- Stock de una ubicación (dashboards por sede): solo filas con unidades
+CREATE INDEX IF NOT EXISTS idx_stock_ubicaciones_ubicacion ON stock_ubicaciones (ubicacion_id, producto_id)
+    WHERE cantidad > 0;
+
+-- Alertas de bajo stock por ubicación: solo las filas en o por debajo de su mínimo
+CREATE INDEX IF NOT EXISTS idx_stock_ubicaciones_bajo_minimo ON stock_ubicaciones (ubicacion_id)
+    WHERE stock_minimo IS NOT NULL AND cantidad <= stock_minimo;
+
+-- El stock existente queda en la farmacia principal
+INSERT INTO stock_ubicaciones (id, producto_id, ubicacion_id, cantidad, fecha_creacion, activo)
+SELECT ROW_NUMBER() OVER (ORDER BY p.id), p.id, u.id, p.stock_actual, CURRENT_TIMESTAMP, TRUE
+FROM productos p
+CROSS JOIN ubicaciones u
+WHERE u.principal AND p.stock_actual > 0;
+
+SELECT setval('stock_ubicaciones_seq', (SELECT COALESCE(MAX(id), 0) FROM stock_ubicaciones) + 50);
+
+-- Ubicación de cada movimiento (origen y destino en las transferencias); vacía en el historial anterior
+ALTER TABLE movimientos_inventario ADD COLUMN IF NOT EXISTS ubicacion_id BIGINT REFERENCES ubicaciones (id);
+ALTER TABLE movimientos_inventario ADD COLUMN IF NOT EXISTS ubicacion_destino_id BIGINT REFERENCES ubicaciones (id);
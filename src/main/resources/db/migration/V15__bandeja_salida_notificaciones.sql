@@ -0,0 +1,7 @@
+-- Bandeja de salida de notificaciones: el despachador toma por canal las pendientes más antiguas
+CREATE INDEX IF NOT EXISTS idx_notificaciones_pendientes ON notificaciones (canal, id)
+    WHERE estado = 'PENDIENTE';
+
+-- Notificaciones que quedaron en envío al detenerse el proceso
+CREATE INDEX IF NOT EXISTS idx_notificaciones_enviando ON notificaciones (fecha_actualizacion)
+    WHERE estado = 'ENVIANDO';
@@ -0,0 +1,3 @@
+-- Huella (SHA-256) de los datos del pago registrado con una clave de idempotencia:
+-- un reintento con la misma clave y otros datos se rechaza en lugar de responder el pago anterior
+ALTER TABLE pagos ADD COLUMN huella_solicitud VARCHAR(64);
@@ -0,0 +1,13 @@
+-- Un solo corte de valorización por producto y fecha: dos instancias que generen el mismo corte
+-- a la vez no pueden duplicarlo (la segunda descarta el suyo)
+DELETE FROM valoraciones_inventario v
+USING valoraciones_inventario o
+WHERE v.fecha_corte = o.fecha_corte
+  AND v.producto_id = o.producto_id
+  AND v.id > o.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_valoraciones_inventario_corte_producto
+    ON valoraciones_inventario (fecha_corte, producto_id);
+
+-- El índice único empieza por fecha_corte y cubre las búsquedas por corte
+DROP INDEX IF EXISTS idx_valoraciones_inventario_corte;
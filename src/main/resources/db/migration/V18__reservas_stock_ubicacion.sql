@@ -0,0 +1,2 @@
+-- Ubicación de donde se consumen las unidades de una reserva (ej: quirófano); vacía = ubicación principal
+ALTER TABLE reservas_stock ADD COLUMN IF NOT EXISTS ubicacion_id BIGINT REFERENCES ubicaciones (id);
@@ -0,0 +1,5 @@
+-- Token del despacho que tomó la notificación: cada instancia solo envía las que tomó ella
+ALTER TABLE notificaciones ADD COLUMN IF NOT EXISTS token_envio VARCHAR(36);
+
+CREATE INDEX IF NOT EXISTS idx_notificaciones_token_envio ON notificaciones (token_envio)
+    WHERE estado = 'ENVIANDO';
@@ -0,0 +1,6 @@
+-- Consecutivo de numeración de facturas (FAC-<año>-<consecutivo>): continúa desde el mayor ya emitido
+CREATE SEQUENCE IF NOT EXISTS numeros_factura_seq;
+SELECT setval('numeros_factura_seq',
+              COALESCE((SELECT MAX(CAST(split_part(numero_factura, '-', 3) AS BIGINT)) FROM facturas
+                        WHERE numero_factura ~ '^FAC-[0-9]+-[0-9]+$'), 0) + 1,
+              false);
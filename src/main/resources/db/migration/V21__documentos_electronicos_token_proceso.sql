@@ -0,0 +1,9 @@
+-- Token del lote que tomó el documento: cada instancia solo firma y envía los que tomó ella
+ALTER TABLE documentos_electronicos ADD COLUMN IF NOT EXISTS token_proceso VARCHAR(36);
+
+CREATE INDEX IF NOT EXISTS idx_documentos_electronicos_token_proceso ON documentos_electronicos (token_proceso)
+    WHERE estado = 'PROCESANDO';
+
+-- Documentos que quedaron en proceso al detenerse una instancia
+CREATE INDEX IF NOT EXISTS idx_documentos_electronicos_procesando ON documentos_electronicos (fecha_actualizacion)
+    WHERE estado = 'PROCESANDO';
@@ -0,0 +1,3 @@
+-- Control de concurrencia optimista para la aplicación incremental de pagos
+-- (FacturaRepository.aplicarMovimientoPago)
+ALTER TABLE facturas ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Secuencias con incremento 50 para permitir inserciones por lotes de facturas e items
+CREATE SEQUENCE IF NOT EXISTS facturas_seq INCREMENT BY 50;
+SELECT setval('facturas_seq', (SELECT COALESCE(MAX(id), 0) FROM facturas) + 50);
+
+CREATE SEQUENCE IF NOT EXISTS items_factura_seq INCREMENT BY 50;
+SELECT setval('items_factura_seq', (SELECT COALESCE(MAX(id), 0) FROM items_factura) + 50);
@@ -0,0 +1,3 @@
+-- Secuencia con incremento 50 para insertar por lotes los movimientos generados por facturas
+CREATE SEQUENCE IF NOT EXISTS movimientos_inventario_seq INCREMENT BY 50;
+SELECT setval('movimientos_inventario_seq', (SELECT COALESCE(MAX(id), 0) FROM movimientos_inventario) + 50);
@@ -0,0 +1,3 @@
+-- Clave de idempotencia enviada por los terminales POS para no registrar pagos duplicados
+ALTER TABLE pagos ADD COLUMN clave_idempotencia VARCHAR(100);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_pagos_clave_idempotencia ON pagos (clave_idempotencia);
@@ -0,0 +1,18 @@
+-- Documentos electrónicos firmados de las facturas y su estado de envío
+CREATE SEQUENCE IF NOT EXISTS documentos_electronicos_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS documentos_electronicos (
+    id                  BIGINT PRIMARY KEY,
+    factura_id          BIGINT       NOT NULL UNIQUE REFERENCES facturas (id),
+    estado              VARCHAR(20)  NOT NULL,
+    intentos            INTEGER      NOT NULL DEFAULT 0,
+    firma               VARCHAR(100),
+    referencia_envio    VARCHAR(255),
+    mensaje_error       VARCHAR(500),
+    fecha_envio         TIMESTAMP,
+    fecha_creacion      TIMESTAMP    NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    activo              BOOLEAN
+);
+
+CREATE INDEX IF NOT EXISTS idx_documentos_electronicos_estado ON documentos_electronicos (estado, intentos);
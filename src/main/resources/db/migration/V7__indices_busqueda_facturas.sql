@@ -0,0 +1,15 @@
+-- Índices compuestos para la búsqueda de facturas por criterios combinados
+-- (FacturaSpecifications). Todas las búsquedas ordenan por fecha_emision DESC, id DESC,
+-- por eso fecha_emision va al final de cada índice.
+
+-- Cliente, opcionalmente con estado (estado de cuenta, cartera del cliente)
+CREATE INDEX IF NOT EXISTS idx_facturas_propietario_estado_fecha ON facturas (propietario_id, estado, fecha_emision);
+
+-- Paciente
+CREATE INDEX IF NOT EXISTS idx_facturas_paciente_fecha ON facturas (paciente_id, fecha_emision);
+
+-- Estado con rango de fechas (pendientes, vencidas, reportes)
+CREATE INDEX IF NOT EXISTS idx_facturas_estado_fecha ON facturas (estado, fecha_emision);
+
+-- Rango de fechas con rango de montos
+CREATE INDEX IF NOT EXISTS idx_facturas_fecha_total ON facturas (fecha_emision, total);
@@ -0,0 +1,34 @@
+-- Stock por lote y vencimiento (LoteProducto). La suma de los lotes de un producto es su stock_actual;
+-- las salidas se asignan FEFO (primero en vencer, primero en salir).
+CREATE SEQUENCE IF NOT EXISTS lotes_producto_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS lotes_producto (
+    id                  BIGINT PRIMARY KEY,
+    producto_id         BIGINT       NOT NULL REFERENCES productos (id),
+    codigo_lote         VARCHAR(100),
+    fecha_vencimiento   DATE,
+    cantidad_inicial    INTEGER      NOT NULL,
+    cantidad_disponible INTEGER      NOT NULL CHECK (cantidad_disponible >= 0),
+    fecha_ingreso       TIMESTAMP    NOT NULL,
+    fecha_creacion      TIMESTAMP    NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    activo              BOOLEAN
+);
+
+-- Carga de la cola FEFO de un producto: solo lotes con unidades
+CREATE INDEX IF NOT EXISTS idx_lotes_producto_fefo ON lotes_producto (producto_id, fecha_vencimiento, id)
+    WHERE cantidad_disponible > 0;
+
+-- Alertas de vencimiento (productos próximos a vencer y vencidos)
+CREATE INDEX IF NOT EXISTS idx_lotes_producto_vencimiento ON lotes_producto (fecha_vencimiento, producto_id)
+    WHERE cantidad_disponible > 0;
+
+-- El stock existente queda en un lote por producto con el lote y vencimiento que tenía el producto
+INSERT INTO lotes_producto (id, producto_id, codigo_lote, fecha_vencimiento, cantidad_inicial, cantidad_disponible,
+                            fecha_ingreso, fecha_creacion, activo)
+SELECT ROW_NUMBER() OVER (ORDER BY p.id), p.id, p.lote, p.fecha_vencimiento, p.stock_actual, p.stock_actual,
+       COALESCE(p.fecha_creacion, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP, TRUE
+FROM productos p
+WHERE p.stock_actual > 0;
+
+SELECT setval('lotes_producto_seq', (SELECT COALESCE(MAX(id), 0) FROM lotes_producto) + 50);
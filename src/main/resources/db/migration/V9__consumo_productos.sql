@@ -0,0 +1,25 @@
+-- Días entre el pedido y la recepción de cada proveedor, para las sugerencias de pedido
+ALTER TABLE proveedores ADD COLUMN IF NOT EXISTS dias_entrega INTEGER;
+
+-- Consumo diario por producto (media móvil exponencial de las salidas), se actualiza con cada SALIDA
+CREATE TABLE IF NOT EXISTS consumos_producto (
+    producto_id         BIGINT PRIMARY KEY REFERENCES productos (id),
+    tasa_diaria         DOUBLE PRECISION NOT NULL,
+    dias_observados     INTEGER          NOT NULL,
+    fecha_dia           DATE             NOT NULL,
+    consumo_dia         INTEGER          NOT NULL,
+    fecha_actualizacion TIMESTAMP        NOT NULL
+);
+
+-- Punto de partida: promedio diario de las salidas de los 30 días anteriores y las salidas de hoy
+INSERT INTO consumos_producto (producto_id, tasa_diaria, dias_observados, fecha_dia, consumo_dia, fecha_actualizacion)
+SELECT m.producto_id,
+       COALESCE(SUM(m.cantidad) FILTER (WHERE m.fecha_movimiento < CURRENT_DATE), 0) / 30.0,
+       30,
+       CURRENT_DATE,
+       COALESCE(SUM(m.cantidad) FILTER (WHERE m.fecha_movimiento >= CURRENT_DATE), 0),
+       CURRENT_TIMESTAMP
+FROM movimientos_inventario m
+WHERE m.tipo_movimiento = 'SALIDA'
+  AND m.fecha_movimiento >= CURRENT_DATE - 30
+GROUP BY m.producto_id;
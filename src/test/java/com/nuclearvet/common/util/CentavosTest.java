@@ -0,0 +1,65 @@
+package com.nuclearvet.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitarios para Centavos
+ */
+@DisplayName("Centavos - Tests")
+class CentavosTest {
+
+    @Test
+    @DisplayName("Debe convertir entre BigDecimal y centavos")
+    void testConversion() {
+        assertThat(Centavos.desde(new BigDecimal("100.50"))).isEqualTo(10050L);
+        assertThat(Centavos.desde(new BigDecimal("7"))).isEqualTo(700L);
+        assertThat(Centavos.desde(new BigDecimal("0.005"))).isEqualTo(1L);
+        assertThat(Centavos.desde(null)).isZero();
+        assertThat(Centavos.aBigDecimal(10050L)).isEqualTo(new BigDecimal("100.50"));
+        assertThat(Centavos.puntosBasicos(new BigDecimal("19"))).isEqualTo(1900L);
+    }
+
+    @Test
+    @DisplayName("Debe redondear el IVA del 19% con HALF_UP")
+    void testPorcentajeIva() {
+        // 19% de 100.50 = 19.095 -> 19.10
+        assertThat(Centavos.porcentaje(10050L, 1900L)).isEqualTo(1910L);
+        // 19% de 0.10 = 0.019 -> 0.02
+        assertThat(Centavos.porcentaje(10L, 1900L)).isEqualTo(2L);
+        // 19% de 0.02 = 0.0038 -> 0.00
+        assertThat(Centavos.porcentaje(2L, 1900L)).isZero();
+        // Negativos: la mitad se aleja de cero, como BigDecimal
+        assertThat(Centavos.porcentaje(-10050L, 1900L)).isEqualTo(-1910L);
+    }
+
+    @Test
+    @DisplayName("Debe dar el mismo resultado que el cálculo con BigDecimal")
+    void testEquivalenciaConBigDecimal() {
+        Random random = new Random(7);
+        BigDecimal iva = new BigDecimal("19.00");
+        for (int i = 0; i < 10_000; i++) {
+            long centavos = random.nextInt(10_000_000) - 1_000_000;
+            BigDecimal esperado = Centavos.aBigDecimal(centavos).multiply(iva)
+                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+
+            long resultado = Centavos.porcentaje(centavos, Centavos.puntosBasicos(iva));
+
+            assertThat(Centavos.aBigDecimal(resultado)).isEqualTo(esperado);
+        }
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción si la operación desborda")
+    void testDesbordamiento() {
+        assertThatThrownBy(() -> Centavos.multiplicar(Long.MAX_VALUE / 2, 3))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nuclearvet.common.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests unitarios para LectorCsv
+ */
+@DisplayName("LectorCsv - Tests")
+class LectorCsvTest {
+
+    @Test
+    @DisplayName("Debe leer campos entre comillas con separadores, comillas y saltos de línea")
+    void testCamposEntreComillas() throws IOException {
+        // Arrange
+        String contenido = "codigo,nombre,observaciones\r\n"
+                + "A1,\"Collar, talla M\",\"Dice \"\"frágil\"\"\"\r\n"
+                + "A2,\"Dos\nlíneas\",\n"
+                + "A3,Último,fin";
+
+        // Act & Assert
+        try (LectorCsv lector = new LectorCsv(new StringReader(contenido))) {
+            assertThat(lector.siguiente()).containsExactly("codigo", "nombre", "observaciones");
+            assertThat(lector.siguiente()).containsExactly("A1", "Collar, talla M", "Dice \"frágil\"");
+            assertThat(lector.getLinea()).isEqualTo(2);
+            assertThat(lector.siguiente()).containsExactly("A2", "Dos\nlíneas", "");
+            assertThat(lector.siguiente()).containsExactly("A3", "Último", "fin");
+            assertThat(lector.getLinea()).isEqualTo(5);
+            assertThat(lector.siguiente()).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe usar punto y coma si el encabezado lo trae y no trae comas")
+    void testSeparadorPuntoYComa() throws IOException {
+        try (LectorCsv lector = new LectorCsv(new StringReader("codigo;precio\nA1;12,50\n"))) {
+            assertThat(lector.siguiente()).containsExactly("codigo", "precio");
+            assertThat(lector.siguiente()).containsExactly("A1", "12,50");
+            assertThat(lector.siguiente()).isNull();
+        }
+    }
+}
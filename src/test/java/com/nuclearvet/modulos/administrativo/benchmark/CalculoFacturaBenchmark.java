@@ -0,0 +1,120 @@
+package com.nuclearvet.modulos.administrativo.benchmark;
+
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
+import com.nuclearvet.modulos.administrativo.entity.TipoItemFactura;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH del cálculo de totales de factura: aritmética en centavos (Factura.calcularTotal)
+ * contra el cálculo anterior con BigDecimal, que sumaba los subtotales guardados en los items.
+ * No se ejecuta con los tests; correr con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.nuclearvet.modulos.administrativo.benchmark.CalculoFacturaBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoFacturaBenchmark {
+
+    private static final BigDecimal IVA = new BigDecimal("19.00");
+
+    @Param({"50"})
+    private int facturas;
+
+    @Param({"1", "30"})
+    private int itemsPorFactura;
+
+    private List<Factura> lote;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        lote = new ArrayList<>(facturas);
+        for (int i = 0; i < facturas; i++) {
+            Factura factura = Factura.builder()
+                    .porcentajeImpuesto(IVA)
+                    .descuento(BigDecimal.ZERO)
+                    .totalPagado(BigDecimal.ZERO)
+                    .build();
+            for (int j = 0; j < itemsPorFactura; j++) {
+                ItemFactura item = ItemFactura.builder()
+                        .tipo(TipoItemFactura.PRODUCTO)
+                        .descripcion("Item " + j)
+                        .cantidad(1 + random.nextInt(5))
+                        .precioUnitario(BigDecimal.valueOf(100 + random.nextInt(50_000), 2))
+                        .build();
+                item.calcularSubtotal();
+                factura.agregarItem(item);
+            }
+            lote.add(factura);
+        }
+    }
+
+    @Benchmark
+    public void centavos(Blackhole blackhole) {
+        for (Factura factura : lote) {
+            factura.calcularTotal();
+            blackhole.consume(factura.getTotal());
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        for (Factura factura : lote) {
+            calcularTotalConBigDecimal(factura);
+            blackhole.consume(factura.getTotal());
+        }
+    }
+
+    /**
+     * Cálculo anterior de Factura.calcularTotal: suma los subtotales guardados en los items
+     * y asigna subtotal, impuesto, total y saldo pendiente con BigDecimal
+     */
+    private static void calcularTotalConBigDecimal(Factura factura) {
+        BigDecimal subtotal = factura.getItems().stream()
+                .map(ItemFactura::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        factura.setSubtotal(subtotal);
+
+        BigDecimal porcentajeImpuesto = factura.getPorcentajeImpuesto();
+        if (porcentajeImpuesto != null && porcentajeImpuesto.compareTo(BigDecimal.ZERO) > 0) {
+            factura.setValorImpuesto(subtotal.multiply(porcentajeImpuesto)
+                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP));
+        } else {
+            factura.setValorImpuesto(BigDecimal.ZERO);
+        }
+
+        BigDecimal descuento = factura.getDescuento();
+        factura.setTotal(subtotal
+                .add(factura.getValorImpuesto())
+                .subtract(descuento != null ? descuento : BigDecimal.ZERO));
+
+        BigDecimal totalPagado = factura.getTotalPagado();
+        factura.setSaldoPendiente(factura.getTotal().subtract(totalPagado != null ? totalPagado : BigDecimal.ZERO));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+                .include(CalculoFacturaBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.modulos.administrativo.dto.PagoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests unitarios para AlmacenIdempotenciaPagos
+ * Módulo 6 - Administrativo (Facturación y Reportes)
+ */
+@DisplayName("AlmacenIdempotenciaPagos - Tests")
+class AlmacenIdempotenciaPagosTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AlmacenIdempotenciaPagos almacen;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        almacen = new AlmacenIdempotenciaPagos(2, meterRegistry);
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get(AlmacenIdempotenciaPagos.METRICA)
+                .tag("resultado", resultado)
+                .counter()
+                .count();
+    }
+
+    @Test
+    @DisplayName("Debe responder desde memoria un pago registrado")
+    void testObtenerPagoRegistrado() {
+        // Arrange
+        PagoDTO respuesta = new PagoDTO();
+        almacen.registrarNuevo("clave-1", "h", respuesta);
+
+        // Act & Assert
+        assertThat(almacen.obtener("clave-1", "h")).containsSame(respuesta);
+        assertThat(almacen.obtener("clave-2", "h")).isEmpty();
+        assertThat(contador("nuevo")).isEqualTo(1.0);
+        assertThat(contador("duplicado_memoria")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Debe descartar la clave menos usada al superar la capacidad")
+    void testCapacidadAcotada() {
+        // Arrange
+        almacen.registrarNuevo("clave-1", "h", new PagoDTO());
+        almacen.registrarNuevo("clave-2", "h", new PagoDTO());
+        almacen.obtener("clave-1", "h"); // clave-1 pasa a ser la más reciente
+
+        // Act
+        almacen.registrarNuevo("clave-3", "h", new PagoDTO());
+
+        // Assert
+        assertThat(almacen.obtener("clave-1", "h")).isPresent();
+        assertThat(almacen.obtener("clave-2", "h")).isEmpty();
+        assertThat(almacen.obtener("clave-3", "h")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Debe contar los duplicados resueltos desde base de datos")
+    void testRegistrarDuplicadoBaseDatos() {
+        // Act
+        almacen.registrarDuplicadoBaseDatos("clave-1", "h", new PagoDTO());
+
+        // Assert
+        assertThat(contador("duplicado_base_datos")).isEqualTo(1.0);
+        assertThat(almacen.obtener("clave-1", "h")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una clave reutilizada con otros datos de pago")
+    void testObtenerClaveReutilizada() {
+        // Arrange
+        almacen.registrarNuevo("clave-1", "h", new PagoDTO());
+
+        // Act & Assert
+        assertThatThrownBy(() -> almacen.obtener("clave-1", "otra"))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessage(AlmacenIdempotenciaPagos.MENSAJE_CLAVE_REUTILIZADA);
+        assertThat(contador("clave_reutilizada")).isEqualTo(1.0);
+        assertThat(contador("duplicado_memoria")).isZero();
+    }
+
+    @Test
+    @DisplayName("Debe aceptar cualquier solicitud para un pago registrado sin huella")
+    void testObtenerPagoSinHuella() {
+        // Arrange
+        almacen.registrarDuplicadoBaseDatos("clave-1", null, new PagoDTO());
+
+        // Act & Assert
+        assertThat(almacen.obtener("clave-1", "h")).isPresent();
+    }
+}
@@ -1,9 +1,13 @@
 package com.nuclearvet.modulos.administrativo.service;
 
+import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
 import com.nuclearvet.modulos.administrativo.dto.CrearFacturaDTO;
 import com.nuclearvet.modulos.administrativo.dto.FacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.FiltroFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.ItemFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.LineaEstadoCuentaDTO;
 import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.entity.Factura;
 import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
@@ -11,8 +15,19 @@ import com.nuclearvet.modulos.administrativo.entity.TipoItemFactura;
 import com.nuclearvet.modulos.administrativo.mapper.FacturaMapper;
 import com.nuclearvet.modulos.administrativo.mapper.ItemFacturaMapper;
 import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.administrativo.repository.LineaEstadoCuentaProyeccion;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
 import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.MovimientoInventarioRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.service.AsignadorLotesFefo;
+import com.nuclearvet.modulos.inventario.service.DetectorStockMinimo;
+import com.nuclearvet.modulos.inventario.service.EstadisticasConsumo;
+import com.nuclearvet.modulos.inventario.service.Kardex;
+import com.nuclearvet.modulos.inventario.service.StockProductos;
+import com.nuclearvet.modulos.inventario.service.StockUbicaciones;
 import com.nuclearvet.modulos.pacientes.entity.Consulta;
 import com.nuclearvet.modulos.pacientes.entity.Paciente;
 import com.nuclearvet.modulos.pacientes.repository.ConsultaRepository;
@@ -23,21 +38,31 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -63,6 +88,27 @@ class FacturaServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private StockProductos stockProductos;
+
+    @Mock
+    private MovimientoInventarioRepository movimientoInventarioRepository;
+
+    @Mock
+    private AsignadorLotesFefo asignadorLotes;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private DetectorStockMinimo detectorStockMinimo;
+
+    @Mock
+    private EstadisticasConsumo estadisticasConsumo;
+
+    @Mock
+    private Kardex kardex;
+
     @Mock
     private FacturaMapper facturaMapper;
 
@@ -101,8 +147,11 @@ class FacturaServiceTest {
 
         // Setup Producto
         producto = new Producto();
+        producto.setId(1L);
         producto.setNombre("Vacuna Antirrábica");
+        producto.setPrecioCompra(new BigDecimal("30.00"));
         producto.setPrecioVenta(new BigDecimal("50.00"));
+        producto.setStockActual(10);
 
         // Setup Factura
         factura = Factura.builder()
@@ -180,7 +229,7 @@ class FacturaServiceTest {
         when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
                 .thenReturn(Optional.of(emitidaPor));
         when(consultaRepository.findById(1L)).thenReturn(Optional.of(consulta));
-        when(facturaRepository.findLastFactura()).thenReturn(Optional.empty());
+        when(facturaRepository.reservarConsecutivos(1)).thenReturn(List.of(1L));
         when(facturaMapper.toEntity(any(CrearFacturaDTO.class))).thenReturn(facturaConTotales);
         when(facturaRepository.save(any(Factura.class))).thenReturn(facturaConTotales);
         when(facturaMapper.toDTO(any(Factura.class))).thenReturn(new FacturaDTO());
@@ -224,6 +273,163 @@ class FacturaServiceTest {
         verify(facturaRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Debe resolver todos los productos de los items con una sola consulta")
+    void testCrearFacturaResuelveProductosEnBloque() {
+        // Arrange
+        Producto jeringa = new Producto();
+        jeringa.setId(2L);
+        jeringa.setNombre("Jeringa 5ml");
+        jeringa.setStockActual(100);
+
+        CrearFacturaDTO.CrearItemFacturaDTO itemJeringa = new CrearFacturaDTO.CrearItemFacturaDTO();
+        itemJeringa.setTipo(TipoItemFactura.PRODUCTO);
+        itemJeringa.setDescripcion("Jeringa 5ml");
+        itemJeringa.setProductoId(2L);
+        itemJeringa.setCantidad(2);
+        itemJeringa.setPrecioUnitario(new BigDecimal("3.00"));
+
+        CrearFacturaDTO.CrearItemFacturaDTO itemServicio = new CrearFacturaDTO.CrearItemFacturaDTO();
+        itemServicio.setTipo(TipoItemFactura.SERVICIO);
+        itemServicio.setDescripcion("Aplicación de vacuna");
+        itemServicio.setCantidad(1);
+        itemServicio.setPrecioUnitario(new BigDecimal("10.00"));
+
+        crearFacturaDTO.setItems(List.of(crearFacturaDTO.getItems().get(0), itemJeringa, itemServicio));
+
+        Factura nuevaFactura = Factura.builder()
+                .porcentajeImpuesto(new BigDecimal("19"))
+                .build();
+
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
+                .thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findById(1L)).thenReturn(Optional.of(consulta));
+        when(facturaRepository.reservarConsecutivos(1)).thenReturn(List.of(1L));
+        when(facturaMapper.toEntity(any(CrearFacturaDTO.class))).thenReturn(nuevaFactura);
+        when(stockProductos.obtenerMapaPorIdsParaActualizar(anyCollection())).thenReturn(Map.of(1L, producto, 2L, jeringa));
+        when(facturaRepository.save(any(Factura.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(facturaMapper.toDTO(any(Factura.class))).thenReturn(new FacturaDTO());
+        when(itemFacturaMapper.toDTO(any(ItemFactura.class))).thenReturn(new ItemFacturaDTO());
+
+        // Act
+        facturaService.crearFactura(crearFacturaDTO);
+
+        // Assert
+        assertThat(nuevaFactura.getItems()).hasSize(3);
+        assertThat(nuevaFactura.getItems().get(0).getProducto()).isEqualTo(producto);
+        assertThat(nuevaFactura.getItems().get(1).getProducto()).isEqualTo(jeringa);
+        assertThat(nuevaFactura.getItems().get(2).getProducto()).isNull();
+        verify(stockProductos, times(1)).obtenerMapaPorIdsParaActualizar(List.of(1L, 2L));
+        verify(productoRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe indicar todos los productos inexistentes al crear factura")
+    void testCrearFacturaProductosNoExisten() {
+        // Arrange
+        CrearFacturaDTO.CrearItemFacturaDTO itemInexistente = new CrearFacturaDTO.CrearItemFacturaDTO();
+        itemInexistente.setTipo(TipoItemFactura.PRODUCTO);
+        itemInexistente.setDescripcion("Producto inexistente");
+        itemInexistente.setProductoId(99L);
+        itemInexistente.setCantidad(1);
+        itemInexistente.setPrecioUnitario(new BigDecimal("5.00"));
+        crearFacturaDTO.setItems(List.of(crearFacturaDTO.getItems().get(0), itemInexistente));
+
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
+                .thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findById(1L)).thenReturn(Optional.of(consulta));
+        when(stockProductos.obtenerMapaPorIdsParaActualizar(anyCollection()))
+                .thenThrow(new RecursoNoEncontradoException("Uy parce, no se encontraron productos con ids: [99]"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturaService.crearFactura(crearFacturaDTO))
+                .isInstanceOf(RecursoNoEncontradoException.class)
+                .hasMessageContaining("[99]");
+
+        verify(facturaRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe registrar salidas de inventario por los productos facturados")
+    @SuppressWarnings("unchecked")
+    void testCrearFacturaRegistraSalidasInventario() {
+        // Arrange
+        CrearFacturaDTO.CrearItemFacturaDTO itemRefuerzo = new CrearFacturaDTO.CrearItemFacturaDTO();
+        itemRefuerzo.setTipo(TipoItemFactura.PRODUCTO);
+        itemRefuerzo.setDescripcion("Vacuna Antirrábica (refuerzo)");
+        itemRefuerzo.setProductoId(1L);
+        itemRefuerzo.setCantidad(2);
+        itemRefuerzo.setPrecioUnitario(new BigDecimal("50.00"));
+        crearFacturaDTO.setItems(List.of(crearFacturaDTO.getItems().get(0), itemRefuerzo));
+
+        Factura nuevaFactura = Factura.builder()
+                .porcentajeImpuesto(new BigDecimal("19"))
+                .build();
+
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
+                .thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findById(1L)).thenReturn(Optional.of(consulta));
+        when(stockProductos.obtenerMapaPorIdsParaActualizar(anyCollection())).thenReturn(Map.of(1L, producto));
+        when(facturaRepository.reservarConsecutivos(1)).thenReturn(List.of(1L));
+        when(facturaMapper.toEntity(any(CrearFacturaDTO.class))).thenReturn(nuevaFactura);
+        when(facturaRepository.save(any(Factura.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(facturaMapper.toDTO(any(Factura.class))).thenReturn(new FacturaDTO());
+        when(itemFacturaMapper.toDTO(any(ItemFactura.class))).thenReturn(new ItemFacturaDTO());
+
+        // Act
+        facturaService.crearFactura(crearFacturaDTO);
+
+        // Assert
+        assertThat(producto.getStockActual()).isEqualTo(7);
+
+        ArgumentCaptor<List<MovimientoInventario>> captor = ArgumentCaptor.forClass(List.class);
+        verify(movimientoInventarioRepository, times(1)).saveAll(captor.capture());
+        List<MovimientoInventario> movimientos = captor.getValue();
+        assertThat(movimientos).hasSize(2);
+        assertThat(movimientos).allMatch(m -> m.getTipoMovimiento() == TipoMovimiento.SALIDA);
+        assertThat(movimientos).allMatch(m -> nuevaFactura.getNumeroFactura().equals(m.getNumeroDocumento()));
+        assertThat(movimientos.get(0).getStockAnterior()).isEqualTo(10);
+        assertThat(movimientos.get(0).getStockNuevo()).isEqualTo(9);
+        assertThat(movimientos.get(1).getStockAnterior()).isEqualTo(9);
+        assertThat(movimientos.get(1).getStockNuevo()).isEqualTo(7);
+        assertThat(movimientos.get(0).getUsuario()).isEqualTo(emitidaPor);
+        verify(detectorStockMinimo).registrarCambio(producto, new CambioStock(9, 7));
+        verify(estadisticasConsumo).registrarSalida(eq(producto), eq(2), any(LocalDate.class));
+    }
+
+    @Test
+    @DisplayName("Debe validar el stock sumando todas las líneas del mismo producto")
+    void testCrearFacturaStockInsuficiente() {
+        // Arrange
+        producto.setStockActual(3);
+        CrearFacturaDTO.CrearItemFacturaDTO itemRefuerzo = new CrearFacturaDTO.CrearItemFacturaDTO();
+        itemRefuerzo.setTipo(TipoItemFactura.PRODUCTO);
+        itemRefuerzo.setDescripcion("Vacuna Antirrábica (refuerzo)");
+        itemRefuerzo.setProductoId(1L);
+        itemRefuerzo.setCantidad(3);
+        itemRefuerzo.setPrecioUnitario(new BigDecimal("50.00"));
+        crearFacturaDTO.setItems(List.of(crearFacturaDTO.getItems().get(0), itemRefuerzo));
+
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
+                .thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findById(1L)).thenReturn(Optional.of(consulta));
+        when(stockProductos.obtenerMapaPorIdsParaActualizar(anyCollection())).thenReturn(Map.of(1L, producto));
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturaService.crearFactura(crearFacturaDTO))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("Vacuna Antirrábica")
+                .hasMessageContaining("cantidad solicitada: 4");
+
+        assertThat(producto.getStockActual()).isEqualTo(3);
+        verify(facturaRepository, never()).save(any());
+        verify(movimientoInventarioRepository, never()).saveAll(any());
+    }
+
     @Test
     @DisplayName("Debe obtener factura por ID")
     void testObtenerPorId() {
@@ -284,6 +490,92 @@ class FacturaServiceTest {
         verify(facturaRepository).findByPropietarioIdOrderByFechaEmisionDesc(1L);
     }
 
+    @Test
+    @DisplayName("Debe obtener el estado de cuenta paginado del cliente")
+    void testObtenerEstadoCuenta() {
+        // Arrange
+        LineaEstadoCuentaProyeccion linea = mock(LineaEstadoCuentaProyeccion.class);
+        when(linea.getTipo()).thenReturn("FACTURA");
+        when(linea.getDocumento()).thenReturn("FAC-2025-000001");
+        when(linea.getCargo()).thenReturn(new BigDecimal("59.50"));
+        when(linea.getAbono()).thenReturn(BigDecimal.ZERO);
+        when(linea.getSaldo()).thenReturn(new BigDecimal("59.50"));
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+        when(facturaRepository.findEstadoCuenta(1L, PageRequest.of(0, 50)))
+                .thenReturn(new PageImpl<>(List.of(linea), PageRequest.of(0, 50), 1));
+
+        // Act
+        Page<LineaEstadoCuentaDTO> resultado = facturaService.obtenerEstadoCuenta(1L, 0, 50);
+
+        // Assert
+        assertThat(resultado.getTotalElements()).isEqualTo(1);
+        LineaEstadoCuentaDTO primera = resultado.getContent().get(0);
+        assertThat(primera.getTipo()).isEqualTo("FACTURA");
+        assertThat(primera.getDocumento()).isEqualTo("FAC-2025-000001");
+        assertThat(primera.getSaldo()).isEqualByComparingTo("59.50");
+        verify(facturaRepository, never()).findByPropietarioIdOrderByFechaEmisionDesc(anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un tamaño de página de estado de cuenta inválido")
+    void testObtenerEstadoCuentaTamanoInvalido() {
+        // Arrange
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturaService.obtenerEstadoCuenta(1L, 0, 1000))
+                .isInstanceOf(ValidacionException.class);
+
+        verify(facturaRepository, never()).findEstadoCuenta(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Debe buscar facturas combinando criterios, paginado y ordenado por fecha")
+    @SuppressWarnings("unchecked")
+    void testBuscar() {
+        // Arrange
+        FiltroFacturaDTO filtro = FiltroFacturaDTO.builder()
+                .estado(EstadoFactura.PENDIENTE)
+                .propietarioId(1L)
+                .fechaDesde(LocalDate.now().minusDays(30))
+                .fechaHasta(LocalDate.now())
+                .montoMinimo(new BigDecimal("10.00"))
+                .build();
+        when(facturaRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(factura), PageRequest.of(0, 20), 1));
+        when(facturaMapper.toDTO(any(Factura.class))).thenReturn(new FacturaDTO());
+
+        // Act
+        Page<FacturaDTO> resultado = facturaService.buscar(filtro, 0, 20);
+
+        // Assert
+        assertThat(resultado.getTotalElements()).isEqualTo(1);
+        assertThat(resultado.getContent().get(0).getPropietarioNombre()).isEqualTo("Juan Pérez");
+        ArgumentCaptor<Pageable> paginacion = ArgumentCaptor.forClass(Pageable.class);
+        verify(facturaRepository).findAll(any(Specification.class), paginacion.capture());
+        assertThat(paginacion.getValue().getPageSize()).isEqualTo(20);
+        assertThat(paginacion.getValue().getSort())
+                .isEqualTo(Sort.by(Sort.Order.desc("fechaEmision"), Sort.Order.desc("id")));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una búsqueda con rango de montos inválido")
+    @SuppressWarnings("unchecked")
+    void testBuscarMontosInvalidos() {
+        // Arrange
+        FiltroFacturaDTO filtro = FiltroFacturaDTO.builder()
+                .montoMinimo(new BigDecimal("100.00"))
+                .montoMaximo(new BigDecimal("50.00"))
+                .build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturaService.buscar(filtro, 0, 20))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("monto mínimo");
+
+        verify(facturaRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
     @Test
     @DisplayName("Debe listar facturas por paciente")
     void testListarPorPaciente() {
@@ -400,6 +692,55 @@ class FacturaServiceTest {
         verify(facturaRepository).findById(1L);
     }
 
+    @Test
+    @DisplayName("Debe registrar devoluciones de inventario al cancelar factura")
+    @SuppressWarnings("unchecked")
+    void testCancelarFacturaRegistraDevoluciones() {
+        // Arrange
+        ItemFactura item = ItemFactura.builder()
+                .tipo(TipoItemFactura.PRODUCTO)
+                .descripcion("Vacuna Antirrábica")
+                .producto(producto)
+                .cantidad(2)
+                .precioUnitario(new BigDecimal("50.00"))
+                .build();
+        factura.agregarItem(item);
+        when(facturaRepository.findById(1L)).thenReturn(Optional.of(factura));
+        when(stockProductos.obtenerMapaPorIdsParaActualizar(anyCollection())).thenReturn(Map.of(1L, producto));
+        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+
+        // Act
+        facturaService.cancelarFactura(1L, "Cliente canceló el servicio");
+
+        // Assert
+        assertThat(factura.getEstado()).isEqualTo(EstadoFactura.CANCELADA);
+        assertThat(producto.getStockActual()).isEqualTo(12);
+
+        ArgumentCaptor<List<MovimientoInventario>> captor = ArgumentCaptor.forClass(List.class);
+        verify(movimientoInventarioRepository).saveAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        MovimientoInventario devolucion = captor.getValue().get(0);
+        assertThat(devolucion.getTipoMovimiento()).isEqualTo(TipoMovimiento.DEVOLUCION);
+        assertThat(devolucion.getCantidad()).isEqualTo(2);
+        assertThat(devolucion.getNumeroDocumento()).isEqualTo("FAC-2025-000001");
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción al cancelar factura ya cancelada")
+    void testCancelarFacturaYaCancelada() {
+        // Arrange
+        factura.setEstado(EstadoFactura.CANCELADA);
+        when(facturaRepository.findById(1L)).thenReturn(Optional.of(factura));
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturaService.cancelarFactura(1L, "Motivo"))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("ya se encuentra cancelada");
+
+        verify(movimientoInventarioRepository, never()).saveAll(any());
+        verify(facturaRepository, never()).save(any());
+    }
+
     @Test
     @DisplayName("Debe lanzar excepción al cancelar factura pagada")
     void testCancelarFacturaPagada() {
@@ -466,13 +807,9 @@ class FacturaServiceTest {
     }
 
     @Test
-    @DisplayName("Debe generar número de factura autoincremental")
+    @DisplayName("Debe numerar la factura con el consecutivo reservado en la secuencia")
     void testGenerarNumeroFacturaAutoincremental() {
         // Arrange
-        Factura ultimaFactura = Factura.builder()
-                .numeroFactura("FAC-2025-000005")
-                .build();
-        
         CrearFacturaDTO dtoSinItems = new CrearFacturaDTO();
         dtoSinItems.setPacienteId(1L);
         dtoSinItems.setPropietarioId(1L);
@@ -497,7 +834,7 @@ class FacturaServiceTest {
         facturaConTotales.setItems(new ArrayList<>());
         facturaConTotales.setPagos(new ArrayList<>());
         
-        when(facturaRepository.findLastFactura()).thenReturn(Optional.of(ultimaFactura));
+        when(facturaRepository.reservarConsecutivos(1)).thenReturn(List.of(6L));
         when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
         when(usuarioRepository.findById(1L)).thenReturn(Optional.of(propietario))
                 .thenReturn(Optional.of(emitidaPor));
@@ -510,7 +847,8 @@ class FacturaServiceTest {
         facturaService.crearFactura(dtoSinItems);
 
         // Assert
-        verify(facturaRepository).findLastFactura();
+        assertThat(facturaConTotales.getNumeroFactura()).isEqualTo(Factura.generarNumeroFactura(6));
+        verify(facturaRepository).reservarConsecutivos(1);
         verify(facturaRepository).save(any(Factura.class));
     }
 
@@ -0,0 +1,265 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoDocumentoElectronicoDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoProcesamientoDocumentosDTO;
+import com.nuclearvet.modulos.administrativo.entity.DocumentoElectronico;
+import com.nuclearvet.modulos.administrativo.entity.EstadoDocumentoElectronico;
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import com.nuclearvet.modulos.administrativo.entity.ItemFactura;
+import com.nuclearvet.modulos.administrativo.entity.TipoItemFactura;
+import com.nuclearvet.modulos.administrativo.repository.DocumentoElectronicoRepository;
+import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.pacientes.entity.Paciente;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para FacturacionElectronicaService
+ * Módulo 6 - Administrativo (Facturación y Reportes)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FacturacionElectronicaService - Tests")
+class FacturacionElectronicaServiceTest {
+
+    @Mock
+    private DocumentoElectronicoRepository documentoElectronicoRepository;
+
+    @Mock
+    private FacturaRepository facturaRepository;
+
+    @Mock
+    private ProcesadorDocumentosElectronicos procesador;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private FacturacionElectronicaService facturacionElectronicaService;
+
+    private Factura factura1;
+    private Factura factura2;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(facturacionElectronicaService, "tamanoLote", 200);
+        ReflectionTestUtils.setField(facturacionElectronicaService, "maxIntentos", 5);
+        ReflectionTestUtils.setField(facturacionElectronicaService, "procesandoVencidoMs", 600000L);
+
+        Usuario propietario = new Usuario();
+        propietario.setNombre("Juan");
+        propietario.setApellido("Pérez");
+        propietario.setDocumentoIdentidad("1020304050");
+
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Max");
+
+        factura1 = crearFactura(10L, "FAC-2025-000010", propietario, paciente);
+        factura2 = crearFactura(11L, "FAC-2025-000011", propietario, paciente);
+    }
+
+    private Factura crearFactura(Long id, String numero, Usuario propietario, Paciente paciente) {
+        Factura factura = Factura.builder()
+                .id(id)
+                .numeroFactura(numero)
+                .fechaEmision(LocalDate.now())
+                .propietario(propietario)
+                .paciente(paciente)
+                .porcentajeImpuesto(new BigDecimal("19.00"))
+                .build();
+        ItemFactura item = ItemFactura.builder()
+                .tipo(TipoItemFactura.SERVICIO)
+                .descripcion("Consulta general")
+                .cantidad(1)
+                .precioUnitario(new BigDecimal("50000.00"))
+                .build();
+        item.calcularSubtotal();
+        factura.agregarItem(item);
+        factura.calcularTotal();
+        return factura;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void ejecutarTransaccionesEnLinea() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void registrarResultadosEnLinea() {
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    /**
+     * Simula el UPDATE de la toma: los documentos quedan en PROCESANDO con el token del lote
+     */
+    private void tomarConToken(DocumentoElectronico... documentos) {
+        when(documentoElectronicoRepository.tomarParaProcesar(anyList(), anyString(), any())).thenAnswer(invocation -> {
+            for (DocumentoElectronico documento : documentos) {
+                documento.setEstado(EstadoDocumentoElectronico.PROCESANDO);
+                documento.setTokenProceso(invocation.getArgument(1));
+            }
+            return documentos.length;
+        });
+    }
+
+    @Test
+    @DisplayName("Debe crear los documentos de facturas nuevas, tomarlos con un token y guardar el resultado del envío")
+    @SuppressWarnings("unchecked")
+    void testProcesarPendientes() {
+        // Arrange
+        ejecutarTransaccionesEnLinea();
+        registrarResultadosEnLinea();
+        DocumentoElectronico documento1 = DocumentoElectronico.builder()
+                .id(1L).factura(factura1).estado(EstadoDocumentoElectronico.PENDIENTE).build();
+        DocumentoElectronico documento2 = DocumentoElectronico.builder()
+                .id(2L).factura(factura2).estado(EstadoDocumentoElectronico.PENDIENTE).build();
+
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(2L), any())).thenReturn(List.of());
+        tomarConToken(documento1, documento2);
+        when(documentoElectronicoRepository.findTomados(anyString())).thenReturn(List.of(documento1, documento2));
+        when(facturaRepository.findConItemsByIdIn(List.of(10L, 11L))).thenReturn(List.of(factura1, factura2));
+        when(procesador.procesar(anyList())).thenReturn(List.of(
+                ResultadoDocumentoElectronicoDTO.builder()
+                        .documentoId(1L).exitoso(true).firma("firma-1").referenciaEnvio("REF-1").build(),
+                ResultadoDocumentoElectronicoDTO.builder()
+                        .documentoId(2L).exitoso(false).mensajeError("IOException: Servicio no disponible").build()));
+        when(documentoElectronicoRepository.findAllById(any())).thenReturn(List.of(documento1, documento2));
+
+        // Act
+        ResultadoProcesamientoDocumentosDTO resultado = facturacionElectronicaService.procesarPendientes();
+
+        // Assert
+        assertThat(resultado.getDocumentosProcesados()).isEqualTo(2);
+        assertThat(resultado.getDocumentosEnviados()).isEqualTo(1);
+        assertThat(resultado.getDocumentosConError()).isEqualTo(1);
+        verify(documentoElectronicoRepository, times(2)).crearPendientes(200);
+
+        ArgumentCaptor<String> token = ArgumentCaptor.forClass(String.class);
+        verify(documentoElectronicoRepository).tomarParaProcesar(eq(List.of(1L, 2L)), token.capture(), any());
+        verify(documentoElectronicoRepository).findTomados(token.getValue());
+
+        ArgumentCaptor<List<DatosDocumentoFacturaDTO>> lote = ArgumentCaptor.forClass(List.class);
+        verify(procesador).procesar(lote.capture());
+        DatosDocumentoFacturaDTO datos = lote.getValue().get(0);
+        assertThat(datos.getNumeroFactura()).isEqualTo("FAC-2025-000010");
+        assertThat(datos.getNombrePropietario()).isEqualTo("Juan Pérez");
+        assertThat(datos.getLineas()).hasSize(1);
+        assertThat(datos.getTotal()).isEqualByComparingTo(new BigDecimal("59500.00"));
+
+        assertThat(documento1.getEstado()).isEqualTo(EstadoDocumentoElectronico.ENVIADO);
+        assertThat(documento1.getIntentos()).isEqualTo(1);
+        assertThat(documento1.getFirma()).isEqualTo("firma-1");
+        assertThat(documento1.getFechaEnvio()).isNotNull();
+        assertThat(documento1.getTokenProceso()).isNull();
+        assertThat(documento2.getEstado()).isEqualTo(EstadoDocumentoElectronico.ERROR);
+        assertThat(documento2.getIntentos()).isEqualTo(1);
+        assertThat(documento2.getMensajeError()).isEqualTo("IOException: Servicio no disponible");
+    }
+
+    @Test
+    @DisplayName("No debe invocar el procesador si no hay documentos pendientes")
+    void testProcesarPendientesSinDocumentos() {
+        // Arrange
+        ejecutarTransaccionesEnLinea();
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(0L), any())).thenReturn(List.of());
+
+        // Act
+        ResultadoProcesamientoDocumentosDTO resultado = facturacionElectronicaService.procesarPendientes();
+
+        // Assert
+        assertThat(resultado.getDocumentosProcesados()).isZero();
+        verify(documentoElectronicoRepository).liberarProcesosVencidos(any());
+        verify(documentoElectronicoRepository, never()).tomarParaProcesar(anyList(), anyString(), any());
+        verify(procesador, never()).procesar(anyList());
+        verify(documentoElectronicoRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Si otra instancia tomó el lote no debe cargarlo ni enviarlo, y debe seguir con los siguientes")
+    void testProcesarPendientesTomadosPorOtraInstancia() {
+        // Arrange
+        ejecutarTransaccionesEnLinea();
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(2L), any())).thenReturn(List.of());
+        when(documentoElectronicoRepository.tomarParaProcesar(eq(List.of(1L, 2L)), anyString(), any())).thenReturn(0);
+
+        // Act
+        ResultadoProcesamientoDocumentosDTO resultado = facturacionElectronicaService.procesarPendientes();
+
+        // Assert
+        assertThat(resultado.getDocumentosProcesados()).isZero();
+        verify(documentoElectronicoRepository, never()).findTomados(anyString());
+        verify(procesador, never()).procesar(anyList());
+    }
+
+    @Test
+    @DisplayName("No debe registrar el resultado de un documento que se liberó y tomó otro lote")
+    void testProcesarPendientesDocumentoRetomado() {
+        // Arrange
+        ejecutarTransaccionesEnLinea();
+        registrarResultadosEnLinea();
+        DocumentoElectronico documento1 = DocumentoElectronico.builder()
+                .id(1L).factura(factura1).estado(EstadoDocumentoElectronico.PENDIENTE).build();
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(0L), any())).thenReturn(List.of(1L));
+        when(documentoElectronicoRepository.findIdsParaProcesar(eq(5), eq(1L), any())).thenReturn(List.of());
+        tomarConToken(documento1);
+        when(documentoElectronicoRepository.findTomados(anyString())).thenReturn(List.of(documento1));
+        when(facturaRepository.findConItemsByIdIn(List.of(10L))).thenReturn(List.of(factura1));
+        when(procesador.procesar(anyList())).thenReturn(List.of(ResultadoDocumentoElectronicoDTO.builder()
+                .documentoId(1L).exitoso(false).mensajeError("SocketTimeoutException: Read timed out").build()));
+        when(documentoElectronicoRepository.findAllById(any())).thenAnswer(invocation -> {
+            documento1.setTokenProceso("otro-lote");
+            return List.of(documento1);
+        });
+
+        // Act
+        facturacionElectronicaService.procesarPendientes();
+
+        // Assert
+        assertThat(documento1.getEstado()).isEqualTo(EstadoDocumentoElectronico.PROCESANDO);
+        assertThat(documento1.getIntentos()).isZero();
+        assertThat(documento1.getTokenProceso()).isEqualTo("otro-lote");
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción si la factura no tiene documento electrónico")
+    void testObtenerPorFacturaNoEncontrado() {
+        // Arrange
+        when(documentoElectronicoRepository.findByFacturaId(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturacionElectronicaService.obtenerPorFactura(99L))
+                .isInstanceOf(RecursoNoEncontradoException.class);
+    }
+}
@@ -0,0 +1,224 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.administrativo.dto.FacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoFacturacionLoteDTO;
+import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
+import com.nuclearvet.modulos.administrativo.entity.Factura;
+import com.nuclearvet.modulos.administrativo.entity.TipoItemFactura;
+import com.nuclearvet.modulos.administrativo.repository.FacturaRepository;
+import com.nuclearvet.modulos.pacientes.entity.Consulta;
+import com.nuclearvet.modulos.pacientes.entity.HistoriaClinica;
+import com.nuclearvet.modulos.pacientes.entity.Paciente;
+import com.nuclearvet.modulos.pacientes.repository.ConsultaRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para FacturacionLoteService
+ * Módulo 6 - Administrativo (Facturación y Reportes)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FacturacionLoteService - Tests")
+class FacturacionLoteServiceTest {
+
+    @Mock
+    private FacturaRepository facturaRepository;
+
+    @Mock
+    private ConsultaRepository consultaRepository;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private FacturacionLoteService facturacionLoteService;
+
+    private Usuario propietario;
+    private Usuario emitidaPor;
+    private Paciente paciente;
+    private FacturacionLoteDTO dto;
+
+    @BeforeEach
+    void setUp() {
+        propietario = new Usuario();
+        propietario.setNombre("Juan");
+
+        emitidaPor = new Usuario();
+        emitidaPor.setNombre("María");
+
+        paciente = new Paciente();
+        paciente.setNombre("Max");
+        paciente.setPropietario(propietario);
+
+        dto = FacturacionLoteDTO.builder()
+                .fecha(LocalDate.now())
+                .emitidaPorId(1L)
+                .build();
+    }
+
+    private Consulta crearConsulta(Double costo) {
+        return Consulta.builder()
+                .historiaClinica(HistoriaClinica.builder().paciente(paciente).build())
+                .tipoServicio("Consulta general")
+                .costoConsulta(costo)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Debe facturar las consultas del día con sus totales")
+    void testFacturarConsultasDelDia() {
+        // Arrange
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findCompletadasSinFactura(any(), any()))
+                .thenReturn(List.of(crearConsulta(100.0), crearConsulta(50.0)));
+        when(facturaRepository.reservarConsecutivos(2)).thenReturn(List.of(1L, 2L));
+
+        List<Factura> guardadas = new ArrayList<>();
+        when(facturaRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            guardadas.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        // Act
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+
+        // Assert
+        assertThat(resultado.getFacturasCreadas()).isEqualTo(2);
+        assertThat(resultado.getConsultasOmitidas()).isZero();
+        assertThat(resultado.getTotalFacturado()).isEqualByComparingTo("178.50");
+
+        assertThat(guardadas).hasSize(2);
+        Factura primera = guardadas.get(0);
+        assertThat(primera.getEstado()).isEqualTo(EstadoFactura.PENDIENTE);
+        assertThat(primera.getPropietario()).isEqualTo(propietario);
+        assertThat(primera.getEmitidaPor()).isEqualTo(emitidaPor);
+        assertThat(primera.getItems()).hasSize(1);
+        assertThat(primera.getItems().get(0).getTipo()).isEqualTo(TipoItemFactura.CONSULTA);
+        assertThat(primera.getSubtotal()).isEqualByComparingTo("100.00");
+        assertThat(primera.getTotal()).isEqualByComparingTo("119.00");
+        assertThat(primera.getSaldoPendiente()).isEqualByComparingTo("119.00");
+
+        // Rango semiabierto: incluye las consultas del último segundo del día
+        verify(consultaRepository).findCompletadasSinFactura(
+                dto.getFecha().atStartOfDay(), dto.getFecha().plusDays(1).atStartOfDay());
+        verify(facturaRepository).flush();
+        verify(entityManager).clear();
+    }
+
+    @Test
+    @DisplayName("Debe numerar el lote con los consecutivos reservados de una vez en la secuencia")
+    void testNumeracionConsecutiva() {
+        // Arrange
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findCompletadasSinFactura(any(), any()))
+                .thenReturn(List.of(crearConsulta(100.0), crearConsulta(80.0)));
+        when(facturaRepository.reservarConsecutivos(2)).thenReturn(List.of(42L, 43L));
+
+        // Act
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+
+        // Assert
+        assertThat(resultado.getPrimerNumeroFactura()).isEqualTo(Factura.generarNumeroFactura(42));
+        assertThat(resultado.getUltimoNumeroFactura()).isEqualTo(Factura.generarNumeroFactura(43));
+        verify(facturaRepository, times(1)).reservarConsecutivos(anyInt());
+    }
+
+    @Test
+    @DisplayName("Debe omitir consultas sin costo registrado")
+    void testOmitirConsultasSinCosto() {
+        // Arrange
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findCompletadasSinFactura(any(), any()))
+                .thenReturn(List.of(crearConsulta(null), crearConsulta(0.0), crearConsulta(60.0)));
+        when(facturaRepository.reservarConsecutivos(1)).thenReturn(List.of(1L));
+
+        // Act
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+
+        // Assert
+        assertThat(resultado.getConsultasEncontradas()).isEqualTo(3);
+        assertThat(resultado.getFacturasCreadas()).isEqualTo(1);
+        assertThat(resultado.getConsultasOmitidas()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Debe guardar las facturas en lotes y liberar el contexto de persistencia")
+    void testGuardarEnLotes() {
+        // Arrange
+        List<Consulta> consultas = new ArrayList<>();
+        for (int i = 0; i < FacturacionLoteService.TAMANO_LOTE + 1; i++) {
+            consultas.add(crearConsulta(30.0));
+        }
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findCompletadasSinFactura(any(), any())).thenReturn(consultas);
+        when(facturaRepository.reservarConsecutivos(consultas.size()))
+                .thenReturn(LongStream.rangeClosed(1, consultas.size()).boxed().toList());
+
+        // Act
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+
+        // Assert
+        assertThat(resultado.getFacturasCreadas()).isEqualTo(FacturacionLoteService.TAMANO_LOTE + 1);
+        verify(facturaRepository, times(2)).saveAll(anyList());
+        verify(facturaRepository, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(facturaRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("No debe guardar nada cuando no hay consultas por facturar")
+    void testSinConsultas() {
+        // Arrange
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(emitidaPor));
+        when(consultaRepository.findCompletadasSinFactura(any(), any())).thenReturn(List.of());
+
+        // Act
+        ResultadoFacturacionLoteDTO resultado = facturacionLoteService.facturarConsultasDelDia(dto);
+
+        // Assert
+        assertThat(resultado.getFacturasCreadas()).isZero();
+        assertThat(resultado.getTotalFacturado()).isEqualByComparingTo(BigDecimal.ZERO);
+        verify(facturaRepository, never()).saveAll(anyList());
+        verify(facturaRepository, never()).reservarConsecutivos(anyInt());
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción cuando el usuario emisor no existe")
+    void testUsuarioEmisorNoExiste() {
+        // Arrange
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> facturacionLoteService.facturarConsultasDelDia(dto))
+                .isInstanceOf(RecursoNoEncontradoException.class)
+                .hasMessageContaining("Usuario");
+
+        verify(facturaRepository, never()).saveAll(anyList());
+    }
+}
@@ -1,9 +1,13 @@
 package com.nuclearvet.modulos.administrativo.service;
 
+import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.administrativo.dto.CierreCajaDTO;
+import com.nuclearvet.modulos.administrativo.dto.DetallePagoCajaDTO;
 import com.nuclearvet.modulos.administrativo.dto.PagoDTO;
 import com.nuclearvet.modulos.administrativo.dto.RegistrarPagoDTO;
+import com.nuclearvet.modulos.administrativo.dto.TotalPagoAgrupadoDTO;
 import com.nuclearvet.modulos.administrativo.entity.EstadoFactura;
 import com.nuclearvet.modulos.administrativo.entity.Factura;
 import com.nuclearvet.modulos.administrativo.entity.MetodoPago;
@@ -21,17 +25,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -54,6 +62,9 @@ class PagoServiceTest {
     @Mock
     private PagoMapper pagoMapper;
 
+    @Mock
+    private AlmacenIdempotenciaPagos almacenIdempotencia;
+
     @InjectMocks
     private PagoService pagoService;
 
@@ -106,7 +117,7 @@ class PagoServiceTest {
         when(pagoRepository.findLastPago()).thenReturn(Optional.empty());
         when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
         when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
-        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
         when(pagoMapper.toDTO(any(Pago.class))).thenReturn(new PagoDTO());
 
         // Act
@@ -115,11 +126,135 @@ class PagoServiceTest {
         // Assert
         assertThat(resultado).isNotNull();
         verify(pagoRepository).save(any(Pago.class));
-        verify(facturaRepository).save(any(Factura.class));
+        verify(facturaRepository).aplicarMovimientoPago(any(), any(), any(), any());
         verify(facturaRepository).findById(1L);
         verify(usuarioRepository).findById(1L);
     }
 
+    @Test
+    @DisplayName("Debe registrar pago con clave de idempotencia y guardarla")
+    void testRegistrarPagoConClaveIdempotencia() {
+        // Arrange
+        PagoDTO respuesta = new PagoDTO();
+        when(almacenIdempotencia.obtener(eq("pos-01-000123"), anyString())).thenReturn(Optional.empty());
+        when(pagoRepository.findByClaveIdempotencia("pos-01-000123")).thenReturn(Optional.empty());
+        when(facturaRepository.findById(1L)).thenReturn(Optional.of(factura));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
+        when(pagoRepository.findLastPago()).thenReturn(Optional.empty());
+        when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
+        when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
+        when(pagoMapper.toDTO(any(Pago.class))).thenReturn(respuesta);
+
+        // Act
+        PagoDTO resultado = pagoService.registrarPago(registrarPagoDTO, "pos-01-000123");
+
+        // Assert
+        assertThat(resultado).isSameAs(respuesta);
+        assertThat(pago.getClaveIdempotencia()).isEqualTo("pos-01-000123");
+        assertThat(pago.getHuellaSolicitud()).isEqualTo(PagoService.huellaSolicitud(registrarPagoDTO));
+        verify(almacenIdempotencia).registrarNuevo("pos-01-000123", pago.getHuellaSolicitud(), respuesta);
+    }
+
+    @Test
+    @DisplayName("Debe responder un reintento desde memoria sin registrar otro pago")
+    void testRegistrarPagoReintentoDesdeMemoria() {
+        // Arrange
+        PagoDTO respuestaPrevia = new PagoDTO();
+        when(almacenIdempotencia.obtener(eq("pos-01-000123"), anyString())).thenReturn(Optional.of(respuestaPrevia));
+
+        // Act
+        PagoDTO resultado = pagoService.registrarPago(registrarPagoDTO, "pos-01-000123");
+
+        // Assert
+        assertThat(resultado).isSameAs(respuestaPrevia);
+        verify(pagoRepository, never()).findByClaveIdempotencia(any());
+        verify(facturaRepository, never()).findById(anyLong());
+        verify(facturaRepository, never()).aplicarMovimientoPago(any(), any(), any(), any());
+        verify(pagoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe responder un reintento desde base de datos cuando no está en memoria")
+    void testRegistrarPagoReintentoDesdeBaseDatos() {
+        // Arrange
+        PagoDTO respuesta = new PagoDTO();
+        when(almacenIdempotencia.obtener(eq("pos-01-000123"), anyString())).thenReturn(Optional.empty());
+        when(pagoRepository.findByClaveIdempotencia("pos-01-000123")).thenReturn(Optional.of(pago));
+        when(pagoMapper.toDTO(pago)).thenReturn(respuesta);
+
+        // Act
+        PagoDTO resultado = pagoService.registrarPago(registrarPagoDTO, "pos-01-000123");
+
+        // Assert
+        assertThat(resultado).isSameAs(respuesta);
+        verify(almacenIdempotencia).registrarDuplicadoBaseDatos("pos-01-000123", null, respuesta);
+        verify(facturaRepository, never()).aplicarMovimientoPago(any(), any(), any(), any());
+        verify(pagoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una clave registrada en base de datos con otros datos de pago")
+    void testRegistrarPagoClaveReutilizadaEnBaseDatos() {
+        // Arrange
+        RegistrarPagoDTO original = RegistrarPagoDTO.builder()
+                .facturaId(1L)
+                .fechaPago(registrarPagoDTO.getFechaPago())
+                .monto(new BigDecimal("80.00"))
+                .metodoPago(MetodoPago.EFECTIVO)
+                .recibidoPorId(1L)
+                .build();
+        pago.setHuellaSolicitud(PagoService.huellaSolicitud(original));
+        when(almacenIdempotencia.obtener(eq("pos-01-000123"), anyString())).thenReturn(Optional.empty());
+        when(pagoRepository.findByClaveIdempotencia("pos-01-000123")).thenReturn(Optional.of(pago));
+
+        // Act & Assert
+        assertThatThrownBy(() -> pagoService.registrarPago(registrarPagoDTO, "pos-01-000123"))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("otros datos de pago");
+
+        verify(almacenIdempotencia, never()).registrarDuplicadoBaseDatos(any(), any(), any());
+        verify(pagoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("La huella de la solicitud no depende de la escala del monto y sí del usuario")
+    void testHuellaSolicitud() {
+        // Arrange
+        RegistrarPagoDTO mismoMonto = RegistrarPagoDTO.builder()
+                .facturaId(1L)
+                .fechaPago(registrarPagoDTO.getFechaPago())
+                .monto(new BigDecimal("50.0"))
+                .metodoPago(MetodoPago.EFECTIVO)
+                .recibidoPorId(1L)
+                .build();
+        RegistrarPagoDTO otroUsuario = RegistrarPagoDTO.builder()
+                .facturaId(1L)
+                .fechaPago(registrarPagoDTO.getFechaPago())
+                .monto(new BigDecimal("50.00"))
+                .metodoPago(MetodoPago.EFECTIVO)
+                .recibidoPorId(2L)
+                .build();
+
+        // Act & Assert
+        assertThat(PagoService.huellaSolicitud(mismoMonto))
+                .hasSize(64)
+                .isEqualTo(PagoService.huellaSolicitud(registrarPagoDTO));
+        assertThat(PagoService.huellaSolicitud(otroUsuario))
+                .isNotEqualTo(PagoService.huellaSolicitud(registrarPagoDTO));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una clave de idempotencia vacía")
+    void testRegistrarPagoClaveIdempotenciaInvalida() {
+        // Act & Assert
+        assertThatThrownBy(() -> pagoService.registrarPago(registrarPagoDTO, " "))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("clave de idempotencia");
+
+        verify(pagoRepository, never()).save(any());
+    }
+
     @Test
     @DisplayName("Debe lanzar excepción cuando factura no existe")
     void testRegistrarPagoFacturaNoExiste() {
@@ -300,14 +435,14 @@ class PagoServiceTest {
         pago.setActivo(true);
         when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
         when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
-        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
 
         // Act
         pagoService.anularPago(1L, "Error en el monto");
 
         // Assert
         verify(pagoRepository).save(any(Pago.class));
-        verify(facturaRepository).save(any(Factura.class));
+        verify(facturaRepository).aplicarMovimientoPago(any(), any(), any(), any());
     }
 
     @Test
@@ -372,7 +507,7 @@ class PagoServiceTest {
         when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
         when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
         when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
-        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
         when(pagoMapper.toDTO(any(Pago.class))).thenReturn(new PagoDTO());
 
         // Act
@@ -396,14 +531,16 @@ class PagoServiceTest {
         when(pagoRepository.findLastPago()).thenReturn(Optional.empty());
         when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
         when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
-        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
         when(pagoMapper.toDTO(any(Pago.class))).thenReturn(new PagoDTO());
 
         // Act
         pagoService.registrarPago(registrarPagoDTO);
 
         // Assert
-        verify(facturaRepository).save(any(Factura.class));
+        verify(facturaRepository).aplicarMovimientoPago(any(), any(), any(), any());
+        assertThat(factura.getEstado()).isEqualTo(EstadoFactura.PARCIAL);
+        assertThat(factura.getSaldoPendiente()).isEqualByComparingTo("50.00");
     }
 
     @Test
@@ -419,13 +556,183 @@ class PagoServiceTest {
         when(pagoRepository.findLastPago()).thenReturn(Optional.empty());
         when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
         when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
-        when(facturaRepository.save(any(Factura.class))).thenReturn(factura);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
         when(pagoMapper.toDTO(any(Pago.class))).thenReturn(new PagoDTO());
 
         // Act
         pagoService.registrarPago(registrarPagoDTO);
 
         // Assert
-        verify(facturaRepository).save(any(Factura.class));
+        verify(facturaRepository).aplicarMovimientoPago(any(), any(), any(), any());
+        assertThat(factura.getEstado()).isEqualTo(EstadoFactura.PAGADA);
+        assertThat(factura.getSaldoPendiente()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    @DisplayName("Debe releer la factura y reintentar cuando hay conflicto de versión")
+    void testRegistrarPagoReintentaPorConcurrencia() {
+        // Arrange
+        Factura facturaActualizada = Factura.builder()
+                .numeroFactura("FAC-2025-000001")
+                .estado(EstadoFactura.PARCIAL)
+                .version(1L)
+                .total(new BigDecimal("100.00"))
+                .totalPagado(new BigDecimal("30.00"))
+                .saldoPendiente(new BigDecimal("70.00"))
+                .build();
+
+        when(facturaRepository.findById(1L)).thenReturn(Optional.of(factura));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
+        when(facturaRepository.findById(null)).thenReturn(Optional.of(facturaActualizada));
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any()))
+                .thenReturn(0)
+                .thenReturn(1);
+        when(pagoRepository.findLastPago()).thenReturn(Optional.empty());
+        when(pagoMapper.toEntity(any(RegistrarPagoDTO.class))).thenReturn(pago);
+        when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
+        when(pagoMapper.toDTO(any(Pago.class))).thenReturn(new PagoDTO());
+
+        // Act
+        pagoService.registrarPago(registrarPagoDTO);
+
+        // Assert
+        verify(facturaRepository, times(2)).aplicarMovimientoPago(any(), any(), any(), any());
+        verify(facturaRepository).aplicarMovimientoPago(null, 1L, new BigDecimal("50.00"), EstadoFactura.PARCIAL);
+        verify(pagoRepository).save(any(Pago.class));
+        assertThat(facturaActualizada.getTotalPagado()).isEqualByComparingTo("80.00");
+    }
+
+    @Test
+    @DisplayName("Debe lanzar conflicto cuando se agotan los reintentos")
+    void testRegistrarPagoConflictoPersistente() {
+        // Arrange
+        when(facturaRepository.findById(1L)).thenReturn(Optional.of(factura));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
+        when(facturaRepository.findById(null)).thenReturn(Optional.of(factura));
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(0);
+
+        // Act & Assert
+        assertThatThrownBy(() -> pagoService.registrarPago(registrarPagoDTO))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("modificada");
+
+        verify(facturaRepository, times(3)).aplicarMovimientoPago(any(), any(), any(), any());
+        verify(pagoRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe revertir el pago en la factura al anularlo")
+    void testAnularPagoRevierteFactura() {
+        // Arrange
+        factura.setEstado(EstadoFactura.PAGADA);
+        factura.setTotalPagado(new BigDecimal("100.00"));
+        factura.setSaldoPendiente(BigDecimal.ZERO);
+        pago.setMonto(new BigDecimal("100.00"));
+        pago.setFechaPago(LocalDateTime.now().minusDays(1));
+        pago.setActivo(true);
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+        when(pagoRepository.save(any(Pago.class))).thenReturn(pago);
+        when(facturaRepository.aplicarMovimientoPago(any(), any(), any(), any())).thenReturn(1);
+
+        // Act
+        pagoService.anularPago(1L, "Pago duplicado");
+
+        // Assert
+        verify(facturaRepository).aplicarMovimientoPago(
+                null, null, new BigDecimal("-100.00"), EstadoFactura.PENDIENTE);
+        assertThat(factura.getEstado()).isEqualTo(EstadoFactura.PENDIENTE);
+        assertThat(factura.getSaldoPendiente()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción al anular un pago ya anulado")
+    void testAnularPagoYaAnulado() {
+        // Arrange
+        pago.setActivo(false);
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+
+        // Act & Assert
+        assertThatThrownBy(() -> pagoService.anularPago(1L, "Motivo"))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("ya se encuentra anulado");
+
+        verify(facturaRepository, never()).aplicarMovimientoPago(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe generar el cierre de caja con una sola consulta agrupada")
+    void testObtenerCierreCaja() {
+        // Arrange
+        LocalDate fecha = LocalDate.now();
+        List<TotalPagoAgrupadoDTO> filas = List.of(
+                new TotalPagoAgrupadoDTO(MetodoPago.EFECTIVO, 1L, "María González", 3L, new BigDecimal("150.00")),
+                new TotalPagoAgrupadoDTO(MetodoPago.EFECTIVO, 2L, "Luis Rojas", 1L, new BigDecimal("40.00")),
+                new TotalPagoAgrupadoDTO(MetodoPago.TRANSFERENCIA, 1L, "María González", 2L, new BigDecimal("300.00")));
+        when(pagoRepository.calcularTotalesPorMetodoYCajero(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(filas);
+
+        // Act
+        CierreCajaDTO cierre = pagoService.obtenerCierreCaja(fecha);
+
+        // Assert
+        assertThat(cierre.getFecha()).isEqualTo(fecha);
+        assertThat(cierre.getTotalGeneral()).isEqualByComparingTo("490.00");
+        assertThat(cierre.getCantidadPagos()).isEqualTo(6L);
+        assertThat(cierre.getMetodos()).hasSize(MetodoPago.values().length);
+
+        CierreCajaDTO.TotalMetodoPagoDTO efectivo = cierre.getMetodos().get(0);
+        assertThat(efectivo.getMetodoPago()).isEqualTo(MetodoPago.EFECTIVO);
+        assertThat(efectivo.getTotal()).isEqualByComparingTo("190.00");
+        assertThat(efectivo.getCantidad()).isEqualTo(4L);
+        assertThat(efectivo.getCajeros()).hasSize(2);
+
+        CierreCajaDTO.TotalMetodoPagoDTO cheque = cierre.getMetodos().stream()
+                .filter(m -> m.getMetodoPago() == MetodoPago.CHEQUE)
+                .findFirst().orElseThrow();
+        assertThat(cheque.getTotal()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(cheque.getCajeros()).isEmpty();
+
+        verify(pagoRepository, times(1)).calcularTotalesPorMetodoYCajero(any(), any());
+        verify(pagoRepository, never()).calcularTotalPorMetodo(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe exportar el detalle del cierre de caja en CSV")
+    void testExportarDetalleCierreCaja() {
+        // Arrange
+        LocalDateTime fechaPago = LocalDate.now().atTime(10, 30);
+        DetallePagoCajaDTO linea = new DetallePagoCajaDTO("REC-2025-000001", fechaPago, "FAC-2025-000001",
+                MetodoPago.TRANSFERENCIA, new BigDecimal("50.00"), "REF 123, Bancolombia", "María González");
+        when(pagoRepository.streamDetalleCierreCaja(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(linea));
+        StringWriter writer = new StringWriter();
+
+        // Act
+        pagoService.exportarDetalleCierreCaja(LocalDate.now(), writer);
+
+        // Assert
+        String[] lineas = writer.toString().split("\n");
+        assertThat(lineas).hasSize(2);
+        assertThat(lineas[0]).startsWith("numero_recibo,");
+        assertThat(lineas[1]).isEqualTo("REC-2025-000001," + fechaPago + ",FAC-2025-000001,TRANSFERENCIA,50.00,"
+                + "\"REF 123, Bancolombia\",María González");
+    }
+
+    @Test
+    @DisplayName("Debe entrecomillar en el CSV los valores con retorno de carro")
+    void testExportarDetalleCierreCaja_RetornoDeCarro() {
+        // Arrange
+        LocalDateTime fechaPago = LocalDate.now().atTime(10, 30);
+        DetallePagoCajaDTO linea = new DetallePagoCajaDTO("REC-2025-000002", fechaPago, "FAC-2025-000002",
+                MetodoPago.TRANSFERENCIA, new BigDecimal("75.00"), "REF 456\rBancolombia", "María González");
+        when(pagoRepository.streamDetalleCierreCaja(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(linea));
+        StringWriter writer = new StringWriter();
+
+        // Act
+        pagoService.exportarDetalleCierreCaja(LocalDate.now(), writer);
+
+        // Assert
+        assertThat(writer.toString()).contains(",75.00,\"REF 456\rBancolombia\",María González");
     }
 }
@@ -0,0 +1,152 @@
+package com.nuclearvet.modulos.administrativo.service;
+
+import com.nuclearvet.modulos.administrativo.dto.DatosDocumentoFacturaDTO;
+import com.nuclearvet.modulos.administrativo.dto.ResultadoDocumentoElectronicoDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests para ProcesadorDocumentosElectronicos con el enviador de sistema de archivos
+ * Módulo 6 - Administrativo (Facturación y Reportes)
+ */
+@DisplayName("ProcesadorDocumentosElectronicos - Tests")
+class ProcesadorDocumentosElectronicosTest {
+
+    private static final int DOCUMENTOS = 3000;
+
+    @TempDir
+    Path directorio;
+
+    private ThreadPoolTaskExecutor executor;
+    private GeneradorDocumentoElectronico generador;
+
+    @BeforeEach
+    void setUp() {
+        // Pool pequeño y cola corta para ejercitar la contrapresión (CallerRunsPolicy)
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        generador = new GeneradorDocumentoElectronico("ClaveDePrueba");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private DatosDocumentoFacturaDTO crearDatos(long id) {
+        return DatosDocumentoFacturaDTO.builder()
+                .documentoId(id)
+                .facturaId(id)
+                .numeroFactura(String.format("FAC-2025-%06d", id))
+                .fechaEmision(LocalDate.now())
+                .nombrePropietario("Juan Pérez")
+                .documentoPropietario("1020304050")
+                .nombrePaciente("Max & <Luna>")
+                .lineas(List.of(DatosDocumentoFacturaDTO.LineaDocumentoDTO.builder()
+                        .tipo("SERVICIO")
+                        .descripcion("Consulta general")
+                        .cantidad(1)
+                        .precioUnitario(new BigDecimal("50000.00"))
+                        .subtotal(new BigDecimal("50000.00"))
+                        .build()))
+                .subtotal(new BigDecimal("50000.00"))
+                .porcentajeImpuesto(new BigDecimal("19.00"))
+                .valorImpuesto(new BigDecimal("9500.00"))
+                .descuento(BigDecimal.ZERO)
+                .total(new BigDecimal("59500.00"))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Debe generar, firmar y guardar miles de documentos por minuto")
+    void testProcesarMilesDeDocumentos() throws IOException {
+        // Arrange
+        ProcesadorDocumentosElectronicos procesador = new ProcesadorDocumentosElectronicos(
+                generador, new EnviadorDocumentoSistemaArchivos(directorio.toString()), executor);
+        List<DatosDocumentoFacturaDTO> documentos = new ArrayList<>(DOCUMENTOS);
+        for (long id = 1; id <= DOCUMENTOS; id++) {
+            documentos.add(crearDatos(id));
+        }
+
+        // Act
+        long inicio = System.nanoTime();
+        List<ResultadoDocumentoElectronicoDTO> resultados = procesador.procesar(documentos);
+        Duration duracion = Duration.ofNanos(System.nanoTime() - inicio);
+
+        // Assert
+        assertThat(resultados).hasSize(DOCUMENTOS).allMatch(ResultadoDocumentoElectronicoDTO::isExitoso);
+        assertThat(duracion).isLessThan(Duration.ofMinutes(1));
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertThat(archivos.filter(a -> a.toString().endsWith(".xml")).count()).isEqualTo(DOCUMENTOS);
+        }
+
+        Path documento = directorio.resolve("FAC-2025-000001.xml");
+        String contenido = Files.readString(documento);
+        assertThat(contenido).contains("<Paciente>Max &amp; &lt;Luna&gt;</Paciente>");
+        assertThat(contenido).contains("<Total>59500.00</Total>");
+        assertThat(Files.readString(directorio.resolve("FAC-2025-000001.xml.firma")))
+                .isEqualTo(generador.firmar(contenido))
+                .isEqualTo(resultados.get(0).getFirma());
+        assertThat(resultados.get(0).getReferenciaEnvio()).isEqualTo(documento.toAbsolutePath().toString());
+    }
+
+    @Test
+    @DisplayName("Debe devolver error solo para los documentos que fallan al enviarse")
+    void testErrorEnUnDocumento() {
+        // Arrange
+        EnviadorDocumentoElectronico enviador = (datos, contenido, firma) -> {
+            if (datos.getDocumentoId() == 2L) {
+                throw new IOException("Servicio no disponible");
+            }
+            return "REF-" + datos.getDocumentoId();
+        };
+        ProcesadorDocumentosElectronicos procesador = new ProcesadorDocumentosElectronicos(generador, enviador, executor);
+
+        // Act
+        List<ResultadoDocumentoElectronicoDTO> resultados = procesador.procesar(
+                List.of(crearDatos(1L), crearDatos(2L), crearDatos(3L)));
+
+        // Assert
+        assertThat(resultados).extracting(ResultadoDocumentoElectronicoDTO::isExitoso)
+                .containsExactly(true, false, true);
+        assertThat(resultados.get(1).getMensajeError()).isEqualTo("IOException: Servicio no disponible");
+        assertThat(resultados.get(2).getReferenciaEnvio()).isEqualTo("REF-3");
+    }
+
+    @Test
+    @DisplayName("La firma debe cambiar si cambia el contenido")
+    void testFirma() {
+        // Arrange
+        String contenido = generador.generar(crearDatos(1L));
+
+        // Act
+        String firma = generador.firmar(contenido);
+
+        // Assert
+        assertThat(firma).isEqualTo(generador.firmar(contenido));
+        assertThat(firma).isNotEqualTo(generador.firmar(contenido + " "));
+        assertThat(firma).isNotEqualTo(new GeneradorDocumentoElectronico("OtraClave").firmar(contenido));
+    }
+}
@@ -9,6 +9,8 @@ import com.nuclearvet.modulos.citas.dto.CrearCitaDTO;
 import com.nuclearvet.modulos.citas.entity.Cita;
 import com.nuclearvet.modulos.citas.mapper.CitaMapper;
 import com.nuclearvet.modulos.citas.repository.CitaRepository;
+import com.nuclearvet.modulos.inventario.dto.ReservarInsumoDTO;
+import com.nuclearvet.modulos.inventario.service.ReservaStockService;
 import com.nuclearvet.modulos.pacientes.entity.Paciente;
 import com.nuclearvet.modulos.pacientes.repository.PacienteRepository;
 import com.nuclearvet.modulos.usuarios.entity.Rol;
@@ -47,6 +49,9 @@ class CitaServiceTest {
     @Mock
     private UsuarioRepository usuarioRepository;
 
+    @Mock
+    private ReservaStockService reservaStockService;
+
     @Mock
     private CitaMapper citaMapper;
 
@@ -130,6 +135,46 @@ class CitaServiceTest {
         assertThat(resultado.getEstado()).isEqualTo("PROGRAMADA");
         verify(citaRepository).save(any(Cita.class));
         verify(citaMapper).toDTO(any(Cita.class));
+        verifyNoInteractions(reservaStockService);
+    }
+
+    @Test
+    @DisplayName("Debe reservar los insumos de una cirugía al crearla")
+    void debeReservarInsumosDeCirugia() {
+        // Given
+        List<ReservarInsumoDTO> insumos = List.of(new ReservarInsumoDTO(10L, 2), new ReservarInsumoDTO(11L, 5));
+        crearCitaDTO.setTipoServicio("CIRUGIA");
+        crearCitaDTO.setInsumos(insumos);
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(veterinario));
+        when(citaRepository.buscarCitasEnRango(any(), any(), any())).thenReturn(Collections.emptyList());
+        when(citaRepository.save(any(Cita.class))).thenReturn(cita);
+        when(citaMapper.toDTO(any(Cita.class))).thenReturn(citaDTO);
+
+        // When
+        citaService.crearCita(crearCitaDTO);
+
+        // Then
+        verify(reservaStockService).reservar(cita, insumos);
+    }
+
+    @Test
+    @DisplayName("No debe crear la cita si no hay stock disponible para sus insumos")
+    void noDebeCrearCitaSinStockParaInsumos() {
+        // Given
+        crearCitaDTO.setInsumos(List.of(new ReservarInsumoDTO(10L, 2)));
+        when(pacienteRepository.findById(1L)).thenReturn(Optional.of(paciente));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(veterinario));
+        when(citaRepository.buscarCitasEnRango(any(), any(), any())).thenReturn(Collections.emptyList());
+        when(citaRepository.save(any(Cita.class))).thenReturn(cita);
+        when(reservaStockService.reservar(any(Cita.class), anyList()))
+                .thenThrow(new ConflictoException("Stock insuficiente para reservar: Propofol"));
+
+        // When & Then: la excepción revierte la transacción de crearCita
+        assertThatThrownBy(() -> citaService.crearCita(crearCitaDTO))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("Propofol");
+        verify(citaMapper, never()).toDTO(any(Cita.class));
     }
 
     @Test
@@ -266,6 +311,7 @@ class CitaServiceTest {
             "CANCELADA".equals(c.getEstado()) && 
             c.getMotivoCancelacion() != null
         ));
+        verify(reservaStockService).liberar(1L);
     }
 
     @Test
@@ -378,6 +424,7 @@ class CitaServiceTest {
         // Then
         assertThat(resultado).isNotNull();
         verify(citaRepository).save(argThat(c -> "COMPLETADA".equals(c.getEstado())));
+        verify(reservaStockService).consumir(cita);
     }
 
     @Test
@@ -394,6 +441,7 @@ class CitaServiceTest {
         // Then
         assertThat(resultado).isNotNull();
         verify(citaRepository).save(argThat(c -> "NO_ASISTIO".equals(c.getEstado())));
+        verify(reservaStockService).liberar(1L);
     }
 
     @Test
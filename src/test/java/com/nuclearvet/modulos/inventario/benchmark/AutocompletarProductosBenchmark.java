@@ -0,0 +1,103 @@
+package com.nuclearvet.modulos.inventario.benchmark;
+
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.service.IndiceBusquedaProductos;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH del autocompletado de productos sobre el índice de trigramas con un catálogo de 50.000 SKU.
+ * Modo SampleTime para ver los percentiles: main falla si p0.99 no queda por debajo de 5 ms.
+ * No se ejecuta con los tests; correr con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.nuclearvet.modulos.inventario.benchmark.AutocompletarProductosBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocompletarProductosBenchmark {
+
+    /**
+     * Objetivo de latencia del autocompletado (RF4.1), en la unidad de salida del benchmark
+     */
+    static final double OBJETIVO_P99_US = 5_000;
+
+    private static final String[] SILABAS = {"amo", "xi", "ci", "li", "na", "me", "lo", "cam", "pra", "zi", "quan",
+            "tel", "ke", "to", "pro", "fe", "no", "en", "ro", "flo", "xa", "doxi", "tra", "ma", "dol"};
+
+    @Param({"50000"})
+    private int productos;
+
+    private IndiceBusquedaProductos indice;
+    private String[] consultas;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        List<Producto> catalogo = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            StringBuilder nombre = new StringBuilder();
+            int cantidadSilabas = 3 + random.nextInt(3);
+            for (int j = 0; j < cantidadSilabas; j++) {
+                nombre.append(SILABAS[random.nextInt(SILABAS.length)]);
+            }
+            nombre.append(' ').append(50 * (1 + random.nextInt(20))).append(" mg");
+            Producto producto = Producto.builder()
+                    .id((long) i)
+                    .codigo("SKU" + i)
+                    .nombre(nombre.toString())
+                    .principioActivo(nombre.substring(0, 6))
+                    .build();
+            producto.setActivo(true);
+            catalogo.add(producto);
+        }
+
+        ProductoRepository repositorio = Mockito.mock(ProductoRepository.class);
+        Mockito.when(repositorio.findByActivoTrueOrderByNombreAsc()).thenReturn(catalogo);
+        indice = new IndiceBusquedaProductos(repositorio);
+        indice.reconstruir();
+
+        // Prefijos de 2 a 8 caracteres, como al ir escribiendo
+        consultas = new String[4_096];
+        for (int i = 0; i < consultas.length; i++) {
+            String nombre = catalogo.get(random.nextInt(productos)).getNombre();
+            consultas[i] = nombre.substring(0, Math.min(nombre.length(), 2 + random.nextInt(7)));
+        }
+    }
+
+    @Benchmark
+    public Object autocompletar() {
+        siguiente = (siguiente + 1) & (consultas.length - 1);
+        return indice.buscar(consultas[siguiente], 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+                .include(AutocompletarProductosBenchmark.class.getSimpleName())
+                .build();
+        Collection<RunResult> resultados = new Runner(opciones).run();
+        for (RunResult resultado : resultados) {
+            double p99 = resultado.getPrimaryResult().getStatistics().getPercentile(99);
+            System.out.printf("p0.99 del autocompletado: %.1f us (objetivo: < %.0f us)%n", p99, OBJETIVO_P99_US);
+            if (p99 >= OBJETIVO_P99_US) {
+                throw new IllegalStateException("El autocompletado supera el objetivo de latencia: p0.99 = " + p99 + " us");
+            }
+        }
+    }
+}
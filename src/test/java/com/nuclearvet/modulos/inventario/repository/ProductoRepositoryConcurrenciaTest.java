@@ -0,0 +1,139 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.service.StockProductos;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de contención del UPDATE condicional de ProductoRepository, a través de
+ * StockProductos.descontarStockAtomico (RF4.4), sobre H2:
+ * 100 salidas concurrentes del mismo producto, cada una en su propia transacción.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:concurrencia_stock;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.hikari.maximum-pool-size=10",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada hilo confirma su propia transacción
+@DisplayName("ProductoRepository - Concurrencia de stock")
+class ProductoRepositoryConcurrenciaTest {
+
+    private static final int SALIDAS = 100;
+    private static final int HILOS = 10;
+    private static final int STOCK_INICIAL = 60;
+
+    @Configuration
+    @EntityScan(basePackageClasses = {Producto.class, Usuario.class})
+    @EnableJpaRepositories(basePackageClasses = ProductoRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ProductoRepository.class))
+    @Import(StockProductos.class)
+    static class Configuracion {
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private StockProductos stockProductos;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long crearProducto(int stock) {
+        return transactionTemplate.execute(status -> {
+            Categoria categoria = Categoria.builder().nombre("Vacunas").build();
+            categoria.setFechaCreacion(LocalDateTime.now());
+            entityManager.persist(categoria);
+
+            Producto producto = Producto.builder()
+                    .codigo("VAC-001")
+                    .nombre("Vacuna Antirrábica")
+                    .categoria(categoria)
+                    .precioCompra(new BigDecimal("30.00"))
+                    .precioVenta(new BigDecimal("50.00"))
+                    .stockActual(stock)
+                    .stockMinimo(5)
+                    .build();
+            producto.setFechaCreacion(LocalDateTime.now());
+            entityManager.persist(producto);
+            return producto.getId();
+        });
+    }
+
+    @Test
+    @DisplayName("100 salidas concurrentes no deben perder actualizaciones ni dejar stock negativo")
+    void descontarStockAtomico_SalidasConcurrentes() throws Exception {
+        // Given
+        Long productoId = crearProducto(STOCK_INICIAL);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Optional<CambioStock>>> salidas = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < SALIDAS; i++) {
+            salidas.add(executor.submit(() -> {
+                largada.await();
+                return transactionTemplate.execute(status -> stockProductos.descontarStockAtomico(productoId, 1));
+            }));
+        }
+        largada.countDown();
+
+        List<CambioStock> aplicadas = new ArrayList<>();
+        int rechazadas = 0;
+        for (Future<Optional<CambioStock>> salida : salidas) {
+            Optional<CambioStock> cambio = salida.get(30, TimeUnit.SECONDS);
+            if (cambio.isPresent()) {
+                aplicadas.add(cambio.get());
+            } else {
+                rechazadas++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(aplicadas).hasSize(STOCK_INICIAL);
+        assertThat(rechazadas).isEqualTo(SALIDAS - STOCK_INICIAL);
+        assertThat(productoRepository.findStockActualById(productoId)).contains(0);
+
+        // Cada salida vio un stock distinto: anterior = nuevo + 1, cubriendo 60 -> 0 sin huecos
+        assertThat(aplicadas).allMatch(c -> c.stockAnterior() == c.stockNuevo() + 1);
+        assertThat(aplicadas).extracting(CambioStock::stockNuevo)
+                .containsExactlyInAnyOrderElementsOf(IntStream.range(0, STOCK_INICIAL).boxed().toList());
+    }
+}
@@ -0,0 +1,121 @@
+package com.nuclearvet.modulos.inventario.repository;
+
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Test de ValoracionInventarioRepository (RF4.4) sobre H2: un solo corte por producto y día,
+ * del que leen obtenerStockAFecha y reporteExistencias.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@DisplayName("ValoracionInventarioRepository - Cortes de valorización")
+class ValoracionInventarioRepositoryTest {
+
+    private static final LocalDateTime CORTE = LocalDate.of(2025, 3, 10).atStartOfDay();
+
+    @Configuration
+    @EntityScan(basePackageClasses = {Producto.class, Usuario.class})
+    @EnableJpaRepositories(basePackageClasses = ValoracionInventarioRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ValoracionInventarioRepository.class))
+    static class Configuracion {
+    }
+
+    @Autowired
+    private ValoracionInventarioRepository valoracionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Producto vacuna;
+    private Producto antibiotico;
+
+    @BeforeEach
+    void setUp() {
+        Categoria categoria = Categoria.builder().nombre("Medicamentos").build();
+        categoria.setFechaCreacion(LocalDateTime.now());
+        entityManager.persist(categoria);
+        vacuna = crearProducto(categoria, "VAC-001");
+        antibiotico = crearProducto(categoria, "ANT-001");
+    }
+
+    private Producto crearProducto(Categoria categoria, String codigo) {
+        Producto producto = Producto.builder()
+                .codigo(codigo)
+                .nombre("Producto " + codigo)
+                .categoria(categoria)
+                .precioCompra(new BigDecimal("10.00"))
+                .precioVenta(new BigDecimal("15.00"))
+                .stockActual(20)
+                .stockMinimo(5)
+                .build();
+        producto.setFechaCreacion(LocalDateTime.now());
+        entityManager.persist(producto);
+        return producto;
+    }
+
+    private ValoracionInventario valoracion(Producto producto, LocalDateTime fechaCorte, int cantidad) {
+        return ValoracionInventario.builder()
+                .fechaCorte(fechaCorte)
+                .producto(producto)
+                .cantidad(cantidad)
+                .costoPromedio(new BigDecimal("10.0000"))
+                .valor(BigDecimal.valueOf(cantidad * 10L).setScale(2))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Un segundo corte del mismo producto en la misma fecha debe rechazarse")
+    void guardar_CorteDuplicado_LanzaExcepcion() {
+        // Given
+        valoracionRepository.saveAndFlush(valoracion(vacuna, CORTE, 20));
+
+        // When & Then
+        assertThatThrownBy(() -> valoracionRepository.saveAndFlush(valoracion(vacuna, CORTE, 18)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Cada producto tiene su fila en el corte del día y en el del día siguiente")
+    void buscar_UnCortePorProductoYDia() {
+        // Given
+        LocalDateTime siguiente = CORTE.plusDays(1);
+        valoracionRepository.saveAllAndFlush(List.of(
+                valoracion(vacuna, CORTE, 20),
+                valoracion(antibiotico, CORTE, 8),
+                valoracion(vacuna, siguiente, 17)));
+        entityManager.clear();
+
+        // When & Then
+        assertThat(valoracionRepository.findUltimoCorte(CORTE.plusHours(12))).contains(CORTE);
+        assertThat(valoracionRepository.findByFechaCorteAndProductoId(CORTE, vacuna.getId()))
+                .map(ValoracionInventario::getCantidad).contains(20);
+        assertThat(valoracionRepository.findByFechaCorteAndProductoId(siguiente, vacuna.getId()))
+                .map(ValoracionInventario::getCantidad).contains(17);
+        assertThat(valoracionRepository.findByFechaCorteConProducto(CORTE))
+                .extracting(v -> v.getProducto().getCodigo())
+                .containsExactlyInAnyOrder("VAC-001", "ANT-001");
+    }
+}
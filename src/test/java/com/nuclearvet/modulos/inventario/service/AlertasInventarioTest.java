@@ -0,0 +1,158 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ResumenAlertasInventarioDTO;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.VencimientoLote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para AlertasInventario (RF4.3)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AlertasInventario Tests")
+class AlertasInventarioTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private LoteProductoRepository loteRepository;
+
+    @InjectMocks
+    private AlertasInventario alertas;
+
+    private Producto amoxicilina;
+    private Producto meloxicam;
+    private Producto vacuna;
+
+    @BeforeEach
+    void setUp() {
+        amoxicilina = producto(1L, 3, 5);
+        meloxicam = producto(2L, 40, 10);
+        vacuna = producto(3L, 12, 10);
+        when(productoRepository.findByActivoTrueOrderByNombreAsc()).thenReturn(List.of(amoxicilina, meloxicam, vacuna));
+        when(loteRepository.findVencimientosDisponibles()).thenReturn(List.of(
+                new VencimientoLote(1L, HOY.plusDays(200)),
+                new VencimientoLote(2L, HOY.minusDays(2)),
+                new VencimientoLote(2L, HOY.plusDays(90)),
+                new VencimientoLote(3L, HOY.plusDays(1))));
+        alertas.recargar(HOY);
+    }
+
+    private static Producto producto(Long id, int stock, int stockMinimo) {
+        Producto producto = Producto.builder()
+                .id(id)
+                .stockActual(stock)
+                .stockMinimo(stockMinimo)
+                .build();
+        producto.setActivo(true);
+        return producto;
+    }
+
+    @Test
+    @DisplayName("La recarga debe clasificar cada producto en sus alertas")
+    void recargar_ClasificaProductos() {
+        // When
+        ResumenAlertasInventarioDTO resumen = alertas.resumen();
+
+        // Then
+        assertThat(alertas.estaCargado()).isTrue();
+        assertThat(resumen.getProductosBajoStock()).isEqualTo(1);
+        assertThat(resumen.getProductosProximosVencer()).isEqualTo(1);
+        assertThat(resumen.getProductosVencidos()).isEqualTo(1);
+        assertThat(resumen.getTotalAlertas()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Los movimientos deben actualizar las alertas sin consultar la base de datos")
+    void registrarStock_ActualizaAlertas() {
+        // When: entra stock de amoxicilina y se agota el lote vencido de meloxicam
+        alertas.registrarStock(amoxicilina, 20, List.of(HOY.plusDays(200)));
+        alertas.registrarStock(meloxicam, 8, List.of(HOY.plusDays(90)));
+
+        // Then
+        ResumenAlertasInventarioDTO resumen = alertas.resumen();
+        assertThat(resumen.getProductosBajoStock()).isEqualTo(1);
+        assertThat(resumen.getProductosVencidos()).isZero();
+        assertThat(resumen.getProductosProximosVencer()).isEqualTo(1);
+        verify(productoRepository, times(1)).findByActivoTrueOrderByNombreAsc();
+    }
+
+    @Test
+    @DisplayName("Un producto desactivado debe salir de todas las alertas")
+    void registrarProducto_Desactivado_SaleDeLasAlertas() {
+        // Given
+        meloxicam.setStockMinimo(50);
+        alertas.registrarProducto(meloxicam);
+        assertThat(alertas.resumen().getProductosBajoStock()).isEqualTo(2);
+
+        // When
+        meloxicam.setActivo(false);
+        alertas.registrarProducto(meloxicam);
+
+        // Then
+        ResumenAlertasInventarioDTO resumen = alertas.resumen();
+        assertThat(resumen.getProductosBajoStock()).isEqualTo(1);
+        assertThat(resumen.getProductosVencidos()).isZero();
+    }
+
+    @Test
+    @DisplayName("Los cambios deben aplicarse al confirmar y sin pisar uno más reciente")
+    void registrarStock_AplicaDespuesDelCommitEnOrden() {
+        // Given: dos salidas en transacciones distintas, la más antigua confirma última
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> primera;
+        try {
+            alertas.registrarStock(amoxicilina, 10, List.of(HOY.plusDays(200)));
+            primera = List.copyOf(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> segunda;
+        try {
+            alertas.registrarStock(amoxicilina, 4, List.of(HOY.plusDays(200)));
+            segunda = List.copyOf(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(alertas.resumen().getProductosBajoStock()).isEqualTo(1);
+
+        // When
+        segunda.forEach(TransactionSynchronization::afterCommit);
+        primera.forEach(TransactionSynchronization::afterCommit);
+
+        // Then: queda el stock de la segunda salida, que está bajo el mínimo
+        assertThat(alertas.resumen().getProductosBajoStock()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("La recarga del día siguiente debe pasar los lotes de próximos a vencer a vencidos")
+    void recargar_DiaSiguiente_PasaAVencidos() {
+        // When
+        alertas.recargar(HOY.plusDays(2));
+
+        // Then
+        ResumenAlertasInventarioDTO resumen = alertas.resumen();
+        assertThat(resumen.getProductosProximosVencer()).isZero();
+        assertThat(resumen.getProductosVencidos()).isEqualTo(2);
+    }
+}
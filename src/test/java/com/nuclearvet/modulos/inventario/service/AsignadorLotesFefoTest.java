@@ -0,0 +1,263 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.modulos.inventario.entity.LoteProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.LoteDisponible;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para AsignadorLotesFefo (RF4.3, RF4.4)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AsignadorLotesFefo Tests")
+class AsignadorLotesFefoTest {
+
+    private static final LocalDate HOY = LocalDate.now();
+
+    @Mock
+    private LoteProductoRepository loteRepository;
+
+    @Mock
+    private AlertasInventario alertas;
+
+    @Mock
+    private CacheProductos cacheProductos;
+
+    @InjectMocks
+    private AsignadorLotesFefo asignador;
+
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        producto = Producto.builder()
+                .id(1L)
+                .nombre("Amoxicilina")
+                .stockActual(35)
+                .build();
+    }
+
+    private List<LoteDisponible> lotesIniciales() {
+        return List.of(
+                new LoteDisponible(1L, "L-A", HOY.plusDays(90), 10),
+                new LoteDisponible(2L, "L-B", HOY.plusDays(10), 5),
+                new LoteDisponible(3L, null, null, 20));
+    }
+
+    @Test
+    @DisplayName("Salida debe consumir primero el lote que vence primero")
+    void descontar_ConsumeEnOrdenFefo() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.moverCantidad(2L, 5, -5)).thenReturn(1);
+        when(loteRepository.moverCantidad(1L, 10, -3)).thenReturn(1);
+
+        // When
+        List<AsignadorLotesFefo.AsignacionLote> asignaciones = asignador.descontar(producto, 8, 35);
+
+        // Then
+        assertThat(asignaciones).extracting(AsignadorLotesFefo.AsignacionLote::loteId, AsignadorLotesFefo.AsignacionLote::cantidad)
+                .containsExactly(tuple(2L, 5), tuple(1L, 3));
+        // El lote L-B se agotó: el producto queda con el vencimiento del siguiente
+        assertThat(producto.getLote()).isEqualTo("L-A");
+        assertThat(producto.getFechaVencimiento()).isEqualTo(HOY.plusDays(90));
+        verify(alertas).registrarStock(producto, 27, Arrays.asList(HOY.plusDays(90), null));
+    }
+
+    @Test
+    @DisplayName("Salidas siguientes deben usar los lotes en memoria sin consultarlos")
+    void descontar_UsaLotesEnMemoria() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.moverCantidad(2L, 5, -5)).thenReturn(1);
+        when(loteRepository.moverCantidad(1L, 10, -3)).thenReturn(1);
+        when(loteRepository.moverCantidad(1L, 7, -7)).thenReturn(1);
+        when(loteRepository.moverCantidad(3L, 20, -2)).thenReturn(1);
+        asignador.descontar(producto, 8, 35);
+
+        // When
+        List<AsignadorLotesFefo.AsignacionLote> asignaciones = asignador.descontar(producto, 9, 27);
+
+        // Then
+        assertThat(asignaciones).extracting(AsignadorLotesFefo.AsignacionLote::loteId, AsignadorLotesFefo.AsignacionLote::cantidad)
+                .containsExactly(tuple(1L, 7), tuple(3L, 2));
+        verify(loteRepository, times(1)).findDisponiblesPorProducto(1L);
+        assertThat(producto.getLote()).isNull();
+        assertThat(producto.getFechaVencimiento()).isNull();
+    }
+
+    @Test
+    @DisplayName("Si los lotes en memoria no suman el stock del producto deben recargarse")
+    void descontar_StockNoCoincide_RecargaLotes() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(
+                List.of(new LoteDisponible(1L, "L-A", HOY.plusDays(90), 10)),
+                List.of(new LoteDisponible(1L, "L-A", HOY.plusDays(90), 9),
+                        new LoteDisponible(4L, "L-C", HOY.plusDays(5), 15)));
+        when(loteRepository.moverCantidad(1L, 10, -1)).thenReturn(1);
+        when(loteRepository.moverCantidad(4L, 15, -2)).thenReturn(1);
+        asignador.descontar(producto, 1, 10);
+
+        // When: otra instancia registró el lote L-C, el producto tiene 24 unidades
+        List<AsignadorLotesFefo.AsignacionLote> asignaciones = asignador.descontar(producto, 2, 24);
+
+        // Then
+        assertThat(asignaciones).extracting(AsignadorLotesFefo.AsignacionLote::loteId).containsExactly(4L);
+        verify(loteRepository, times(2)).findDisponiblesPorProducto(1L);
+    }
+
+    @Test
+    @DisplayName("Si el UPDATE del lote no coincide debe recargar y continuar")
+    void descontar_LoteCambiado_RecargaYContinua() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(
+                List.of(new LoteDisponible(1L, "L-A", HOY.plusDays(90), 10)),
+                List.of(new LoteDisponible(1L, "L-A", HOY.plusDays(90), 4),
+                        new LoteDisponible(4L, "L-C", HOY.plusDays(120), 6)));
+        when(loteRepository.moverCantidad(1L, 10, -4)).thenReturn(0);
+        when(loteRepository.moverCantidad(1L, 4, -4)).thenReturn(1);
+
+        // When
+        List<AsignadorLotesFefo.AsignacionLote> asignaciones = asignador.descontar(producto, 4, 10);
+
+        // Then
+        assertThat(asignaciones).extracting(AsignadorLotesFefo.AsignacionLote::loteId, AsignadorLotesFefo.AsignacionLote::cantidad)
+                .containsExactly(tuple(1L, 4));
+        verify(loteRepository, times(2)).findDisponiblesPorProducto(1L);
+    }
+
+    @Test
+    @DisplayName("Si los lotes siguen cambiando tras recargar debe lanzar conflicto")
+    void descontar_LotesInestables_LanzaConflicto() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L))
+                .thenReturn(List.of(new LoteDisponible(1L, "L-A", HOY.plusDays(90), 10)));
+        when(loteRepository.moverCantidad(1L, 10, -4)).thenReturn(0);
+
+        // When & Then
+        assertThatThrownBy(() -> asignador.descontar(producto, 4, 10))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("intente de nuevo");
+    }
+
+    @Test
+    @DisplayName("Entrada de un lote existente debe sumarse a ese lote")
+    void registrarEntrada_LoteExistente_SumaAlLote() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.moverCantidad(1L, 10, 12)).thenReturn(1);
+
+        // When
+        asignador.registrarEntrada(producto, 12, "L-A", HOY.plusDays(90), 35);
+
+        // Then
+        verify(loteRepository, never()).save(any(LoteProducto.class));
+        verify(alertas).registrarStock(eq(producto), eq(47), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Entrada de un lote nuevo debe crearlo y actualizar el vencimiento del producto")
+    void registrarEntrada_LoteNuevo_CreaLote() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.save(any(LoteProducto.class))).thenAnswer(invocation -> {
+            LoteProducto lote = invocation.getArgument(0);
+            lote.setId(5L);
+            return lote;
+        });
+
+        // When
+        asignador.registrarEntrada(producto, 30, "L-D", HOY.plusDays(3), 35);
+
+        // Then
+        ArgumentCaptor<LoteProducto> lote = ArgumentCaptor.forClass(LoteProducto.class);
+        verify(loteRepository).save(lote.capture());
+        assertThat(lote.getValue().getCantidadInicial()).isEqualTo(30);
+        assertThat(lote.getValue().getCantidadDisponible()).isEqualTo(30);
+        assertThat(lote.getValue().getProducto()).isSameAs(producto);
+        assertThat(producto.getLote()).isEqualTo("L-D");
+        assertThat(producto.getFechaVencimiento()).isEqualTo(HOY.plusDays(3));
+    }
+
+    @Test
+    @DisplayName("Ajuste a la baja debe descontar en orden FEFO")
+    void ajustar_Baja_DescuentaFefo() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.moverCantidad(2L, 5, -5)).thenReturn(1);
+
+        // When
+        asignador.ajustar(producto, new CambioStock(35, 30));
+
+        // Then
+        verify(loteRepository).moverCantidad(2L, 5, -5);
+        verify(loteRepository, never()).save(any(LoteProducto.class));
+    }
+
+    @Test
+    @DisplayName("Si la transacción se revierte debe descartar los lotes en memoria")
+    void descontar_TransaccionRevertida_DescartaLotesEnMemoria() {
+        // Given
+        when(loteRepository.findDisponiblesPorProducto(1L)).thenReturn(lotesIniciales());
+        when(loteRepository.moverCantidad(2L, 5, -1)).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            asignador.descontar(producto, 1, 35);
+
+            // When
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        asignador.descontar(producto, 1, 35);
+
+        // Then: la segunda salida vuelve a leer los lotes de la base de datos
+        verify(loteRepository, times(2)).findDisponiblesPorProducto(1L);
+        verify(loteRepository, times(2)).moverCantidad(2L, 5, -1);
+    }
+
+    @Test
+    @DisplayName("Los productos importados con stock deben quedar con un lote inicial")
+    void registrarLotesIniciales_CreaUnLotePorProductoConStock() {
+        // Given
+        producto.setLote("L-INI");
+        producto.setFechaVencimiento(HOY.plusDays(200));
+        Producto sinStock = Producto.builder().id(2L).nombre("Collar").stockActual(0).build();
+
+        // When
+        asignador.registrarLotesIniciales(List.of(producto, sinStock));
+
+        // Then
+        ArgumentCaptor<List<LoteProducto>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(loteRepository).saveAll(lotes.capture());
+        assertThat(lotes.getValue()).singleElement()
+                .satisfies(lote -> {
+                    assertThat(lote.getProducto()).isSameAs(producto);
+                    assertThat(lote.getCodigoLote()).isEqualTo("L-INI");
+                    assertThat(lote.getCantidadDisponible()).isEqualTo(35);
+                });
+        verify(alertas).registrarStock(producto, 35, List.of(HOY.plusDays(200)));
+        verifyNoMoreInteractions(alertas);
+    }
+}
@@ -0,0 +1,122 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests para CacheProductos (RF4.1)
+ */
+@DisplayName("CacheProductos Tests")
+class CacheProductosTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CacheProductos cache;
+    private AtomicInteger cargas;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CacheProductos(100, 60_000, meterRegistry);
+        cargas = new AtomicInteger();
+    }
+
+    private ProductoDTO cargar(Long id, String codigo) {
+        cargas.incrementAndGet();
+        return ProductoDTO.builder().id(id).codigo(codigo).nombre("Producto " + codigo).build();
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get(CacheProductos.METRICA)
+                .tag("resultado", resultado)
+                .counter()
+                .count();
+    }
+
+    @Test
+    @DisplayName("La segunda consulta debe responderse desde la caché, también por código")
+    void obtener_SegundaConsulta_Acierto() {
+        // Given
+        ProductoDTO cargado = cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // When
+        ProductoDTO porId = cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+        ProductoDTO porCodigo = cache.obtenerPorCodigo("MED001", () -> cargar(1L, "MED001"));
+
+        // Then
+        assertThat(porId).isSameAs(cargado);
+        assertThat(porCodigo).isSameAs(cargado);
+        assertThat(cargas).hasValue(1);
+        assertThat(contador("acierto")).isEqualTo(2.0);
+        assertThat(contador("fallo")).isEqualTo(1.0);
+        assertThat(cache.tasaAciertos()).isEqualTo(2.0 / 3);
+    }
+
+    @Test
+    @DisplayName("Un producto invalidado debe volver a cargarse")
+    void invalidar_QuitaProducto() {
+        // Given
+        cache.obtenerPorCodigo("MED001", () -> cargar(1L, "MED001"));
+
+        // When: sin transacción activa la invalidación es inmediata
+        cache.invalidar(1L);
+        cache.obtenerPorCodigo("MED001", () -> cargar(1L, "MED001"));
+
+        // Then
+        assertThat(cargas).hasValue(2);
+        assertThat(meterRegistry.get(CacheProductos.METRICA + ".invalidaciones").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Una carga que se cruza con una invalidación no debe quedar en caché")
+    void obtener_InvalidacionDuranteCarga_NoGuarda() {
+        // Given: el producto cambia mientras se está cargando su versión anterior
+        cache.obtenerPorId(1L, () -> {
+            ProductoDTO anterior = cargar(1L, "MED001");
+            cache.invalidar(1L);
+            return anterior;
+        });
+
+        // When
+        cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // Then
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Las entradas vencidas deben volver a cargarse")
+    void obtener_EntradaVencida_Recarga() {
+        // Given
+        cache = new CacheProductos(100, 0, new SimpleMeterRegistry());
+        cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // When
+        cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // Then
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Con la caché llena no debe guardar productos nuevos")
+    void obtener_CapacidadLlena_NoGuarda() {
+        // Given
+        cache = new CacheProductos(1, 60_000, new SimpleMeterRegistry());
+        cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // When
+        cache.obtenerPorId(2L, () -> cargar(2L, "MED002"));
+        cache.obtenerPorId(2L, () -> cargar(2L, "MED002"));
+        cache.obtenerPorId(1L, () -> cargar(1L, "MED001"));
+
+        // Then
+        assertThat(cargas).hasValue(3);
+    }
+}
@@ -0,0 +1,94 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.CruceStockMinimoEvento;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para DetectorStockMinimo (RF4.3)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DetectorStockMinimo Tests")
+class DetectorStockMinimoTest {
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
+    @InjectMocks
+    private DetectorStockMinimo detector;
+
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        producto = Producto.builder()
+                .id(1L)
+                .codigo("AMX500")
+                .nombre("Amoxicilina 500 mg")
+                .stockMinimo(10)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Debe publicar el evento cuando el stock baja hasta el mínimo")
+    void registrarCambio_BajaHastaElMinimo_Publica() {
+        // When
+        detector.registrarCambio(producto, new CambioStock(15, 10));
+
+        // Then
+        ArgumentCaptor<CruceStockMinimoEvento> evento = ArgumentCaptor.forClass(CruceStockMinimoEvento.class);
+        verify(eventos).publishEvent(evento.capture());
+        assertThat(evento.getValue().bajoMinimo()).isTrue();
+        assertThat(evento.getValue().productoId()).isEqualTo(1L);
+        assertThat(evento.getValue().stockNuevo()).isEqualTo(10);
+        assertThat(evento.getValue().stockMinimo()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("No debe publicar si el producto ya estaba bajo el mínimo")
+    void registrarCambio_YaBajoMinimo_NoPublica() {
+        // When
+        detector.registrarCambio(producto, new CambioStock(8, 3));
+        detector.registrarCambio(producto, new CambioStock(40, 25));
+
+        // Then
+        verifyNoInteractions(eventos);
+    }
+
+    @Test
+    @DisplayName("Debe publicar la recuperación cuando el stock vuelve a superar el mínimo")
+    void registrarCambio_SuperaElMinimo_PublicaRecuperacion() {
+        // When
+        detector.registrarCambio(producto, new CambioStock(10, 11));
+
+        // Then
+        verify(eventos).publishEvent(argThat((Object evento) ->
+                evento instanceof CruceStockMinimoEvento cruce && !cruce.bajoMinimo()));
+    }
+
+    @Test
+    @DisplayName("No debe publicar si el producto no tiene stock mínimo")
+    void registrarCambio_SinStockMinimo_NoPublica() {
+        // Given
+        producto.setStockMinimo(null);
+
+        // When
+        detector.registrarCambio(producto, new CambioStock(5, 0));
+
+        // Then
+        verifyNoInteractions(eventos);
+    }
+}
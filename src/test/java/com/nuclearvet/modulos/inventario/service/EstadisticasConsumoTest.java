@@ -0,0 +1,117 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.entity.ConsumoProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.ConsumoProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para EstadisticasConsumo (RF4.4)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("EstadisticasConsumo Tests")
+class EstadisticasConsumoTest {
+
+    private static final LocalDate DIA = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private ConsumoProductoRepository consumoRepository;
+
+    @InjectMocks
+    private EstadisticasConsumo estadisticas;
+
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(estadisticas, "alfa", 0.1);
+        producto = Producto.builder().id(1L).nombre("Amoxicilina").build();
+    }
+
+    private static ConsumoProducto consumo(double tasa, int diasObservados, int consumoDia) {
+        return ConsumoProducto.builder()
+                .productoId(1L)
+                .tasaDiaria(tasa)
+                .diasObservados(diasObservados)
+                .fechaDia(DIA)
+                .consumoDia(consumoDia)
+                .fechaActualizacion(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    @DisplayName("La primera salida debe crear la estadística y acumular en el día")
+    void registrarSalida_PrimeraSalida_CreaEstadistica() {
+        // Given
+        when(consumoRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // When
+        estadisticas.registrarSalida(producto, 4, DIA);
+
+        // Then
+        ArgumentCaptor<ConsumoProducto> guardado = ArgumentCaptor.forClass(ConsumoProducto.class);
+        verify(consumoRepository).save(guardado.capture());
+        assertThat(guardado.getValue().getProducto()).isSameAs(producto);
+        assertThat(guardado.getValue().getConsumoDia()).isEqualTo(4);
+        assertThat(guardado.getValue().getTasaDiaria()).isZero();
+        assertThat(guardado.getValue().getFechaDia()).isEqualTo(DIA);
+    }
+
+    @Test
+    @DisplayName("Una salida de otro día debe cerrar el día anterior en la media")
+    void registrarSalida_NuevoDia_CierraDiaAnterior() {
+        // Given
+        ConsumoProducto consumo = consumo(10, 20, 20);
+        when(consumoRepository.findById(1L)).thenReturn(Optional.of(consumo));
+
+        // When
+        estadisticas.registrarSalida(producto, 5, DIA.plusDays(1));
+
+        // Then
+        verify(consumoRepository).save(consumo);
+        assertThat(consumo.getTasaDiaria()).isCloseTo(11.0, within(1e-9));
+        assertThat(consumo.getDiasObservados()).isEqualTo(21);
+        assertThat(consumo.getFechaDia()).isEqualTo(DIA.plusDays(1));
+        assertThat(consumo.getConsumoDia()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Los días sin salidas deben hacer decaer el consumo estimado")
+    void tasaDiaria_DiasSinSalidas_Decae() {
+        // Given
+        ConsumoProducto consumo = consumo(10, 20, 20);
+
+        // When & Then: el día en curso no cuenta hasta que termina
+        assertThat(estadisticas.tasaDiaria(consumo, DIA)).isEqualTo(10.0);
+        assertThat(estadisticas.tasaDiaria(consumo, DIA.plusDays(1))).isCloseTo(11.0, within(1e-9));
+        assertThat(estadisticas.tasaDiaria(consumo, DIA.plusDays(3))).isCloseTo(11.0 * 0.9 * 0.9, within(1e-9));
+        verifyNoInteractions(consumoRepository);
+    }
+
+    @Test
+    @DisplayName("Los primeros días deben promediarse por igual")
+    void tasaDiaria_Arranque_PromedioSimple() {
+        // Given: primer día con 6 unidades
+        ConsumoProducto consumo = consumo(0, 0, 6);
+
+        // When & Then
+        assertThat(estadisticas.tasaDiaria(consumo, DIA.plusDays(1))).isCloseTo(6.0, within(1e-9));
+        assertThat(estadisticas.tasaDiaria(consumo, DIA.plusDays(3))).isCloseTo(2.0, within(1e-9));
+    }
+}
@@ -0,0 +1,215 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoImportacionProductosDTO;
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.Proveedor;
+import com.nuclearvet.modulos.inventario.mapper.ProductoMapper;
+import com.nuclearvet.modulos.inventario.repository.CategoriaRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para ImportacionProductosService (RF4.1)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ImportacionProductosService Tests")
+class ImportacionProductosServiceTest {
+
+    private static final String ENCABEZADO = "codigo,nombre,categoria,proveedor,precioCompra,precioVenta,stockActual,stockMinimo,fechaVencimiento\n";
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private CategoriaRepository categoriaRepository;
+
+    @Mock
+    private ProveedorRepository proveedorRepository;
+
+    @Mock
+    private AsignadorLotesFefo asignadorLotes;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private Kardex kardex;
+
+    @Mock
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    @Mock
+    private AlertasInventario alertas;
+
+    @Mock
+    private ProductoMapper productoMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Producto>> productos;
+
+    private ImportacionProductosService importacionService;
+
+    @BeforeEach
+    void setUp() {
+        importacionService = new ImportacionProductosService(productoRepository, categoriaRepository,
+                proveedorRepository, asignadorLotes, stockUbicaciones, kardex, indiceBusqueda, alertas, productoMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate);
+
+        when(categoriaRepository.findAll()).thenReturn(List.of(
+                Categoria.builder().id(1L).nombre("Medicamentos").build(),
+                Categoria.builder().id(2L).nombre("Accesorios").build()));
+        when(proveedorRepository.findAll()).thenReturn(List.of(
+                Proveedor.builder().id(7L).nombre("Distribuidora Vet").nit("900123456").build()));
+        when(productoRepository.findAllCodigos()).thenReturn(Set.of("EXISTE01"));
+    }
+
+    private void mapearProductos() {
+        when(productoMapper.toEntity(any(CrearProductoDTO.class))).thenAnswer(invocation -> {
+            CrearProductoDTO dto = invocation.getArgument(0);
+            return Producto.builder()
+                    .codigo(dto.getCodigo())
+                    .nombre(dto.getNombre())
+                    .precioCompra(dto.getPrecioCompra())
+                    .precioVenta(dto.getPrecioVenta())
+                    .stockActual(dto.getStockActual())
+                    .stockMinimo(dto.getStockMinimo())
+                    .fechaVencimiento(dto.getFechaVencimiento())
+                    .build();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void ejecutarTransaccionesEnLinea() {
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static InputStream csv(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Debe importar las filas válidas y reportar cada fila con error")
+    void importar_FilasValidasYErrores() {
+        // Given
+        mapearProductos();
+        ejecutarTransaccionesEnLinea();
+        String contenido = ENCABEZADO
+                + "MED001,Amoxicilina 500mg,medicamentos,,1200.50,2000,40,10,2026-12-31\n"
+                + "ACC001,\"Collar isabelino, talla M\",2,900123456,8000,15000,0,2,\n"
+                + "EXISTE01,Repetido en base de datos,1,,100,200,1,1,\n"
+                + "MED001,Repetido en el archivo,1,,100,200,1,1,\n"
+                + "MED002,Categoría inexistente,Alimentos,,100,200,1,1,\n"
+                + "MED003,Precio inválido,1,,abc,200,1,1,\n"
+                + "MED004,Precio de venta menor,1,,300,200,1,1,\n"
+                + "MED005,Sin stock mínimo,1,,100,200,1,,\n";
+
+        // When
+        ResultadoImportacionProductosDTO resultado = importacionService.importar(csv(contenido));
+
+        // Then
+        assertThat(resultado.getFilasLeidas()).isEqualTo(8);
+        assertThat(resultado.getProductosImportados()).isEqualTo(2);
+        assertThat(resultado.getFilasConError()).isEqualTo(6);
+        assertThat(resultado.getErrores())
+                .extracting(ResultadoImportacionProductosDTO.ErrorFilaDTO::getFila, ResultadoImportacionProductosDTO.ErrorFilaDTO::getCodigo)
+                .containsExactly(tuple(4, "EXISTE01"), tuple(5, "MED001"), tuple(6, "MED002"),
+                        tuple(7, "MED003"), tuple(8, "MED004"), tuple(9, "MED005"));
+        assertThat(resultado.getErrores().get(5).getMensaje()).isEqualTo("El stock mínimo es obligatorio");
+
+        verify(productoRepository).saveAll(productos.capture());
+        assertThat(productos.getValue()).extracting(Producto::getCodigo).containsExactly("MED001", "ACC001");
+        Producto collar = productos.getValue().get(1);
+        assertThat(collar.getNombre()).isEqualTo("Collar isabelino, talla M");
+        assertThat(collar.getCategoria().getId()).isEqualTo(2L);
+        assertThat(collar.getProveedor().getId()).isEqualTo(7L);
+        verify(asignadorLotes).registrarLotesIniciales(productos.getValue());
+        verify(stockUbicaciones).registrarInventarioInicial(productos.getValue());
+        verify(kardex).registrarInventarioInicial(List.of(productos.getValue().get(0))); // solo el que tiene stock
+        verify(indiceBusqueda, times(2)).registrar(any(Producto.class));
+        verify(alertas, times(2)).registrarProducto(any(Producto.class));
+    }
+
+    @Test
+    @DisplayName("Debe guardar en una transacción por cada bloque de filas")
+    void importar_VariasTransacciones() {
+        // Given
+        mapearProductos();
+        ejecutarTransaccionesEnLinea();
+        StringBuilder contenido = new StringBuilder("codigo;nombre;categoria;precio_compra;precio_venta;stock_actual;stock_minimo\n");
+        int filas = ImportacionProductosService.FILAS_POR_TRANSACCION + 1;
+        for (int i = 0; i < filas; i++) {
+            contenido.append("P").append(i).append(";Producto ").append(i).append(";1;10;20;0;0\n");
+        }
+
+        // When
+        ResultadoImportacionProductosDTO resultado = importacionService.importar(csv(contenido.toString()));
+
+        // Then
+        assertThat(resultado.getProductosImportados()).isEqualTo(filas);
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(productoRepository, times(2)).saveAll(productos.capture());
+        assertThat(productos.getAllValues()).extracting(List::size)
+                .containsExactly(ImportacionProductosService.FILAS_POR_TRANSACCION, 1);
+    }
+
+    @Test
+    @DisplayName("Un lote que no se puede guardar debe reportar sus filas como error")
+    void importar_LoteConConflicto_ReportaFilas() {
+        // Given: otro usuario creó el código mientras se importaba
+        mapearProductos();
+        doThrow(new DataIntegrityViolationException("productos_codigo_key"))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        // When
+        ResultadoImportacionProductosDTO resultado = importacionService.importar(csv(ENCABEZADO
+                + "MED001,Amoxicilina,1,,100,200,5,1,\n"));
+
+        // Then
+        assertThat(resultado.getProductosImportados()).isZero();
+        assertThat(resultado.getFilasConError()).isEqualTo(1);
+        assertThat(resultado.getErrores()).singleElement()
+                .satisfies(error -> assertThat(error.getFila()).isEqualTo(2));
+    }
+
+    @Test
+    @DisplayName("Un encabezado sin las columnas obligatorias debe rechazarse sin importar nada")
+    void importar_FaltanColumnas_LanzaExcepcion() {
+        // When & Then
+        assertThatThrownBy(() -> importacionService.importar(csv("codigo,nombre,categoria\nMED001,Amoxicilina,1\n")))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("preciocompra");
+        verifyNoInteractions(transactionTemplate);
+    }
+}
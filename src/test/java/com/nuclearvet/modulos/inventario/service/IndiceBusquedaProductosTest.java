@@ -0,0 +1,93 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ProductoSugerenciaDTO;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests para IndiceBusquedaProductos (RF4.1)
+ */
+@DisplayName("IndiceBusquedaProductos Tests")
+class IndiceBusquedaProductosTest {
+
+    private IndiceBusquedaProductos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceBusquedaProductos(null);
+        indice.cargar(List.of(
+                producto(1L, "AMX500", "Amoxicilina 500 mg", "Amoxicilina"),
+                producto(2L, "AMC875", "Amoxicilina + Ácido clavulánico", "Amoxicilina"),
+                producto(3L, "AMP250", "Ampicilina 250 mg", "Ampicilina"),
+                producto(4L, "MLX015", "Meloxicam 1.5 mg/ml", "Meloxicam"),
+                producto(5L, "DRN100", "Drontal Plus", "Praziquantel")));
+    }
+
+    private static Producto producto(Long id, String codigo, String nombre, String principioActivo) {
+        Producto producto = Producto.builder()
+                .id(id)
+                .codigo(codigo)
+                .nombre(nombre)
+                .principioActivo(principioActivo)
+                .build();
+        producto.setActivo(true);
+        return producto;
+    }
+
+    private List<Long> ids(String texto) {
+        return indice.buscar(texto, 10).stream().map(ProductoSugerenciaDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Debe sugerir por prefijo del nombre, sin productos parecidos por debajo del umbral")
+    void testPrefijo() {
+        assertThat(ids("amoxi")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids("amoxicilina 500")).first().isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Debe ignorar tildes y mayúsculas y tolerar errores de tipeo")
+    void testNormalizacionYErrores() {
+        assertThat(ids("CLAVULANICO")).containsExactly(2L);
+        assertThat(ids("amoxicilna")).contains(1L, 2L);
+        assertThat(ids("meloxican")).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("Debe buscar por principio activo y poner primero el código exacto")
+    void testPrincipioActivoYCodigo() {
+        assertThat(ids("praziquantel")).containsExactly(5L);
+        assertThat(ids("amc875")).first().isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Debe devolver vacío si la consulta es muy corta")
+    void testConsultaCorta() {
+        assertThat(ids("a")).isEmpty();
+        assertThat(ids("  ")).isEmpty();
+        assertThat(ids("am")).contains(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Debe reflejar altas, cambios y desactivaciones de productos")
+    void testActualizacionIncremental() {
+        indice.registrar(producto(6L, "KTF010", "Ketoprofeno 10%", "Ketoprofeno"));
+        assertThat(ids("ketoprof")).containsExactly(6L);
+
+        indice.registrar(producto(6L, "KTF010", "Carprofeno 50 mg", "Carprofeno"));
+        assertThat(ids("ketoprof")).isEmpty();
+        assertThat(ids("carprof")).containsExactly(6L);
+
+        Producto inactivo = producto(1L, "AMX500", "Amoxicilina 500 mg", "Amoxicilina");
+        inactivo.setActivo(false);
+        indice.registrar(inactivo);
+        indice.quitar(2L);
+        assertThat(ids("amoxi")).isEmpty();
+    }
+}
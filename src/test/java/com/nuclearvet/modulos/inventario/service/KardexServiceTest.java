@@ -0,0 +1,178 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.dto.ValoracionInventarioDTO;
+import com.nuclearvet.modulos.inventario.entity.Categoria;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
+import com.nuclearvet.modulos.inventario.mapper.KardexMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import com.nuclearvet.modulos.inventario.repository.ValoracionInventarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para KardexService (RF4.4)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KardexService Tests")
+class KardexServiceTest {
+
+    private static final LocalDateTime CORTE = LocalDateTime.of(2025, 3, 10, 0, 0);
+
+    @Mock
+    private RegistroKardexRepository registroRepository;
+
+    @Mock
+    private ValoracionInventarioRepository valoracionRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private KardexMapper kardexMapper;
+
+    @InjectMocks
+    private KardexService kardexService;
+
+    @Captor
+    private ArgumentCaptor<List<ValoracionInventario>> valoraciones;
+
+    private Producto amoxicilina;
+    private Producto meloxicam;
+    private Producto collar;
+
+    @BeforeEach
+    void setUp() {
+        Categoria medicamentos = Categoria.builder().id(1L).nombre("Medicamentos").build();
+        Categoria accesorios = Categoria.builder().id(2L).nombre("Accesorios").build();
+        amoxicilina = Producto.builder().id(1L).nombre("Amoxicilina").categoria(medicamentos).build();
+        meloxicam = Producto.builder().id(2L).nombre("Meloxicam").categoria(medicamentos).build();
+        collar = Producto.builder().id(3L).nombre("Collar isabelino").categoria(accesorios).build();
+    }
+
+    private static ValoracionInventario valoracion(Producto producto, int cantidad, String valor) {
+        return ValoracionInventario.builder()
+                .fechaCorte(CORTE)
+                .producto(producto)
+                .cantidad(cantidad)
+                .costoPromedio(BigDecimal.ONE)
+                .valor(new BigDecimal(valor))
+                .build();
+    }
+
+    private static RegistroKardex registro(Producto producto, int saldoCantidad, String saldoValor) {
+        return RegistroKardex.builder()
+                .producto(producto)
+                .saldoCantidad(saldoCantidad)
+                .costoPromedio(BigDecimal.ONE)
+                .saldoValor(new BigDecimal(saldoValor))
+                .build();
+    }
+
+    @Test
+    @DisplayName("La valorización debe partir del último corte y aplicar los registros posteriores")
+    void valorarInventario_CorteMasRegistros() {
+        // Given
+        LocalDateTime fecha = CORTE.plusHours(15);
+        when(valoracionRepository.findUltimoCorte(fecha)).thenReturn(Optional.of(CORTE));
+        when(valoracionRepository.findByFechaCorteConProducto(CORTE)).thenReturn(List.of(
+                valoracion(amoxicilina, 10, "1000.00"),
+                valoracion(collar, 5, "250.00")));
+        when(registroRepository.findParaValoracion(CORTE, fecha)).thenReturn(List.of(
+                registro(amoxicilina, 8, "800.00"),
+                registro(meloxicam, 4, "40.00"),
+                registro(amoxicilina, 20, "2300.00")));
+
+        // When
+        ValoracionInventarioDTO resultado = kardexService.valorarInventario(fecha);
+
+        // Then: amoxicilina queda con su último registro, el collar con el corte
+        assertThat(resultado.getFechaCorte()).isEqualTo(CORTE);
+        assertThat(resultado.getRegistrosAplicados()).isEqualTo(3);
+        assertThat(resultado.getTotalProductos()).isEqualTo(3);
+        assertThat(resultado.getTotalUnidades()).isEqualTo(29);
+        assertThat(resultado.getValorTotal()).isEqualByComparingTo("2590.00");
+        assertThat(resultado.getCategorias()).hasSize(2);
+        ValoracionInventarioDTO.ValoracionCategoriaDTO medicamentos = resultado.getCategorias().get(0);
+        assertThat(medicamentos.getCategoriaNombre()).isEqualTo("Medicamentos");
+        assertThat(medicamentos.getProductos()).isEqualTo(2);
+        assertThat(medicamentos.getValor()).isEqualByComparingTo("2340.00");
+    }
+
+    @Test
+    @DisplayName("El corte debe guardar solo los productos con existencias")
+    void generarCorte_GuardaProductosConExistencias() {
+        // Given: no hay corte anterior, se aplican todos los registros
+        when(valoracionRepository.existsByFechaCorte(CORTE)).thenReturn(false);
+        when(valoracionRepository.findUltimoCorte(CORTE)).thenReturn(Optional.empty());
+        when(registroRepository.findParaValoracion(any(LocalDateTime.class), eq(CORTE))).thenReturn(List.of(
+                registro(amoxicilina, 0, "0.00"),
+                registro(collar, 5, "250.00")));
+
+        // When
+        int guardados = kardexService.generarCorte(CORTE);
+
+        // Then
+        assertThat(guardados).isEqualTo(1);
+        verify(valoracionRepository).saveAllAndFlush(valoraciones.capture());
+        assertThat(valoraciones.getValue()).singleElement()
+                .satisfies(v -> {
+                    assertThat(v.getProducto()).isSameAs(collar);
+                    assertThat(v.getFechaCorte()).isEqualTo(CORTE);
+                    assertThat(v.getValor()).isEqualByComparingTo("250.00");
+                });
+        verify(valoracionRepository, never()).findByFechaCorteConProducto(any());
+    }
+
+    @Test
+    @DisplayName("Un corte que ya existe no debe volver a generarse")
+    void generarCorte_Existente_NoHaceNada() {
+        // Given
+        when(valoracionRepository.existsByFechaCorte(CORTE)).thenReturn(true);
+
+        // When
+        int guardados = kardexService.generarCorte(CORTE);
+
+        // Then
+        assertThat(guardados).isZero();
+        verify(registroRepository, never()).findParaValoracion(any(), any());
+        verify(valoracionRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    @DisplayName("Si otra instancia guarda el mismo corte a la vez, este se descarta sin error")
+    void generarCorte_Concurrente_SeDescarta() {
+        // Given: el índice único (fecha_corte, producto_id) rechaza el segundo corte
+        when(valoracionRepository.existsByFechaCorte(CORTE)).thenReturn(false);
+        when(valoracionRepository.findUltimoCorte(CORTE)).thenReturn(Optional.empty());
+        when(registroRepository.findParaValoracion(any(LocalDateTime.class), eq(CORTE)))
+                .thenReturn(List.of(registro(collar, 5, "250.00")));
+        when(valoracionRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_valoraciones_inventario_corte_producto"));
+
+        // When
+        int guardados = kardexService.generarCorte(CORTE);
+
+        // Then
+        assertThat(guardados).isZero();
+    }
+}
@@ -0,0 +1,170 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.modulos.inventario.entity.KardexProducto;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
+import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.KardexProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para Kardex (RF4.4)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Kardex Tests")
+class KardexTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 3, 10, 9, 30);
+
+    @Mock
+    private KardexProductoRepository kardexProductoRepository;
+
+    @Mock
+    private RegistroKardexRepository registroRepository;
+
+    @InjectMocks
+    private Kardex kardex;
+
+    @Captor
+    private ArgumentCaptor<List<RegistroKardex>> registros;
+
+    private Producto producto;
+
+    @BeforeEach
+    void setUp() {
+        producto = Producto.builder()
+                .id(1L)
+                .nombre("Amoxicilina 500mg")
+                .precioCompra(new BigDecimal("100.00"))
+                .build();
+    }
+
+    private KardexProducto saldo(int cantidad, String costoPromedio, String valor) {
+        return KardexProducto.builder()
+                .productoId(1L)
+                .producto(producto)
+                .cantidad(cantidad)
+                .costoPromedio(new BigDecimal(costoPromedio))
+                .valor(new BigDecimal(valor))
+                .fechaActualizacion(AHORA.minusDays(1))
+                .build();
+    }
+
+    private MovimientoInventario movimiento(TipoMovimiento tipo, int stockAnterior, int stockNuevo, String costoUnitario) {
+        return MovimientoInventario.builder()
+                .producto(producto)
+                .tipoMovimiento(tipo)
+                .cantidad(Math.abs(stockNuevo - stockAnterior))
+                .stockAnterior(stockAnterior)
+                .stockNuevo(stockNuevo)
+                .costoUnitario(costoUnitario != null ? new BigDecimal(costoUnitario) : null)
+                .fechaMovimiento(AHORA)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Una entrada con costo debe recalcular el promedio y la salida valorizarse a ese promedio")
+    void registrar_EntradaYSalida_CostoPromedioPonderado() {
+        // Given: 10 unidades a 100
+        KardexProducto saldo = saldo(10, "100.0000", "1000.00");
+        when(kardexProductoRepository.findAllById(List.of(1L))).thenReturn(List.of(saldo));
+        MovimientoInventario entrada = movimiento(TipoMovimiento.ENTRADA, 10, 20, "130.00");
+        MovimientoInventario salida = movimiento(TipoMovimiento.SALIDA, 20, 15, "100.00");
+
+        // When
+        kardex.registrar(List.of(entrada, salida));
+
+        // Then: (1000 + 10 x 130) / 20 = 115, y la salida sale a 115 aunque traiga otro costo
+        verify(registroRepository).saveAll(registros.capture());
+        RegistroKardex registroEntrada = registros.getValue().get(0);
+        assertThat(registroEntrada.getMovimiento()).isSameAs(entrada);
+        assertThat(registroEntrada.getValor()).isEqualByComparingTo("1300.00");
+        assertThat(registroEntrada.getCostoPromedio()).isEqualByComparingTo("115");
+        RegistroKardex registroSalida = registros.getValue().get(1);
+        assertThat(registroSalida.getCantidad()).isEqualTo(-5);
+        assertThat(registroSalida.getCostoUnitario()).isEqualByComparingTo("115");
+        assertThat(registroSalida.getValor()).isEqualByComparingTo("-575.00");
+        assertThat(registroSalida.getSaldoValor()).isEqualByComparingTo("1725.00");
+        assertThat(saldo.getCantidad()).isEqualTo(15);
+        assertThat(saldo.getValor()).isEqualByComparingTo("1725.00");
+        verify(kardexProductoRepository).saveAll(argThat((Iterable<KardexProducto> saldos) -> saldos.iterator().next() == saldo));
+    }
+
+    @Test
+    @DisplayName("Un producto sin kardex debe partir de su stock al precio de compra")
+    void registrar_SinKardex_PartePrecioCompra() {
+        // Given
+        when(kardexProductoRepository.findAllById(List.of(1L))).thenReturn(List.of());
+
+        // When
+        kardex.registrar(movimiento(TipoMovimiento.SALIDA, 50, 30, null));
+
+        // Then
+        verify(registroRepository).saveAll(registros.capture());
+        RegistroKardex registro = registros.getValue().get(0);
+        assertThat(registro.getValor()).isEqualByComparingTo("-2000.00");
+        assertThat(registro.getSaldoCantidad()).isEqualTo(30);
+        assertThat(registro.getSaldoValor()).isEqualByComparingTo("3000.00");
+        assertThat(registro.getCostoPromedio()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    @DisplayName("Al agotar el stock el saldo debe quedar en cero y conservar el último costo promedio")
+    void registrar_AgotaStock_ValorCero() {
+        // Given: 3 unidades por 10.00, el promedio redondeado no reparte exacto
+        KardexProducto saldo = saldo(3, "3.3333", "10.00");
+        when(kardexProductoRepository.findAllById(List.of(1L))).thenReturn(List.of(saldo));
+
+        // When
+        kardex.registrar(List.of(
+                movimiento(TipoMovimiento.SALIDA, 3, 1, null),
+                movimiento(TipoMovimiento.SALIDA, 1, 0, null)));
+
+        // Then
+        verify(registroRepository).saveAll(registros.capture());
+        BigDecimal totalSalidas = registros.getValue().stream()
+                .map(RegistroKardex::getValor)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(totalSalidas).isEqualByComparingTo("-10.00");
+        assertThat(saldo.getValor()).isZero();
+        assertThat(saldo.getCostoPromedio()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Un ajuste manual debe valorizarse al costo promedio y corregir un kardex desfasado")
+    void registrarAjuste_KardexDesfasado_ValorizaAlPromedio() {
+        // Given: el kardex dice 12 unidades pero el stock real era 10
+        KardexProducto saldo = saldo(12, "115.0000", "1380.00");
+        when(kardexProductoRepository.findAllById(List.of(1L))).thenReturn(List.of(saldo));
+
+        // When
+        kardex.registrarAjuste(producto, new CambioStock(10, 4));
+
+        // Then
+        ArgumentCaptor<RegistroKardex> registro = ArgumentCaptor.forClass(RegistroKardex.class);
+        verify(registroRepository).save(registro.capture());
+        assertThat(registro.getValue().getMovimiento()).isNull();
+        assertThat(registro.getValue().getTipoMovimiento()).isEqualTo(TipoMovimiento.AJUSTE);
+        assertThat(registro.getValue().getValor()).isEqualByComparingTo("-690.00");
+        assertThat(registro.getValue().getSaldoValor()).isEqualByComparingTo("460.00");
+        assertThat(saldo.getCantidad()).isEqualTo(4);
+    }
+}
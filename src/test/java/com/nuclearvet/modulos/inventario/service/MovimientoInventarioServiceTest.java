@@ -2,25 +2,41 @@ package com.nuclearvet.modulos.inventario.service;
 
 import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.dto.ExistenciaPeriodoDTO;
 import com.nuclearvet.modulos.inventario.dto.MovimientoInventarioDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarEntregaProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.RegistrarMovimientoDTO;
+import com.nuclearvet.modulos.inventario.dto.RegistrarTransferenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResultadoEntregaProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.StockHistoricoDTO;
 import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
 import com.nuclearvet.modulos.inventario.entity.Producto;
 import com.nuclearvet.modulos.inventario.entity.Proveedor;
+import com.nuclearvet.modulos.inventario.entity.RegistroKardex;
 import com.nuclearvet.modulos.inventario.entity.TipoMovimiento;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.entity.ValoracionInventario;
 import com.nuclearvet.modulos.inventario.mapper.MovimientoInventarioMapper;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
 import com.nuclearvet.modulos.inventario.repository.MovimientoInventarioRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
+import com.nuclearvet.modulos.inventario.repository.RegistroKardexRepository;
+import com.nuclearvet.modulos.inventario.repository.ValoracionInventarioRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import com.nuclearvet.modulos.usuarios.repository.UsuarioRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -43,9 +59,36 @@ class MovimientoInventarioServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private StockProductos stockProductos;
+
     @Mock
     private ProveedorRepository proveedorRepository;
 
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private ValoracionInventarioRepository valoracionRepository;
+
+    @Mock
+    private RegistroKardexRepository registroKardexRepository;
+
+    @Mock
+    private AsignadorLotesFefo asignadorLotes;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private DetectorStockMinimo detectorStockMinimo;
+
+    @Mock
+    private EstadisticasConsumo estadisticasConsumo;
+
+    @Mock
+    private Kardex kardex;
+
     @Mock
     private MovimientoInventarioMapper movimientoMapper;
 
@@ -54,6 +97,7 @@ class MovimientoInventarioServiceTest {
 
     private Producto producto;
     private Proveedor proveedor;
+    private Ubicacion farmacia;
     private MovimientoInventario movimiento;
     private RegistrarMovimientoDTO registrarMovimientoDTO;
     private MovimientoInventarioDTO movimientoDTO;
@@ -73,6 +117,13 @@ class MovimientoInventarioServiceTest {
                 .nombre("Proveedor Test")
                 .build();
 
+        farmacia = Ubicacion.builder()
+                .id(1L)
+                .codigo("FARMACIA")
+                .nombre("Farmacia principal")
+                .principal(true)
+                .build();
+
         movimiento = MovimientoInventario.builder()
                 .id(1L)
                 .producto(producto)
@@ -105,9 +156,9 @@ class MovimientoInventarioServiceTest {
     @DisplayName("RF4.4: Registrar ENTRADA de inventario exitosamente")
     void registrarMovimiento_Entrada_Exitoso() {
         // Given
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        when(stockProductos.sumarStockAtomico(1L, 20, true)).thenReturn(Optional.of(new CambioStock(50, 70)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
         when(movimientoMapper.toEntity(any(RegistrarMovimientoDTO.class))).thenReturn(movimiento);
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
         when(movimientoRepository.save(any(MovimientoInventario.class))).thenReturn(movimiento);
         when(movimientoMapper.toDTO(any(MovimientoInventario.class))).thenReturn(movimientoDTO);
 
@@ -117,8 +168,10 @@ class MovimientoInventarioServiceTest {
         // Then
         assertThat(resultado).isNotNull();
         assertThat(resultado.getTipoMovimiento()).isEqualTo("ENTRADA");
-        verify(productoRepository).save(argThat(p -> p.getStockActual() == 70));
-        verify(movimientoRepository).save(any(MovimientoInventario.class));
+        verify(movimientoRepository).save(argThat(m -> m.getStockAnterior() == 50 && m.getStockNuevo() == 70));
+        verify(productoRepository, never()).save(any(Producto.class));
+        verify(asignadorLotes).registrarEntrada(producto, 20, null, null, 50);
+        verify(kardex).registrar(movimiento);
     }
 
     @Test
@@ -127,11 +180,11 @@ class MovimientoInventarioServiceTest {
         // Given
         registrarMovimientoDTO.setTipoMovimiento("SALIDA");
         movimiento.setTipoMovimiento(TipoMovimiento.SALIDA);
-        movimiento.setStockNuevo(30); // 50 - 20 = 30
         
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        when(stockUbicaciones.resolver(null)).thenReturn(farmacia);
+        when(stockProductos.descontarStockAtomico(1L, 20)).thenReturn(Optional.of(new CambioStock(50, 30)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
         when(movimientoMapper.toEntity(any(RegistrarMovimientoDTO.class))).thenReturn(movimiento);
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
         when(movimientoRepository.save(any(MovimientoInventario.class))).thenReturn(movimiento);
         when(movimientoMapper.toDTO(any(MovimientoInventario.class))).thenReturn(movimientoDTO);
 
@@ -140,7 +193,15 @@ class MovimientoInventarioServiceTest {
 
         // Then
         assertThat(resultado).isNotNull();
-        verify(productoRepository).save(argThat(p -> p.getStockActual() == 30));
+        verify(movimientoRepository).save(argThat(m -> m.getStockAnterior() == 50 && m.getStockNuevo() == 30));
+        verify(productoRepository, never()).findById(anyLong());
+        // Las unidades salen de los lotes que vencen primero
+        verify(asignadorLotes).descontar(producto, 20, 50);
+        // Sin ubicación, la salida se aplica en la principal
+        verify(stockUbicaciones).registrarCambio(producto, farmacia, new CambioStock(50, 30));
+        assertThat(movimiento.getUbicacion()).isEqualTo(farmacia);
+        verify(detectorStockMinimo).registrarCambio(producto, new CambioStock(50, 30));
+        verify(estadisticasConsumo).registrarSalida(eq(producto), eq(20), any(LocalDate.class));
     }
 
     @Test
@@ -150,12 +211,109 @@ class MovimientoInventarioServiceTest {
         registrarMovimientoDTO.setTipoMovimiento("SALIDA");
         registrarMovimientoDTO.setCantidad(100); // Más que el stock actual (50)
         
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        when(stockProductos.descontarStockAtomico(1L, 100)).thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
 
         // When & Then
         assertThatThrownBy(() -> movimientoService.registrarMovimiento(registrarMovimientoDTO))
                 .isInstanceOf(ConflictoException.class)
                 .hasMessageContaining("Stock insuficiente");
+        verify(movimientoRepository, never()).save(any(MovimientoInventario.class));
+    }
+
+    @Test
+    @DisplayName("RF4.4: Consumir una reserva debe registrar una SALIDA con lotes y kardex")
+    void registrarConsumoReserva_RegistraSalida() {
+        // Given
+        Usuario veterinario = Usuario.builder().id(3L).build();
+        when(stockUbicaciones.resolver(null)).thenReturn(farmacia);
+        when(stockProductos.consumirReservaAtomico(1L, 5)).thenReturn(Optional.of(new CambioStock(50, 45)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
+        when(movimientoRepository.save(any(MovimientoInventario.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        MovimientoInventario resultado = movimientoService.registrarConsumoReserva(1L, null, 5, "CONSUMO_CITA", "CITA-9", veterinario);
+
+        // Then
+        assertThat(resultado.getTipoMovimiento()).isEqualTo(TipoMovimiento.SALIDA);
+        assertThat(resultado.getStockAnterior()).isEqualTo(50);
+        assertThat(resultado.getStockNuevo()).isEqualTo(45);
+        assertThat(resultado.getNumeroDocumento()).isEqualTo("CITA-9");
+        assertThat(resultado.getUsuario()).isEqualTo(veterinario);
+        verify(asignadorLotes).descontar(producto, 5, 50);
+        verify(stockUbicaciones).registrarCambio(producto, farmacia, new CambioStock(50, 45));
+        verify(detectorStockMinimo).registrarCambio(producto, new CambioStock(50, 45));
+        verify(kardex).registrar(resultado);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Consumir una reserva del quirófano debe descontar de esa ubicación")
+    void registrarConsumoReserva_ConUbicacion_DescuentaDeEsaUbicacion() {
+        // Given
+        Ubicacion quirofano = Ubicacion.builder().id(2L).codigo("QUIROFANO").nombre("Quirófano").build();
+        when(stockProductos.consumirReservaAtomico(1L, 5)).thenReturn(Optional.of(new CambioStock(50, 45)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
+        when(movimientoRepository.save(any(MovimientoInventario.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        MovimientoInventario resultado = movimientoService.registrarConsumoReserva(1L, quirofano, 5, "CONSUMO_CITA", "CITA-9", null);
+
+        // Then
+        assertThat(resultado.getUbicacion()).isEqualTo(quirofano);
+        verify(stockUbicaciones).registrarCambio(producto, quirofano, new CambioStock(50, 45));
+        verify(stockUbicaciones, never()).resolver(any());
+    }
+
+    @Test
+    @DisplayName("RF4.4: Transferir entre ubicaciones debe mover las unidades sin cambiar el stock total")
+    void registrarTransferencia_MueveUnidades() {
+        // Given
+        Ubicacion quirofano = Ubicacion.builder().id(2L).codigo("QUIROFANO").nombre("Quirófano").build();
+        Usuario usuario = Usuario.builder().id(3L).build();
+        RegistrarTransferenciaDTO dto = RegistrarTransferenciaDTO.builder()
+                .productoId(1L).ubicacionOrigenId(1L).ubicacionDestinoId(2L).cantidad(8).usuarioId(3L).build();
+        when(stockUbicaciones.resolver(1L)).thenReturn(farmacia);
+        when(stockUbicaciones.resolver(2L)).thenReturn(quirofano);
+        when(usuarioRepository.findById(3L)).thenReturn(Optional.of(usuario));
+        when(stockProductos.sumarStockAtomico(1L, 0, false)).thenReturn(Optional.of(new CambioStock(50, 50)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
+        when(movimientoRepository.save(any(MovimientoInventario.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(movimientoMapper.toDTO(any(MovimientoInventario.class))).thenReturn(movimientoDTO);
+
+        // When
+        movimientoService.registrarTransferencia(dto);
+
+        // Then
+        verify(stockUbicaciones).transferir(producto, farmacia, quirofano, 8);
+        verify(movimientoRepository).save(argThat(m -> m.getTipoMovimiento() == TipoMovimiento.TRANSFERENCIA
+                && m.getStockAnterior() == 50 && m.getStockNuevo() == 50
+                && m.getUbicacion() == farmacia && m.getUbicacionDestino() == quirofano));
+        verifyNoInteractions(asignadorLotes, kardex, detectorStockMinimo);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Transferir a la misma ubicación debe lanzar excepción")
+    void registrarTransferencia_MismaUbicacion_LanzaExcepcion() {
+        // Given
+        RegistrarTransferenciaDTO dto = RegistrarTransferenciaDTO.builder()
+                .productoId(1L).ubicacionOrigenId(2L).ubicacionDestinoId(2L).cantidad(8).usuarioId(3L).build();
+
+        // When & Then
+        assertThatThrownBy(() -> movimientoService.registrarTransferencia(dto))
+                .isInstanceOf(ValidacionException.class);
+        verifyNoInteractions(stockUbicaciones, productoRepository);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Consumir una reserva que ya no está en stock debe lanzar excepción")
+    void registrarConsumoReserva_SinReserva_LanzaExcepcion() {
+        // Given
+        when(stockProductos.consumirReservaAtomico(1L, 5)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> movimientoService.registrarConsumoReserva(1L, null, 5, "CONSUMO_CITA", "CITA-9", null))
+                .isInstanceOf(ConflictoException.class);
+        verifyNoInteractions(asignadorLotes, kardex);
     }
 
     @Test
@@ -164,7 +322,8 @@ class MovimientoInventarioServiceTest {
         // Given
         registrarMovimientoDTO.setCantidad(60); // 50 + 60 = 110 > stockMaximo (100)
         
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        when(stockProductos.sumarStockAtomico(1L, 60, true)).thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
 
         // When & Then
         assertThatThrownBy(() -> movimientoService.registrarMovimiento(registrarMovimientoDTO))
@@ -179,11 +338,10 @@ class MovimientoInventarioServiceTest {
         registrarMovimientoDTO.setTipoMovimiento("AJUSTE");
         registrarMovimientoDTO.setCantidad(75); // Ajuste a 75 unidades
         movimiento.setTipoMovimiento(TipoMovimiento.AJUSTE);
-        movimiento.setStockNuevo(75);
         
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        when(stockProductos.fijarStockAtomico(1L, 75)).thenReturn(Optional.of(new CambioStock(50, 75)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
         when(movimientoMapper.toEntity(any(RegistrarMovimientoDTO.class))).thenReturn(movimiento);
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
         when(movimientoRepository.save(any(MovimientoInventario.class))).thenReturn(movimiento);
         when(movimientoMapper.toDTO(any(MovimientoInventario.class))).thenReturn(movimientoDTO);
 
@@ -192,7 +350,25 @@ class MovimientoInventarioServiceTest {
 
         // Then
         assertThat(resultado).isNotNull();
-        verify(productoRepository).save(argThat(p -> p.getStockActual() == 75));
+        verify(movimientoRepository).save(argThat(m -> m.getStockAnterior() == 50 && m.getStockNuevo() == 75));
+    }
+
+    @Test
+    @DisplayName("RF4.4: Un AJUSTE por debajo de lo reservado para citas debe lanzar excepción")
+    void registrarMovimiento_AjustePorDebajoDeReservado_LanzaExcepcion() {
+        // Given
+        registrarMovimientoDTO.setTipoMovimiento("AJUSTE");
+        registrarMovimientoDTO.setCantidad(5);
+        producto.setStockReservado(10);
+        
+        when(stockProductos.fijarStockAtomico(1L, 5)).thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+
+        // When & Then
+        assertThatThrownBy(() -> movimientoService.registrarMovimiento(registrarMovimientoDTO))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("reservadas para citas (10)");
+        verify(movimientoRepository, never()).save(any());
     }
 
     @Test
@@ -201,11 +377,11 @@ class MovimientoInventarioServiceTest {
         // Given
         registrarMovimientoDTO.setTipoMovimiento("DEVOLUCION");
         movimiento.setTipoMovimiento(TipoMovimiento.DEVOLUCION);
-        movimiento.setStockNuevo(70); // 50 + 20 = 70
         
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        // La devolución no se limita por el stock máximo
+        when(stockProductos.sumarStockAtomico(1L, 20, false)).thenReturn(Optional.of(new CambioStock(50, 70)));
+        when(productoRepository.getReferenceById(1L)).thenReturn(producto);
         when(movimientoMapper.toEntity(any(RegistrarMovimientoDTO.class))).thenReturn(movimiento);
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
         when(movimientoRepository.save(any(MovimientoInventario.class))).thenReturn(movimiento);
         when(movimientoMapper.toDTO(any(MovimientoInventario.class))).thenReturn(movimientoDTO);
 
@@ -214,14 +390,15 @@ class MovimientoInventarioServiceTest {
 
         // Then
         assertThat(resultado).isNotNull();
-        verify(productoRepository).save(argThat(p -> p.getStockActual() == 70));
+        verify(movimientoRepository).save(argThat(m -> m.getStockNuevo() == 70));
     }
 
     @Test
     @DisplayName("Registrar movimiento con producto inexistente debe lanzar excepción")
     void registrarMovimiento_ProductoNoExiste_LanzaExcepcion() {
         // Given
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(stockProductos.sumarStockAtomico(1L, 20, true)).thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> movimientoService.registrarMovimiento(registrarMovimientoDTO))
@@ -229,6 +406,85 @@ class MovimientoInventarioServiceTest {
                 .hasMessageContaining("Producto");
     }
 
+    private RegistrarEntregaProveedorDTO.LineaEntregaDTO lineaEntrega(Long productoId, int cantidad) {
+        return RegistrarEntregaProveedorDTO.LineaEntregaDTO.builder()
+                .productoId(productoId)
+                .cantidad(cantidad)
+                .costoUnitario(new BigDecimal("10.00"))
+                .build();
+    }
+
+    @Test
+    @DisplayName("RF4.4: Registrar entrega de proveedor en bloque")
+    @SuppressWarnings("unchecked")
+    void registrarEntregaProveedor_Exitoso() {
+        // Given
+        Producto otroProducto = Producto.builder().id(2L).nombre("Otro Producto").stockActual(5).stockMinimo(1).build();
+        RegistrarEntregaProveedorDTO entrega = RegistrarEntregaProveedorDTO.builder()
+                .proveedorId(1L)
+                .usuarioId(1L)
+                .numeroDocumento("REM-001")
+                .lineas(List.of(lineaEntrega(1L, 20), lineaEntrega(2L, 10), lineaEntrega(1L, 5)))
+                .build();
+
+        when(proveedorRepository.findById(1L)).thenReturn(Optional.of(proveedor));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(new Usuario()));
+        when(productoRepository.findAllByIdParaActualizar(anyCollection())).thenReturn(List.of(producto, otroProducto));
+        when(movimientoRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        ResultadoEntregaProveedorDTO resultado = movimientoService.registrarEntregaProveedor(entrega);
+
+        // Then
+        assertThat(resultado.isAplicada()).isTrue();
+        assertThat(resultado.getUnidadesRecibidas()).isEqualTo(35);
+        assertThat(resultado.getCostoTotal()).isEqualByComparingTo("350.00");
+        // El producto 1 viene en dos líneas: 50 -> 70 -> 75
+        assertThat(resultado.getLineas()).extracting(ResultadoEntregaProveedorDTO.LineaResultadoDTO::getStockNuevo)
+                .containsExactly(70, 15, 75);
+        assertThat(resultado.getLineas().get(2).getStockAnterior()).isEqualTo(70);
+        assertThat(producto.getStockActual()).isEqualTo(75);
+        assertThat(otroProducto.getStockActual()).isEqualTo(15);
+
+        ArgumentCaptor<List<MovimientoInventario>> movimientos = ArgumentCaptor.forClass(List.class);
+        verify(movimientoRepository).saveAll(movimientos.capture());
+        assertThat(movimientos.getValue()).hasSize(3)
+                .allMatch(m -> m.getTipoMovimiento() == TipoMovimiento.ENTRADA && m.getProveedor() == proveedor);
+        verify(productoRepository).saveAll(anyCollection());
+        verify(productoRepository, never()).findById(anyLong());
+        verify(asignadorLotes).registrarEntrada(producto, 5, null, null, 70);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Entrega con líneas inválidas no debe modificar el stock")
+    void registrarEntregaProveedor_LineasInvalidas_NoSeAplica() {
+        // Given
+        RegistrarEntregaProveedorDTO entrega = RegistrarEntregaProveedorDTO.builder()
+                .proveedorId(1L)
+                .usuarioId(1L)
+                .lineas(List.of(lineaEntrega(1L, 30), lineaEntrega(1L, 30), lineaEntrega(99L, 1)))
+                .build();
+
+        when(proveedorRepository.findById(1L)).thenReturn(Optional.of(proveedor));
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(new Usuario()));
+        when(productoRepository.findAllByIdParaActualizar(anyCollection())).thenReturn(List.of(producto));
+
+        // When
+        ResultadoEntregaProveedorDTO resultado = movimientoService.registrarEntregaProveedor(entrega);
+
+        // Then
+        assertThat(resultado.isAplicada()).isFalse();
+        assertThat(resultado.getLineasConError()).isEqualTo(2);
+        assertThat(resultado.getLineas().get(0).getError()).isNull();
+        // 50 + 30 + 30 = 110 > stockMaximo (100)
+        assertThat(resultado.getLineas().get(1).getError()).contains("excede el stock máximo");
+        assertThat(resultado.getLineas().get(2).getError()).isEqualTo("Producto no encontrado");
+        assertThat(producto.getStockActual()).isEqualTo(50);
+        verifyNoInteractions(asignadorLotes);
+        verify(productoRepository, never()).saveAll(anyCollection());
+        verify(movimientoRepository, never()).saveAll(anyList());
+    }
+
     @Test
     @DisplayName("Obtener movimiento por ID exitosamente")
     void obtenerPorId_Exitoso() {
@@ -355,4 +611,96 @@ class MovimientoInventarioServiceTest {
         // Then
         assertThat(resultado).isEqualTo(15L);
     }
+
+    @Test
+    @DisplayName("RF4.4: El stock a una fecha debe salir del último registro después del punto de control")
+    void obtenerStockAFecha_DesdePuntoDeControl() {
+        // Given
+        LocalDateTime corte = LocalDateTime.of(2025, 3, 10, 0, 0);
+        LocalDateTime fecha = corte.plusHours(14);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+        when(valoracionRepository.findUltimoCorte(fecha)).thenReturn(Optional.of(corte));
+        when(registroKardexRepository.findFirstByProductoIdAndFechaGreaterThanAndFechaLessThanEqualOrderByFechaDescIdDesc(1L, corte, fecha))
+                .thenReturn(Optional.of(RegistroKardex.builder().producto(producto).saldoCantidad(42).build()));
+
+        // When
+        StockHistoricoDTO resultado = movimientoService.obtenerStockAFecha(1L, fecha);
+
+        // Then
+        assertThat(resultado.getStock()).isEqualTo(42);
+        assertThat(resultado.getFechaPuntoControl()).isEqualTo(corte);
+        verify(valoracionRepository, never()).findByFechaCorteAndProductoId(any(), anyLong());
+        verifyNoInteractions(movimientoRepository);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Sin registros después del corte el stock debe ser el del punto de control")
+    void obtenerStockAFecha_SinRegistros_UsaPuntoDeControl() {
+        // Given
+        LocalDateTime corte = LocalDateTime.of(2025, 3, 10, 0, 0);
+        LocalDateTime fecha = corte.plusHours(14);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+        when(valoracionRepository.findUltimoCorte(fecha)).thenReturn(Optional.of(corte));
+        when(registroKardexRepository.findFirstByProductoIdAndFechaGreaterThanAndFechaLessThanEqualOrderByFechaDescIdDesc(1L, corte, fecha))
+                .thenReturn(Optional.empty());
+        when(valoracionRepository.findByFechaCorteAndProductoId(corte, 1L))
+                .thenReturn(Optional.of(ValoracionInventario.builder().producto(producto).cantidad(35).build()));
+
+        // When
+        StockHistoricoDTO resultado = movimientoService.obtenerStockAFecha(1L, fecha);
+
+        // Then
+        assertThat(resultado.getStock()).isEqualTo(35);
+    }
+
+    @Test
+    @DisplayName("RF4.4: Antes del primer punto de control el stock debe reconstruirse con el movimiento más cercano")
+    void obtenerStockAFecha_SinPuntoDeControl_UsaMovimientos() {
+        // Given
+        LocalDateTime fecha = LocalDateTime.of(2024, 6, 1, 0, 0);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+        when(valoracionRepository.findUltimoCorte(fecha)).thenReturn(Optional.empty());
+        when(movimientoRepository.findFirstByProductoIdAndFechaMovimientoLessThanEqualOrderByFechaMovimientoDescIdDesc(1L, fecha))
+                .thenReturn(Optional.empty());
+        when(movimientoRepository.findFirstByProductoIdAndFechaMovimientoGreaterThanOrderByFechaMovimientoAscIdAsc(1L, fecha))
+                .thenReturn(Optional.of(movimiento));
+
+        // When
+        StockHistoricoDTO resultado = movimientoService.obtenerStockAFecha(1L, fecha);
+
+        // Then: el primer movimiento posterior encontró 50 unidades
+        assertThat(resultado.getStock()).isEqualTo(50);
+        assertThat(resultado.getFechaPuntoControl()).isNull();
+    }
+
+    @Test
+    @DisplayName("RF4.4: El reporte de existencias debe separar el stock inicial de las entradas y salidas del período")
+    void reporteExistencias_UnaPasada() {
+        // Given
+        LocalDateTime corte = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime inicio = LocalDateTime.of(2025, 3, 1, 12, 0);
+        LocalDateTime fin = LocalDateTime.of(2025, 3, 1, 18, 0);
+        Producto otro = Producto.builder().id(2L).nombre("Antiparasitario").build();
+        when(valoracionRepository.findUltimoCorte(inicio)).thenReturn(Optional.of(corte));
+        when(valoracionRepository.findByFechaCorteConProducto(corte)).thenReturn(List.of(
+                ValoracionInventario.builder().producto(producto).cantidad(50).build()));
+        when(registroKardexRepository.findParaValoracion(corte, fin)).thenReturn(List.of(
+                RegistroKardex.builder().producto(producto).fecha(corte.plusHours(9)).cantidad(-5).saldoCantidad(45).build(),
+                RegistroKardex.builder().producto(producto).fecha(corte.plusHours(13)).cantidad(20).saldoCantidad(65).build(),
+                RegistroKardex.builder().producto(otro).fecha(corte.plusHours(14)).cantidad(12).saldoCantidad(12).build(),
+                RegistroKardex.builder().producto(producto).fecha(corte.plusHours(15)).cantidad(-8).saldoCantidad(57).build()));
+
+        // When
+        List<ExistenciaPeriodoDTO> resultado = movimientoService.reporteExistencias(inicio, fin);
+
+        // Then
+        assertThat(resultado).extracting(ExistenciaPeriodoDTO::getProductoId).containsExactly(2L, 1L);
+        ExistenciaPeriodoDTO existencia = resultado.get(1);
+        assertThat(existencia.getStockInicial()).isEqualTo(45);
+        assertThat(existencia.getEntradas()).isEqualTo(20);
+        assertThat(existencia.getSalidas()).isEqualTo(8);
+        assertThat(existencia.getStockFinal()).isEqualTo(57);
+        assertThat(resultado.get(0).getStockInicial()).isZero();
+        assertThat(resultado.get(0).getStockFinal()).isEqualTo(12);
+    }
 }
@@ -5,11 +5,15 @@ import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.common.exception.ValidacionException;
 import com.nuclearvet.modulos.inventario.dto.CrearProductoDTO;
 import com.nuclearvet.modulos.inventario.dto.ProductoDTO;
+import com.nuclearvet.modulos.inventario.dto.ProductoSugerenciaDTO;
+import com.nuclearvet.modulos.inventario.dto.ResumenAlertasInventarioDTO;
 import com.nuclearvet.modulos.inventario.entity.Categoria;
 import com.nuclearvet.modulos.inventario.entity.Producto;
 import com.nuclearvet.modulos.inventario.entity.Proveedor;
 import com.nuclearvet.modulos.inventario.mapper.ProductoMapper;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
 import com.nuclearvet.modulos.inventario.repository.CategoriaRepository;
+import com.nuclearvet.modulos.inventario.repository.LoteProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +29,7 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -40,12 +45,42 @@ class ProductoServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private StockProductos stockProductos;
+
     @Mock
     private CategoriaRepository categoriaRepository;
 
     @Mock
     private ProveedorRepository proveedorRepository;
 
+    @Mock
+    private LoteProductoRepository loteRepository;
+
+    @Mock
+    private AsignadorLotesFefo asignadorLotes;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private DetectorStockMinimo detectorStockMinimo;
+
+    @Mock
+    private DifusorAlertasInventario difusorAlertas;
+
+    @Mock
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    @Mock
+    private AlertasInventario alertas;
+
+    @Mock
+    private Kardex kardex;
+
+    @Mock
+    private CacheProductos cacheProductos;
+
     @Mock
     private ProductoMapper productoMapper;
 
@@ -128,6 +163,10 @@ class ProductoServiceTest {
         assertThat(resultado).isNotNull();
         assertThat(resultado.getCodigo()).isEqualTo("MED001");
         verify(productoRepository).save(any(Producto.class));
+        // El stock inicial queda en su lote
+        verify(asignadorLotes).registrarEntrada(producto, 50, producto.getLote(), producto.getFechaVencimiento(), 0);
+        verify(indiceBusqueda).registrar(producto);
+        verify(kardex).registrarInventarioInicial(producto);
     }
 
     @Test
@@ -207,8 +246,9 @@ class ProductoServiceTest {
     @Test
     @DisplayName("Obtener producto por ID exitosamente")
     void obtenerPorId_Exitoso() {
-        // Given
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
+        // Given: no está en caché, se carga con categoría y proveedor
+        when(cacheProductos.obtenerPorId(eq(1L), any())).thenAnswer(inv -> inv.<Supplier<ProductoDTO>>getArgument(1).get());
+        when(productoRepository.findConRelacionesById(1L)).thenReturn(Optional.of(producto));
         when(productoMapper.toDTO(any(Producto.class))).thenReturn(productoDTO);
 
         // When
@@ -223,7 +263,8 @@ class ProductoServiceTest {
     @DisplayName("Obtener producto inexistente debe lanzar excepción")
     void obtenerPorId_NoExiste_LanzaExcepcion() {
         // Given
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(cacheProductos.obtenerPorId(eq(999L), any())).thenAnswer(inv -> inv.<Supplier<ProductoDTO>>getArgument(1).get());
+        when(productoRepository.findConRelacionesById(999L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThatThrownBy(() -> productoService.obtenerPorId(999L))
@@ -235,7 +276,8 @@ class ProductoServiceTest {
     @DisplayName("Obtener producto por código exitosamente")
     void obtenerPorCodigo_Exitoso() {
         // Given
-        when(productoRepository.findByCodigo(anyString())).thenReturn(Optional.of(producto));
+        when(cacheProductos.obtenerPorCodigo(eq("MED001"), any())).thenAnswer(inv -> inv.<Supplier<ProductoDTO>>getArgument(1).get());
+        when(productoRepository.findConRelacionesByCodigo("MED001")).thenReturn(Optional.of(producto));
         when(productoMapper.toDTO(any(Producto.class))).thenReturn(productoDTO);
 
         // When
@@ -246,6 +288,20 @@ class ProductoServiceTest {
         assertThat(resultado.getCodigo()).isEqualTo("MED001");
     }
 
+    @Test
+    @DisplayName("Un código en caché no debe consultar la base de datos")
+    void obtenerPorCodigo_EnCache_NoConsulta() {
+        // Given
+        when(cacheProductos.obtenerPorCodigo(eq("MED001"), any())).thenReturn(productoDTO);
+
+        // When
+        ProductoDTO resultado = productoService.obtenerPorCodigo("MED001");
+
+        // Then
+        assertThat(resultado).isSameAs(productoDTO);
+        verifyNoInteractions(productoRepository, productoMapper);
+    }
+
     @Test
     @DisplayName("Listar todos los productos activos")
     void listarTodos_Exitoso() {
@@ -338,14 +394,92 @@ class ProductoServiceTest {
 
         // Then
         verify(productoRepository).save(argThat(p -> !p.getActivo()));
+        verify(indiceBusqueda).quitar(1L);
+        verify(alertas).registrarProducto(producto);
+        verify(cacheProductos).invalidar(1L);
+    }
+
+    @Test
+    @DisplayName("Autocompletar debe responder desde el índice en memoria")
+    void autocompletar_DesdeIndice() {
+        // Given
+        List<ProductoSugerenciaDTO> sugerencias = List.of(ProductoSugerenciaDTO.builder().id(1L).build());
+        when(indiceBusqueda.estaCargado()).thenReturn(true);
+        when(indiceBusqueda.buscar("amox", 10)).thenReturn(sugerencias);
+
+        // When
+        List<ProductoSugerenciaDTO> resultado = productoService.autocompletar("amox", 10);
+
+        // Then
+        assertThat(resultado).isSameAs(sugerencias);
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    @DisplayName("Autocompletar con el índice sin cargar debe buscar en base de datos")
+    void autocompletar_IndiceSinCargar_BuscaEnBaseDeDatos() {
+        // Given
+        when(indiceBusqueda.estaCargado()).thenReturn(false);
+        when(productoRepository.findByNombreContainingIgnoreCaseAndActivoTrue("Anti")).thenReturn(List.of(producto));
+
+        // When
+        List<ProductoSugerenciaDTO> resultado = productoService.autocompletar("Anti", 10);
+
+        // Then
+        assertThat(resultado).extracting(ProductoSugerenciaDTO::getId).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Autocompletar con límite inválido debe lanzar excepción")
+    void autocompletar_LimiteInvalido_LanzaExcepcion() {
+        assertThatThrownBy(() -> productoService.autocompletar("amox", 500))
+                .isInstanceOf(ValidacionException.class);
+    }
+
+    @Test
+    @DisplayName("Resumen de alertas debe leer los conteos en memoria")
+    void obtenerResumenAlertas_DesdeMemoria() {
+        // Given
+        ResumenAlertasInventarioDTO resumen = ResumenAlertasInventarioDTO.builder()
+                .productosBajoStock(2).productosProximosVencer(1).productosVencidos(0).totalAlertas(3).build();
+        when(alertas.estaCargado()).thenReturn(true);
+        when(alertas.resumen()).thenReturn(resumen);
+
+        // When
+        ResumenAlertasInventarioDTO resultado = productoService.obtenerResumenAlertas();
+
+        // Then
+        assertThat(resultado).isSameAs(resumen);
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    @DisplayName("Resumen de alertas sin cargar debe contar desde la base de datos")
+    void obtenerResumenAlertas_SinCargar_CuentaEnBaseDeDatos() {
+        // Given
+        when(alertas.estaCargado()).thenReturn(false);
+        when(productoRepository.findProductosConBajoStock()).thenReturn(List.of(producto));
+        when(productoRepository.findProductosProximosAVencer(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(List.of(producto));
+        when(productoRepository.findProductosVencidos()).thenReturn(List.of());
+
+        // When
+        ResumenAlertasInventarioDTO resultado = productoService.obtenerResumenAlertas();
+
+        // Then
+        assertThat(resultado.getProductosBajoStock()).isEqualTo(1);
+        assertThat(resultado.getProductosProximosVencer()).isEqualTo(1);
+        assertThat(resultado.getProductosVencidos()).isZero();
+        assertThat(resultado.getTotalAlertas()).isEqualTo(2);
     }
 
     @Test
     @DisplayName("Ajustar stock exitosamente")
     void ajustarStock_Exitoso() {
         // Given
-        when(productoRepository.findById(anyLong())).thenReturn(Optional.of(producto));
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
+        CambioStock cambio = new CambioStock(50, 75);
+        when(stockProductos.fijarStockAtomico(1L, 75)).thenReturn(Optional.of(cambio));
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
         when(productoMapper.toDTO(any(Producto.class))).thenReturn(productoDTO);
 
         // When
@@ -353,7 +487,38 @@ class ProductoServiceTest {
 
         // Then
         assertThat(resultado).isNotNull();
-        verify(productoRepository).save(argThat(p -> p.getStockActual() == 75));
+        verify(stockProductos).fijarStockAtomico(1L, 75);
+        verify(asignadorLotes).ajustar(producto, cambio);
+        verify(detectorStockMinimo).registrarCambio(producto, cambio);
+        verify(kardex).registrarAjuste(producto, cambio);
+        verify(productoRepository, never()).save(any(Producto.class));
+    }
+
+    @Test
+    @DisplayName("Ajustar stock de producto inexistente debe lanzar excepción")
+    void ajustarStock_ProductoNoExiste_LanzaExcepcion() {
+        // Given
+        when(stockProductos.fijarStockAtomico(99L, 75)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThatThrownBy(() -> productoService.ajustarStock(99L, 75))
+                .isInstanceOf(RecursoNoEncontradoException.class);
+    }
+
+    @Test
+    @DisplayName("Ajustar stock por debajo de lo reservado para citas debe lanzar conflicto")
+    void ajustarStock_PorDebajoDeReservado_LanzaExcepcion() {
+        // Given
+        producto.setStockReservado(10);
+        when(stockProductos.fijarStockAtomico(1L, 5)).thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto));
+
+        // When & Then
+        assertThatThrownBy(() -> productoService.ajustarStock(1L, 5))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("reservadas para citas (10)");
+        verify(asignadorLotes, never()).ajustar(any(), any());
+        verify(kardex, never()).registrarAjuste(any(), any());
     }
 
     @Test
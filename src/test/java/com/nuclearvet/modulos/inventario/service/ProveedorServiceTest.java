@@ -4,8 +4,13 @@ import com.nuclearvet.common.exception.ConflictoException;
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
 import com.nuclearvet.modulos.inventario.dto.CrearProveedorDTO;
 import com.nuclearvet.modulos.inventario.dto.ProveedorDTO;
+import com.nuclearvet.modulos.inventario.dto.SugerenciaPedidoDTO;
+import com.nuclearvet.modulos.inventario.entity.ConsumoProducto;
+import com.nuclearvet.modulos.inventario.entity.Producto;
 import com.nuclearvet.modulos.inventario.entity.Proveedor;
 import com.nuclearvet.modulos.inventario.mapper.ProveedorMapper;
+import com.nuclearvet.modulos.inventario.repository.ConsumoProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
 import com.nuclearvet.modulos.inventario.repository.ProveedorRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,6 +20,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +40,15 @@ class ProveedorServiceTest {
     @Mock
     private ProveedorRepository proveedorRepository;
 
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ConsumoProductoRepository consumoRepository;
+
+    @Mock
+    private EstadisticasConsumo estadisticasConsumo;
+
     @Mock
     private ProveedorMapper proveedorMapper;
 
@@ -267,4 +283,79 @@ class ProveedorServiceTest {
                 .isInstanceOf(ConflictoException.class)
                 .hasMessageContaining("debe estar entre 1 y 5");
     }
+
+    private ConsumoProducto consumo(Long productoId, String codigo, int stock, int stockMinimo, Integer stockMaximo) {
+        Producto producto = Producto.builder()
+                .id(productoId)
+                .codigo(codigo)
+                .nombre("Producto " + codigo)
+                .proveedor(proveedor)
+                .stockActual(stock)
+                .stockMinimo(stockMinimo)
+                .stockMaximo(stockMaximo)
+                .precioCompra(new BigDecimal("2.00"))
+                .build();
+        return ConsumoProducto.builder().productoId(productoId).producto(producto).fechaDia(LocalDate.now()).build();
+    }
+
+    @Test
+    @DisplayName("Sugerir pedidos con los productos que llegarían al mínimo antes de recibirlos")
+    void sugerirPedidos_AgrupaPorProveedor() {
+        // Given: el proveedor entrega en 5 días
+        proveedor.setDiasEntrega(5);
+        ConsumoProducto vacuna = consumo(1L, "VAC01", 30, 10, 100);
+        ConsumoProducto antibiotico = consumo(2L, "ANT01", 8, 10, null);
+        ConsumoProducto shampoo = consumo(3L, "SHA01", 100, 10, null);
+        when(productoRepository.findParaSugerenciasDePedido())
+                .thenReturn(List.of(vacuna.getProducto(), antibiotico.getProducto(), shampoo.getProducto()));
+        when(consumoRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(vacuna, antibiotico, shampoo));
+        when(estadisticasConsumo.tasaDiaria(eq(vacuna), any(LocalDate.class))).thenReturn(5.0);
+        when(estadisticasConsumo.tasaDiaria(eq(antibiotico), any(LocalDate.class))).thenReturn(0.5);
+        when(estadisticasConsumo.tasaDiaria(eq(shampoo), any(LocalDate.class))).thenReturn(1.0);
+
+        // When
+        List<SugerenciaPedidoDTO> sugerencias = proveedorService.sugerirPedidos();
+
+        // Then
+        assertThat(sugerencias).hasSize(1);
+        SugerenciaPedidoDTO sugerencia = sugerencias.get(0);
+        assertThat(sugerencia.getProveedorId()).isEqualTo(1L);
+        assertThat(sugerencia.getDiasEntrega()).isEqualTo(5);
+        // El antibiótico ya está bajo el mínimo: va primero
+        assertThat(sugerencia.getLineas())
+                .extracting(SugerenciaPedidoDTO.LineaSugerenciaDTO::getProductoCodigo,
+                        SugerenciaPedidoDTO.LineaSugerenciaDTO::getDiasHastaMinimo,
+                        SugerenciaPedidoDTO.LineaSugerenciaDTO::getCantidadSugerida)
+                .containsExactly(tuple("ANT01", 0, 20), tuple("VAC01", 4, 95));
+        assertThat(sugerencia.getTotalUnidades()).isEqualTo(115);
+        assertThat(sugerencia.getCostoEstimado()).isEqualByComparingTo("230.00");
+        verifyNoInteractions(proveedorRepository);
+    }
+
+    @Test
+    @DisplayName("Sugerir pedidos también para productos sin consumo registrado, con el stock disponible")
+    void sugerirPedidos_SinConsumoYConReservas() {
+        // Given: la jeringa nunca tuvo salidas y 4 de sus 12 unidades están reservadas para citas
+        proveedor.setDiasEntrega(5);
+        ConsumoProducto vacuna = consumo(1L, "VAC01", 30, 10, 100);
+        Producto jeringa = consumo(4L, "JER01", 12, 10, null).getProducto();
+        jeringa.setStockReservado(4);
+        Producto gasa = consumo(5L, "GAS01", 40, 10, null).getProducto();
+        when(productoRepository.findParaSugerenciasDePedido()).thenReturn(List.of(vacuna.getProducto(), jeringa, gasa));
+        when(consumoRepository.findAllById(List.of(1L, 4L, 5L))).thenReturn(List.of(vacuna));
+        when(estadisticasConsumo.tasaDiaria(eq(vacuna), any(LocalDate.class))).thenReturn(5.0);
+
+        // When
+        List<SugerenciaPedidoDTO> sugerencias = proveedorService.sugerirPedidos();
+
+        // Then: la jeringa tiene 8 disponibles, bajo el mínimo; la gasa sin consumo no se pide
+        assertThat(sugerencias).hasSize(1);
+        assertThat(sugerencias.get(0).getLineas())
+                .extracting(SugerenciaPedidoDTO.LineaSugerenciaDTO::getProductoCodigo,
+                        SugerenciaPedidoDTO.LineaSugerenciaDTO::getStockReservado,
+                        SugerenciaPedidoDTO.LineaSugerenciaDTO::getConsumoDiario,
+                        SugerenciaPedidoDTO.LineaSugerenciaDTO::getCantidadSugerida)
+                .containsExactly(tuple("JER01", 4, 0.0, 2), tuple("VAC01", 0, 5.0, 95));
+        verify(estadisticasConsumo, times(1)).tasaDiaria(any(), any());
+    }
 }
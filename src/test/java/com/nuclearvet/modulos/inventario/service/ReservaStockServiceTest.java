@@ -0,0 +1,216 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.modulos.citas.entity.Cita;
+import com.nuclearvet.modulos.inventario.dto.ReservaStockDTO;
+import com.nuclearvet.modulos.inventario.dto.ReservarInsumoDTO;
+import com.nuclearvet.modulos.inventario.entity.EstadoReserva;
+import com.nuclearvet.modulos.inventario.entity.MovimientoInventario;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.ReservaStock;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.mapper.ReservaStockMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.ReservaStockRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para ReservaStockService (RF4.3)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReservaStockService Tests")
+class ReservaStockServiceTest {
+
+    @Mock
+    private ReservaStockRepository reservaRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private StockProductos stockProductos;
+
+    @Mock
+    private MovimientoInventarioService movimientoService;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private CacheProductos cacheProductos;
+
+    @Mock
+    private ReservaStockMapper reservaMapper;
+
+    @InjectMocks
+    private ReservaStockService reservaService;
+
+    @Captor
+    private ArgumentCaptor<List<ReservaStock>> reservas;
+
+    private Cita cita;
+    private Producto propofol;
+    private Producto sutura;
+
+    @BeforeEach
+    void setUp() {
+        cita = Cita.builder()
+                .id(9L)
+                .veterinario(Usuario.builder().id(3L).build())
+                .build();
+        propofol = Producto.builder().id(1L).nombre("Propofol").activo(true).stockActual(10).stockReservado(2).build();
+        sutura = Producto.builder().id(2L).nombre("Sutura").activo(true).stockActual(4).stockReservado(3).build();
+    }
+
+    @Test
+    @DisplayName("RF4.3: Reservar debe agrupar por producto y guardar una reserva activa por cada uno")
+    void reservar_AgrupaPorProducto() {
+        // Given: el propofol viene en dos líneas
+        when(stockProductos.obtenerMapaPorIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, propofol, 2L, sutura));
+        when(productoRepository.reservarStock(1L, 5)).thenReturn(1);
+        when(productoRepository.reservarStock(2L, 1)).thenReturn(1);
+        when(reservaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reservaMapper.toDTO(any(ReservaStock.class))).thenReturn(new ReservaStockDTO());
+
+        // When
+        List<ReservaStockDTO> resultado = reservaService.reservar(cita, List.of(
+                new ReservarInsumoDTO(1L, 3), new ReservarInsumoDTO(2L, 1), new ReservarInsumoDTO(1L, 2)));
+
+        // Then
+        assertThat(resultado).hasSize(2);
+        verify(reservaRepository).saveAll(reservas.capture());
+        assertThat(reservas.getValue())
+                .extracting(r -> r.getProducto().getId(), ReservaStock::getCantidad, ReservaStock::getEstado)
+                .containsExactly(tuple(1L, 5, EstadoReserva.ACTIVA), tuple(2L, 1, EstadoReserva.ACTIVA));
+        verify(cacheProductos).invalidar(1L);
+        verify(cacheProductos).invalidar(2L);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Reservar con ubicación debe guardarla para consumir desde ella")
+    void reservar_ConUbicacion_GuardaUbicacion() {
+        // Given: el propofol se consume en el quirófano, la sutura en la principal
+        Ubicacion quirofano = Ubicacion.builder().id(2L).codigo("QUIROFANO").nombre("Quirófano").build();
+        when(stockUbicaciones.resolver(2L)).thenReturn(quirofano);
+        when(stockProductos.obtenerMapaPorIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, propofol, 2L, sutura));
+        when(productoRepository.reservarStock(1L, 5)).thenReturn(1);
+        when(productoRepository.reservarStock(2L, 1)).thenReturn(1);
+        when(reservaRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reservaMapper.toDTO(any(ReservaStock.class))).thenReturn(new ReservaStockDTO());
+
+        // When
+        reservaService.reservar(cita, List.of(
+                new ReservarInsumoDTO(1L, 3, 2L), new ReservarInsumoDTO(2L, 1), new ReservarInsumoDTO(1L, 2, 2L)));
+
+        // Then
+        verify(reservaRepository).saveAll(reservas.capture());
+        assertThat(reservas.getValue())
+                .extracting(r -> r.getProducto().getId(), ReservaStock::getUbicacion)
+                .containsExactly(tuple(1L, quirofano), tuple(2L, null));
+        verify(stockUbicaciones, times(1)).resolver(2L);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Un producto con dos ubicaciones distintas no debe reservarse")
+    void reservar_ProductoEnDosUbicaciones_LanzaExcepcion() {
+        // When & Then
+        assertThatThrownBy(() -> reservaService.reservar(cita, List.of(
+                new ReservarInsumoDTO(1L, 3, 2L), new ReservarInsumoDTO(1L, 2))))
+                .isInstanceOf(ValidacionException.class)
+                .hasMessageContaining("dos ubicaciones distintas");
+        verifyNoInteractions(stockProductos, productoRepository, reservaRepository);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Reservar sin stock disponible debe informar todos los faltantes y no guardar nada")
+    void reservar_StockInsuficiente_LanzaExcepcion() {
+        // Given: la sutura tiene 4 en stock pero 3 ya están reservadas
+        when(stockProductos.obtenerMapaPorIds(Set.of(1L, 2L))).thenReturn(Map.of(1L, propofol, 2L, sutura));
+        when(productoRepository.reservarStock(1L, 1)).thenReturn(1);
+        when(productoRepository.reservarStock(2L, 2)).thenReturn(0);
+
+        // When & Then
+        assertThatThrownBy(() -> reservaService.reservar(cita, List.of(
+                new ReservarInsumoDTO(1L, 1), new ReservarInsumoDTO(2L, 2))))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("Sutura (stock disponible: 1, cantidad solicitada: 2)");
+        verify(reservaRepository, never()).saveAll(anyList());
+        verifyNoInteractions(cacheProductos);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Liberar debe devolver lo reservado y cerrar las reservas activas")
+    void liberar_DevuelveReservado() {
+        // Given
+        ReservaStock reserva = ReservaStock.builder().id(20L).producto(propofol).cita(cita)
+                .cantidad(2).estado(EstadoReserva.ACTIVA).build();
+        when(reservaRepository.findByCitaIdAndEstado(9L, EstadoReserva.ACTIVA)).thenReturn(List.of(reserva));
+        when(productoRepository.liberarReserva(1L, 2)).thenReturn(1);
+
+        // When
+        reservaService.liberar(9L);
+
+        // Then
+        assertThat(reserva.getEstado()).isEqualTo(EstadoReserva.LIBERADA);
+        assertThat(reserva.getFechaCierre()).isNotNull();
+        verify(reservaRepository).saveAll(List.of(reserva));
+        verify(cacheProductos).invalidar(1L);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Consumir una reserva con ubicación debe registrar la salida desde esa ubicación")
+    void consumir_ConUbicacion_SaleDeEsaUbicacion() {
+        // Given
+        Ubicacion quirofano = Ubicacion.builder().id(2L).codigo("QUIROFANO").nombre("Quirófano").build();
+        ReservaStock reserva = ReservaStock.builder().id(21L).producto(propofol).cita(cita)
+                .cantidad(2).ubicacion(quirofano).estado(EstadoReserva.ACTIVA).build();
+        when(reservaRepository.findByCitaIdAndEstado(9L, EstadoReserva.ACTIVA)).thenReturn(List.of(reserva));
+        when(movimientoService.registrarConsumoReserva(1L, quirofano, 2, ReservaStockService.MOTIVO_CONSUMO, "CITA-9",
+                cita.getVeterinario())).thenReturn(MovimientoInventario.builder().id(31L).build());
+
+        // When
+        reservaService.consumir(cita);
+
+        // Then
+        assertThat(reserva.getEstado()).isEqualTo(EstadoReserva.CONSUMIDA);
+        assertThat(reserva.getMovimiento().getId()).isEqualTo(31L);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Consumir debe registrar una salida por reserva a nombre del veterinario")
+    void consumir_RegistraSalidas() {
+        // Given
+        ReservaStock reserva = ReservaStock.builder().id(20L).producto(propofol).cita(cita)
+                .cantidad(2).estado(EstadoReserva.ACTIVA).build();
+        MovimientoInventario salida = MovimientoInventario.builder().id(30L).build();
+        when(reservaRepository.findByCitaIdAndEstado(9L, EstadoReserva.ACTIVA)).thenReturn(List.of(reserva));
+        when(movimientoService.registrarConsumoReserva(1L, null, 2, ReservaStockService.MOTIVO_CONSUMO, "CITA-9",
+                cita.getVeterinario())).thenReturn(salida);
+
+        // When
+        reservaService.consumir(cita);
+
+        // Then
+        assertThat(reserva.getEstado()).isEqualTo(EstadoReserva.CONSUMIDA);
+        assertThat(reserva.getMovimiento()).isEqualTo(salida);
+        verify(reservaRepository).saveAll(List.of(reserva));
+        verify(productoRepository, never()).liberarReserva(anyLong(), anyInt());
+    }
+}
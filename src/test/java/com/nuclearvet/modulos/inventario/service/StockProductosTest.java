@@ -0,0 +1,106 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para StockProductos (RF4.3, RF4.4)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockProductos Tests")
+class StockProductosTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @InjectMocks
+    private StockProductos stockProductos;
+
+    private final Producto vacuna = Producto.builder().id(1L).nombre("Vacuna Antirrábica").build();
+    private final Producto jeringa = Producto.builder().id(2L).nombre("Jeringa 5ml").build();
+
+    @Test
+    @DisplayName("Descontar debe devolver el stock antes y después del UPDATE condicional")
+    void descontarStockAtomico_Aplicado_DevuelveCambio() {
+        // Given
+        when(productoRepository.descontarStock(1L, 5)).thenReturn(1);
+        when(productoRepository.findStockActualById(1L)).thenReturn(Optional.of(45));
+
+        // When & Then
+        assertThat(stockProductos.descontarStockAtomico(1L, 5)).contains(new CambioStock(50, 45));
+    }
+
+    @Test
+    @DisplayName("Descontar sin stock disponible debe devolver vacío sin leer el stock")
+    void descontarStockAtomico_SinStock_Vacio() {
+        // Given
+        when(productoRepository.descontarStock(1L, 5)).thenReturn(0);
+
+        // When & Then
+        assertThat(stockProductos.descontarStockAtomico(1L, 5)).isEmpty();
+        verify(productoRepository, never()).findStockActualById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Fijar el stock por debajo de lo reservado debe devolver vacío")
+    void fijarStockAtomico_DebajoDeReservado_Vacio() {
+        // Given
+        when(productoRepository.sumarStock(1L, 0, false)).thenReturn(1);
+        when(productoRepository.findStockActualById(1L)).thenReturn(Optional.of(50));
+        when(productoRepository.actualizarStock(1L, 5)).thenReturn(0);
+
+        // When & Then
+        assertThat(stockProductos.fijarStockAtomico(1L, 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Debe resolver los productos repetidos con una sola consulta")
+    void obtenerMapaPorIds_UnaConsulta() {
+        // Given
+        when(productoRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(vacuna, jeringa));
+
+        // When
+        Map<Long, Producto> productos = stockProductos.obtenerMapaPorIds(List.of(1L, 2L, 1L));
+
+        // Then
+        assertThat(productos).containsOnlyKeys(1L, 2L);
+        verify(productoRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("Debe indicar todos los productos inexistentes")
+    void obtenerMapaPorIdsParaActualizar_Faltantes_LanzaExcepcion() {
+        // Given
+        when(productoRepository.findAllByIdParaActualizar(Set.of(1L, 98L, 99L))).thenReturn(List.of(vacuna));
+
+        // When & Then
+        assertThatThrownBy(() -> stockProductos.obtenerMapaPorIdsParaActualizar(List.of(1L, 98L, 99L)))
+                .isInstanceOf(RecursoNoEncontradoException.class)
+                .hasMessageContaining("[98, 99]");
+    }
+
+    @Test
+    @DisplayName("Sin ids no debe consultar la base de datos")
+    void obtenerMapaPorIds_SinIds_NoConsulta() {
+        // When & Then
+        assertThat(stockProductos.obtenerMapaPorIds(List.of())).isEmpty();
+        verifyNoInteractions(productoRepository);
+    }
+}
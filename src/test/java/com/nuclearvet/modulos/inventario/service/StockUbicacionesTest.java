@@ -0,0 +1,146 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.ValidacionException;
+import com.nuclearvet.modulos.inventario.entity.Producto;
+import com.nuclearvet.modulos.inventario.entity.StockUbicacion;
+import com.nuclearvet.modulos.inventario.entity.Ubicacion;
+import com.nuclearvet.modulos.inventario.repository.CambioStock;
+import com.nuclearvet.modulos.inventario.repository.StockUbicacionRepository;
+import com.nuclearvet.modulos.inventario.repository.UbicacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para StockUbicaciones (RF4.3)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockUbicaciones Tests")
+class StockUbicacionesTest {
+
+    @Mock
+    private StockUbicacionRepository stockRepository;
+
+    @Mock
+    private UbicacionRepository ubicacionRepository;
+
+    @InjectMocks
+    private StockUbicaciones stockUbicaciones;
+
+    @Captor
+    private ArgumentCaptor<List<StockUbicacion>> filas;
+
+    private Producto producto;
+    private Ubicacion farmacia;
+    private Ubicacion sedeNorte;
+
+    @BeforeEach
+    void setUp() {
+        producto = Producto.builder().id(1L).nombre("Ketamina 50 ml").stockActual(12).build();
+        farmacia = Ubicacion.builder().id(1L).codigo("FARMACIA").nombre("Farmacia principal").principal(true).build();
+        sedeNorte = Ubicacion.builder().id(3L).codigo("SEDE_NORTE").nombre("Sede norte").build();
+    }
+
+    @Test
+    @DisplayName("Una entrada debe sumar la diferencia en la ubicación")
+    void registrarCambio_Entrada_Suma() {
+        // When
+        stockUbicaciones.registrarCambio(producto, sedeNorte, new CambioStock(12, 20));
+
+        // Then
+        verify(stockRepository).sumarCantidad(1L, 3L, 8);
+        verify(stockRepository, never()).descontarCantidad(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Una salida que la ubicación no cubre debe lanzar excepción con su stock")
+    void registrarCambio_SalidaSinUnidadesEnUbicacion_LanzaExcepcion() {
+        // Given: el producto tiene 12 en total pero solo 2 en la farmacia
+        when(stockRepository.descontarCantidad(1L, 1L, 5)).thenReturn(0);
+        when(stockRepository.findCantidad(1L, 1L)).thenReturn(Optional.of(2));
+
+        // When & Then
+        assertThatThrownBy(() -> stockUbicaciones.registrarCambio(producto, farmacia, new CambioStock(12, 7)))
+                .isInstanceOf(ConflictoException.class)
+                .hasMessageContaining("Farmacia principal")
+                .hasMessageContaining("Stock en la ubicación: 2, cantidad solicitada: 5");
+    }
+
+    @Test
+    @DisplayName("Transferir debe descontar del origen antes de sumar en el destino")
+    void transferir_DescuentaYSuma() {
+        // Given
+        when(stockRepository.descontarCantidad(1L, 1L, 4)).thenReturn(1);
+
+        // When
+        stockUbicaciones.transferir(producto, farmacia, sedeNorte, 4);
+
+        // Then
+        InOrder orden = inOrder(stockRepository);
+        orden.verify(stockRepository).descontarCantidad(1L, 1L, 4);
+        orden.verify(stockRepository).sumarCantidad(1L, 3L, 4);
+    }
+
+    @Test
+    @DisplayName("Sin ubicación se resuelve la principal, consultándola una sola vez")
+    void resolver_SinUbicacion_UsaLaPrincipal() {
+        // Given
+        when(ubicacionRepository.findByPrincipalTrue()).thenReturn(Optional.of(farmacia));
+        when(ubicacionRepository.getReferenceById(1L)).thenReturn(farmacia);
+
+        // When
+        stockUbicaciones.resolver(null);
+        Ubicacion resultado = stockUbicaciones.resolver(null);
+
+        // Then
+        assertThat(resultado).isEqualTo(farmacia);
+        verify(ubicacionRepository, times(1)).findByPrincipalTrue();
+    }
+
+    @Test
+    @DisplayName("Una ubicación inactiva no debe aceptar movimientos")
+    void resolver_Inactiva_LanzaExcepcion() {
+        // Given
+        sedeNorte.setActivo(false);
+        when(ubicacionRepository.findById(3L)).thenReturn(Optional.of(sedeNorte));
+
+        // When & Then
+        assertThatThrownBy(() -> stockUbicaciones.resolver(3L))
+                .isInstanceOf(ValidacionException.class);
+    }
+
+    @Test
+    @DisplayName("El inventario inicial debe quedar en la principal, solo para productos con stock")
+    void registrarInventarioInicial_SoloConStock() {
+        // Given
+        Producto sinStock = Producto.builder().id(2L).stockActual(0).build();
+        when(ubicacionRepository.findByPrincipalTrue()).thenReturn(Optional.of(farmacia));
+        when(ubicacionRepository.getReferenceById(1L)).thenReturn(farmacia);
+
+        // When
+        stockUbicaciones.registrarInventarioInicial(List.of(producto, sinStock));
+
+        // Then
+        verify(stockRepository).saveAll(filas.capture());
+        assertThat(filas.getValue()).singleElement().satisfies(fila -> {
+            assertThat(fila.getProducto()).isEqualTo(producto);
+            assertThat(fila.getUbicacion()).isEqualTo(farmacia);
+            assertThat(fila.getCantidad()).isEqualTo(12);
+        });
+    }
+}
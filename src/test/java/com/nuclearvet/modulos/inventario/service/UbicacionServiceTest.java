@@ -0,0 +1,94 @@
+package com.nuclearvet.modulos.inventario.service;
+
+import com.nuclearvet.common.exception.ConflictoException;
+import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.inventario.dto.CrearUbicacionDTO;
+import com.nuclearvet.modulos.inventario.dto.StockUbicacionDTO;
+import com.nuclearvet.modulos.inventario.entity.StockUbicacion;
+import com.nuclearvet.modulos.inventario.mapper.UbicacionMapper;
+import com.nuclearvet.modulos.inventario.repository.ProductoRepository;
+import com.nuclearvet.modulos.inventario.repository.StockUbicacionRepository;
+import com.nuclearvet.modulos.inventario.repository.UbicacionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para UbicacionService (RF4.3)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UbicacionService Tests")
+class UbicacionServiceTest {
+
+    @Mock
+    private UbicacionRepository ubicacionRepository;
+
+    @Mock
+    private StockUbicacionRepository stockRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private StockUbicaciones stockUbicaciones;
+
+    @Mock
+    private UbicacionMapper ubicacionMapper;
+
+    @InjectMocks
+    private UbicacionService ubicacionService;
+
+    @Test
+    @DisplayName("RF4.3: Crear ubicación con código existente debe lanzar excepción")
+    void crearUbicacion_CodigoDuplicado_LanzaExcepcion() {
+        // Given
+        when(ubicacionRepository.existsByCodigo("QUIROFANO")).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> ubicacionService.crearUbicacion(
+                CrearUbicacionDTO.builder().codigo("QUIROFANO").nombre("Quirófano").build()))
+                .isInstanceOf(ConflictoException.class);
+        verify(ubicacionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("RF4.3: Fijar el mínimo de un producto sin stock en la ubicación debe crear su fila")
+    void fijarStockMinimo_SinFila_LaCrea() {
+        // Given
+        StockUbicacion fila = StockUbicacion.builder().cantidad(0).stockMinimo(5).build();
+        when(productoRepository.existsById(1L)).thenReturn(true);
+        when(stockRepository.actualizarStockMinimo(1L, 2L, 5)).thenReturn(0, 1);
+        when(stockRepository.findConRelaciones(1L, 2L)).thenReturn(Optional.of(fila));
+        when(ubicacionMapper.toStockDTO(fila)).thenReturn(StockUbicacionDTO.builder().cantidad(0).stockMinimo(5).build());
+
+        // When
+        StockUbicacionDTO resultado = ubicacionService.fijarStockMinimo(2L, 1L, 5);
+
+        // Then
+        assertThat(resultado.getStockMinimo()).isEqualTo(5);
+        verify(stockUbicaciones).resolver(2L);
+        verify(stockRepository).sumarCantidad(1L, 2L, 0);
+        verify(stockRepository, times(2)).actualizarStockMinimo(1L, 2L, 5);
+    }
+
+    @Test
+    @DisplayName("RF4.3: Consultar el stock de una ubicación inexistente debe lanzar excepción")
+    void listarStock_UbicacionInexistente_LanzaExcepcion() {
+        // Given
+        when(ubicacionRepository.existsById(9L)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> ubicacionService.listarStock(9L))
+                .isInstanceOf(RecursoNoEncontradoException.class);
+        verifyNoInteractions(stockRepository);
+    }
+}
@@ -0,0 +1,263 @@
+package com.nuclearvet.modulos.notificaciones.service;
+
+import com.nuclearvet.modulos.notificaciones.dto.DatosEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.dto.ResultadoEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+import com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion;
+import com.nuclearvet.modulos.notificaciones.entity.Notificacion;
+import com.nuclearvet.modulos.notificaciones.repository.NotificacionRepository;
+import com.nuclearvet.modulos.usuarios.entity.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para DespachadorNotificaciones (RF5.1)
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DespachadorNotificaciones Tests")
+class DespachadorNotificacionesTest {
+
+    @Mock
+    private NotificacionRepository notificacionRepository;
+
+    @Mock
+    private EnviadorCanalNotificacion enviadorEmail;
+
+    @Captor
+    private ArgumentCaptor<List<DatosEnvioNotificacionDTO>> lotes;
+
+    @Captor
+    private ArgumentCaptor<String> tokens;
+
+    private DespachadorNotificaciones despachador;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        usuario = Usuario.builder().id(1L).nombre("Juan").email("juan.perez@test.com").build();
+        when(enviadorEmail.canal()).thenReturn(CanalNotificacion.EMAIL);
+
+        despachador = new DespachadorNotificaciones(notificacionRepository, List.of(enviadorEmail));
+        ReflectionTestUtils.setField(despachador, "tamanoLote", 1000);
+        ReflectionTestUtils.setField(despachador, "capacidadCola", 10);
+        ReflectionTestUtils.setField(despachador, "maxIntentos", 3);
+        ReflectionTestUtils.setField(despachador, "esperaReintentoMs", 60000L);
+        ReflectionTestUtils.setField(despachador, "envioVencidoMs", 600000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        despachador.detener();
+    }
+
+    @Test
+    @DisplayName("Las pendientes se envían en lotes del tamaño máximo del proveedor")
+    void despachar_AgrupaEnLotesDelProveedor() throws Exception {
+        // Given
+        iniciarConLotesDeDos();
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L, 2L, 3L));
+        when(notificacionRepository.tomarParaEnvio(eq(List.of(1L, 2L, 3L)), anyString(), any())).thenReturn(3);
+        when(notificacionRepository.findEnEnvio(anyString()))
+                .thenReturn(List.of(notificacion(1L, 0), notificacion(2L, 0), notificacion(3L, 0)));
+        when(enviadorEmail.enviar(anyList())).thenAnswer(todasExitosas());
+
+        // When
+        int encoladas = despachador.despachar();
+        despachador.detener();
+
+        // Then
+        assertThat(encoladas).isEqualTo(3);
+        verify(notificacionRepository).tomarParaEnvio(eq(List.of(1L, 2L, 3L)), tokens.capture(), any());
+        verify(notificacionRepository).findEnEnvio(tokens.getValue());
+        verify(enviadorEmail, times(2)).enviar(lotes.capture());
+        assertThat(lotes.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(lotes.getAllValues().get(0).get(0).getEmail()).isEqualTo("juan.perez@test.com");
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(1L, 2L)), any());
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(3L)), any());
+    }
+
+    @Test
+    @DisplayName("Solo se envían las notificaciones tomadas con el token propio")
+    void despachar_OtraInstanciaTomoParte_EnviaSoloLasPropias() throws Exception {
+        // Given: otra instancia tomó la 2 entre la consulta de ids y la toma
+        iniciarConLotesDeDos();
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L, 2L, 3L));
+        when(notificacionRepository.tomarParaEnvio(eq(List.of(1L, 2L, 3L)), anyString(), any())).thenReturn(2);
+        when(notificacionRepository.findEnEnvio(anyString()))
+                .thenReturn(List.of(notificacion(1L, 0), notificacion(3L, 0)));
+        when(enviadorEmail.enviar(anyList())).thenAnswer(todasExitosas());
+
+        // When
+        int encoladas = despachador.despachar();
+        despachador.detener();
+
+        // Then
+        assertThat(encoladas).isEqualTo(2);
+        verify(notificacionRepository).tomarParaEnvio(anyList(), tokens.capture(), any());
+        verify(notificacionRepository).findEnEnvio(tokens.getValue());
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(1L, 3L)), any());
+    }
+
+    @Test
+    @DisplayName("Si otra instancia tomó todas las notificaciones no se carga ni se envía nada")
+    void despachar_OtraInstanciaTomoTodas_NoEnvia() throws Exception {
+        // Given
+        iniciarConLotesDeDos();
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L, 2L));
+        when(notificacionRepository.tomarParaEnvio(eq(List.of(1L, 2L)), anyString(), any())).thenReturn(0);
+
+        // When
+        int encoladas = despachador.despachar();
+        despachador.detener();
+
+        // Then
+        assertThat(encoladas).isZero();
+        verify(notificacionRepository, never()).findEnEnvio(anyString());
+        verify(enviadorEmail, never()).enviar(anyList());
+    }
+
+    @Test
+    @DisplayName("En un lote aceptado, las rechazadas vuelven a PENDIENTE con fecha de reintento")
+    void despachar_ResultadoParcial_ReintentaLasFallidas() throws Exception {
+        // Given
+        iniciarConLotesDeDos();
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L, 2L));
+        when(notificacionRepository.tomarParaEnvio(eq(List.of(1L, 2L)), anyString(), any())).thenReturn(2);
+        when(notificacionRepository.findEnEnvio(anyString()))
+                .thenReturn(List.of(notificacion(1L, 0), notificacion(2L, 1)));
+        when(enviadorEmail.enviar(anyList())).thenReturn(List.of(
+                ResultadoEnvioNotificacionDTO.builder().notificacionId(1L).exitoso(true).build(),
+                ResultadoEnvioNotificacionDTO.builder().notificacionId(2L).exitoso(false).mensajeError("Buzón inexistente").build()));
+
+        // When
+        despachador.despachar();
+        despachador.detener();
+
+        // Then
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(1L)), any());
+        verify(notificacionRepository).registrarFalloEnvio(eq(2L), eq(EstadoNotificacion.PENDIENTE),
+                eq("Buzón inexistente"), notNull(), any());
+    }
+
+    @Test
+    @DisplayName("Si falla el lote completo en el último intento, sus notificaciones quedan en ERROR")
+    void despachar_FalloDeLoteSinIntentos_QuedaEnError() throws Exception {
+        // Given
+        iniciarConLotesDeDos();
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L, 2L));
+        when(notificacionRepository.tomarParaEnvio(eq(List.of(1L, 2L)), anyString(), any())).thenReturn(2);
+        when(notificacionRepository.findEnEnvio(anyString()))
+                .thenReturn(List.of(notificacion(1L, 2), notificacion(2L, 2)));
+        when(enviadorEmail.enviar(anyList())).thenThrow(new IOException("SMTP no disponible"));
+
+        // When
+        despachador.despachar();
+        despachador.detener();
+
+        // Then
+        verify(notificacionRepository).registrarFalloEnvio(eq(1L), eq(EstadoNotificacion.ERROR),
+                contains("SMTP no disponible"), isNull(), any());
+        verify(notificacionRepository).registrarFalloEnvio(eq(2L), eq(EstadoNotificacion.ERROR),
+                contains("SMTP no disponible"), isNull(), any());
+        verify(notificacionRepository, never()).marcarEnviadas(anyList(), any());
+    }
+
+    @Test
+    @DisplayName("Con la cola del canal llena no se toman más notificaciones de la base de datos")
+    void despachar_ColaLlena_NoTomaMas() throws Exception {
+        // Given: un lote en envío y uno en cola; el proveedor queda bloqueado
+        ReflectionTestUtils.setField(despachador, "capacidadCola", 2);
+        iniciarConLotesDeDos();
+        CountDownLatch proveedor = new CountDownLatch(1);
+        Answer<List<ResultadoEnvioNotificacionDTO>> exitosas = todasExitosas();
+        when(enviadorEmail.enviar(anyList())).thenAnswer(inv -> {
+            proveedor.await(5, TimeUnit.SECONDS);
+            return exitosas.answer(inv);
+        });
+        when(notificacionRepository.findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any()))
+                .thenReturn(List.of(1L), List.of(2L));
+        when(notificacionRepository.tomarParaEnvio(anyList(), anyString(), any())).thenReturn(1);
+        when(notificacionRepository.findEnEnvio(anyString()))
+                .thenReturn(List.of(notificacion(1L, 0)), List.of(notificacion(2L, 0)));
+
+        // When: el primer lote ocupa el hilo, el segundo la cola y la tercera ejecución no encuentra espacio
+        despachador.despachar();
+        despachador.despachar();
+        int encoladas = despachador.despachar();
+        proveedor.countDown();
+        despachador.detener();
+
+        // Then
+        assertThat(encoladas).isZero();
+        verify(notificacionRepository, times(2)).findIdsParaDespachar(eq(CanalNotificacion.EMAIL), any(), any());
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(1L)), any());
+        verify(notificacionRepository).marcarEnviadas(eq(List.of(2L)), any());
+    }
+
+    @Test
+    @DisplayName("Dos enviadores para el mismo canal deben rechazarse al iniciar")
+    void constructor_CanalDuplicado_LanzaExcepcion() {
+        // Given
+        EnviadorCanalNotificacion otro = mock(EnviadorCanalNotificacion.class);
+        when(otro.canal()).thenReturn(CanalNotificacion.EMAIL);
+
+        // When & Then
+        assertThatThrownBy(() -> new DespachadorNotificaciones(notificacionRepository, List.of(enviadorEmail, otro)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("EMAIL");
+    }
+
+    /**
+     * Proveedor EMAIL con lotes de 2 y un lote en envío a la vez
+     */
+    private void iniciarConLotesDeDos() {
+        when(enviadorEmail.tamanoMaximoLote()).thenReturn(2);
+        when(enviadorEmail.concurrencia()).thenReturn(1);
+        despachador.iniciar();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Answer<List<ResultadoEnvioNotificacionDTO>> todasExitosas() {
+        return inv -> ((List<DatosEnvioNotificacionDTO>) inv.getArgument(0)).stream()
+                .map(datos -> ResultadoEnvioNotificacionDTO.builder()
+                        .notificacionId(datos.getNotificacionId())
+                        .exitoso(true)
+                        .build())
+                .toList();
+    }
+
+    private Notificacion notificacion(Long id, int intentos) {
+        return Notificacion.builder()
+                .id(id)
+                .destinatario(usuario)
+                .canal(CanalNotificacion.EMAIL)
+                .estado(EstadoNotificacion.ENVIANDO)
+                .asunto("Recordatorio de cita")
+                .mensaje("Tiene una cita programada para mañana")
+                .intentosEnvio(intentos)
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.nuclearvet.modulos.notificaciones.service;
+
+import com.nuclearvet.modulos.notificaciones.dto.DatosEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.dto.ResultadoEnvioNotificacionDTO;
+import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests para EnviadorCanalSimulado (RF5.1)
+ */
+@DisplayName("EnviadorCanalSimulado Tests")
+class EnviadorCanalSimuladoTest {
+
+    @TempDir
+    Path directorio;
+
+    private final List<DatosEnvioNotificacionDTO> lote = List.of(
+            DatosEnvioNotificacionDTO.builder().notificacionId(1L).canal(CanalNotificacion.SMS)
+                    .telefono("3001234567").asunto("Recordatorio de cita").mensaje("Mañana 9:00").build(),
+            DatosEnvioNotificacionDTO.builder().notificacionId(2L).canal(CanalNotificacion.SMS)
+                    .telefono("3109876543").asunto("Vacuna pendiente").mensaje("Refuerzo anual").build());
+
+    @Test
+    @DisplayName("Sin fallos debe entregar el lote y registrarlo en el archivo del canal")
+    void enviar_SinFallos_RegistraEnArchivo() throws IOException {
+        // Given
+        EnviadorCanalSimulado enviador = new EnviadorCanalSimulado(CanalNotificacion.SMS, 100, 2, 0, 0.0, 0.0, directorio);
+
+        // When
+        List<ResultadoEnvioNotificacionDTO> resultados = enviador.enviar(lote);
+
+        // Then
+        assertThat(resultados).allMatch(ResultadoEnvioNotificacionDTO::isExitoso);
+        assertThat(Files.readAllLines(directorio.resolve("notificaciones-sms.log")))
+                .hasSize(2)
+                .anySatisfy(linea -> assertThat(linea).contains("|1|3001234567|Recordatorio de cita"));
+        assertThat(enviador.getEntregadas()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Un fallo de lote debe lanzar IOException y contar todo el lote como fallido")
+    void enviar_FalloDeLote_LanzaExcepcion() {
+        // Given
+        EnviadorCanalSimulado enviador = new EnviadorCanalSimulado(CanalNotificacion.SMS, 100, 2, 0, 1.0, 0.0, null);
+
+        // When & Then
+        assertThatThrownBy(() -> enviador.enviar(lote)).isInstanceOf(IOException.class);
+        assertThat(enviador.getFallidas()).isEqualTo(2);
+        assertThat(enviador.getEntregadas()).isZero();
+    }
+
+    @Test
+    @DisplayName("Los fallos por notificación deben devolverse como resultados no exitosos")
+    void enviar_FallosPorNotificacion_DevuelveResultados() throws IOException {
+        // Given
+        EnviadorCanalSimulado enviador = new EnviadorCanalSimulado(CanalNotificacion.SMS, 100, 2, 0, 0.0, 1.0, directorio);
+
+        // When
+        List<ResultadoEnvioNotificacionDTO> resultados = enviador.enviar(lote);
+
+        // Then
+        assertThat(resultados).extracting(ResultadoEnvioNotificacionDTO::getNotificacionId).containsExactly(1L, 2L);
+        assertThat(resultados).noneMatch(ResultadoEnvioNotificacionDTO::isExitoso);
+        assertThat(directorio.resolve("notificaciones-sms.log")).doesNotExist();
+    }
+}
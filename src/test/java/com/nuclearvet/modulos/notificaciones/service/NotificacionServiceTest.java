@@ -1,11 +1,13 @@
 package com.nuclearvet.modulos.notificaciones.service;
 
 import com.nuclearvet.common.exception.RecursoNoEncontradoException;
+import com.nuclearvet.modulos.inventario.dto.CruceStockMinimoEvento;
 import com.nuclearvet.modulos.notificaciones.dto.CrearNotificacionDTO;
 import com.nuclearvet.modulos.notificaciones.dto.NotificacionDTO;
 import com.nuclearvet.modulos.notificaciones.entity.CanalNotificacion;
 import com.nuclearvet.modulos.notificaciones.entity.EstadoNotificacion;
 import com.nuclearvet.modulos.notificaciones.entity.Notificacion;
+import com.nuclearvet.modulos.notificaciones.entity.TipoNotificacion;
 import com.nuclearvet.modulos.notificaciones.mapper.NotificacionMapper;
 import com.nuclearvet.modulos.notificaciones.repository.NotificacionRepository;
 import com.nuclearvet.modulos.usuarios.entity.Usuario;
@@ -16,7 +18,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -101,12 +105,33 @@ class NotificacionServiceTest {
         // When
         NotificacionDTO resultado = notificacionService.crearNotificacion(crearNotificacionDTO);
 
-        // Then
+        // Then: queda en la bandeja de salida, la envía DespachadorNotificaciones
         assertThat(resultado).isNotNull();
         assertThat(resultado.getAsunto()).isEqualTo("Recordatorio de cita");
+        assertThat(notificacion.getEstado()).isEqualTo(EstadoNotificacion.PENDIENTE);
+        assertThat(notificacion.getFechaEnviada()).isNull();
         verify(notificacionRepository).save(any(Notificacion.class));
     }
 
+    @Test
+    @DisplayName("Crear notificación IN_APP - Queda entregada al guardarse")
+    void testCrearNotificacionInAppEntregada() {
+        // Given
+        notificacion.setCanal(CanalNotificacion.IN_APP);
+        crearNotificacionDTO.setCanal(CanalNotificacion.IN_APP);
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(usuario));
+        when(notificacionMapper.toEntity(any(CrearNotificacionDTO.class))).thenReturn(notificacion);
+        when(notificacionRepository.save(any(Notificacion.class))).thenReturn(notificacion);
+        when(notificacionMapper.toDTO(any(Notificacion.class))).thenReturn(notificacionDTO);
+
+        // When
+        notificacionService.crearNotificacion(crearNotificacionDTO);
+
+        // Then
+        assertThat(notificacion.getEstado()).isEqualTo(EstadoNotificacion.ENVIADA);
+        assertThat(notificacion.getFechaEnviada()).isNotNull();
+    }
+
     @Test
     @DisplayName("Crear notificación - Usuario no existe")
     void testCrearNotificacionUsuarioNoExiste() {
@@ -226,8 +251,9 @@ class NotificacionServiceTest {
         // When
         NotificacionDTO resultado = notificacionService.reintentarEnvio(1L);
 
-        // Then
+        // Then: vuelve a la bandeja de salida
         assertThat(resultado).isNotNull();
+        assertThat(notificacion.getEstado()).isEqualTo(EstadoNotificacion.PENDIENTE);
         verify(notificacionRepository).save(any(Notificacion.class));
     }
 
@@ -256,4 +282,45 @@ class NotificacionServiceTest {
         assertThatThrownBy(() -> notificacionService.obtenerPorId(99L))
                 .isInstanceOf(RecursoNoEncontradoException.class);
     }
+
+    @Test
+    @DisplayName("Stock bajo mínimo - Notifica una vez a cada usuario de los roles configurados")
+    @SuppressWarnings("unchecked")
+    void testNotificarStockBajoMinimo() {
+        // Given: el usuario 1 es administrador y asistente, el usuario 2 ya tiene la alerta sin leer
+        Usuario asistente = Usuario.builder().id(2L).nombre("Ana").build();
+        ReflectionTestUtils.setField(notificacionService, "rolesAlertaStock", List.of("ROLE_ADMIN", "ROLE_ASISTENTE"));
+        when(usuarioRepository.findByRolNombre("ROLE_ADMIN")).thenReturn(List.of(usuario));
+        when(usuarioRepository.findByRolNombre("ROLE_ASISTENTE")).thenReturn(List.of(usuario, asistente));
+        when(notificacionRepository.existsByDestinatarioIdAndTipoAndReferenciaIdAndReferenciaTipoAndFechaLeidaIsNull(
+                1L, TipoNotificacion.ALERTA_STOCK, 7L, "PRODUCTO")).thenReturn(false);
+        when(notificacionRepository.existsByDestinatarioIdAndTipoAndReferenciaIdAndReferenciaTipoAndFechaLeidaIsNull(
+                2L, TipoNotificacion.ALERTA_STOCK, 7L, "PRODUCTO")).thenReturn(true);
+
+        // When
+        notificacionService.notificarStockBajoMinimo(
+                new CruceStockMinimoEvento(7L, "AMX500", "Amoxicilina 500 mg", 12, 9, 10, true));
+
+        // Then
+        ArgumentCaptor<List<Notificacion>> guardadas = ArgumentCaptor.forClass(List.class);
+        verify(notificacionRepository).saveAll(guardadas.capture());
+        assertThat(guardadas.getValue()).hasSize(1);
+        Notificacion alerta = guardadas.getValue().get(0);
+        assertThat(alerta.getDestinatario()).isSameAs(usuario);
+        assertThat(alerta.getTipo()).isEqualTo(TipoNotificacion.ALERTA_STOCK);
+        assertThat(alerta.getCanal()).isEqualTo(CanalNotificacion.IN_APP);
+        assertThat(alerta.getReferenciaId()).isEqualTo(7L);
+        assertThat(alerta.getMensaje()).contains("9 unidades");
+    }
+
+    @Test
+    @DisplayName("Stock recuperado - No crea notificaciones")
+    void testNotificarStockRecuperado() {
+        // When
+        notificacionService.notificarStockBajoMinimo(
+                new CruceStockMinimoEvento(7L, "AMX500", "Amoxicilina 500 mg", 9, 40, 10, false));
+
+        // Then
+        verifyNoInteractions(usuarioRepository, notificacionRepository);
+    }
 }